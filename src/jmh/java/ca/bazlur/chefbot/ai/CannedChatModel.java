@@ -0,0 +1,37 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.ChatResponseMetadata;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * Offline chat model that answers every request with the same reply, so benchmarks measure only the
+ * work done on our side of the call.
+ */
+public class CannedChatModel implements ChatLanguageModel {
+
+    private final String reply;
+
+    public CannedChatModel(String reply) {
+        this.reply = reply;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(reply))
+                .metadata(ChatResponseMetadata.builder().tokenUsage(new TokenUsage(0, 0)).build())
+                .build();
+    }
+
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return Response.from(AiMessage.from(reply), new TokenUsage(0, 0));
+    }
+}
@@ -0,0 +1,37 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversation histories used across memory and summarizer benchmarks.
+ */
+public final class ChatFixtures {
+
+    private ChatFixtures() {
+    }
+
+    /**
+     * Returns {@code length} alternating user and assistant turns. Every user turn and every assistant
+     * turn has the same length, so a full token window always holds the same number of messages.
+     */
+    public static List<ChatMessage> conversation(int length) {
+        List<ChatMessage> messages = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            messages.add(turn(i));
+        }
+        return messages;
+    }
+
+    public static ChatMessage turn(int index) {
+        if (index % 2 == 0) {
+            return UserMessage.from(String.format("Turn %06d: could you suggest a vegan dinner with chickpeas and spinach?", index));
+        }
+        return AiMessage.from(String.format("{\"type\": \"conversation\", \"message\": \"Turn %06d: how about a chana saag "
+                + "with toasted cumin, garlic and a squeeze of lemon? It takes about thirty minutes.\"}", index));
+    }
+}
@@ -0,0 +1,80 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.store.InMemoryVersionedChatMemoryStore;
+import dev.langchain4j.data.message.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory traffic of one chat turn on a full {@link SummarizingTokenWindowChatMemory} of
+ * {@code historyLength} messages: the user message is added, the history is read for the model call, and the
+ * reply is added, as langchain4j does on every turn.
+ * <p>
+ * Run it with the GC profiler; {@code gc.alloc.rate.norm} is the number of bytes allocated per turn, which
+ * should not grow with the length of the history:
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=ChatMemoryAllocationBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMemoryAllocationBenchmark {
+
+    private static final int INCOMING_TURNS = 1_024;
+
+    @Param({"10", "100", "1000"})
+    private int historyLength;
+
+    private SummarizingTokenWindowChatMemory memory;
+    private ChatMessage[] incoming;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        FixedRatioTokenizer tokenizer = new FixedRatioTokenizer();
+        List<ChatMessage> history = ChatFixtures.conversation(historyLength);
+
+        memory = SummarizingTokenWindowChatMemory.builder()
+                .id("benchmark")
+                .maxTokens(tokenizer.estimateTokenCountInMessages(history), tokenizer)
+                .chatMemoryStore(new InMemoryVersionedChatMemoryStore())
+                .summarizer(messages -> "unused")
+                .asyncSummarization(task -> {
+                    // Dropped: the summary never arrives
+                }, 1.0)
+                .build();
+        history.forEach(memory::add);
+
+        incoming = new ChatMessage[INCOMING_TURNS];
+        for (int i = 0; i < INCOMING_TURNS; i++) {
+            incoming[i] = ChatFixtures.turn(historyLength + i);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public void turn(Blackhole blackhole) {
+        memory.add(incoming[next]);
+        blackhole.consume(memory.messages());
+        memory.add(incoming[next + 1]);
+        next = (next + 2) % INCOMING_TURNS; // Pairs of user and assistant messages, so the alternation holds
+    }
+}
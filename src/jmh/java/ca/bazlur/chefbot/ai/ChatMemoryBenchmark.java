@@ -0,0 +1,81 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SummarizingTokenWindowChatMemory#add} and {@link SummarizingTokenWindowChatMemory#messages}
+ * on a window that is full at {@code historyLength} messages, which is the steady state of a long chat:
+ * every added message pushes the oldest one out.
+ * <p>
+ * Summaries are requested in the background but never delivered, so the window is kept in shape by
+ * truncation alone and the history length stays fixed for the whole run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMemoryBenchmark {
+
+    private static final int INCOMING_TURNS = 1_024;
+
+    @Param({"10", "100", "1000"})
+    private int historyLength;
+
+    private SummarizingTokenWindowChatMemory memory;
+    private ChatMessage[] incoming;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        FixedRatioTokenizer tokenizer = new FixedRatioTokenizer();
+        List<ChatMessage> history = ChatFixtures.conversation(historyLength);
+
+        memory = SummarizingTokenWindowChatMemory.builder()
+                .id("benchmark")
+                .maxTokens(tokenizer.estimateTokenCountInMessages(history), tokenizer)
+                .chatMemoryStore(new InMemoryChatMemoryStore())
+                .summarizer(messages -> "unused")
+                .asyncSummarization(task -> {
+                    // Dropped: the summary never arrives
+                }, 1.0)
+                .build();
+        history.forEach(memory::add);
+
+        // Continue the conversation where the history left off, keeping the user/assistant alternation
+        incoming = new ChatMessage[INCOMING_TURNS];
+        for (int i = 0; i < INCOMING_TURNS; i++) {
+            incoming[i] = ChatFixtures.turn(historyLength + i);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public SummarizingTokenWindowChatMemory add() {
+        memory.add(incoming[next]);
+        next = (next + 1) % INCOMING_TURNS; // An even count keeps the alternation across the wrap-around
+        return memory;
+    }
+
+    @Benchmark
+    public List<ChatMessage> messages() {
+        return memory.messages();
+    }
+}
@@ -0,0 +1,52 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.Tokenizer;
+
+/**
+ * Deterministic, offline stand-in for a model tokenizer: one token per four characters plus a small
+ * per-message overhead, which is close enough to real BPE counts for English chat text.
+ */
+public class FixedRatioTokenizer implements Tokenizer {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_MESSAGE = 3;
+
+    @Override
+    public int estimateTokenCountInText(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    @Override
+    public int estimateTokenCountInMessage(ChatMessage message) {
+        String text = switch (message) {
+            case SystemMessage systemMessage -> systemMessage.text();
+            case UserMessage userMessage -> userMessage.singleText();
+            case AiMessage aiMessage -> aiMessage.text();
+            default -> "";
+        };
+        return TOKENS_PER_MESSAGE + estimateTokenCountInText(text);
+    }
+
+    @Override
+    public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+        int tokens = TOKENS_PER_MESSAGE; // Reply priming
+        for (ChatMessage message : messages) {
+            tokens += estimateTokenCountInMessage(message);
+        }
+        return tokens;
+    }
+
+    public int estimateTokenCountInToolSpecifications(Iterable<ToolSpecification> toolSpecifications) {
+        return 0;
+    }
+
+    public int estimateTokenCountInToolExecutionRequests(Iterable<ToolExecutionRequest> toolExecutionRequests) {
+        return 0;
+    }
+}
@@ -0,0 +1,74 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work {@link OpenAILLMSummarizer} does around the model call: hashing the history,
+ * rendering and templating the prompt, and mapping the reply. The model answers instantly and offline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummarizerPromptBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int historyLength;
+
+    private List<ChatMessage> history;
+    private List<ChatMessage> newTurns;
+    private OpenAILLMSummarizer uncached;
+    private OpenAILLMSummarizer cached;
+
+    @Setup
+    public void setUp() {
+        CannedChatModel model = new CannedChatModel("The user wants quick vegan dinners built around chickpeas.");
+        history = ChatFixtures.conversation(historyLength);
+        newTurns = List.of(ChatFixtures.turn(historyLength), ChatFixtures.turn(historyLength + 1));
+
+        uncached = new OpenAILLMSummarizer(model, 300, 0);
+        cached = new OpenAILLMSummarizer(model, 300);
+        cached.summarize(history);
+    }
+
+    /**
+     * Full prompt construction for a history seen for the first time.
+     */
+    @Benchmark
+    public String summarizeUncached() {
+        return uncached.summarize(history);
+    }
+
+    /**
+     * A history that was summarized before and is answered from the cache.
+     */
+    @Benchmark
+    public String summarizeCached() {
+        return cached.summarize(history);
+    }
+
+    /**
+     * Extending an existing summary with the two newest turns, which is what replaces a full
+     * re-summarization once the older turns have been condensed.
+     */
+    @Benchmark
+    public String extend() {
+        return uncached.extend("The user wants quick vegan dinners built around chickpeas.", newTurns);
+    }
+}
@@ -0,0 +1,35 @@
+package ca.bazlur.chefbot.core;
+
+/**
+ * Realistic model output used across benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Returns recipe JSON in the shape the assistant is prompted to produce, with {@code steps}
+     * ingredients and instructions.
+     */
+    public static String recipeJson(int steps) {
+        StringBuilder json = new StringBuilder(256 + steps * 120)
+                .append("{\"type\": \"recipe\", \"name\": \"Slow-Cooked Chana Masala\", ")
+                .append("\"description\": \"A hearty, aromatic chickpea curry simmered with tomatoes and warm spices.\", ")
+                .append("\"ingredients\": [");
+        for (int i = 0; i < steps; i++) {
+            json.append(i == 0 ? "" : ", ").append("\"").append(i + 1).append(" tbsp of ingredient number ").append(i).append("\"");
+        }
+        json.append("], \"instructions\": [");
+        for (int i = 0; i < steps; i++) {
+            json.append(i == 0 ? "" : ", ")
+                    .append("\"Step ").append(i + 1)
+                    .append(": stir gently over medium heat for 2 minutes, then taste and adjust the seasoning.\"");
+        }
+        return json.append("], \"calories\": {\"per serving\": 420, \"protein\": 15.5, \"carbs\": 52, \"fat\": 12, ")
+                .append("\"fiber\": 11, \"sugar\": 9, \"sodium\": 640, \"total\": 1680}, ")
+                .append("\"cuisineType\": \"Indian\", \"dietaryRestrictions\": [\"vegan\", \"gluten-free\"], ")
+                .append("\"isSpicy\": true, \"servingSize\": \"4\"}")
+                .toString();
+    }
+}
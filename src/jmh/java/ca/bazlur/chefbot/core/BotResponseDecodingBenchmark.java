@@ -0,0 +1,81 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link BotResponseTypeAdapter} and the chunked {@link StreamingBotResponseParser}
+ * against the previous tree-based deserializer, which built a {@code JsonObject} and then bound it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotResponseDecodingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int steps;
+
+    private String json;
+
+    private final Gson treeGson = new GsonBuilder()
+            .registerTypeAdapter(BotResponse.class, (JsonDeserializer<BotResponse>) (element, type, context) -> {
+                JsonObject jsonObject = element.getAsJsonObject();
+                return switch (jsonObject.get("type").getAsString()) {
+                    case "recipe" -> context.deserialize(jsonObject, Recipe.class);
+                    case "conversation" -> context.deserialize(jsonObject, Conversation.class);
+                    default -> throw new JsonParseException("Unknown BotResponse type");
+                };
+            })
+            .create();
+
+    private final Gson singlePassGson = new GsonBuilder()
+            .registerTypeAdapter(BotResponse.class, new BotResponseTypeAdapter())
+            .create();
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkFixtures.recipeJson(steps);
+    }
+
+    @Benchmark
+    public BotResponse treeBased() {
+        return treeGson.fromJson(json, BotResponse.class);
+    }
+
+    @Benchmark
+    public BotResponse singlePass() {
+        return singlePassGson.fromJson(json, BotResponse.class);
+    }
+
+    @Benchmark
+    public BotResponse streamingChunks() {
+        StreamingBotResponseParser parser = new StreamingBotResponseParser(BotResponseAssembler.NO_OP_LISTENER);
+        // Roughly the size of the deltas the model streams
+        for (int i = 0; i < json.length(); i += 16) {
+            parser.feed(json.substring(i, Math.min(json.length(), i + 16)));
+        }
+        return parser.finish();
+    }
+}
@@ -0,0 +1,100 @@
+package ca.bazlur.chefbot.domain.service;
+
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RecipeFormatter#printRecipe(Recipe)} with standard output discarded, so only the cost of
+ * building and encoding the text is counted, not the terminal, and rendering into a reused buffer in each style.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeFormatterBenchmark {
+
+    @Param({"10", "100"})
+    private int steps;
+
+    private static final RecipeFormatter ANSI = new RecipeFormatter(RecipeFormatter.Style.ANSI);
+    private static final RecipeFormatter MARKDOWN = new RecipeFormatter(RecipeFormatter.Style.MARKDOWN);
+    private static final RecipeFormatter JSON = new RecipeFormatter(RecipeFormatter.Style.JSON);
+
+    private Recipe recipe;
+    private final StringBuilder buffer = new StringBuilder(4_096);
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        List<String> ingredients = new ArrayList<>(steps);
+        List<String> instructions = new ArrayList<>(steps);
+        for (int i = 0; i < steps; i++) {
+            ingredients.add((i + 1) + " tbsp of ingredient number " + i);
+            instructions.add("Stir gently over medium heat for 2 minutes, then taste and adjust the seasoning.");
+        }
+        recipe = Recipe.builder()
+                .name("Slow-Cooked Chana Masala")
+                .description("A hearty, aromatic chickpea curry simmered with tomatoes and warm spices.")
+                .ingredients(ingredients)
+                .instructions(instructions)
+                .nutrition(Nutrition.builder().caloriesPerServing(420).totalCalories(1680).build())
+                .cuisineType("Indian")
+                .dietaryRestrictions(new LinkedHashSet<>(List.of("vegan", "gluten-free")))
+                .isSpicy(true)
+                .servingSize("4")
+                .build();
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printRecipe() {
+        RecipeFormatter.printRecipe(recipe);
+    }
+
+    @Benchmark
+    public StringBuilder renderAnsi() throws IOException {
+        buffer.setLength(0);
+        return ANSI.render(recipe, buffer);
+    }
+
+    @Benchmark
+    public StringBuilder renderMarkdown() throws IOException {
+        buffer.setLength(0);
+        return MARKDOWN.render(recipe, buffer);
+    }
+
+    @Benchmark
+    public StringBuilder renderJson() throws IOException {
+        buffer.setLength(0);
+        return JSON.render(recipe, buffer);
+    }
+}
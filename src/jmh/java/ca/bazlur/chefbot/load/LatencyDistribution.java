@@ -0,0 +1,63 @@
+package ca.bazlur.chefbot.load;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How long a simulated model call takes. Samples are drawn from a caller-supplied generator, so a seeded
+ * generator replays the same latencies.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    LatencyDistribution NONE = random -> Duration.ZERO;
+
+    Duration sample(RandomGenerator random);
+
+    static LatencyDistribution fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long maxNanos = max.toNanos();
+        return random -> Duration.ofNanos(minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos + 1));
+    }
+
+    /**
+     * A log-normal distribution with the given median and 99th percentile, the long-tailed shape hosted model
+     * latencies usually have.
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        // The 99th percentile of a standard normal distribution
+        double sigma = Math.max(0, (Math.log(p99.toNanos()) - mu) / 2.326);
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Parses {@code fixed:200}, {@code uniform:100-400} or {@code lognormal:300/1500}, in milliseconds.
+     */
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String values = colon < 0 ? "" : spec.substring(colon + 1);
+        try {
+            return switch (kind) {
+                case "none" -> NONE;
+                case "fixed" -> fixed(Duration.ofMillis(Long.parseLong(values)));
+                case "uniform" -> {
+                    String[] range = values.split("-", 2);
+                    yield uniform(Duration.ofMillis(Long.parseLong(range[0])), Duration.ofMillis(Long.parseLong(range[1])));
+                }
+                case "lognormal" -> {
+                    String[] percentiles = values.split("/", 2);
+                    yield logNormal(Duration.ofMillis(Long.parseLong(percentiles[0])), Duration.ofMillis(Long.parseLong(percentiles[1])));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed latency distribution: " + spec, e);
+        }
+    }
+}
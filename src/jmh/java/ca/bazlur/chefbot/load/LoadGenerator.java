@@ -0,0 +1,259 @@
+package ca.bazlur.chefbot.load;
+
+import ca.bazlur.chefbot.config.EnvironmentConfig;
+import ca.bazlur.chefbot.core.RecipeBot;
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.LogLinearHistogram;
+import ca.bazlur.chefbot.metrics.MetricNames;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives simulated users through a complete {@link RecipeBot}, answered by a {@link SimulatedChatModel} in place
+ * of OpenAI, and reports throughput, turn latency and heap usage.
+ * <p>
+ * Each user is a virtual thread holding one session. It introduces itself, states a diet, cuisines and a
+ * calorie target, then keeps asking for dishes, for {@code turns} turns in all. In {@code inprocess} mode the
+ * bot calls the simulated model directly; in {@code http} mode it calls it through the real OpenAI client and a
+ * local {@link SimulatedOpenAiServer}. The OpenAI rate limits are lifted unless they are set explicitly, so the
+ * run measures ChefBot rather than the configured quota.
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--users=200 --turns=20 --mode=http --latency=lognormal:300/1500 --errorRate=0.01"
+ * </pre>
+ * Options, all of the form {@code --name=value}: {@code users} (50), {@code turns} (20), {@code mode}
+ * ({@code inprocess}), {@code latency} ({@code lognormal:200/1000}, see {@link LatencyDistribution#parse(String)}),
+ * {@code errorRate} (0.01), {@code streamRatio} (0.2), the fraction of turns that are streamed, {@code thinkTime}
+ * (0), milliseconds between a user's turns, and {@code seed} (42).
+ */
+public final class LoadGenerator {
+
+    private static final String[] GREETINGS = {"Hi there!", "Hello, I need some dinner ideas.", "Hey chef!"};
+    private static final String[] DIETS = {
+            "I'm vegetarian and allergic to peanuts.", "I'm vegan.", "I eat everything but I'm gluten-free.",
+            "No restrictions, but I don't like mushrooms."};
+    private static final String[] CUISINES = {
+            "I love Italian and Indian food.", "Mostly Mediterranean, please.", "Thai or Japanese would be great.",
+            "Mexican food is my favourite."};
+    private static final String[] TARGETS = {
+            "Around 600 calories, high protein please.", "Something low-carb under 500 calories.",
+            "No particular calorie target."};
+    private static final String[] REQUESTS = {
+            "Can you suggest a dinner recipe?", "Something different please.", "What about a quick lunch?",
+            "Could you make a dish that is a bit spicier?", "Thanks, suggest another meal for the weekend.",
+            "What can I cook with chickpeas and spinach?", "Any breakfast recipe ideas?"};
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        int turns = Integer.parseInt(options.getOrDefault("turns", "20"));
+        String mode = options.getOrDefault("mode", "inprocess");
+        double streamRatio = Double.parseDouble(options.getOrDefault("streamRatio", "0.2"));
+        long thinkTimeMillis = Long.parseLong(options.getOrDefault("thinkTime", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        SimulatedChatModel model = SimulatedChatModel.builder()
+                .seed(seed)
+                .latency(LatencyDistribution.parse(options.getOrDefault("latency", "lognormal:200/1000")))
+                .errorRate(Double.parseDouble(options.getOrDefault("errorRate", "0.01")))
+                .build();
+
+        setIfAbsent("OPENAI_REQUESTS_PER_MINUTE", String.valueOf(Integer.MAX_VALUE / 2));
+        setIfAbsent("OPENAI_TOKENS_PER_MINUTE", String.valueOf(Integer.MAX_VALUE / 2));
+        SimulatedOpenAiServer server = null;
+        RecipeBot bot;
+        switch (mode) {
+            case "inprocess" -> bot = RecipeBot.create(model, model);
+            case "http" -> {
+                server = new SimulatedOpenAiServer(model);
+                // Read when RecipeBot is first initialized, which is only now
+                EnvironmentConfig.setTestEnv("OPENAI_BASE_URL", server.baseUrl());
+                bot = RecipeBot.create("simulated");
+            }
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+
+        try {
+            Report report = run(bot, users, turns, streamRatio, thinkTimeMillis, seed);
+            report.print(System.out, mode, users, turns, model, bot);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static Report run(RecipeBot bot, int users, int turns, double streamRatio, long thinkTimeMillis,
+                              long seed) throws Exception {
+        LogLinearHistogram latency = new LogLinearHistogram();
+        AtomicLong failures = new AtomicLong();
+        HeapSampler heap = new HeapSampler();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+
+        heap.start();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>(users);
+            for (int user = 0; user < users; user++) {
+                int id = user;
+                running.add(executor.submit(() -> {
+                    simulateUser(bot, id, turns, streamRatio, thinkTimeMillis, seed, latency, failures);
+                    return null;
+                }));
+            }
+            for (Future<?> user : running) {
+                user.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        heap.stop();
+
+        return new Report(elapsed, latency.snapshot(), failures.get(), heap.peakBytes(), retainedHeapBytes(),
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    private static void simulateUser(RecipeBot bot, int user, int turns, double streamRatio, long thinkTimeMillis,
+                                     long seed, LogLinearHistogram latency, AtomicLong failures) throws InterruptedException {
+        String sessionId = "load-user-" + user;
+        SplittableRandom random = new SplittableRandom(seed + user);
+        for (int turn = 0; turn < turns; turn++) {
+            String input = message(user, turn, random);
+            long turnStart = System.nanoTime();
+            try {
+                BotResponse response = random.nextDouble() < streamRatio
+                        ? bot.streamUserInput(sessionId, input, ignored -> {
+                        }).join()
+                        : bot.processUserInput(sessionId, input);
+                if (response == null) {
+                    failures.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+            latency.record(System.nanoTime() - turnStart);
+            if (thinkTimeMillis > 0) {
+                Thread.sleep(thinkTimeMillis);
+            }
+        }
+    }
+
+    private static String message(int user, int turn, SplittableRandom random) {
+        return switch (turn) {
+            case 0 -> GREETINGS[user % GREETINGS.length];
+            case 1 -> DIETS[user % DIETS.length];
+            case 2 -> CUISINES[user % CUISINES.length];
+            case 3 -> TARGETS[user % TARGETS.length];
+            default -> REQUESTS[random.nextInt(REQUESTS.length)];
+        };
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    private static void setIfAbsent(String name, String value) {
+        if (EnvironmentConfig.getEnv(name, null) == null) {
+            EnvironmentConfig.setTestEnv(name, value);
+        }
+    }
+
+    private static long retainedHeapBytes() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Samples the used heap every 50 ms and keeps the highest value seen.
+     */
+    private static final class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peak = new AtomicLong();
+        private volatile boolean running;
+        private Thread thread;
+
+        void start() {
+            running = true;
+            thread = Thread.ofPlatform().daemon().name("heap-sampler").start(() -> {
+                while (running) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.interrupt();
+            thread.join();
+            peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        long peakBytes() {
+            return peak.get();
+        }
+    }
+
+    private record Report(long elapsedNanos, LogLinearHistogram.Snapshot latency, long failures, long peakHeapBytes,
+                          long retainedHeapBytes, long gcCount, long gcMillis) {
+
+        void print(PrintStream out, String mode, int users, int turns, SimulatedChatModel model, RecipeBot bot) {
+            double seconds = elapsedNanos / 1e9;
+            long turnErrors = bot.metrics() instanceof LockFreeMetrics metrics ? metrics.count(MetricNames.TURN_ERRORS) : -1;
+            out.printf("Mode:            %s, %d users x %d turns%n", mode, users, turns);
+            out.printf("Elapsed:         %.2f s%n", seconds);
+            out.printf("Throughput:      %.1f turns/s%n", latency.count() / seconds);
+            out.printf("Turn latency:    p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    latency.p50() / 1e6, latency.p90() / 1e6, latency.p99() / 1e6, latency.max() / 1e6);
+            out.printf("Failed turns:    %d (apologies: %d)%n", failures, turnErrors);
+            out.printf("Model calls:     %d (%d simulated failures)%n", model.calls(), model.failures());
+            out.printf("Heap:            peak %.1f MB, retained after GC %.1f MB%n",
+                    peakHeapBytes / 1048576.0, retainedHeapBytes / 1048576.0);
+            out.printf("GC:              %d collections, %d ms%n", gcCount, gcMillis);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package ca.bazlur.chefbot.load;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.ChatResponseMetadata;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Offline stand-in for an OpenAI chat model that answers the way the real one is prompted to, so the whole
+ * pipeline can be load tested without network access or cost.
+ * <p>
+ * Replies are deterministic: each depends only on the seed and the messages of the request. A summarization
+ * prompt gets a plain-text summary, a message asking for a dish gets recipe JSON and anything else a
+ * conversational question in JSON, with token counts reported as a quarter of their characters. The latency of
+ * each call, and whether it fails with a {@code 429} or {@code 503}, are drawn from one random sequence started
+ * from the same seed, so a single simulated user replays exactly and concurrent ones reproduce the same
+ * distributions.
+ */
+public class SimulatedChatModel implements ChatLanguageModel, StreamingChatLanguageModel {
+
+    private static final List<String> DISHES = List.of(
+            "Chana Masala", "Mushroom Risotto", "Lemon Herb Chicken", "Black Bean Tacos", "Thai Green Curry",
+            "Shakshuka", "Miso Glazed Salmon", "Spinach Lasagna", "Lentil Shepherd's Pie", "Falafel Bowl");
+    private static final List<String> CUISINES = List.of(
+            "Indian", "Italian", "Mediterranean", "Mexican", "Thai", "Japanese", "Middle Eastern");
+    private static final List<String> DIETS = List.of("vegan", "vegetarian", "gluten-free", "dairy-free", "high-protein");
+    private static final List<String> INGREDIENTS = List.of(
+            "2 cups cooked chickpeas", "1 large onion, diced", "3 cloves garlic, minced", "1 tbsp grated ginger",
+            "400 g crushed tomatoes", "1 tsp ground cumin", "2 cups baby spinach", "1 cup arborio rice",
+            "2 tbsp olive oil", "1 lemon, juiced", "200 g firm tofu", "1 cup coconut milk", "Salt and pepper to taste");
+    private static final List<String> STEPS = List.of(
+            "Heat the oil in a large pan over medium heat.",
+            "Add the onion and cook until soft and golden, about 8 minutes.",
+            "Stir in the garlic, ginger and spices and cook for one minute until fragrant.",
+            "Add the tomatoes and simmer for 10 minutes, stirring occasionally.",
+            "Fold in the main ingredients and cook until heated through.",
+            "Add the greens and stir until just wilted.",
+            "Season to taste and finish with a squeeze of lemon.",
+            "Serve warm, garnished with fresh herbs.");
+    private static final List<String> QUESTIONS = List.of(
+            "Do you have any dietary restrictions, for example vegetarian, vegan or gluten-free?",
+            "What kind of cuisines do you enjoy? Perhaps Italian, Indian or Mediterranean?",
+            "Are there any foods you are allergic to or ingredients you would like to avoid?",
+            "Are you aiming for a particular calorie range, or focusing on high-protein or low-carb meals?",
+            "Thanks! Would you like a quick weeknight dinner or something more elaborate?");
+    private static final List<String> RECIPE_WORDS = List.of(
+            "recipe", "dish", "cook", "make", "dinner", "lunch", "breakfast", "meal", "suggest", "another", "different");
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int STREAM_CHUNK_CHARS = 16;
+
+    private final long seed;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final SplittableRandom callRandom;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private SimulatedChatModel(Builder builder) {
+        this.seed = builder.seed;
+        this.latency = ValidationUtils.ensureNotNull(builder.latency, "latency");
+        this.errorRate = ValidationUtils.ensureBetween(builder.errorRate, 0.0, 1.0, "errorRate");
+        this.callRandom = new SplittableRandom(seed);
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        String reply = call(chatRequest.messages());
+        return response(chatRequest.messages(), reply);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        String reply = call(messages);
+        return Response.from(AiMessage.from(reply), tokenUsage(messages, reply));
+    }
+
+    /**
+     * Streams the reply in small chunks from a virtual thread, as the OpenAI client calls its handler from its
+     * own threads.
+     */
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        stream(chatRequest.messages(), handler::onPartialResponse,
+                reply -> handler.onCompleteResponse(response(chatRequest.messages(), reply)), handler::onError);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        stream(messages, handler::onNext,
+                reply -> handler.onComplete(Response.from(AiMessage.from(reply), tokenUsage(messages, reply))), handler::onError);
+    }
+
+    // Both model interfaces declare these defaults, which the stand-in has to pick between
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return ChatLanguageModel.super.listeners();
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return ChatLanguageModel.super.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return ChatLanguageModel.super.supportedCapabilities();
+    }
+
+    private void stream(List<ChatMessage> messages, Consumer<String> partial, Consumer<String> complete,
+                        Consumer<Throwable> error) {
+        Thread.ofVirtual().name("simulated-stream").start(() -> {
+            String reply;
+            try {
+                reply = call(messages);
+            } catch (RuntimeException e) {
+                error.accept(e);
+                return;
+            }
+            for (int start = 0; start < reply.length(); start += STREAM_CHUNK_CHARS) {
+                partial.accept(reply.substring(start, Math.min(reply.length(), start + STREAM_CHUNK_CHARS)));
+            }
+            complete.accept(reply);
+        });
+    }
+
+    /**
+     * Waits out the sampled latency and either fails or returns the reply to {@code messages}.
+     */
+    private String call(List<ChatMessage> messages) {
+        calls.incrementAndGet();
+        RandomGenerator random = nextCallRandom();
+        Duration delay = latency.sample(random);
+        boolean fail = random.nextDouble() < errorRate;
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SimulatedHttpException(499, "Interrupted");
+        }
+        if (fail) {
+            failures.incrementAndGet();
+            throw random.nextBoolean()
+                    ? new SimulatedHttpException(429, "Rate limit reached")
+                    : new SimulatedHttpException(503, "The server is overloaded");
+        }
+        return reply(messages);
+    }
+
+    private RandomGenerator nextCallRandom() {
+        synchronized (callRandom) {
+            return callRandom.split();
+        }
+    }
+
+    /**
+     * Returns the reply to {@code messages}, which depends only on them and the seed.
+     */
+    public String reply(List<ChatMessage> messages) {
+        SplittableRandom random = new SplittableRandom(seed ^ messages.hashCode());
+        String last = messages.isEmpty() ? "" : text(messages.getLast()).toLowerCase(Locale.ROOT);
+        if (last.contains("summarizing past conversation")) {
+            return summary(random);
+        }
+        for (String word : RECIPE_WORDS) {
+            if (last.contains(word)) {
+                return recipeJson(random);
+            }
+        }
+        return conversationJson(random);
+    }
+
+    private static String summary(SplittableRandom random) {
+        return "The user follows a " + pick(DIETS, random) + " diet, prefers " + pick(CUISINES, random)
+                + " food and avoids peanuts. They asked for quick weeknight dinners and were offered "
+                + pick(DISHES, random) + " and " + pick(DISHES, random) + ", and wanted the spice kept mild.";
+    }
+
+    private static String recipeJson(SplittableRandom random) {
+        StringBuilder json = new StringBuilder(1_536)
+                .append("{\"type\": \"recipe\", \"name\": \"").append(pick(DISHES, random)).append("\", ")
+                .append("\"description\": \"A hearty, weeknight-friendly dish with warm spices and fresh greens.\", ")
+                .append("\"ingredients\": [");
+        int ingredients = random.nextInt(6, 11);
+        for (int i = 0; i < ingredients; i++) {
+            json.append(i == 0 ? "\"" : ", \"").append(pick(INGREDIENTS, random)).append('"');
+        }
+        json.append("], \"instructions\": [");
+        int steps = random.nextInt(4, STEPS.size() + 1);
+        for (int i = 0; i < steps; i++) {
+            json.append(i == 0 ? "\"" : ", \"").append(STEPS.get(i)).append('"');
+        }
+        int calories = random.nextInt(250, 800);
+        int servings = random.nextInt(2, 7);
+        return json.append("], \"calories\": {\"per serving\": ").append(calories)
+                .append(", \"protein\": ").append(random.nextInt(8, 45))
+                .append(", \"carbs\": ").append(random.nextInt(15, 90))
+                .append(", \"fat\": ").append(random.nextInt(5, 35))
+                .append(", \"fiber\": ").append(random.nextInt(2, 15))
+                .append(", \"sugar\": ").append(random.nextInt(2, 20))
+                .append(", \"sodium\": ").append(random.nextInt(200, 1_200))
+                .append(", \"total\": ").append(calories * servings)
+                .append("}, \"cuisineType\": \"").append(pick(CUISINES, random))
+                .append("\", \"dietaryRestrictions\": [\"").append(pick(DIETS, random))
+                .append("\"], \"isSpicy\": ").append(random.nextBoolean())
+                .append(", \"servingSize\": \"").append(servings).append(" servings\"}")
+                .toString();
+    }
+
+    private static String conversationJson(SplittableRandom random) {
+        return "{\"type\": \"conversation\", \"message\": \"" + pick(QUESTIONS, random) + "\"}";
+    }
+
+    private static ChatResponse response(List<ChatMessage> messages, String reply) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(reply))
+                .metadata(ChatResponseMetadata.builder().tokenUsage(tokenUsage(messages, reply)).build())
+                .build();
+    }
+
+    private static TokenUsage tokenUsage(List<ChatMessage> messages, String reply) {
+        int inputChars = 0;
+        for (ChatMessage message : messages) {
+            inputChars += text(message).length();
+        }
+        return new TokenUsage(inputChars / CHARS_PER_TOKEN, reply.length() / CHARS_PER_TOKEN);
+    }
+
+    private static String text(ChatMessage message) {
+        return switch (message) {
+            case UserMessage userMessage -> userMessage.hasSingleText() ? userMessage.singleText() : String.valueOf(userMessage.contents());
+            case AiMessage aiMessage -> aiMessage.text() == null ? "" : aiMessage.text();
+            case SystemMessage systemMessage -> systemMessage.text();
+            default -> "";
+        };
+    }
+
+    private static String pick(List<String> values, SplittableRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * An HTTP error as the OpenAI client reports it; {@link #statusCode()} is what decides whether it is retried.
+     */
+    public static class SimulatedHttpException extends HttpException {
+
+        public SimulatedHttpException(int statusCode, String message) {
+            super(statusCode, message);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long seed = 42;
+        private LatencyDistribution latency = LatencyDistribution.NONE;
+        private Double errorRate = 0.0;
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Fraction of calls that fail with a retryable HTTP error, between 0 and 1.
+         */
+        public Builder errorRate(Double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public SimulatedChatModel build() {
+            return new SimulatedChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ca.bazlur.chefbot.load;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * OpenAI-compatible {@code /v1/chat/completions} endpoint on localhost that answers through a
+ * {@link SimulatedChatModel}, so the real OpenAI client, its HTTP stack and JSON handling are part of a load test.
+ * Failures of the model become OpenAI-style error responses with their status, and requests with
+ * {@code "stream": true} are answered as server-sent events.
+ */
+public class SimulatedOpenAiServer implements AutoCloseable {
+
+    private static final int STREAM_CHUNK_CHARS = 16;
+
+    private final HttpServer server;
+    private final SimulatedChatModel model;
+
+    public SimulatedOpenAiServer(SimulatedChatModel model) throws IOException {
+        this.model = model;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    /**
+     * The base URL to configure the OpenAI client with, as {@code OPENAI_BASE_URL}.
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            JsonObject request;
+            try (InputStreamReader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                request = JsonParser.parseReader(body).getAsJsonObject();
+            }
+            String modelName = request.has("model") ? request.get("model").getAsString() : "simulated";
+            boolean stream = request.has("stream") && request.get("stream").getAsBoolean();
+
+            ChatResponse response;
+            try {
+                response = model.chat(ChatRequest.builder().messages(messages(request.getAsJsonArray("messages"))).build());
+            } catch (SimulatedChatModel.SimulatedHttpException e) {
+                JsonObject error = new JsonObject();
+                error.addProperty("message", e.getMessage());
+                error.addProperty("type", e.statusCode() == 429 ? "requests" : "server_error");
+                JsonObject body = new JsonObject();
+                body.add("error", error);
+                send(exchange, e.statusCode(), "application/json", body.toString());
+                return;
+            }
+
+            String content = response.aiMessage().text();
+            TokenUsage usage = response.metadata().tokenUsage();
+            if (stream) {
+                send(exchange, 200, "text/event-stream", events(modelName, content, usage));
+            } else {
+                send(exchange, 200, "application/json", completion(modelName, content, usage).toString());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<ChatMessage> messages(JsonArray messages) {
+        List<ChatMessage> chatMessages = new ArrayList<>(messages.size());
+        for (JsonElement element : messages) {
+            JsonObject message = element.getAsJsonObject();
+            String text = text(message.get("content"));
+            chatMessages.add(switch (message.get("role").getAsString()) {
+                case "system", "developer" -> SystemMessage.from(text);
+                case "assistant" -> AiMessage.from(text);
+                default -> UserMessage.from(text);
+            });
+        }
+        return chatMessages;
+    }
+
+    // Content is either a string or a list of parts, of which only the text parts matter here
+    private static String text(JsonElement content) {
+        if (content == null || content.isJsonNull()) {
+            return "";
+        }
+        if (content.isJsonPrimitive()) {
+            return content.getAsString();
+        }
+        StringBuilder text = new StringBuilder();
+        for (JsonElement part : content.getAsJsonArray()) {
+            JsonElement partText = part.getAsJsonObject().get("text");
+            if (partText != null) {
+                text.append(partText.getAsString());
+            }
+        }
+        return text.toString();
+    }
+
+    private static JsonObject completion(String modelName, String content, TokenUsage usage) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", content);
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("message", message);
+        choice.addProperty("finish_reason", "stop");
+
+        JsonObject completion = header(modelName, "chat.completion");
+        completion.add("choices", array(choice));
+        completion.add("usage", usage(usage));
+        return completion;
+    }
+
+    private static String events(String modelName, String content, TokenUsage usage) {
+        StringBuilder events = new StringBuilder(content.length() * 8);
+        for (int start = 0; start < content.length(); start += STREAM_CHUNK_CHARS) {
+            JsonObject delta = new JsonObject();
+            if (start == 0) {
+                delta.addProperty("role", "assistant");
+            }
+            delta.addProperty("content", content.substring(start, Math.min(content.length(), start + STREAM_CHUNK_CHARS)));
+            event(events, chunk(modelName, delta, null));
+        }
+        JsonObject last = chunk(modelName, new JsonObject(), "stop");
+        last.add("usage", usage(usage));
+        event(events, last);
+        return events.append("data: [DONE]\n\n").toString();
+    }
+
+    private static JsonObject chunk(String modelName, JsonObject delta, String finishReason) {
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("delta", delta);
+        choice.addProperty("finish_reason", finishReason);
+        JsonObject chunk = header(modelName, "chat.completion.chunk");
+        chunk.add("choices", array(choice));
+        return chunk;
+    }
+
+    private static void event(StringBuilder events, JsonObject data) {
+        events.append("data: ").append(data).append("\n\n");
+    }
+
+    private static JsonObject header(String modelName, String object) {
+        JsonObject header = new JsonObject();
+        header.addProperty("id", "chatcmpl-simulated");
+        header.addProperty("object", object);
+        header.addProperty("created", 0);
+        header.addProperty("model", modelName);
+        return header;
+    }
+
+    private static JsonObject usage(TokenUsage tokenUsage) {
+        JsonObject usage = new JsonObject();
+        usage.addProperty("prompt_tokens", tokenUsage.inputTokenCount());
+        usage.addProperty("completion_tokens", tokenUsage.outputTokenCount());
+        usage.addProperty("total_tokens", tokenUsage.totalTokenCount());
+        return usage;
+    }
+
+    private static JsonArray array(JsonElement element) {
+        JsonArray array = new JsonArray();
+        array.add(element);
+        return array;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
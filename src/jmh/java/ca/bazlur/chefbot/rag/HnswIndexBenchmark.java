@@ -0,0 +1,71 @@
+package ca.bazlur.chefbot.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures a top-3 {@link HnswIndex#search} over {@code size} vectors of the dimension produced by the MiniLM
+ * embedding model, which is the index lookup behind every retrieval from the recipe corpus.
+ * <p>
+ * The index is built once per trial, in parallel, from random vectors; these are harder to search than real
+ * embeddings, which cluster, so the latencies are an upper bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HnswIndexBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int QUERIES = 1_024;
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private HnswIndex<Integer> index;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        float[][] vectors = randomVectors(random, size);
+        index = HnswIndex.builder().dimension(DIMENSION).build();
+        IntStream.range(0, size).parallel().forEach(i -> index.add(vectors[i], i));
+        queries = randomVectors(random, QUERIES);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match<Integer>> search() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        return index.search(query, 3, 64);
+    }
+
+    private static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+}
@@ -1,15 +1,18 @@
 package ca.bazlur.chefbot;
 
+import ca.bazlur.chefbot.config.EnvironmentConfig;
 import ca.bazlur.chefbot.core.RecipeBot;
-import ca.bazlur.chefbot.domain.model.Recipe;
-import ca.bazlur.chefbot.domain.model.Conversation;
-import ca.bazlur.chefbot.domain.model.BotResponse;
-import ca.bazlur.chefbot.domain.service.RecipeFormatter;
+import ca.bazlur.chefbot.domain.service.ConsoleResponsePrinter;
+import ca.bazlur.chefbot.metrics.TimedResponseListener;
+import ca.bazlur.chefbot.server.RecipeBotServer;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
         // Get OpenAI API key from environment variable
         String openAiApiKey = System.getenv("OPENAI_API_KEY");
@@ -20,8 +23,20 @@ public class Main {
 
         // Initialize the recipe bot
         RecipeBot recipeBot = RecipeBot.create(openAiApiKey);
-        Scanner scanner = new Scanner(System.in);
 
+        // Serve over HTTP instead of the interactive console when asked to
+        if (Arrays.asList(args).contains("--server")) {
+            serve(recipeBot);
+            return;
+        }
+
+        // Closing the bot lets summaries still running in the background finish
+        try (recipeBot; Scanner scanner = new Scanner(System.in)) {
+            converse(recipeBot, scanner);
+        }
+    }
+
+    private static void converse(RecipeBot recipeBot, Scanner scanner) {
         // Display initial greeting
         System.out.println(recipeBot.getInitialGreeting());
 
@@ -38,21 +53,28 @@ public class Main {
                 break;
             }
 
-            // Process user input and get bot's response
+            // Process user input, printing the bot's response as it is generated
             try {
-                BotResponse botResponse = recipeBot.processUserInput(userInput);
-                if (botResponse instanceof Recipe foodRecipe) {
-                    RecipeFormatter.printRecipe(foodRecipe);
-                } else if (botResponse instanceof Conversation conversation) {
-                    System.out.println("\nBot: " + conversation.getMessage());
-                }
+                recipeBot.streamUserInput(RecipeBot.DEFAULT_SESSION_ID, userInput,
+                        new TimedResponseListener(new ConsoleResponsePrinter(), recipeBot.metrics())).join();
             } catch (Exception e) {
                 System.err.println("\nAn error occurred: " + e.getMessage());
                 System.out.println("\nBot: I apologize, but I encountered an error. " +
                                  "Please try again or rephrase your request.");
             }
         }
+    }
+
+    private static void serve(RecipeBot recipeBot) throws IOException {
+        RecipeBotServer server = RecipeBotServer.builder()
+                .recipeBot(recipeBot)
+                .port(EnvironmentConfig.getEnvAsInt("CHEFBOT_HTTP_PORT", 8080))
+                .maxInFlight(EnvironmentConfig.getEnvAsInt("CHEFBOT_HTTP_MAX_IN_FLIGHT", 1_000))
+                .requestTimeout(Duration.ofSeconds(EnvironmentConfig.getEnvAsInt("CHEFBOT_HTTP_REQUEST_TIMEOUT_SECONDS", 60)))
+                .drainTimeout(Duration.ofSeconds(EnvironmentConfig.getEnvAsInt("CHEFBOT_HTTP_DRAIN_TIMEOUT_SECONDS", 30)))
+                .build();
 
-        scanner.close();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "chefbot-http-drain"));
+        server.start();
     }
 }
@@ -0,0 +1,68 @@
+package ca.bazlur.chefbot.ai;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures and rejects calls for {@code openDuration}. After
+ * that a single probe call is let through: if it succeeds the breaker closes, if it fails it opens again.
+ */
+final class CircuitBreaker {
+
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong(CLOSED);
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    boolean allowRequest() {
+        long opened = openedAt.get();
+        if (opened == CLOSED) {
+            return true;
+        }
+        if (System.nanoTime() - opened < openNanos) {
+            return false;
+        }
+        return probing.compareAndSet(false, true);
+    }
+
+    /**
+     * Whether {@link #allowRequest()} would refuse a call right now, without claiming the probe. Callers check this
+     * before waiting for anything else, so a call the breaker will refuse does not wait first.
+     */
+    boolean rejectsRequests() {
+        long opened = openedAt.get();
+        return opened != CLOSED && (System.nanoTime() - opened < openNanos || probing.get());
+    }
+
+    void onSuccess() {
+        if (openedAt.get() != CLOSED || consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+            openedAt.set(CLOSED);
+            probing.set(false);
+        }
+    }
+
+    void onFailure() {
+        if (probing.getAndSet(false)) {
+            openedAt.set(System.nanoTime());
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.compareAndSet(CLOSED, System.nanoTime());
+        }
+    }
+
+    boolean isOpen() {
+        return openedAt.get() != CLOSED;
+    }
+}
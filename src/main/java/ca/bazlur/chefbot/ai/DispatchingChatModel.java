@@ -0,0 +1,251 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sits between the assistant and summarizer and the underlying chat model, and decides when requests
+ * actually go out:
+ * <ul>
+ *     <li>identical requests already in flight share that call instead of issuing their own;</li>
+ *     <li>at most {@code maxConcurrentRequests} calls run against the model at once, the rest wait in a
+ *     first-come, first-served queue;</li>
+ *     <li>bulk work submitted through {@link #submitBatch(List)} is grouped into batches that go out one after
+ *     another, so a nightly pre-generation job never occupies more than one batch worth of connections.</li>
+ * </ul>
+ * Streamed calls to the same model, through {@link #streaming(StreamingChatLanguageModel)}, wait in the same queue
+ * and hold their connection until the stream ends.
+ */
+public class DispatchingChatModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final Semaphore connections;
+    private final int batchSize;
+    private final Executor batchExecutor;
+    private final Metrics metrics;
+    private final Map<ChatRequest, CompletableFuture<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private DispatchingChatModel(Builder builder) {
+        this.delegate = ValidationUtils.ensureNotNull(builder.delegate, "delegate");
+        this.connections = new Semaphore(ValidationUtils.ensureGreaterThanZero(builder.maxConcurrentRequests, "maxConcurrentRequests"), true);
+        this.batchSize = ValidationUtils.ensureGreaterThanZero(builder.batchSize, "batchSize");
+        this.batchExecutor = ValidationUtils.ensureNotNull(builder.batchExecutor, "batchExecutor");
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        CompletableFuture<ChatResponse> flight = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> existing = inFlight.putIfAbsent(chatRequest, flight);
+        if (existing != null) {
+            metrics.increment(MetricNames.LLM_COALESCED);
+            return join(existing);
+        }
+
+        try {
+            ChatResponse response = callWithConnection(chatRequest);
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(chatRequest, flight);
+        }
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ChatResponse response = chat(ChatRequest.builder().messages(messages).build());
+        return Response.from(response.aiMessage(), response.tokenUsage(), response.finishReason());
+    }
+
+    /**
+     * Returns {@code streamingModel} sharing this dispatcher's connections: a streamed call waits for one like a
+     * blocking call does, and holds it until its reply completes or fails. Streams are never shared, as each
+     * caller consumes its own reply as it arrives.
+     */
+    public StreamingChatLanguageModel streaming(StreamingChatLanguageModel streamingModel) {
+        ValidationUtils.ensureNotNull(streamingModel, "streamingModel");
+        return new ForwardingStreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                acquireConnection();
+                StreamingConnection connection = new StreamingConnection(handler);
+                try {
+                    streamingModel.chat(chatRequest, connection);
+                } catch (RuntimeException | Error e) {
+                    connection.onError(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Queues non-interactive requests, such as recipes pre-generated for tomorrow's menu. Requests are sent in
+     * batches of {@code batchSize}, the next batch starting once the previous one has completed; identical
+     * requests within a batch are sent once.
+     *
+     * @return one future per request, in the order given, each completing as soon as its own response arrives
+     */
+    public List<CompletableFuture<ChatResponse>> submitBatch(List<ChatRequest> requests) {
+        List<CompletableFuture<ChatResponse>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+
+        batchExecutor.execute(() -> {
+            for (int from = 0; from < requests.size(); from += batchSize) {
+                int to = Math.min(requests.size(), from + batchSize);
+                Map<ChatRequest, CompletableFuture<ChatResponse>> calls = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    CompletableFuture<ChatResponse> result = results.get(i);
+                    calls.computeIfAbsent(requests.get(i), request -> CompletableFuture.supplyAsync(() -> chat(request), batchExecutor))
+                            .whenComplete((response, error) -> {
+                                if (error != null) {
+                                    result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                                } else {
+                                    result.complete(response);
+                                }
+                            });
+                }
+                metrics.increment(MetricNames.LLM_BATCHES);
+                // Failures are reported through the individual futures; they do not stop later batches
+                CompletableFuture.allOf(calls.values().toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+            }
+        });
+        return results;
+    }
+
+    private ChatResponse callWithConnection(ChatRequest chatRequest) {
+        acquireConnection();
+        try {
+            return delegate.chat(chatRequest);
+        } finally {
+            connections.release();
+        }
+    }
+
+    private void acquireConnection() {
+        long queuedAt = System.nanoTime();
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model connection", e);
+        }
+        metrics.record(MetricNames.LLM_QUEUE_LATENCY, System.nanoTime() - queuedAt);
+    }
+
+    /**
+     * Passes a streamed reply on and gives its connection back when the stream ends, however it ends.
+     */
+    private final class StreamingConnection implements StreamingChatResponseHandler {
+
+        private final StreamingChatResponseHandler handler;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private StreamingConnection(StreamingChatResponseHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            handler.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse response) {
+            release();
+            handler.onCompleteResponse(response);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            release();
+            handler.onError(error);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                connections.release();
+            }
+        }
+    }
+
+    private static ChatResponse join(CompletableFuture<ChatResponse> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ChatLanguageModel delegate;
+        private Integer maxConcurrentRequests = 64;
+        private Integer batchSize = 8;
+        private Executor batchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        private Metrics metrics = Metrics.NOOP;
+
+        public Builder delegate(ChatLanguageModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Upper bound on calls running against the model at once, across interactive and batch traffic.
+         */
+        public Builder maxConcurrentRequests(Integer maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public Builder batchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder batchExecutor(Executor batchExecutor) {
+            this.batchExecutor = batchExecutor;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public DispatchingChatModel build() {
+            return new DispatchingChatModel(this);
+        }
+    }
+}
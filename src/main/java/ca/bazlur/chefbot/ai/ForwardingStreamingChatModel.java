@@ -0,0 +1,43 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * Base of the streaming decorators in this package, which implement only
+ * {@link #chat(ChatRequest, StreamingChatResponseHandler)}; the older {@code generate} entry point is answered
+ * through it, so both go through the same decoration.
+ */
+abstract class ForwardingStreamingChatModel implements StreamingChatLanguageModel {
+
+    @Override
+    public abstract void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler);
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        chat(ChatRequest.builder().messages(messages).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                handler.onNext(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                handler.onComplete(Response.from(response.aiMessage(), response.tokenUsage(), response.finishReason()));
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The messages of a {@link SummarizingTokenWindowChatMemory} with their token counts, in the two parts the
+ * memory keeps apart: a short prefix of the system prompt and summary blocks, followed by the turns.
+ * <p>
+ * Both parts are arrays that are never written to in place except past their end, so {@link #messages()}
+ * returns an immutable view of the current state in constant time and without copying, and no later change
+ * shows through it. Turns are appended in amortized constant time and dropped from the front by moving a
+ * start offset. Their array is compacted into a fresh one once it is full, or once more than half of it
+ * holds dropped turns, so dropped messages are not kept reachable for longer than the views that still show
+ * them. The prefix changes a few times per conversation and is simply copied on every change.
+ * <p>
+ * Not thread-safe; views may be read from any thread.
+ */
+final class MessageWindow {
+
+    private static final TokenizedMessage[] NONE = new TokenizedMessage[0];
+    private static final int MIN_TURN_CAPACITY = 8;
+
+    private TokenizedMessage[] prefix = NONE;
+    private TokenizedMessage[] turns = NONE;
+    private int turnsStart;
+    private int turnsEnd;
+    private int totalTokens;
+
+    int size() {
+        return prefix.length + turnCount();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int prefixSize() {
+        return prefix.length;
+    }
+
+    int turnCount() {
+        return turnsEnd - turnsStart;
+    }
+
+    /**
+     * Returns the sum of the token counts of all messages.
+     */
+    int totalTokens() {
+        return totalTokens;
+    }
+
+    TokenizedMessage get(int index) {
+        Objects.checkIndex(index, size());
+        return index < prefix.length ? prefix[index] : turns[turnsStart + index - prefix.length];
+    }
+
+    void appendTurn(TokenizedMessage message) {
+        if (turnsEnd == turns.length) {
+            compactTurns();
+        }
+        turns[turnsEnd++] = message;
+        totalTokens += message.tokenCount();
+    }
+
+    void dropOldestTurns(int count) {
+        Objects.checkFromIndexSize(0, count, turnCount());
+        for (int i = turnsStart; i < turnsStart + count; i++) {
+            totalTokens -= turns[i].tokenCount();
+        }
+        turnsStart += count;
+        if (turnsStart > turns.length / 2) {
+            // Not clearing the slots in place, which views taken before may still read
+            compactTurns();
+        }
+    }
+
+    /**
+     * Moves the live turns into a new array with room to grow; views keep reading the old one.
+     */
+    private void compactTurns() {
+        int live = turnCount();
+        TokenizedMessage[] compacted = new TokenizedMessage[Math.max(MIN_TURN_CAPACITY, 2 * live)];
+        System.arraycopy(turns, turnsStart, compacted, 0, live);
+        turns = compacted;
+        turnsStart = 0;
+        turnsEnd = live;
+    }
+
+    void insertPrefix(int index, TokenizedMessage message) {
+        Objects.checkIndex(index, prefix.length + 1);
+        TokenizedMessage[] updated = new TokenizedMessage[prefix.length + 1];
+        System.arraycopy(prefix, 0, updated, 0, index);
+        updated[index] = message;
+        System.arraycopy(prefix, index, updated, index + 1, prefix.length - index);
+        prefix = updated;
+        totalTokens += message.tokenCount();
+    }
+
+    void removePrefix(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, prefix.length);
+        for (int i = fromIndex; i < toIndex; i++) {
+            totalTokens -= prefix[i].tokenCount();
+        }
+        TokenizedMessage[] updated = new TokenizedMessage[prefix.length - (toIndex - fromIndex)];
+        System.arraycopy(prefix, 0, updated, 0, fromIndex);
+        System.arraycopy(prefix, toIndex, updated, fromIndex, prefix.length - toIndex);
+        prefix = updated;
+    }
+
+    void clear() {
+        // Fresh arrays, so no append ever lands in a slot an existing view reads
+        prefix = NONE;
+        turns = NONE;
+        turnsStart = 0;
+        turnsEnd = 0;
+        totalTokens = 0;
+    }
+
+    /**
+     * Returns an immutable view of all messages as they are now.
+     */
+    List<ChatMessage> messages() {
+        return new MessagesView(prefix, turns, turnsStart, turnsEnd);
+    }
+
+    /**
+     * Returns an immutable view of the {@code count} oldest turns as they are now.
+     */
+    List<TokenizedMessage> oldestTurns(int count) {
+        Objects.checkFromIndexSize(0, count, turnCount());
+        return Collections.unmodifiableList(Arrays.asList(turns).subList(turnsStart, turnsStart + count));
+    }
+
+    /**
+     * Returns an immutable view of the messages of the {@code count} oldest turns as they are now.
+     */
+    List<ChatMessage> oldestTurnMessages(int count) {
+        Objects.checkFromIndexSize(0, count, turnCount());
+        return new MessagesView(NONE, turns, turnsStart, turnsStart + count);
+    }
+
+    record TokenizedMessage(ChatMessage message, int tokenCount) {
+    }
+
+    private static final class MessagesView extends AbstractList<ChatMessage> implements RandomAccess {
+        private final TokenizedMessage[] prefix;
+        private final TokenizedMessage[] turns;
+        private final int turnsStart;
+        private final int size;
+
+        private MessagesView(TokenizedMessage[] prefix, TokenizedMessage[] turns, int turnsStart, int turnsEnd) {
+            this.prefix = prefix;
+            this.turns = turns;
+            this.turnsStart = turnsStart;
+            this.size = prefix.length + turnsEnd - turnsStart;
+        }
+
+        @Override
+        public ChatMessage get(int index) {
+            Objects.checkIndex(index, size);
+            return index < prefix.length
+                    ? prefix[index].message()
+                    : turns[turnsStart + index - prefix.length].message();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
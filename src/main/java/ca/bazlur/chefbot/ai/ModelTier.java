@@ -0,0 +1,15 @@
+package ca.bazlur.chefbot.ai;
+
+/**
+ * Models an assistant turn can be routed to.
+ */
+public enum ModelTier {
+    /**
+     * Small talk and clarifying questions, served by a cheaper, faster model.
+     */
+    CONVERSATION,
+    /**
+     * Turns that may produce a full recipe, served by the most capable model.
+     */
+    RECIPE
+}
@@ -0,0 +1,15 @@
+package ca.bazlur.chefbot.ai;
+
+/**
+ * Thrown instead of calling the model when it is known to be failing or the call could not be made in time.
+ */
+public class ModelUnavailableException extends RuntimeException {
+
+    public ModelUnavailableException(String message) {
+        super(message);
+    }
+
+    public ModelUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,42 +1,201 @@
 package ca.bazlur.chefbot.ai;
 
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.V;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * {@link Summarizer} backed by an OpenAI chat model, or any other {@link ChatLanguageModel}.
+ * <p>
+ * Summaries are cached by a rolling SHA-256 hash over the rendered messages, which yields a key for every
+ * prefix of the conversation in a single pass. A repeated request is answered from the cache; a request
+ * whose leading messages were summarized before only sends the new messages, asking the model to extend
+ * the cached summary. Extending a summary goes through the same cache. Concurrent requests for the same
+ * messages share one model call.
+ */
 public class OpenAILLMSummarizer implements Summarizer {
 
+    private static final int DEFAULT_CACHE_SIZE = 1_024;
+
     private final int desiredTokenLimit;
     private final SummarizerAssistant assistant;
+    private final Metrics metrics;
+
+    private final Map<PrefixKey, String> cache;
+    private final Map<PrefixKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public OpenAILLMSummarizer(ChatLanguageModel chatModel, int desiredTokenLimit) {
+        this(chatModel, desiredTokenLimit, DEFAULT_CACHE_SIZE);
+    }
 
-    public OpenAILLMSummarizer(OpenAiChatModel openAiChatModel, int desiredTokenLimit) {
+    public OpenAILLMSummarizer(ChatLanguageModel chatModel, int desiredTokenLimit, int cacheSize) {
+        this(chatModel, desiredTokenLimit, cacheSize, Metrics.NOOP);
+    }
+
+    public OpenAILLMSummarizer(ChatLanguageModel chatModel, int desiredTokenLimit, int cacheSize, Metrics metrics) {
         this.desiredTokenLimit = desiredTokenLimit;
-        assistant = AiServices.builder(SummarizerAssistant.class)
-                .chatLanguageModel(openAiChatModel)
+        this.metrics = metrics;
+        this.assistant = AiServices.builder(SummarizerAssistant.class)
+                .chatLanguageModel(chatModel)
                 .build();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PrefixKey, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     @Override
     public String summarize(List<ChatMessage> messages) {
-        StringBuilder promptBuilder = new StringBuilder("Summarize the following conversation: \n");
-        for (ChatMessage msg : messages) {
-            if (msg instanceof UserMessage) {
-                promptBuilder.append("User: ").append(((UserMessage) msg).contents()).append("\n");
-            } else if (msg instanceof AiMessage) {
-                promptBuilder.append("Assistant: ").append(((AiMessage) msg).text()).append("\n");
-            } else if (msg instanceof SystemMessage) {
-                promptBuilder.append("System: ").append(((SystemMessage) msg).text()).append("\n");
+        String[] lines = new String[messages.size()];
+        PrefixKey[] prefixKeys = new PrefixKey[messages.size()];
+        MessageDigest digest = sha256();
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = render(messages.get(i));
+            digest.update(lines[i].getBytes(StandardCharsets.UTF_8));
+            prefixKeys[i] = PrefixKey.of(clone(digest));
+        }
+        if (lines.length == 0) {
+            return singleFlight(PrefixKey.of(digest), () -> summarizeLines(lines, 0));
+        }
+
+        PrefixKey key = prefixKeys[lines.length - 1];
+        String cached = cached(key);
+        if (cached != null) {
+            metrics.increment(MetricNames.SUMMARY_CACHE_HITS);
+            return cached;
+        }
+
+        // Reuse the longest previously summarized prefix and only send what came after it
+        for (int i = lines.length - 2; i >= 0; i--) {
+            String prefixSummary = cached(prefixKeys[i]);
+            if (prefixSummary != null) {
+                metrics.increment(MetricNames.SUMMARY_CACHE_HITS);
+                int from = i + 1;
+                return singleFlight(key, () -> assistant.extend(prefixSummary, join(lines, from), desiredTokenLimit).trim());
             }
         }
+        metrics.increment(MetricNames.SUMMARY_CACHE_MISSES);
+        return singleFlight(key, () -> summarizeLines(lines, 0));
+    }
+
+    @Override
+    public String extend(String previousSummary, List<ChatMessage> newMessages) {
+        // Keyed like the same summary and messages passed to summarize, so either call answers the other
+        MessageDigest digest = sha256();
+        digest.update(render(SystemMessage.from(SummarizingTokenWindowChatMemory.SUMMARY_PREFIX + previousSummary))
+                .getBytes(StandardCharsets.UTF_8));
+        String[] lines = new String[newMessages.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = render(newMessages.get(i));
+            digest.update(lines[i].getBytes(StandardCharsets.UTF_8));
+        }
+        PrefixKey key = PrefixKey.of(digest);
+        String cached = cached(key);
+        if (cached != null) {
+            metrics.increment(MetricNames.SUMMARY_CACHE_HITS);
+            return cached;
+        }
+        metrics.increment(MetricNames.SUMMARY_CACHE_MISSES);
+        return singleFlight(key, () -> assistant.extend(previousSummary, join(lines, 0), desiredTokenLimit).trim());
+    }
 
-        String summary = assistant.summarize(promptBuilder.toString(), desiredTokenLimit);
-        return summary.trim();
+    private String summarizeLines(String[] lines, int from) {
+        return assistant.summarize("Summarize the following conversation: \n" + join(lines, from), desiredTokenLimit).trim();
+    }
+
+    private String singleFlight(PrefixKey key, Supplier<String> summarize) {
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            // A flight for the same key may have completed between the cache lookup and now
+            String summary = cached(key);
+            if (summary == null) {
+                summary = summarize.get();
+            }
+            synchronized (cache) {
+                cache.put(key, summary);
+            }
+            flight.complete(summary);
+            return summary;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private String cached(PrefixKey key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private static String join(String[] lines, int from) {
+        int length = 0;
+        for (int i = from; i < lines.length; i++) {
+            length += lines[i].length();
+        }
+        StringBuilder joined = new StringBuilder(length);
+        for (int i = from; i < lines.length; i++) {
+            joined.append(lines[i]);
+        }
+        return joined.toString();
+    }
+
+    private static String render(ChatMessage msg) {
+        return switch (msg) {
+            case UserMessage userMessage -> "User: " + (userMessage.hasSingleText() ? userMessage.singleText() : userMessage.contents()) + "\n";
+            case AiMessage aiMessage -> "Assistant: " + aiMessage.text() + "\n";
+            case SystemMessage systemMessage -> "System: " + systemMessage.text() + "\n";
+            default -> "";
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static MessageDigest clone(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digest cannot be cloned", e);
+        }
+    }
+
+    private record PrefixKey(long high, long low) {
+        static PrefixKey of(MessageDigest digest) {
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new PrefixKey(hash.getLong(), hash.getLong());
+        }
     }
 
     interface SummarizerAssistant {
@@ -44,18 +203,36 @@ public class OpenAILLMSummarizer implements Summarizer {
         @dev.langchain4j.service.UserMessage("""
         You are a helpful assistant summarizing past conversation turns for a chatbot.
 
-        Your goal is to create a concise and informative summary of the provided conversation history, 
-        focusing on key information relevant to continuing the conversation.  
-        Pay close attention to user preferences, requests, and any decisions they have made.  
-        Also note any specific topics or tasks discussed.  Be sure to retain information that might be needed 
+        Your goal is to create a concise and informative summary of the provided conversation history,
+        focusing on key information relevant to continuing the conversation.
+        Pay close attention to user preferences, requests, and any decisions they have made.
+        Also note any specific topics or tasks discussed.  Be sure to retain information that might be needed
         to fulfill a user request or provide a relevant response.
 
-        The summary should be under {desiredTokenLimit} tokens and written in a clear, natural language style.  
+        The summary should be under {{desiredTokenLimit}} tokens and written in a clear, natural language style.
         Avoid simply listing the turns.  Instead, synthesize the information into a coherent narrative.
 
         Conversation History:
-        {message}
+        {{message}}
         """)
         String summarize(@V("message") String messages, @V("desiredTokenLimit") int desiredTokenLimit);
+
+        @dev.langchain4j.service.UserMessage("""
+        You are a helpful assistant keeping a running summary of a chatbot conversation up to date.
+
+        Below is the summary of the conversation so far, followed by the turns that happened since.
+        Update the summary so it also covers the new turns. Keep every user preference, request and decision
+        from the existing summary unless the new turns explicitly change it.
+
+        The updated summary should be under {{desiredTokenLimit}} tokens and written in a clear, natural language style.
+        Avoid simply listing the turns.  Instead, synthesize the information into a coherent narrative.
+
+        Existing Summary:
+        {{summary}}
+
+        New Conversation Turns:
+        {{message}}
+        """)
+        String extend(@V("summary") String summary, @V("message") String messages, @V("desiredTokenLimit") int desiredTokenLimit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,441 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Protects the upstream model, and the turns waiting on it, from overload:
+ * <ul>
+ *     <li>calls are paced by two token buckets, one for requests per minute and one for tokens per minute, where a
+ *     call costs its estimated prompt tokens plus the expected completion, corrected once the actual usage is known;</li>
+ *     <li>transient failures (timeouts, 429 and 5xx responses) are retried with exponentially growing, fully
+ *     jittered backoff, but never past the call's deadline;</li>
+ *     <li>after repeated transient failures a circuit breaker fails calls immediately for a while, instead of
+ *     adding to the load on a degraded upstream.</li>
+ * </ul>
+ * One instance is meant to be shared by all sessions, and {@link #streaming(StreamingChatLanguageModel)} puts the
+ * same model's streaming client under the same limits. The buckets and the breaker are lock-free; callers only
+ * ever wait when they are being throttled or backing off.
+ */
+@Slf4j
+public class ResilientChatModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final Tokenizer tokenizer;
+    private final int expectedOutputTokens;
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+    private final Predicate<Throwable> retryable;
+    private final Metrics metrics;
+
+    private ResilientChatModel(Builder builder) {
+        this.delegate = ValidationUtils.ensureNotNull(builder.delegate, "delegate");
+        this.tokenizer = ValidationUtils.ensureNotNull(builder.tokenizer, "tokenizer");
+        this.expectedOutputTokens = ValidationUtils.ensureNotNull(builder.expectedOutputTokens, "expectedOutputTokens");
+        this.requests = TokenBucket.perMinute(ValidationUtils.ensureGreaterThanZero(builder.requestsPerMinute, "requestsPerMinute"));
+        this.tokens = TokenBucket.perMinute(ValidationUtils.ensureGreaterThanZero(builder.tokensPerMinute, "tokensPerMinute"));
+        this.circuitBreaker = new CircuitBreaker(
+                ValidationUtils.ensureGreaterThanZero(builder.failureThreshold, "failureThreshold"),
+                ValidationUtils.ensureNotNull(builder.openDuration, "openDuration"));
+        this.maxAttempts = ValidationUtils.ensureGreaterThanZero(builder.maxAttempts, "maxAttempts");
+        this.initialBackoffNanos = ValidationUtils.ensureNotNull(builder.initialBackoff, "initialBackoff").toNanos();
+        this.maxBackoffNanos = ValidationUtils.ensureNotNull(builder.maxBackoff, "maxBackoff").toNanos();
+        this.deadlineNanos = ValidationUtils.ensureNotNull(builder.deadline, "deadline").toNanos();
+        this.retryable = ValidationUtils.ensureNotNull(builder.retryable, "retryable");
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        int estimatedTokens = estimateTokens(chatRequest);
+
+        RuntimeException lastFailure = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (attempt > 0) {
+                long backoff = backoff(attempt);
+                if (System.nanoTime() + backoff >= deadline) {
+                    break;
+                }
+                metrics.increment(MetricNames.LLM_RETRIES);
+                sleep(backoff);
+            }
+            admit(estimatedTokens, deadline, lastFailure);
+
+            boolean answered = false;
+            try {
+                ChatResponse response = delegate.chat(chatRequest);
+                answered = true;
+                circuitBreaker.onSuccess();
+                settle(estimatedTokens, response);
+                return response;
+            } catch (RuntimeException e) {
+                // Rejected calls are not billed against the token limit
+                tokens.adjust(estimatedTokens);
+                if (!retryable.test(e)) {
+                    // The upstream answered, it just did not like the request
+                    answered = true;
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+                lastFailure = e;
+                log.warn("Model call failed on attempt {} of {}: {}", attempt + 1, maxAttempts, e.getMessage());
+            } finally {
+                // Anything but an answer counts as a failure, an Error too, so a probe never stays claimed
+                if (!answered) {
+                    circuitBreaker.onFailure();
+                }
+            }
+        }
+        throw lastFailure;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ChatResponse response = chat(ChatRequest.builder().messages(messages).build());
+        return Response.from(response.aiMessage(), response.tokenUsage(), response.finishReason());
+    }
+
+    /**
+     * Returns {@code streamingModel} protected together with this model: its calls draw on the same request and
+     * token buckets, and count towards and are refused by the same circuit breaker, so streamed and blocking calls
+     * to one model share its limits. A streamed call is retried only while none of its reply has reached the
+     * handler.
+     */
+    public StreamingChatLanguageModel streaming(StreamingChatLanguageModel streamingModel) {
+        return new ResilientStreamingChatModel(ValidationUtils.ensureNotNull(streamingModel, "streamingModel"));
+    }
+
+    private int estimateTokens(ChatRequest chatRequest) {
+        return tokenizer.estimateTokenCountInMessages(chatRequest.messages()) + expectedOutputTokens;
+    }
+
+    private long backoff(int attempt) {
+        return ThreadLocalRandom.current().nextLong(
+                Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30)) + 1);
+    }
+
+    /**
+     * Waits for the rate limits and lets the call through the circuit breaker, or throws if it is not to be made.
+     */
+    private void admit(int estimatedTokens, long deadline, RuntimeException lastFailure) {
+        // Checked before the rate limit too, so a call the breaker refuses is not throttled first
+        if (circuitBreaker.rejectsRequests()) {
+            throw shed(lastFailure);
+        }
+        acquire(estimatedTokens, deadline);
+        if (!circuitBreaker.allowRequest()) {
+            requests.adjust(1);
+            tokens.adjust(estimatedTokens);
+            throw shed(lastFailure);
+        }
+    }
+
+    private ModelUnavailableException shed(RuntimeException lastFailure) {
+        metrics.increment(MetricNames.LLM_SHED);
+        return new ModelUnavailableException("The model is failing; not calling it until it recovers", lastFailure);
+    }
+
+    private void acquire(int estimatedTokens, long deadline) {
+        long start = System.nanoTime();
+        while (true) {
+            long wait = requests.tryAcquire(1);
+            if (wait == 0) {
+                wait = tokens.tryAcquire(estimatedTokens);
+                if (wait == 0) {
+                    metrics.record(MetricNames.LLM_THROTTLE_LATENCY, System.nanoTime() - start);
+                    return;
+                }
+                requests.adjust(1);
+            }
+            if (System.nanoTime() + wait >= deadline) {
+                metrics.increment(MetricNames.LLM_SHED);
+                throw new ModelUnavailableException("Rate limit would delay the model call past its deadline");
+            }
+            sleep(wait);
+        }
+    }
+
+    private void settle(int estimatedTokens, ChatResponse response) {
+        TokenUsage usage = response.metadata() != null ? response.metadata().tokenUsage() : null;
+        if (usage != null && usage.totalTokenCount() != null) {
+            tokens.adjust(estimatedTokens - usage.totalTokenCount());
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelUnavailableException("Interrupted while waiting to call the model", e);
+        }
+    }
+
+    /**
+     * Whether a failure is worth retrying: I/O errors and timeouts anywhere in the cause chain, or an HTTP error
+     * response with status 408, 429 or 5xx. The OpenAI client reports those as an {@link OpenAiHttpException},
+     * other langchain4j clients as an {@link HttpException}.
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+            int status = switch (cause) {
+                case OpenAiHttpException http -> http.code();
+                case HttpException http -> http.statusCode();
+                default -> 0;
+            };
+            if (status == 408 || status == 429 || status >= 500) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class ResilientStreamingChatModel extends ForwardingStreamingChatModel {
+
+        private final StreamingChatLanguageModel delegate;
+
+        private ResilientStreamingChatModel(StreamingChatLanguageModel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            new StreamingCall(delegate, chatRequest, handler).start(0, null);
+        }
+    }
+
+    /**
+     * One streamed call and its retries. Each attempt reports back through its own handler, which passes the reply
+     * on and, if the attempt fails before any of it was passed on, decides whether to try again.
+     */
+    private final class StreamingCall {
+
+        private final StreamingChatLanguageModel delegate;
+        private final ChatRequest chatRequest;
+        private final StreamingChatResponseHandler handler;
+        private final int estimatedTokens;
+        private final long deadline;
+
+        private StreamingCall(StreamingChatLanguageModel delegate, ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            this.delegate = delegate;
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.estimatedTokens = estimateTokens(chatRequest);
+            this.deadline = System.nanoTime() + deadlineNanos;
+        }
+
+        private void start(int attempt, RuntimeException lastFailure) {
+            try {
+                if (attempt > 0) {
+                    long backoff = backoff(attempt);
+                    if (System.nanoTime() + backoff >= deadline) {
+                        handler.onError(lastFailure);
+                        return;
+                    }
+                    metrics.increment(MetricNames.LLM_RETRIES);
+                    sleep(backoff);
+                }
+                admit(estimatedTokens, deadline, lastFailure);
+            } catch (ModelUnavailableException e) {
+                handler.onError(e);
+                return;
+            }
+
+            Attempt current = new Attempt(attempt);
+            try {
+                delegate.chat(chatRequest, current);
+            } catch (RuntimeException | Error e) {
+                current.onError(e);
+            }
+        }
+
+        private final class Attempt implements StreamingChatResponseHandler {
+
+            private final int attempt;
+            private final AtomicBoolean finished = new AtomicBoolean();
+            private volatile boolean replied;
+
+            private Attempt(int attempt) {
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                replied = true;
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                circuitBreaker.onSuccess();
+                settle(estimatedTokens, response);
+                handler.onCompleteResponse(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                // Rejected calls are not billed against the token limit, streamed replies are
+                if (!replied) {
+                    tokens.adjust(estimatedTokens);
+                }
+                if (!(error instanceof RuntimeException failure)) {
+                    circuitBreaker.onFailure();
+                    handler.onError(error);
+                    return;
+                }
+                if (!retryable.test(failure)) {
+                    // The upstream answered, it just did not like the request
+                    circuitBreaker.onSuccess();
+                    handler.onError(failure);
+                    return;
+                }
+                circuitBreaker.onFailure();
+                log.warn("Streamed model call failed on attempt {} of {}: {}", attempt + 1, maxAttempts, failure.getMessage());
+                if (replied || attempt + 1 >= maxAttempts) {
+                    handler.onError(failure);
+                    return;
+                }
+                // Not backing off on the client's thread, which delivers other streams' replies too
+                Thread.ofVirtual().name("model-stream-retry").start(() -> start(attempt + 1, failure));
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ChatLanguageModel delegate;
+        private Tokenizer tokenizer;
+        private Integer expectedOutputTokens = 500;
+        private Integer requestsPerMinute = 500;
+        private Integer tokensPerMinute = 30_000;
+        private Integer maxAttempts = 4;
+        private Duration initialBackoff = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(8);
+        private Duration deadline = Duration.ofSeconds(45);
+        private Integer failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private Predicate<Throwable> retryable = ResilientChatModel::isTransient;
+        private Metrics metrics = Metrics.NOOP;
+
+        public Builder delegate(ChatLanguageModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Estimates the prompt tokens of a call before it is made.
+         */
+        public Builder tokenizer(Tokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+            return this;
+        }
+
+        /**
+         * Completion tokens reserved for each call until its actual usage is known.
+         */
+        public Builder expectedOutputTokens(Integer expectedOutputTokens) {
+            this.expectedOutputTokens = expectedOutputTokens;
+            return this;
+        }
+
+        public Builder requestsPerMinute(Integer requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+            return this;
+        }
+
+        public Builder tokensPerMinute(Integer tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+            return this;
+        }
+
+        public Builder maxAttempts(Integer maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Time a call may take overall, including throttling, retries and backoff.
+         */
+        public Builder deadline(Duration deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * Consecutive transient failures after which the circuit breaker opens.
+         */
+        public Builder failureThreshold(Integer failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder openDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder retryable(Predicate<Throwable> retryable) {
+            this.retryable = retryable;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public ResilientChatModel build() {
+            return new ResilientChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link ChatMemoryProvider} that lazily creates one {@link ChatMemory} per session and keeps the number
+ * of live sessions bounded. Sessions are evicted in least-recently-used order once {@code maxSessions}
+ * is exceeded, and any session idle for longer than {@code idleTimeout} is dropped on the next access.
+ */
+@Slf4j
+public class SessionChatMemoryProvider implements ChatMemoryProvider {
+
+    private final Function<Object, ChatMemory> memoryFactory;
+    private final int maxSessions;
+    private final long idleTimeoutMillis;
+    private final boolean clearOnEviction;
+    private final Clock clock;
+
+    // Access-ordered, so the eldest entry is always the least recently used session
+    private final LinkedHashMap<Object, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private SessionChatMemoryProvider(Builder builder) {
+        this.memoryFactory = ValidationUtils.ensureNotNull(builder.memoryFactory, "memoryFactory");
+        this.maxSessions = ValidationUtils.ensureGreaterThanZero(builder.maxSessions, "maxSessions");
+        this.idleTimeoutMillis = ValidationUtils.ensureNotNull(builder.idleTimeout, "idleTimeout").toMillis();
+        this.clearOnEviction = builder.clearOnEviction;
+        this.clock = ValidationUtils.ensureNotNull(builder.clock, "clock");
+    }
+
+    @Override
+    public ChatMemory get(Object memoryId) {
+        long now = clock.millis();
+        List<ChatMemory> evicted = new ArrayList<>();
+        ChatMemory memory;
+        synchronized (sessions) {
+            evictExpired(now, evicted);
+
+            Session session = sessions.get(memoryId);
+            if (session == null) {
+                session = new Session(memoryFactory.apply(memoryId));
+                sessions.put(memoryId, session);
+                evictOverflow(evicted);
+            }
+            session.lastAccess = now;
+            memory = session.memory;
+        }
+        // Clearing may go to disk, so it happens outside the lock every session lookup takes
+        evicted.forEach(this::evicted);
+        return memory;
+    }
+
+    /**
+     * Returns the number of sessions currently held by this provider.
+     */
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private void evictExpired(long now, List<ChatMemory> evicted) {
+        Iterator<Map.Entry<Object, Session>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, Session> eldest = iterator.next();
+            if (now - eldest.getValue().lastAccess < idleTimeoutMillis) {
+                return; // Everything after this was accessed more recently
+            }
+            iterator.remove();
+            evicted.add(eldest.getValue().memory);
+        }
+    }
+
+    private void evictOverflow(List<ChatMemory> evicted) {
+        Iterator<Map.Entry<Object, Session>> iterator = sessions.entrySet().iterator();
+        while (sessions.size() > maxSessions && iterator.hasNext()) {
+            Map.Entry<Object, Session> eldest = iterator.next();
+            iterator.remove();
+            evicted.add(eldest.getValue().memory);
+        }
+    }
+
+    private void evicted(ChatMemory memory) {
+        log.debug("Evicting chat memory for session {}", memory.id());
+        if (clearOnEviction) {
+            memory.clear();
+        }
+    }
+
+    private static final class Session {
+        private final ChatMemory memory;
+        private long lastAccess;
+
+        private Session(ChatMemory memory) {
+            this.memory = memory;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Function<Object, ChatMemory> memoryFactory;
+        private Integer maxSessions = 10_000;
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        private boolean clearOnEviction = true;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder memoryFactory(Function<Object, ChatMemory> memoryFactory) {
+            this.memoryFactory = memoryFactory;
+            return this;
+        }
+
+        public Builder maxSessions(Integer maxSessions) {
+            this.maxSessions = maxSessions;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Whether evicted sessions should also be removed from their backing store. Defaults to {@code true},
+         * which keeps heap use bounded with an in-memory store; disable it for stores that outlive the process.
+         */
+        public Builder clearOnEviction(boolean clearOnEviction) {
+            this.clearOnEviction = clearOnEviction;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SessionChatMemoryProvider build() {
+            return new SessionChatMemoryProvider(this);
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package ca.bazlur.chefbot.ai;
 
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Summarizer {
     String summarize(List<ChatMessage> messages);
-}
\ No newline at end of file
+
+    /**
+     * Updates an existing summary so it also covers {@code newMessages}. Implementations that can do this
+     * without re-reading the whole conversation should override it; by default the previous summary is
+     * simply summarized again together with the new messages.
+     */
+    default String extend(String previousSummary, List<ChatMessage> newMessages) {
+        List<ChatMessage> messages = new ArrayList<>(newMessages.size() + 1);
+        messages.add(SystemMessage.from(SummarizingTokenWindowChatMemory.SUMMARY_PREFIX + previousSummary));
+        messages.addAll(newMessages);
+        return summarize(messages);
+    }
+}
@@ -1,5 +1,10 @@
 package ca.bazlur.chefbot.ai;
 
+import ca.bazlur.chefbot.ai.MessageWindow.TokenizedMessage;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import ca.bazlur.chefbot.metrics.SummarizationEvent;
+import ca.bazlur.chefbot.store.VersionedChatMemoryStore;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.internal.ValidationUtils;
@@ -10,24 +15,108 @@ import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A chat memory bounded by tokens, which condenses older turns into summaries instead of dropping them.
+ * <p>
+ * The window keeps a layout whose start stays byte-for-byte the same from one call to the next, so the
+ * provider can serve it from its prompt-prefix cache: the system prompt first, then the summary blocks in the
+ * order they were produced, then the recent turns. A new summary is appended after the previous blocks rather
+ * than rewriting them, and truncation drops the oldest turns before it touches any summary. Changes that do
+ * invalidate the cached prefix, a replaced system prompt or a dropped summary block, are counted as
+ * {@link MetricNames#MEMORY_PREFIX_REWRITES}.
+ * <p>
+ * Summaries come in two levels, each with its own token budget. When the window is full, the turns older
+ * than the most recent ones are rolled into a chunk summary, so each summarization reads a bounded number of
+ * turns. Once the chunk summaries outgrow their budget they are merged into a single epoch summary covering
+ * the conversation so far, which is condensed again if it outgrows its own. Older context is folded upwards
+ * rather than dropped, and the merge, the one step that rewrites the cached prefix, happens only every few
+ * chunks.
+ * <p>
+ * A memory serializes its own callers. With a {@link VersionedChatMemoryStore}, it also stays consistent with
+ * other memories of the same session, such as one created after the session was evicted while a turn still
+ * held the old one. It re-reads the session whenever the store's version has moved, and stores its messages
+ * with a compare-and-set, redoing the update on the fresh messages if another memory got there first.
+ * Memories of different sessions share no lock.
+ */
 @Slf4j
 public class SummarizingTokenWindowChatMemory implements ChatMemory {
 
+    static final String SUMMARY_PREFIX = "Previous conversation summary: ";
+    static final String EPOCH_SUMMARY_PREFIX = "Summary of the earliest part of the conversation: ";
+
+    // Sessions with a background summarization in flight, shared by all memories so that a memory created for
+    // a session whose evicted memory is still summarizing does not summarize the same turns a second time
+    private static final Set<SessionKey> SUMMARIZING = ConcurrentHashMap.newKeySet();
+
     private final Object id;
+    private final SessionKey sessionKey;
     private final int maxTokens;
     private final Tokenizer tokenizer;
     private final ChatMemoryStore store;
+    // The same store when it is versioned, otherwise null
+    private final VersionedChatMemoryStore versionedStore;
     private final Summarizer summarizer;
+    private final Metrics metrics;
+
+    // Token budgets of the recent turns kept verbatim and of the two summary levels
+    private final int recentTurnBudget;
+    private final int chunkSummaryBudget;
+    private final int epochSummaryBudget;
+
+    // When set, summaries are produced in the background once the soft limit is crossed
+    private final Executor summarizationExecutor;
+    private final int softTokenLimit;
+
+    // Fixed per-request overhead the tokenizer adds on top of the individual messages
+    private final int baseTokens;
+
+    // Messages of this memory together with their token counts, computed once on insertion
+    private final MessageWindow window = new MessageWindow();
+    private boolean loaded;
+    // Version of the session in the versioned store that the window reflects
+    private long storeVersion;
+
+    // Bumped whenever the window is replaced, so a summary of the old one is discarded; guarded by this
+    private long generation;
 
     private SummarizingTokenWindowChatMemory(Builder builder) {
         this.id = ValidationUtils.ensureNotNull(builder.id, "id");
         this.maxTokens = ValidationUtils.ensureGreaterThanZero(builder.maxTokens, "maxTokens");
         this.tokenizer = ValidationUtils.ensureNotNull(builder.tokenizer, "tokenizer");
         this.store = ValidationUtils.ensureNotNull(builder.store, "store");
+        this.sessionKey = new SessionKey(store, id);
+        this.versionedStore = store instanceof VersionedChatMemoryStore versioned ? versioned : null;
         this.summarizer = ValidationUtils.ensureNotNull(builder.summarizer, "summarizer");
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
+        this.summarizationExecutor = builder.summarizationExecutor;
+        this.softTokenLimit = (int) (maxTokens * ValidationUtils.ensureBetween(builder.softLimitRatio, 0.0, 1.0, "softLimitRatio"));
+        // The system prompt sits in the window too, so only what it leaves below the summarization threshold is ours
+        int room = softTokenLimit - ValidationUtils.ensureBetween(builder.systemPromptTokens, 0, maxTokens, "systemPromptTokens");
+        if (room <= 0) {
+            throw new IllegalArgumentException("systemPromptTokens (%d) leave no room below the summarization threshold of %d tokens"
+                    .formatted(builder.systemPromptTokens, softTokenLimit));
+        }
+        this.recentTurnBudget = ValidationUtils.ensureBetween(builder.recentTokens, 0, room, "recentTokens");
+        this.chunkSummaryBudget = ValidationUtils.ensureBetween(
+                builder.chunkSummaryTokens == null ? room / 4 : builder.chunkSummaryTokens, 0, room, "chunkSummaryTokens");
+        this.epochSummaryBudget = ValidationUtils.ensureBetween(
+                builder.epochSummaryTokens == null ? room / 4 : builder.epochSummaryTokens, 0, room, "epochSummaryTokens");
+        // Summaries and kept turns that fill the room would trigger another summarization on the very next turn
+        int turnRoom = room - recentTurnBudget - chunkSummaryBudget - epochSummaryBudget;
+        if (turnRoom < room / 5) {
+            throw new IllegalArgumentException(("recentTokens (%d), chunkSummaryTokens (%d) and epochSummaryTokens (%d) "
+                    + "leave %d of %d tokens for new turns; at least %d are needed")
+                    .formatted(recentTurnBudget, chunkSummaryBudget, epochSummaryBudget, turnRoom, room, room / 5));
+        }
+        this.baseTokens = tokenizer.estimateTokenCountInMessages(List.of());
     }
 
     @Override
@@ -36,116 +125,448 @@ public class SummarizingTokenWindowChatMemory implements ChatMemory {
     }
 
     @Override
-    public void add(ChatMessage message) {
-        // Pull existing messages from store
-        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+    public synchronized void add(ChatMessage message) {
+        do {
+            ensureLoaded();
+            if (!addToWindow(message)) {
+                return;
+            }
+        } while (!persist()); // Another memory of this session stored first; redo the add on its messages
+    }
 
-        // If it's a system message, handle "replace existing system message" logic
+    private boolean addToWindow(ChatMessage message) {
+        // The system prompt always leads the window, ahead of the summaries and the conversation it governs
         if (message instanceof SystemMessage) {
-            Optional<SystemMessage> maybeSystem = findSystemMessage(messages);
-            if (maybeSystem.isPresent()) {
-                if (maybeSystem.get().equals(message)) {
+            if (hasSystemPrompt()) {
+                if (window.get(0).message().equals(message)) {
                     // Same system message, do nothing
-                    return;
-                } else {
-                    // Remove old system message so we can replace with new one
-                    messages.remove(maybeSystem.get());
+                    return false;
                 }
+                window.removePrefix(0, 1);
+                metrics.increment(MetricNames.MEMORY_PREFIX_REWRITES);
+            } else if (!window.isEmpty()) {
+                metrics.increment(MetricNames.MEMORY_PREFIX_REWRITES);
             }
+            window.insertPrefix(0, tokenize(message));
+            ensureCapacity();
+            return true;
         }
 
-        // Add the new message
-        messages.add(message);
+        // Add the new message; this is the only place it gets tokenized
+        window.appendTurn(tokenize(message));
 
         // Enforce capacity by summarizing older messages if needed
-        ensureSummarizedCapacity(messages);
-
-        // Update store
-        store.updateMessages(id, messages);
+        ensureCapacity();
+        return true;
     }
 
+    /**
+     * Returns an immutable view of the messages, which later changes to the memory do not affect. Taking it
+     * copies nothing.
+     */
     @Override
-    public List<ChatMessage> messages() {
-        // Return a copy of messages from store
-        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+    public synchronized List<ChatMessage> messages() {
+        ensureLoaded();
 
-        // (Optional) ensure capacity here again, if you want to guarantee it every time
-        ensureSummarizedCapacity(messages);
-        return messages;
+        // Messages loaded from a pre-populated store may not have been trimmed yet
+        while (ensureCapacity() && !persist()) {
+            ensureLoaded();
+        }
+        return window.messages();
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
         store.deleteMessages(id);
+        window.clear();
+        // A versioned store is read again on next access, in case another memory of this session writes to it first
+        loaded = versionedStore == null;
+        // Any summary still in flight describes messages that no longer exist
+        generation++;
+    }
+
+    /**
+     * Returns the current token estimate of the window, including the tokenizer's fixed overhead.
+     */
+    synchronized int tokenCount() {
+        ensureLoaded();
+        return windowTokens();
+    }
+
+    private int windowTokens() {
+        return baseTokens + window.totalTokens();
     }
 
-    private void ensureSummarizedCapacity(List<ChatMessage> messages) {
-        int currentTokenCount = tokenizer.estimateTokenCountInMessages(messages);
-        if (currentTokenCount <= maxTokens) {
-            return; // We are within capacity
+    private void ensureLoaded() {
+        if (loaded && (versionedStore == null || versionedStore.version(id) == storeVersion)) {
+            return;
+        }
+        if (loaded) {
+            // Another memory of this session has stored since; start over from its messages
+            window.clear();
+            generation++;
         }
 
-        // If we exceed tokens, let's summarize the older messages (except system msg & possibly the newest).
-        // 1) Separate out the system message if present at index 0.
-        // 2) Summarize everything from startIndex...up to near the end,
-        //    leaving maybe the last user or assistant message "unsummarized" for context.
-        // 3) Insert the summary as a single message, then re-check capacity.
+        long start = System.nanoTime();
+        List<ChatMessage> stored;
+        if (versionedStore != null) {
+            VersionedChatMemoryStore.Snapshot snapshot = versionedStore.getSnapshot(id);
+            stored = snapshot.messages();
+            storeVersion = snapshot.version();
+        } else {
+            stored = store.getMessages(id);
+        }
+        metrics.record(MetricNames.MEMORY_LOAD_LATENCY, System.nanoTime() - start);
+        for (ChatMessage message : stored) {
+            // The system prompt and the summary blocks right after it form the prefix, as this memory lays them out
+            TokenizedMessage tokenized = tokenize(message);
+            boolean prefix = window.turnCount() == 0
+                    && (isSummary(message) || (message instanceof SystemMessage && window.prefixSize() == 0));
+            if (prefix) {
+                window.insertPrefix(window.prefixSize(), tokenized);
+            } else {
+                window.appendTurn(tokenized);
+            }
+        }
+        loaded = true;
+    }
 
-        // First, handle any system message
-        Optional<SystemMessage> maybeSystem = findSystemMessage(messages);
-        maybeSystem.ifPresent(messages::remove);
+    /**
+     * Stores the window, returning {@code false} if another memory of this session stored its messages since
+     * the window was loaded. The window is then reloaded on next access.
+     */
+    private boolean persist() {
+        if (versionedStore == null) {
+            store.updateMessages(id, window.messages());
+            return true;
+        }
+        long version = versionedStore.compareAndUpdateMessages(id, window.messages(), storeVersion);
+        // A conflict leaves the window at a version no session ever has, so it is reloaded on next access
+        storeVersion = version;
+        if (version == VersionedChatMemoryStore.CONFLICT) {
+            metrics.increment(MetricNames.MEMORY_UPDATE_CONFLICTS);
+            return false;
+        }
+        return true;
+    }
 
-        // Now we can work with the non-system messages
-        int startIndex = 0;
-        int endIndex = messages.size() - 1; // Leave the last message for context
+    private boolean ensureCapacity() {
+        if (summarizationExecutor == null) {
+            return ensureSummarizedCapacity();
+        }
 
-        // Don't try to summarize if we have 2 or fewer messages
-        if (endIndex - startIndex <= 1) {
-            // If we can't summarize, fall back to just removing oldest messages
-            removeOldestUntilFit(messages);
-            // Re-add system message if we had one
-            maybeSystem.ifPresent(messages::addFirst);
+        // Never block the caller on the summarizer: kick it off in the background and,
+        // until the summary is ready, fall back to plain truncation of the oldest messages
+        maybeStartBackgroundSummarization();
+        if (windowTokens() <= maxTokens) {
+            return false;
+        }
+        removeOldestUntilFit();
+        return true;
+    }
+
+    private void maybeStartBackgroundSummarization() {
+        boolean chunksOverBudget = chunkSummaryTokens() > chunkSummaryBudget;
+        if (windowTokens() <= softTokenLimit && !chunksOverBudget) {
             return;
         }
 
-        // Get the messages to summarize (everything except maybe system & last)
-        List<ChatMessage> toSummarize = new ArrayList<>(messages.subList(startIndex, endIndex));
+        int count = turnsToRoll();
+        if (count <= 1 && !chunksOverBudget) {
+            return;
+        }
+        if (!SUMMARIZING.add(sessionKey)) {
+            // This or another memory of the session is summarizing already
+            return;
+        }
 
-        // Generate the summary
-        String summary = summarizer.summarize(toSummarize);
+        // Views and copies of the window as it is now, which the truncation going on meanwhile does not affect
+        List<TokenizedMessage> turns = count > 1 ? window.oldestTurns(count) : List.of();
+        List<ChatMessage> turnMessages = count > 1 ? window.oldestTurnMessages(count) : List.of();
+        List<TokenizedMessage> chunks = chunksOverBudget ? chunkSummaries() : List.of();
+        TokenizedMessage epochSummary = chunksOverBudget ? epochSummary() : null;
+        long startedGeneration = generation;
+
+        try {
+            CompletableFuture
+                    .supplyAsync(() -> new Summaries(
+                            chunks.isEmpty() ? null : mergeIntoEpochSummary(epochSummary, chunks, true),
+                            turnMessages.isEmpty() ? null : summarize(null, turnMessages, true)), summarizationExecutor)
+                    .handle((summaries, error) -> {
+                        try {
+                            if (error != null) {
+                                log.warn("Background summarization failed for memory {}", id, error);
+                            } else {
+                                applySummaries(summaries, turns, epochSummary, chunks, startedGeneration);
+                            }
+                        } finally {
+                            // Released only once the summary is stored, so the next one starts from it
+                            SUMMARIZING.remove(sessionKey);
+                        }
+                        return null;
+                    });
+        } catch (RuntimeException e) {
+            // The executor refused the task
+            SUMMARIZING.remove(sessionKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Summarizes messages that follow the existing summary blocks, or extends {@code previousSummary} with them.
+     * Turns are summarized on their own, so the summarizer never re-reads turns it has already condensed and
+     * the prompt prefix formed by the earlier blocks stays cached.
+     */
+    private String summarize(String previousSummary, List<ChatMessage> toSummarize, boolean background) {
+        SummarizationEvent event = new SummarizationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return previousSummary == null
+                    ? summarizer.summarize(toSummarize)
+                    : summarizer.extend(previousSummary, toSummarize);
+        } catch (RuntimeException e) {
+            metrics.increment(MetricNames.SUMMARIZATION_ERRORS);
+            throw e;
+        } finally {
+            metrics.increment(MetricNames.SUMMARIZATIONS);
+            metrics.record(MetricNames.SUMMARIZATION_LATENCY, System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.memoryId = String.valueOf(id);
+                event.messages = toSummarize.size();
+                event.background = background;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Folds the chunk summaries into the epoch summary, condensing the result once more if it is over its budget.
+     */
+    private String mergeIntoEpochSummary(TokenizedMessage epochSummary, List<TokenizedMessage> chunks, boolean background) {
+        List<ChatMessage> chunkMessages = chunks.stream().map(TokenizedMessage::message).toList();
+        String previous = epochSummary == null
+                ? null
+                : ((SystemMessage) epochSummary.message()).text().substring(EPOCH_SUMMARY_PREFIX.length());
+        String merged = summarize(previous, chunkMessages, background);
+        if (tokenizer.estimateTokenCountInText(EPOCH_SUMMARY_PREFIX + merged) > epochSummaryBudget) {
+            merged = summarize(null, List.of(SystemMessage.from(EPOCH_SUMMARY_PREFIX + merged)), background);
+        }
+        metrics.increment(MetricNames.SUMMARY_MERGES, chunks.size());
+        return merged;
+    }
+
+    private synchronized void applySummaries(Summaries summaries, List<TokenizedMessage> turns,
+                                             TokenizedMessage epochSummary, List<TokenizedMessage> chunks,
+                                             long startedGeneration) {
+        if (startedGeneration != generation) {
+            return; // The memory was cleared while the summary was being produced
+        }
+
+        // Blocks truncated in the meantime are gone from the window, and so is the merge that covered them
+        if (summaries.epoch() != null && summaryBlocksUnchanged(epochSummary, chunks)) {
+            replaceWithEpochSummary(chunks.size(), summaries.epoch());
+        }
+
+        if (summaries.chunk() != null) {
+            // Older parts of the turns may already have been truncated; whatever is left of them
+            // is a contiguous run of the oldest turns
+            Set<TokenizedMessage> summarized = Collections.newSetFromMap(new IdentityHashMap<>());
+            summarized.addAll(turns);
+            int startIndex = window.prefixSize();
+            int endIndex = startIndex;
+            while (endIndex < window.size() && summarized.contains(window.get(endIndex))) {
+                endIndex++;
+            }
+
+            window.dropOldestTurns(endIndex - startIndex);
+            window.insertPrefix(window.prefixSize(), tokenize(SystemMessage.from(SUMMARY_PREFIX + summaries.chunk())));
+        }
+        if (windowTokens() > maxTokens) {
+            removeOldestUntilFit();
+        }
+        // On a conflict the summary is dropped along with the stale window it was based on
+        persist();
+    }
+
+    private boolean summaryBlocksUnchanged(TokenizedMessage epochSummary, List<TokenizedMessage> chunks) {
+        if (epochSummary() != epochSummary) {
+            return false;
+        }
+        int first = firstChunkSummaryIndex();
+        if (first + chunks.size() > window.prefixSize()) {
+            return false;
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            if (window.get(first + i) != chunks.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean ensureSummarizedCapacity() {
+        if (windowTokens() <= maxTokens) {
+            return false; // We are within capacity
+        }
+
+        // If we exceed tokens, let's roll the older turns into a chunk summary.
+        // 1) Skip the system prompt and the summary blocks that follow it; they are never rewritten.
+        // 2) Summarize the turns older than the recent ones, always leaving the last message
+        //    "unsummarized" for context.
+        // 3) Append the summary after the existing blocks, merge the chunk summaries into the epoch
+        //    summary if they are over their budget, then re-check capacity.
+        int count = turnsToRoll();
+
+        // Don't try to summarize fewer than 2 turns
+        if (count <= 1) {
+            // If we can't summarize, fall back to just removing oldest messages
+            removeOldestUntilFit();
+            return true;
+        }
+
+        String summary = summarize(null, window.oldestTurnMessages(count), false);
 
         // Replace the summarized messages with the summary
-        messages.subList(startIndex, endIndex).clear();
-        messages.add(startIndex, SystemMessage.from("Previous conversation summary: " + summary));
+        window.dropOldestTurns(count);
+        window.insertPrefix(window.prefixSize(), tokenize(SystemMessage.from(SUMMARY_PREFIX + summary)));
 
-        // Re-add system message if we had one
-        maybeSystem.ifPresent(messages::addFirst);
+        if (chunkSummaryTokens() > chunkSummaryBudget) {
+            List<TokenizedMessage> chunks = chunkSummaries();
+            replaceWithEpochSummary(chunks.size(), mergeIntoEpochSummary(epochSummary(), chunks, false));
+        }
 
-        // If we're still over capacity, remove oldest messages (after any system message)
-        if (tokenizer.estimateTokenCountInMessages(messages) > maxTokens) {
-            removeOldestUntilFit(messages);
+        // If we're still over capacity, remove the oldest turns
+        if (windowTokens() > maxTokens) {
+            removeOldestUntilFit();
         }
+        return true;
     }
 
-    private void removeOldestUntilFit(List<ChatMessage> messages) {
-        // Keep system message if present
-        Optional<SystemMessage> maybeSystem = findSystemMessage(messages);
-        maybeSystem.ifPresent(messages::remove);
+    /**
+     * Returns how many of the oldest turns go into the next chunk summary: all but the newest ones that fit
+     * in the recent budget, which always keeps the last message.
+     */
+    private int turnsToRoll() {
+        int turns = window.turnCount();
+        if (turns == 0) {
+            return 0;
+        }
+        int kept = 1;
+        int keptTokens = window.get(window.size() - 1).tokenCount();
+        while (kept < turns) {
+            int tokens = window.get(window.size() - 1 - kept).tokenCount();
+            if (keptTokens + tokens > recentTurnBudget) {
+                break;
+            }
+            keptTokens += tokens;
+            kept++;
+        }
+        return turns - kept;
+    }
 
-        // Remove oldest messages until we're under token limit
-        while (!messages.isEmpty() && tokenizer.estimateTokenCountInMessages(messages) > maxTokens) {
-            messages.removeFirst();
+    /**
+     * Replaces the epoch summary, if any, and the {@code chunkCount} oldest chunk summaries with a new epoch summary.
+     */
+    private void replaceWithEpochSummary(int chunkCount, String epochSummary) {
+        int start = hasSystemPrompt() ? 1 : 0;
+        window.removePrefix(start, firstChunkSummaryIndex() + chunkCount);
+        window.insertPrefix(start, tokenize(SystemMessage.from(EPOCH_SUMMARY_PREFIX + epochSummary)));
+        metrics.increment(MetricNames.MEMORY_PREFIX_REWRITES);
+    }
+
+    private void removeOldestUntilFit() {
+        // Drop the oldest turns first, which leaves the cached prefix intact
+        int excess = windowTokens() - maxTokens;
+        int startIndex = window.prefixSize();
+        int endIndex = startIndex;
+        while (endIndex < window.size() && excess > 0) {
+            excess -= window.get(endIndex).tokenCount();
+            endIndex++;
+        }
+        metrics.increment(MetricNames.TRUNCATED_MESSAGES, endIndex - startIndex);
+        window.dropOldestTurns(endIndex - startIndex);
+        if (excess <= 0) {
+            return;
+        }
+
+        // Only then the oldest summary blocks, always keeping the system prompt. The summary budgets leave room
+        // for turns, so this only happens when the system prompt or a single message is about as large as the window
+        int summaryStart = hasSystemPrompt() ? 1 : 0;
+        int summaryEnd = summaryStart;
+        while (summaryEnd < window.prefixSize() && excess > 0) {
+            excess -= window.get(summaryEnd).tokenCount();
+            summaryEnd++;
+        }
+        if (summaryEnd > summaryStart) {
+            log.warn("Dropping {} summaries from memory {} to fit {} tokens", summaryEnd - summaryStart, id, maxTokens);
+            metrics.increment(MetricNames.TRUNCATED_MESSAGES, summaryEnd - summaryStart);
+            metrics.increment(MetricNames.MEMORY_PREFIX_REWRITES);
+            window.removePrefix(summaryStart, summaryEnd);
+        }
+    }
+
+    private boolean hasSystemPrompt() {
+        return window.prefixSize() > 0 && !isSummary(window.get(0).message());
+    }
+
+    private TokenizedMessage epochSummary() {
+        int index = hasSystemPrompt() ? 1 : 0;
+        if (index < window.prefixSize() && isEpochSummary(window.get(index).message())) {
+            return window.get(index);
         }
+        return null;
+    }
+
+    private int firstChunkSummaryIndex() {
+        int index = hasSystemPrompt() ? 1 : 0;
+        return epochSummary() == null ? index : index + 1;
+    }
 
-        // Re-add system message if we had one
-        maybeSystem.ifPresent(messages::addFirst);
+    private List<TokenizedMessage> chunkSummaries() {
+        List<TokenizedMessage> chunks = new ArrayList<>(window.prefixSize());
+        for (int i = firstChunkSummaryIndex(); i < window.prefixSize(); i++) {
+            chunks.add(window.get(i));
+        }
+        return chunks;
     }
 
-    private Optional<SystemMessage> findSystemMessage(List<ChatMessage> messages) {
-        if (!messages.isEmpty() && messages.getFirst() instanceof SystemMessage) {
-            return Optional.of((SystemMessage) messages.getFirst());
+    private int chunkSummaryTokens() {
+        int tokens = 0;
+        for (int i = firstChunkSummaryIndex(); i < window.prefixSize(); i++) {
+            tokens += window.get(i).tokenCount();
         }
-        return Optional.empty();
+        return tokens;
+    }
+
+    /**
+     * Whether {@code message} is one of the summaries this memory keeps in place of older turns.
+     */
+    static boolean isSummary(ChatMessage message) {
+        return message instanceof SystemMessage system
+                && (system.text().startsWith(SUMMARY_PREFIX) || system.text().startsWith(EPOCH_SUMMARY_PREFIX));
+    }
+
+    private static boolean isEpochSummary(ChatMessage message) {
+        return message instanceof SystemMessage system && system.text().startsWith(EPOCH_SUMMARY_PREFIX);
+    }
+
+    private TokenizedMessage tokenize(ChatMessage message) {
+        long start = System.nanoTime();
+        int tokenCount = tokenizer.estimateTokenCountInMessage(message);
+        metrics.record(MetricNames.TOKENIZATION_LATENCY, System.nanoTime() - start);
+        return new TokenizedMessage(message, tokenCount);
+    }
+
+    // What a background summarization produced; either part is null when it was not needed
+    private record Summaries(String epoch, String chunk) {
+    }
+
+    /**
+     * Identifies a session across memories. Stores do not override {@code equals}, so sessions of separate
+     * stores never collide.
+     */
+    private record SessionKey(ChatMemoryStore store, Object id) {
     }
 
     public static Builder builder() {
@@ -158,6 +579,13 @@ public class SummarizingTokenWindowChatMemory implements ChatMemory {
         private Tokenizer tokenizer;
         private ChatMemoryStore store = new InMemoryChatMemoryStore();
         private Summarizer summarizer;
+        private Executor summarizationExecutor;
+        private double softLimitRatio = 1.0;
+        private Integer recentTokens = 0;
+        private Integer chunkSummaryTokens;
+        private Integer epochSummaryTokens;
+        private Integer systemPromptTokens = 0;
+        private Metrics metrics = Metrics.NOOP;
 
         public Builder id(Object id) {
             this.id = id;
@@ -180,8 +608,61 @@ public class SummarizingTokenWindowChatMemory implements ChatMemory {
             return this;
         }
 
+        /**
+         * Summarizes in the background on the given executor instead of inside {@link #add(ChatMessage)}.
+         * Summarization starts once the window exceeds {@code softLimitRatio * maxTokens}; until the
+         * summary is swapped in, the window is kept under {@code maxTokens} by truncating the oldest messages.
+         */
+        public Builder asyncSummarization(Executor summarizationExecutor, double softLimitRatio) {
+            this.summarizationExecutor = summarizationExecutor;
+            this.softLimitRatio = softLimitRatio;
+            return this;
+        }
+
+        /**
+         * Tokens of the newest turns kept verbatim when older turns are rolled into a chunk summary. The last
+         * message is always kept. Defaults to 0, which summarizes every turn but the last.
+         */
+        public Builder recentTokens(Integer recentTokens) {
+            this.recentTokens = recentTokens;
+            return this;
+        }
+
+        /**
+         * Budget of the chunk summaries together; once they exceed it, they are merged into the epoch summary.
+         * Defaults to a quarter of the room the system prompt leaves below the summarization threshold.
+         */
+        public Builder chunkSummaryTokens(Integer chunkSummaryTokens) {
+            this.chunkSummaryTokens = chunkSummaryTokens;
+            return this;
+        }
+
+        /**
+         * Budget of the epoch summary; a merged summary over it is condensed once more. Defaults to a quarter
+         * of the room the system prompt leaves below the summarization threshold.
+         */
+        public Builder epochSummaryTokens(Integer epochSummaryTokens) {
+            this.epochSummaryTokens = epochSummaryTokens;
+            return this;
+        }
+
+        /**
+         * Tokens the system prompt takes in the window. The recent-turn and summary budgets must fit below the
+         * summarization threshold once the system prompt is counted, with a fifth of that room left for new
+         * turns, or {@link #build()} fails. Defaults to 0.
+         */
+        public Builder systemPromptTokens(Integer systemPromptTokens) {
+            this.systemPromptTokens = systemPromptTokens;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         public SummarizingTokenWindowChatMemory build() {
             return new SummarizingTokenWindowChatMemory(this);
         }
     }
-}
\ No newline at end of file
+}
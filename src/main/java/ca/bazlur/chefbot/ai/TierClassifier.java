@@ -0,0 +1,60 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Picks the {@link ModelTier} for an assistant turn from its latest user message, without calling a model.
+ * <p>
+ * The conversation tier only gets pure small talk: short messages such as greetings, thanks or questions about the
+ * bot, made up of nothing but small-talk words and fillers. Any other word, be it a dish, an ingredient or a
+ * preference, sends the turn to the recipe tier, on the opening message as on any other. When in doubt the recipe
+ * tier is used, since a weak recipe costs more than an expensive "you're welcome".
+ */
+public class TierClassifier {
+
+    private static final int MAX_SMALL_TALK_WORDS = 8;
+
+    private static final Set<String> SMALL_TALK_WORDS = Set.of(
+            "hi", "hello", "hey", "morning", "evening", "afternoon", "thanks", "thank", "thx", "bye", "goodbye",
+            "cheers", "who", "help"
+    );
+
+    // Words that may accompany small talk without making it about food
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "a", "again", "all", "am", "and", "are", "bot", "can", "chef", "chefbot", "day", "do", "doing", "fine",
+            "for", "going", "good", "great", "how", "i", "is", "it", "lot", "m", "me", "much", "name", "nice", "oh",
+            "ok", "okay", "please", "recipebot", "s", "so", "that", "the", "there", "this", "to", "very", "what",
+            "you", "your"
+    );
+
+    public ModelTier classify(List<ChatMessage> messages) {
+        String input = null;
+        for (int i = messages.size() - 1; i >= 0 && input == null; i--) {
+            if (messages.get(i) instanceof UserMessage user && user.hasSingleText()) {
+                input = user.singleText();
+            }
+        }
+        if (input == null) {
+            return ModelTier.RECIPE;
+        }
+
+        String[] words = input.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim().split(" ");
+        if (words.length > MAX_SMALL_TALK_WORDS) {
+            return ModelTier.RECIPE;
+        }
+        boolean smallTalk = false;
+        for (String word : words) {
+            if (SMALL_TALK_WORDS.contains(word)) {
+                smallTalk = true;
+            } else if (!FILLER_WORDS.contains(word)) {
+                return ModelTier.RECIPE;
+            }
+        }
+        return smallTalk ? ModelTier.CONVERSATION : ModelTier.RECIPE;
+    }
+}
@@ -0,0 +1,110 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * Routes each call to the model for its {@link ModelTier}, as decided by a {@link TierClassifier} before the call.
+ */
+public class TieredChatModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel conversationModel;
+    private final ChatLanguageModel recipeModel;
+    private final TierClassifier classifier;
+    private final Metrics metrics;
+
+    private TieredChatModel(Builder builder) {
+        this.conversationModel = ValidationUtils.ensureNotNull(builder.conversationModel, "conversationModel");
+        this.recipeModel = ValidationUtils.ensureNotNull(builder.recipeModel, "recipeModel");
+        this.classifier = ValidationUtils.ensureNotNull(builder.classifier, "classifier");
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return switch (tier(chatRequest)) {
+            case CONVERSATION -> conversationModel.chat(chatRequest);
+            case RECIPE -> recipeModel.chat(chatRequest);
+        };
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ChatResponse response = chat(ChatRequest.builder().messages(messages).build());
+        return Response.from(response.aiMessage(), response.tokenUsage(), response.finishReason());
+    }
+
+    /**
+     * Returns a streaming model that routes each call between {@code conversationModel} and {@code recipeModel}
+     * with this model's classifier, so a streamed turn goes to the same tier a blocking one would.
+     */
+    public StreamingChatLanguageModel streaming(StreamingChatLanguageModel conversationModel,
+                                                StreamingChatLanguageModel recipeModel) {
+        ValidationUtils.ensureNotNull(conversationModel, "conversationModel");
+        ValidationUtils.ensureNotNull(recipeModel, "recipeModel");
+        return new ForwardingStreamingChatModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                switch (tier(chatRequest)) {
+                    case CONVERSATION -> conversationModel.chat(chatRequest, handler);
+                    case RECIPE -> recipeModel.chat(chatRequest, handler);
+                }
+            }
+        };
+    }
+
+    private ModelTier tier(ChatRequest chatRequest) {
+        ModelTier tier = classifier.classify(chatRequest.messages());
+        metrics.increment(switch (tier) {
+            case CONVERSATION -> MetricNames.CONVERSATION_TIER_CALLS;
+            case RECIPE -> MetricNames.RECIPE_TIER_CALLS;
+        });
+        return tier;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private ChatLanguageModel conversationModel;
+        private ChatLanguageModel recipeModel;
+        private TierClassifier classifier = new TierClassifier();
+        private Metrics metrics = Metrics.NOOP;
+
+        public Builder conversationModel(ChatLanguageModel conversationModel) {
+            this.conversationModel = conversationModel;
+            return this;
+        }
+
+        public Builder recipeModel(ChatLanguageModel recipeModel) {
+            this.recipeModel = recipeModel;
+            return this;
+        }
+
+        public Builder classifier(TierClassifier classifier) {
+            this.classifier = classifier;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public TieredChatModel build() {
+            return new TieredChatModel(this);
+        }
+    }
+}
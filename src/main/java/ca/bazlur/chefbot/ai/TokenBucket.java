@@ -0,0 +1,70 @@
+package ca.bazlur.chefbot.ai;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket refilled continuously at a fixed rate. State changes are a single compare-and-set, so callers
+ * never block each other; a caller that cannot take its permits is told how long to wait instead.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(double capacity, double refillPerNano) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerNano;
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    static TokenBucket perMinute(double permitsPerMinute) {
+        return new TokenBucket(permitsPerMinute, permitsPerMinute / 60_000_000_000.0);
+    }
+
+    /**
+     * Takes {@code permits} if the bucket holds them.
+     *
+     * @return 0 if the permits were taken, otherwise the nanoseconds until they will be available
+     */
+    long tryAcquire(double permits) {
+        // A request larger than the whole bucket would otherwise never fit
+        double needed = Math.min(permits, capacity);
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double available = refill(current, now);
+            if (available < needed) {
+                return Math.max(1, (long) Math.ceil((needed - available) / refillPerNano));
+            }
+            if (state.compareAndSet(current, new State(available - needed, now))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns permits to the bucket, or with a negative amount takes more than were acquired. The balance may go
+     * below zero, which delays later callers until the debt is refilled.
+     */
+    void adjust(double permits) {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            if (state.compareAndSet(current, new State(Math.min(capacity, refill(current, now) + permits), now))) {
+                return;
+            }
+        }
+    }
+
+    double available() {
+        return refill(state.get(), System.nanoTime());
+    }
+
+    private double refill(State current, long now) {
+        return Math.min(capacity, current.tokens() + (now - current.refilledAt()) * refillPerNano);
+    }
+
+    private record State(double tokens, long refilledAt) {
+    }
+}
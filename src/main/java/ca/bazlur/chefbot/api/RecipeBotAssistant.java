@@ -1,9 +1,16 @@
 package ca.bazlur.chefbot.api;
 
-import dev.langchain4j.service.SystemMessage;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
 
+/**
+ * The chat assistant. Its system message is {@link #systemPrompt(UserProfile)} for the session's profile, supplied
+ * per memory id when the service is built.
+ */
 public interface RecipeBotAssistant {
-    @SystemMessage("""
+    String SYSTEM_PROMPT = """
             You are RecipeBot, a helpful and friendly personal food recipe recommendation assistant. Your primary goal is to suggest personalized recipes that perfectly match the user's individual preferences and dietary needs.
             
             To start, engage the user in a brief conversation to gather essential information for tailoring recipe recommendations. Ask the following questions in a natural, conversational manner:
@@ -49,8 +56,20 @@ public interface RecipeBotAssistant {
             - **Numbers in the "calories" object should be numerical values, not strings.**
             
             By following these instructions, you will be able to provide helpful and personalized recipe recommendations to users in a consistent and structured format.
-            """
-    )
+            """;
+
+    /**
+     * Appends the user's known preferences to {@link #SYSTEM_PROMPT}, so they hold even after the turns that
+     * mentioned them have left the chat memory.
+     */
+    static String systemPrompt(UserProfile profile) {
+        return profile.isEmpty() ? SYSTEM_PROMPT : SYSTEM_PROMPT + "\n" + profile.toPromptBlock();
+    }
+
     String getRecipe(String input);
+
+    String getRecipe(@MemoryId String sessionId, @UserMessage String input);
+
+    TokenStream streamRecipe(@MemoryId String sessionId, @UserMessage String input);
 }
 
@@ -0,0 +1,222 @@
+package ca.bazlur.chefbot.cache;
+
+import ca.bazlur.chefbot.domain.model.Recipe;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of generated recipes, keyed on the normalized request plus the session's dietary and
+ * cuisine preferences.
+ * <p>
+ * Lookups first match the normalized text exactly. If an {@link EmbeddingModel} is configured, a miss
+ * falls back to the most similar cached request with the same preferences whose cosine similarity
+ * reaches the threshold. Entries are evicted in least-recently-used order past {@code maxEntries} and
+ * expire {@code ttl} after they were stored.
+ */
+public class RecipeResponseCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final Clock clock;
+
+    // Access-ordered, so the eldest entry is always the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder semanticHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private RecipeResponseCache(Builder builder) {
+        this.maxEntries = ValidationUtils.ensureGreaterThanZero(builder.maxEntries, "maxEntries");
+        this.ttlMillis = ValidationUtils.ensureNotNull(builder.ttl, "ttl").toMillis();
+        this.embeddingModel = builder.embeddingModel;
+        this.similarityThreshold = ValidationUtils.ensureBetween(builder.similarityThreshold, 0.0, 1.0, "similarityThreshold");
+        this.clock = ValidationUtils.ensureNotNull(builder.clock, "clock");
+    }
+
+    /**
+     * Builds the cache key for a request. The key computes its embedding at most once, so the same key
+     * should be used for the lookup and for storing the generated recipe.
+     */
+    public Key key(String input, Set<String> preferences) {
+        return new Key(normalize(input), String.join(",", new TreeSet<>(preferences)));
+    }
+
+    public Optional<Recipe> get(Key key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry exact = entries.get(key);
+            if (exact != null && !isExpired(exact, now)) {
+                hits.increment();
+                return Optional.of(exact.recipe);
+            }
+        }
+
+        if (embeddingModel != null) {
+            Optional<Recipe> similar = findSimilar(key, now);
+            if (similar.isPresent()) {
+                semanticHits.increment();
+                return similar;
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(Key key, Recipe recipe) {
+        Embedding embedding = embeddingModel != null ? key.embedding() : null;
+        long now = clock.millis();
+        synchronized (entries) {
+            entries.put(key, new Entry(recipe, embedding, now));
+            evict(now);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.sum(), semanticHits.sum(), misses.sum(), evictions.sum(), entries.size());
+        }
+    }
+
+    private Optional<Recipe> findSimilar(Key key, long now) {
+        Embedding embedding = key.embedding();
+        Recipe best = null;
+        double bestSimilarity = similarityThreshold;
+        synchronized (entries) {
+            for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+                Entry entry = candidate.getValue();
+                if (entry.embedding == null || isExpired(entry, now)
+                        || !candidate.getKey().preferences.equals(key.preferences)) {
+                    continue;
+                }
+                double similarity = CosineSimilarity.between(embedding, entry.embedding);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = entry.recipe;
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (entries.size() <= maxEntries && !isExpired(eldest, now)) {
+                return;
+            }
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.storedAt >= ttlMillis;
+    }
+
+    static String normalize(String input) {
+        return input.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    /**
+     * Identifies a request by its normalized text and the preferences it was made under.
+     */
+    public final class Key {
+        private final String text;
+        private final String preferences;
+        private Embedding embedding;
+
+        private Key(String text, String preferences) {
+            this.text = text;
+            this.preferences = preferences;
+        }
+
+        private synchronized Embedding embedding() {
+            if (embedding == null) {
+                embedding = embeddingModel.embed(text).content();
+            }
+            return embedding;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && text.equals(other.text) && preferences.equals(other.preferences);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + preferences.hashCode();
+        }
+    }
+
+    private record Entry(Recipe recipe, Embedding embedding, long storedAt) {
+    }
+
+    public record Stats(long hits, long semanticHits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            long lookups = hits + semanticHits + misses;
+            return lookups == 0 ? 0.0 : (double) (hits + semanticHits) / lookups;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Integer maxEntries = 1_000;
+        private Duration ttl = Duration.ofHours(1);
+        private EmbeddingModel embeddingModel;
+        private double similarityThreshold = 0.95;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder maxEntries(Integer maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Enables similarity matching: a request whose embedding is at least {@code similarityThreshold}
+         * cosine-similar to a cached one, under the same preferences, is served from the cache.
+         */
+        public Builder semanticMatching(EmbeddingModel embeddingModel, double similarityThreshold) {
+            this.embeddingModel = embeddingModel;
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public RecipeResponseCache build() {
+            return new RecipeResponseCache(this);
+        }
+    }
+}
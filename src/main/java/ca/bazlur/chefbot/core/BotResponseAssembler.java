@@ -0,0 +1,106 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import com.google.gson.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the fields of a bot response in whatever order they are decoded, notifies the listener as each
+ * one completes, and builds the {@link Recipe} or {@link Conversation} once the {@code type} is known.
+ * Shared by the buffered {@link BotResponseTypeAdapter} and the chunked {@link StreamingBotResponseParser}.
+ */
+final class BotResponseAssembler {
+
+    static final BotResponseListener NO_OP_LISTENER = response -> {
+    };
+
+    private final BotResponseListener listener;
+
+    private String type;
+    private String message;
+    private final Map<String, String> scalars = new HashMap<>();
+    private final Map<String, List<String>> lists = new HashMap<>();
+    private Nutrition.NutritionBuilder nutrition;
+
+    BotResponseAssembler(BotResponseListener listener) {
+        this.listener = listener;
+    }
+
+    void field(String field, String value) {
+        switch (field) {
+            case "type" -> type = value;
+            case "message" -> message = value;
+            default -> {
+                scalars.put(field, value);
+                listener.onRecipeField(field, value);
+            }
+        }
+    }
+
+    void startList(String field) {
+        lists.computeIfAbsent(field, k -> new ArrayList<>());
+    }
+
+    void listItem(String field, String item) {
+        lists.computeIfAbsent(field, k -> new ArrayList<>()).add(item);
+        listener.onRecipeListItem(field, item);
+    }
+
+    void startObject(String field) {
+        if (field.equals("calories") && nutrition == null) {
+            nutrition = Nutrition.builder();
+        }
+    }
+
+    void entry(String field, String key, String value) {
+        if (field.equals("calories")) {
+            startObject(field);
+            nutrition.set(key, value);
+        }
+    }
+
+    /**
+     * Takes the {@code calories} object decoded in one piece, as the buffered adapter does.
+     */
+    void nutrition(Nutrition nutrition) {
+        this.nutrition = nutrition == null ? null : nutrition.toBuilder();
+    }
+
+    /**
+     * @throws JsonParseException if the type is missing or unknown
+     */
+    BotResponse build() {
+        if (type == null) {
+            throw new JsonParseException("BotResponse is missing its type");
+        }
+        return switch (type) {
+            case "recipe" -> buildRecipe();
+            case "conversation" -> new Conversation(message);
+            default -> throw new JsonParseException("Unknown BotResponse type: " + type);
+        };
+    }
+
+    private Recipe buildRecipe() {
+        List<String> restrictions = lists.get("dietaryRestrictions");
+        return Recipe.builder()
+                .name(scalars.get("name"))
+                .description(scalars.get("description"))
+                .ingredients(lists.get("ingredients"))
+                .instructions(lists.get("instructions"))
+                .nutrition(nutrition == null ? null : nutrition.build())
+                .cuisineType(scalars.get("cuisineType"))
+                .dietaryRestrictions(restrictions == null ? null : new LinkedHashSet<>(restrictions))
+                .isSpicy(Boolean.parseBoolean(scalars.get("isSpicy")))
+                .servingSize(scalars.get("servingSize"))
+                .build();
+    }
+}
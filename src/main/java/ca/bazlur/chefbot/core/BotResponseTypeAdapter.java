@@ -0,0 +1,124 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.NutritionTypeAdapter;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Single-pass {@link BotResponse} codec working directly on Gson's {@link JsonReader}.
+ * <p>
+ * Fields are decoded straight off the token stream, without materializing a {@code JsonObject} tree or
+ * deserializing it a second time, and the concrete type is chosen from the {@code type} field once the
+ * object has been read. When the reader is backed by a stream that is still being filled,
+ * {@link #read(JsonReader, BotResponseListener)} reports every field as soon as it has been decoded.
+ */
+class BotResponseTypeAdapter extends TypeAdapter<BotResponse> {
+
+    private static final NutritionTypeAdapter NUTRITION = new NutritionTypeAdapter();
+
+    @Override
+    public BotResponse read(JsonReader in) throws IOException {
+        return read(in, BotResponseAssembler.NO_OP_LISTENER);
+    }
+
+    BotResponse read(JsonReader in, BotResponseListener listener) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        BotResponseAssembler assembler = new BotResponseAssembler(listener);
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            switch (in.peek()) {
+                case BEGIN_ARRAY -> readList(in, field, assembler);
+                case BEGIN_OBJECT -> readObject(in, field, assembler);
+                case NULL -> in.nextNull();
+                default -> assembler.field(field, readScalar(in));
+            }
+        }
+        in.endObject();
+        return assembler.build();
+    }
+
+    private static void readList(JsonReader in, String field, BotResponseAssembler assembler) throws IOException {
+        assembler.startList(field);
+        in.beginArray();
+        while (in.hasNext()) {
+            if (isScalar(in.peek())) {
+                assembler.listItem(field, readScalar(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endArray();
+    }
+
+    private static void readObject(JsonReader in, String field, BotResponseAssembler assembler) throws IOException {
+        if (field.equals("calories")) {
+            assembler.nutrition(NUTRITION.read(in));
+        } else {
+            in.skipValue();
+        }
+    }
+
+    private static boolean isScalar(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN;
+    }
+
+    private static String readScalar(JsonReader in) throws IOException {
+        // Numbers keep their literal text, as Gson does when binding them to String fields
+        return in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+    }
+
+    @Override
+    public void write(JsonWriter out, BotResponse value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        switch (value) {
+            case Conversation conversation -> {
+                out.name("type").value(conversation.getType());
+                out.name("message").value(conversation.getMessage());
+            }
+            case Recipe recipe -> {
+                out.name("type").value(recipe.getType());
+                out.name("name").value(recipe.getName());
+                out.name("description").value(recipe.getDescription());
+                writeList(out, "ingredients", recipe.getIngredients());
+                writeList(out, "instructions", recipe.getInstructions());
+                if (recipe.getNutrition() != null) {
+                    NUTRITION.write(out.name("calories"), recipe.getNutrition());
+                }
+                out.name("cuisineType").value(recipe.getCuisineType());
+                writeList(out, "dietaryRestrictions", recipe.getDietaryRestrictions());
+                out.name("isSpicy").value(recipe.isSpicy());
+                out.name("servingSize").value(recipe.getServingSize());
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeList(JsonWriter out, String name, Collection<String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+}
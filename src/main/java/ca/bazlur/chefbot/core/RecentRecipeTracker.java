@@ -0,0 +1,64 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Recipe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the last recipe shown in each session, for follow-ups that refer to it, and whether it was the last
+ * reply. The number of tracked sessions is bounded; the least recently active session is forgotten first.
+ */
+public class RecentRecipeTracker {
+
+    private final int maxSessions;
+    private final Map<String, Shown> recipes;
+
+    public RecentRecipeTracker(int maxSessions) {
+        this.maxSessions = maxSessions;
+        this.recipes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Shown> eldest) {
+                return size() > RecentRecipeTracker.this.maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Records the session's latest reply; a conversational one keeps the last recipe but ends its turn as the
+     * last reply.
+     */
+    public void remember(String sessionId, BotResponse response) {
+        synchronized (recipes) {
+            if (response instanceof Recipe recipe) {
+                recipes.put(sessionId, new Shown(recipe, true));
+            } else {
+                recipes.computeIfPresent(sessionId, (id, shown) -> new Shown(shown.recipe(), false));
+            }
+        }
+    }
+
+    /**
+     * Returns the last recipe shown in the session, or {@code null} if there was none.
+     */
+    public Recipe last(String sessionId) {
+        synchronized (recipes) {
+            Shown shown = recipes.get(sessionId);
+            return shown == null ? null : shown.recipe();
+        }
+    }
+
+    /**
+     * Returns whether the session's latest reply was a recipe.
+     */
+    public boolean lastReplyWasRecipe(String sessionId) {
+        synchronized (recipes) {
+            Shown shown = recipes.get(sessionId);
+            return shown != null && shown.lastReply();
+        }
+    }
+
+    private record Shown(Recipe recipe, boolean lastReply) {
+    }
+}
@@ -1,79 +1,757 @@
 package ca.bazlur.chefbot.core;
 
+import ca.bazlur.chefbot.ai.DispatchingChatModel;
+import ca.bazlur.chefbot.ai.ModelUnavailableException;
 import ca.bazlur.chefbot.ai.OpenAILLMSummarizer;
+import ca.bazlur.chefbot.ai.ResilientChatModel;
+import ca.bazlur.chefbot.ai.SessionChatMemoryProvider;
+import ca.bazlur.chefbot.ai.Summarizer;
 import ca.bazlur.chefbot.ai.SummarizingTokenWindowChatMemory;
+import ca.bazlur.chefbot.ai.TieredChatModel;
+import ca.bazlur.chefbot.cache.RecipeResponseCache;
 import ca.bazlur.chefbot.config.EnvironmentConfig;
 import ca.bazlur.chefbot.api.RecipeBotAssistant;
 import ca.bazlur.chefbot.domain.model.BotResponse;
 import ca.bazlur.chefbot.domain.model.Conversation;
 import ca.bazlur.chefbot.domain.model.Recipe;
-import com.google.gson.*;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import ca.bazlur.chefbot.index.RecipeIndex;
+import ca.bazlur.chefbot.index.RecipeQuery;
+import ca.bazlur.chefbot.intent.IntentContext;
+import ca.bazlur.chefbot.intent.LocalIntents;
+import ca.bazlur.chefbot.metrics.ChatTurnEvent;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import ca.bazlur.chefbot.metrics.ModelCallMetricsListener;
+import ca.bazlur.chefbot.rag.RecipeCorpus;
+import ca.bazlur.chefbot.rag.RetrievalAugmentedChatModel;
+import ca.bazlur.chefbot.store.FileChatMemoryStore;
+import ca.bazlur.chefbot.store.InMemoryVersionedChatMemoryStore;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
 import dev.langchain4j.service.AiServices;
-import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Slf4j
-public class RecipeBot {
+public class RecipeBot implements AutoCloseable {
+    /**
+     * Session used by single-user clients; matches the memory id langchain4j assigns when none is given.
+     */
+    public static final String DEFAULT_SESSION_ID = "default";
+
     private static final String MODEL_NAME = EnvironmentConfig.getEnv("OPENAI_MODEL_NAME", "gpt-4o");
+    private static final String CONVERSATION_MODEL_NAME = EnvironmentConfig.getEnv("OPENAI_CONVERSATION_MODEL_NAME", "gpt-4o-mini");
+    private static final String SUMMARIZATION_MODEL_NAME = EnvironmentConfig.getEnv("OPENAI_SUMMARIZATION_MODEL_NAME", "gpt-4o-mini");
     private static final int MAX_TOKENS = EnvironmentConfig.getEnvAsInt("OPENAI_MAX_TOKENS", 4000);
     private static final double TEMPERATURE = EnvironmentConfig.getEnvAsDouble("OPENAI_TEMPERATURE", 0.7);
+    private static final int MAX_CONCURRENT_REQUESTS = EnvironmentConfig.getEnvAsInt("OPENAI_MAX_CONCURRENT_REQUESTS", 64);
+    private static final int REQUESTS_PER_MINUTE = EnvironmentConfig.getEnvAsInt("OPENAI_REQUESTS_PER_MINUTE", 500);
+    private static final int TOKENS_PER_MINUTE = EnvironmentConfig.getEnvAsInt("OPENAI_TOKENS_PER_MINUTE", 30_000);
+    private static final int MAX_ATTEMPTS = EnvironmentConfig.getEnvAsInt("OPENAI_MAX_ATTEMPTS", 4);
+    private static final int CALL_DEADLINE_SECONDS = EnvironmentConfig.getEnvAsInt("OPENAI_CALL_DEADLINE_SECONDS", 45);
+    private static final double SUMMARIZATION_SOFT_LIMIT = EnvironmentConfig.getEnvAsDouble("SUMMARIZATION_SOFT_LIMIT", 0.7);
+    private static final int MAX_SESSIONS = EnvironmentConfig.getEnvAsInt("CHEFBOT_MAX_SESSIONS", 10_000);
+    private static final int SESSION_IDLE_MINUTES = EnvironmentConfig.getEnvAsInt("CHEFBOT_SESSION_IDLE_MINUTES", 30);
+    private static final int RESPONSE_CACHE_SIZE = EnvironmentConfig.getEnvAsInt("CHEFBOT_RESPONSE_CACHE_SIZE", 1_000);
+    private static final int RESPONSE_CACHE_TTL_MINUTES = EnvironmentConfig.getEnvAsInt("CHEFBOT_RESPONSE_CACHE_TTL_MINUTES", 60);
+    private static final double RESPONSE_CACHE_SIMILARITY = EnvironmentConfig.getEnvAsDouble("CHEFBOT_RESPONSE_CACHE_SIMILARITY", 0.0);
+    private static final String MEMORY_DIR = EnvironmentConfig.getEnv("CHEFBOT_MEMORY_DIR", null);
+    private static final String RECIPE_INDEX_FILE = EnvironmentConfig.getEnv("CHEFBOT_RECIPE_INDEX_FILE", null);
+    private static final String RECIPE_CORPUS_DIR = EnvironmentConfig.getEnv("CHEFBOT_RECIPE_CORPUS_DIR", null);
+    private static final int RECIPE_CORPUS_MAX_RESULTS = EnvironmentConfig.getEnvAsInt("CHEFBOT_RECIPE_CORPUS_MAX_RESULTS", 3);
+    private static final String EMBEDDING_MODEL_NAME = EnvironmentConfig.getEnv("OPENAI_EMBEDDING_MODEL_NAME", "text-embedding-3-small");
+    // Any OpenAI-compatible endpoint, such as a local stand-in for load tests; null means OpenAI itself
+    private static final String BASE_URL = EnvironmentConfig.getEnv("OPENAI_BASE_URL", null);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
 
-    private final RecipeBotAssistant recipeBotAssistant;
+    // Asking for another or a different dish means the user wants something not yet generated
+    private static final Pattern WANTS_SOMETHING_NEW =
+            Pattern.compile("\\b(another|different|else|new|instead|other)\\b", Pattern.CASE_INSENSITIVE);
+    // Follow-ups that refer back to the conversation, whose answer another session's request cannot share
+    private static final Pattern DEPENDS_ON_CONVERSATION = Pattern.compile(
+            "\\b(another|different|else|other|same|again|instead|swap|replace|substitute"
+                    + "|spicier|milder|healthier|lighter|cheaper|quicker|faster|easier|simpler|sweeter|smaller|bigger)\\b",
+            Pattern.CASE_INSENSITIVE);
+    // Answers to the last reply open with the word tying them to it, as in "yes please" or "less salt"
+    private static final Pattern ANSWERS_LAST_REPLY = Pattern.compile(
+            "^\\W*(yes|yeah|yep|sure|no|nope|ok|okay|more|less|it|its|that|this|these|those|them)\\b",
+            Pattern.CASE_INSENSITIVE);
+    // Pronouns that can only stand for something the bot said, once it has said something
+    private static final Pattern REFERS_TO_REPLY =
+            Pattern.compile("\\b(it|its|that|this|these|those|them)\\b", Pattern.CASE_INSENSITIVE);
+    // Questions about a dish rather than requests for one, as in "is chicken parmesan healthy?"
+    private static final Pattern ASKS_ABOUT_DISH = Pattern.compile(
+            "^\\W*(is|are|was|were|does|do|did|has|have|should|why|which|who|when|where|what|what's)\\b"
+                    + "|\\bhow (many|much|long|healthy)\\b",
+            Pattern.CASE_INSENSITIVE);
+    // Statements of what the user does not want, as in "I don't like mushrooms"
+    private static final Pattern NEGATED =
+            Pattern.compile("\\b(not|never|dont|doesnt|cant|wont|dislike)\\b|n't\\b", Pattern.CASE_INSENSITIVE);
 
-    private final Gson gson = new GsonBuilder()
-            .registerTypeAdapter(BotResponse.class, new BotResponseDeserializer())
+    // Gson is thread-safe, so a single instance serves every session
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(BotResponse.class, new BotResponseTypeAdapter())
             .create();
 
+    private final RecipeBotAssistant recipeBotAssistant;
+    private final RecipeResponseCache responseCache;
+    private final RecipeIndex recipeIndex;
+    private final UserProfileTracker profileTracker;
+    private final LocalIntents localIntents;
+    private final RecentRecipeTracker recentRecipes;
+    private final ChatMemoryProvider chatMemoryProvider;
+    private final ExecutorService backgroundExecutor;
+    private final Metrics metrics;
+
     public RecipeBot(RecipeBotAssistant recipeBotAssistant) {
-        this.recipeBotAssistant = recipeBotAssistant;
+        this(builder().assistant(recipeBotAssistant));
+    }
+
+    private RecipeBot(Builder builder) {
+        this.recipeBotAssistant = ValidationUtils.ensureNotNull(builder.assistant, "assistant");
+        this.responseCache = builder.responseCache;
+        this.recipeIndex = builder.recipeIndex;
+        this.profileTracker = ValidationUtils.ensureNotNull(builder.profileTracker, "profileTracker");
+        this.localIntents = builder.localIntents;
+        this.recentRecipes = ValidationUtils.ensureNotNull(builder.recentRecipes, "recentRecipes");
+        this.chatMemoryProvider = builder.chatMemoryProvider;
+        this.backgroundExecutor = builder.backgroundExecutor;
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
     }
 
     public static RecipeBot create(String openAiApiKey) {
-        OpenAiChatModel openAiModel = OpenAiChatModel.builder()
-                .apiKey(openAiApiKey)
-                .modelName(MODEL_NAME)
-                .temperature(TEMPERATURE)
+        Metrics metrics = Metrics.load();
+        ModelCallMetricsListener modelMetrics = new ModelCallMetricsListener(metrics);
+        return create(
+                modelName -> OpenAiChatModel.builder()
+                        .baseUrl(BASE_URL)
+                        .apiKey(openAiApiKey)
+                        .modelName(modelName)
+                        .temperature(TEMPERATURE)
+                        // Retries are paced by ResilientChatModel instead
+                        .maxRetries(1)
+                        .listeners(List.of(modelMetrics))
+                        .build(),
+                modelName -> OpenAiStreamingChatModel.builder()
+                        .baseUrl(BASE_URL)
+                        .apiKey(openAiApiKey)
+                        .modelName(modelName)
+                        .temperature(TEMPERATURE)
+                        .listeners(List.of(modelMetrics))
+                        .build(),
+                () -> OpenAiEmbeddingModel.builder()
+                        .baseUrl(BASE_URL)
+                        .apiKey(openAiApiKey)
+                        .modelName(EMBEDDING_MODEL_NAME)
+                        .build(),
+                metrics);
+    }
+
+    /**
+     * Builds the bot with {@code chatModel} and {@code streamingModel} answering in place of OpenAI, for running
+     * the whole pipeline offline. Every tier and the summarizer call {@code chatModel}, and streamed turns
+     * {@code streamingModel}, with the same pacing, retries and dispatching as the OpenAI clients would; semantic
+     * matching in the response cache is disabled.
+     */
+    public static RecipeBot create(ChatLanguageModel chatModel, StreamingChatLanguageModel streamingModel) {
+        ValidationUtils.ensureNotNull(chatModel, "chatModel");
+        ValidationUtils.ensureNotNull(streamingModel, "streamingModel");
+        return create(modelName -> chatModel, modelName -> streamingModel, null, Metrics.load());
+    }
+
+    private static RecipeBot create(Function<String, ChatLanguageModel> client,
+                                    Function<String, StreamingChatLanguageModel> streamingClient,
+                                    Supplier<EmbeddingModel> embeddingModel, Metrics metrics) {
+        // Tiers configured with the same model name share its rate limits and connections
+        Map<String, Model> models = new HashMap<>();
+        Function<String, Model> model = modelName -> models.computeIfAbsent(modelName,
+                name -> model(client.apply(name), streamingClient.apply(name), name, metrics));
+        ChatLanguageModel conversationModel = model.apply(CONVERSATION_MODEL_NAME).blocking();
+        ChatLanguageModel recipeModel = model.apply(MODEL_NAME).blocking();
+        StreamingChatLanguageModel conversationStreamingModel = model.apply(CONVERSATION_MODEL_NAME).streaming();
+        StreamingChatLanguageModel recipeStreamingModel = model.apply(MODEL_NAME).streaming();
+        if (RECIPE_CORPUS_DIR != null) {
+            // Passages go into the request only, behind the tier decision, and never into the chat memory
+            RecipeCorpus corpus = recipeCorpus(Path.of(RECIPE_CORPUS_DIR), metrics);
+            conversationModel = RetrievalAugmentedChatModel.augmenting(conversationModel, corpus);
+            recipeModel = RetrievalAugmentedChatModel.augmenting(recipeModel, corpus);
+            conversationStreamingModel = RetrievalAugmentedChatModel.augmenting(conversationStreamingModel, corpus);
+            recipeStreamingModel = RetrievalAugmentedChatModel.augmenting(recipeStreamingModel, corpus);
+        }
+        TieredChatModel chatModel = TieredChatModel.builder()
+                .conversationModel(conversationModel)
+                .recipeModel(recipeModel)
+                .metrics(metrics)
                 .build();
+        StreamingChatLanguageModel streamingModel = chatModel.streaming(conversationStreamingModel, recipeStreamingModel);
 
-        RecipeBotAssistant assistant = AiServices.builder(RecipeBotAssistant.class)
-                .chatLanguageModel(openAiModel)
-                .chatMemory(SummarizingTokenWindowChatMemory.builder()
-                        .id("recipe-bot")
-                        .maxTokens(MAX_TOKENS, new OpenAiTokenizer(MODEL_NAME))
-                        .chatMemoryStore(new InMemoryChatMemoryStore())
-                        .summarizer(new OpenAILLMSummarizer(openAiModel, 300))
+        // The models, tokenizer, summarizer and store are shared; only the memory itself is per session
+        OpenAiTokenizer tokenizer = new OpenAiTokenizer(MODEL_NAME);
+        Summarizer summarizer = new OpenAILLMSummarizer(model.apply(SUMMARIZATION_MODEL_NAME).blocking(), 300, 1_024, metrics);
+        // With a memory directory, conversations survive restarts and evicted sessions stay on disk
+        boolean persistent = MEMORY_DIR != null;
+        ChatMemoryStore store = persistent
+                ? FileChatMemoryStore.builder().directory(Path.of(MEMORY_DIR)).maxOpenSessions(MAX_SESSIONS).build()
+                : new InMemoryVersionedChatMemoryStore();
+        ExecutorService summarizationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        // The system prompt shares the window with the conversation, so the memory budgets are sized from what it leaves
+        int systemPromptTokens = tokenizer.estimateTokenCountInMessage(
+                SystemMessage.from(RecipeBotAssistant.systemPrompt(UserProfile.EMPTY)));
+        int memoryRoom = (int) (MAX_TOKENS * SUMMARIZATION_SOFT_LIMIT) - systemPromptTokens;
+        int recentTokens = EnvironmentConfig.getEnvAsInt("CHEFBOT_MEMORY_RECENT_TOKENS", memoryRoom / 4);
+
+        SessionChatMemoryProvider memoryProvider = SessionChatMemoryProvider.builder()
+                .maxSessions(MAX_SESSIONS)
+                .idleTimeout(Duration.ofMinutes(SESSION_IDLE_MINUTES))
+                .clearOnEviction(!persistent)
+                .memoryFactory(sessionId -> SummarizingTokenWindowChatMemory.builder()
+                        .id(sessionId)
+                        .maxTokens(MAX_TOKENS, tokenizer)
+                        .chatMemoryStore(store)
+                        .summarizer(summarizer)
+                        .systemPromptTokens(systemPromptTokens)
+                        .recentTokens(recentTokens)
+                        .asyncSummarization(summarizationExecutor, SUMMARIZATION_SOFT_LIMIT)
+                        .metrics(metrics)
                         .build())
                 .build();
 
-        return new RecipeBot(assistant);
+        // Preferences live in the profile rather than the chat history, and reach the model through the system prompt
+        UserProfileTracker profileTracker = profileTracker(persistent ? Path.of(MEMORY_DIR) : null, MAX_SESSIONS);
+        RecipeBotAssistant assistant = AiServices.builder(RecipeBotAssistant.class)
+                .systemMessageProvider(memoryId -> RecipeBotAssistant.systemPrompt(profileTracker.profile(String.valueOf(memoryId))))
+                .chatLanguageModel(chatModel)
+                .streamingChatLanguageModel(streamingModel)
+                .chatMemoryProvider(memoryProvider)
+                .build();
+
+        RecipeResponseCache responseCache = null;
+        if (RESPONSE_CACHE_SIZE > 0) {
+            RecipeResponseCache.Builder cache = RecipeResponseCache.builder()
+                    .maxEntries(RESPONSE_CACHE_SIZE)
+                    .ttl(Duration.ofMinutes(RESPONSE_CACHE_TTL_MINUTES));
+            if (RESPONSE_CACHE_SIMILARITY > 0 && embeddingModel != null) {
+                cache.semanticMatching(embeddingModel.get(), RESPONSE_CACHE_SIMILARITY);
+            }
+            responseCache = cache.build();
+        }
+
+        return builder()
+                .assistant(assistant)
+                .responseCache(responseCache)
+                .recipeIndex(RECIPE_INDEX_FILE != null ? RecipeIndex.open(Path.of(RECIPE_INDEX_FILE)) : RecipeIndex.inMemory())
+                .profileTracker(profileTracker)
+                .recentRecipes(new RecentRecipeTracker(MAX_SESSIONS))
+                .chatMemoryProvider(memoryProvider)
+                .backgroundExecutor(summarizationExecutor)
+                .metrics(metrics)
+                .build();
+    }
+
+    /**
+     * Builds the profile tracker, saving profiles under {@code memoryDirectory} when given. They get a store and
+     * directory of their own: session ids come from clients, so an id derived from the session's could be claimed
+     * by another session's conversation.
+     */
+    static UserProfileTracker profileTracker(Path memoryDirectory, int maxSessions) {
+        if (memoryDirectory == null) {
+            return new UserProfileTracker(maxSessions);
+        }
+        // Session logs are named *.log, so the subdirectory never clashes with one
+        return new UserProfileTracker(maxSessions, FileChatMemoryStore.builder()
+                .directory(memoryDirectory.resolve("profiles"))
+                .maxOpenSessions(maxSessions)
+                .build());
+    }
+
+    /**
+     * Builds the corpus of vetted recipes the assistant's answers are grounded in, and indexes {@code directory}
+     * into it in the background; until ingestion completes, answers are grounded in what is indexed so far.
+     */
+    private static RecipeCorpus recipeCorpus(Path directory, Metrics metrics) {
+        RecipeCorpus corpus = RecipeCorpus.builder()
+                .embeddingModel(new AllMiniLmL6V2EmbeddingModel())
+                .maxResults(RECIPE_CORPUS_MAX_RESULTS)
+                .metrics(metrics)
+                .build();
+        Thread.ofVirtual().name("recipe-corpus-loader").start(() -> {
+            try (Stream<Document> documents = RecipeCorpus.documents(directory)) {
+                corpus.ingest(documents);
+            } catch (RuntimeException e) {
+                log.error("Failed to index recipe corpus {}", directory, e);
+            }
+        });
+        return corpus;
+    }
+
+    /**
+     * The blocking and streaming model for one model name, which share its rate limits, circuit breaker and
+     * connections.
+     */
+    private record Model(ChatLanguageModel blocking, StreamingChatLanguageModel streaming) {
+    }
+
+    /**
+     * Builds the models for {@code modelName}: both clients, paced and retried together by one
+     * {@link ResilientChatModel}, behind one {@link DispatchingChatModel} queue of connections.
+     */
+    private static Model model(ChatLanguageModel client, StreamingChatLanguageModel streamingClient, String modelName,
+                               Metrics metrics) {
+        ResilientChatModel resilientModel = ResilientChatModel.builder()
+                .delegate(client)
+                .tokenizer(new OpenAiTokenizer(modelName))
+                .requestsPerMinute(REQUESTS_PER_MINUTE)
+                .tokensPerMinute(TOKENS_PER_MINUTE)
+                .maxAttempts(MAX_ATTEMPTS)
+                .deadline(Duration.ofSeconds(CALL_DEADLINE_SECONDS))
+                .metrics(metrics)
+                .build();
+        DispatchingChatModel dispatching = DispatchingChatModel.builder()
+                .delegate(resilientModel)
+                .maxConcurrentRequests(MAX_CONCURRENT_REQUESTS)
+                .metrics(metrics)
+                .build();
+        return new Model(dispatching, dispatching.streaming(resilientModel.streaming(streamingClient)));
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops background work, waiting up to {@link #CLOSE_TIMEOUT} for summaries already started to be saved.
+     */
+    @Override
+    public void close() {
+        if (backgroundExecutor == null) {
+            return;
+        }
+        backgroundExecutor.shutdown();
+        try {
+            if (!backgroundExecutor.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Background work still running after {}, interrupting it", CLOSE_TIMEOUT);
+                backgroundExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            backgroundExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 
+    /**
+     * Processes input for the single default session, as used by the command line client.
+     */
     public BotResponse processUserInput(String userInput) {
+        ChatTurnEvent event = startTurn();
+        long start = System.nanoTime();
+        profileTracker.observe(DEFAULT_SESSION_ID, userInput);
+        BotResponse response = respond(() -> recipeBotAssistant.getRecipe(userInput));
+        finishTurn(event, start, DEFAULT_SESSION_ID, false, false, response);
+        return response;
+    }
+
+    /**
+     * Processes input within the conversation identified by {@code sessionId}.
+     */
+    public BotResponse processUserInput(String sessionId, String userInput) {
+        ChatTurnEvent event = startTurn();
+        long start = System.nanoTime();
+        UserProfile profile = profileTracker.observe(sessionId, userInput);
+        Optional<LocalIntents.Answer> local = localAnswer(profile, sessionId, userInput);
+        if (local.isPresent()) {
+            event.localIntent = local.get().intent();
+            finishTurn(event, start, sessionId, false, false, local.get().response());
+            return local.get().response();
+        }
+        RecipeResponseCache.Key cacheKey = cacheKey(profile, sessionId, userInput);
+        Optional<Recipe> cached = cachedRecipe(cacheKey, profile, sessionId, userInput);
+        if (cached.isPresent()) {
+            finishTurn(event, start, sessionId, false, true, cached.get());
+            return cached.get();
+        }
+
+        BotResponse response = respond(() -> recipeBotAssistant.getRecipe(sessionId, userInput));
+        cacheRecipe(cacheKey, response);
+        finishTurn(event, start, sessionId, false, false, response);
+        return response;
+    }
+
+    /**
+     * Processes input within the conversation identified by {@code sessionId}, reporting the response to
+     * {@code listener} while the model is still generating it.
+     *
+     * @return a future completing with the same response passed to {@link BotResponseListener#onComplete(BotResponse)}
+     */
+    public CompletableFuture<BotResponse> streamUserInput(String sessionId, String userInput, BotResponseListener listener) {
+        ChatTurnEvent event = startTurn();
+        long start = System.nanoTime();
+        UserProfile profile = profileTracker.observe(sessionId, userInput);
+        Optional<LocalIntents.Answer> local = localAnswer(profile, sessionId, userInput);
+        if (local.isPresent()) {
+            BotResponse response = local.get().response();
+            listener.onComplete(response);
+            event.localIntent = local.get().intent();
+            finishTurn(event, start, sessionId, true, false, response);
+            return CompletableFuture.completedFuture(response);
+        }
+        RecipeResponseCache.Key cacheKey = cacheKey(profile, sessionId, userInput);
+        Optional<Recipe> cached = cachedRecipe(cacheKey, profile, sessionId, userInput);
+        if (cached.isPresent()) {
+            listener.onComplete(cached.get());
+            finishTurn(event, start, sessionId, true, true, cached.get());
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        StreamingTurn turn = new StreamingTurn(listener);
+        turn.result.thenAccept(response -> {
+            cacheRecipe(cacheKey, response);
+            finishTurn(event, start, sessionId, true, false, response);
+        });
         try {
-            String response = recipeBotAssistant.getRecipe(userInput);
-            return gson.fromJson(response, BotResponse.class);
+            recipeBotAssistant.streamRecipe(sessionId, userInput)
+                    .onPartialResponse(turn::feed)
+                    .onCompleteResponse(response -> turn.finish())
+                    .onError(turn::fail)
+                    .start();
         } catch (Exception e) {
-            log.error("Error processing user input", e);
-            return new Conversation("I apologize, but I encountered an error. Could you please rephrase your request?");
+            turn.fail(e);
+        }
+        return turn.result;
+    }
+
+    /**
+     * Answers follow-ups that need no generation, such as showing, scaling or converting the last recipe, in-process.
+     */
+    private Optional<LocalIntents.Answer> localAnswer(UserProfile profile, String sessionId, String userInput) {
+        if (localIntents == null) {
+            return Optional.empty();
+        }
+        Optional<LocalIntents.Answer> answer =
+                localIntents.resolve(userInput, new IntentContext(sessionId, profile, recentRecipes.last(sessionId),
+                        recentRecipes.lastReplyWasRecipe(sessionId)));
+        answer.ifPresent(local -> {
+            metrics.increment(MetricNames.LOCAL_INTENTS);
+            recordTurn(sessionId, userInput, local.response());
+        });
+        return answer;
+    }
+
+    /**
+     * Returns the cache key for the request, or {@code null} if it is not cached, either because there is no cache or
+     * because its answer depends on the conversation so far, as with "make it spicier" or "another one".
+     */
+    private RecipeResponseCache.Key cacheKey(UserProfile profile, String sessionId, String userInput) {
+        if (responseCache == null || dependsOnConversation(sessionId, userInput)) {
+            return null;
+        }
+        return responseCache.key(userInput, profile.constraints());
+    }
+
+    /**
+     * Returns whether the request refers back to the conversation: it asks for a change or an alternative, opens as
+     * an answer to the last reply, or points at something with a pronoun after the bot has replied at least once.
+     * Constraints alone, such as "vegan curry with no nuts" or "one-pot pasta, less salt", do not count.
+     */
+    private boolean dependsOnConversation(String sessionId, String userInput) {
+        return DEPENDS_ON_CONVERSATION.matcher(userInput).find()
+                || ANSWERS_LAST_REPLY.matcher(userInput).find()
+                || REFERS_TO_REPLY.matcher(userInput).find() && hasReplied(sessionId);
+    }
+
+    /**
+     * Returns whether the input is a request a stored recipe can answer on its own: not a follow-up, not a wish for
+     * something new, and neither a question about a dish nor a statement of what the user does not want, which
+     * name a dish or ingredient without asking for it.
+     */
+    private boolean requestsDish(String sessionId, String userInput) {
+        return !WANTS_SOMETHING_NEW.matcher(userInput).find()
+                && !ASKS_ABOUT_DISH.matcher(userInput).find()
+                && !NEGATED.matcher(userInput).find()
+                && !dependsOnConversation(sessionId, userInput);
+    }
+
+    private boolean hasReplied(String sessionId) {
+        // Without the memories at hand, any session may have been answered before
+        return chatMemoryProvider == null
+                || chatMemoryProvider.get(sessionId).messages().stream().anyMatch(AiMessage.class::isInstance);
+    }
+
+    /**
+     * Looks for a recipe answering the request without the model: first the response cache, then the recipe index.
+     */
+    private Optional<Recipe> cachedRecipe(RecipeResponseCache.Key cacheKey, UserProfile profile, String sessionId, String userInput) {
+        Optional<Recipe> cached = Optional.empty();
+        if (cacheKey != null) {
+            cached = responseCache.get(cacheKey);
+            metrics.increment(cached.isPresent() ? MetricNames.RESPONSE_CACHE_HITS : MetricNames.RESPONSE_CACHE_MISSES);
+        }
+        if (cached.isEmpty()) {
+            cached = indexedRecipe(profile, sessionId, userInput);
+            cached.ifPresent(recipe -> cacheRecipe(cacheKey, recipe));
+        }
+        // Keep the conversation coherent, as if the model had produced the recipe itself
+        cached.ifPresent(recipe -> recordTurn(sessionId, userInput, recipe));
+        return cached;
+    }
+
+    private Optional<Recipe> indexedRecipe(UserProfile profile, String sessionId, String userInput) {
+        if (recipeIndex == null || !requestsDish(sessionId, userInput)) {
+            return Optional.empty();
+        }
+        RecipeQuery query = RecipeQuery.forRequest(userInput, profile);
+        if (query.getTerms().isEmpty()) {
+            // Nothing to look up by; the request is for a suggestion rather than a particular dish
+            return Optional.empty();
+        }
+        Optional<Recipe> indexed = recipeIndex.search(query, 1).stream().findFirst();
+        metrics.increment(indexed.isPresent() ? MetricNames.RECIPE_INDEX_HITS : MetricNames.RECIPE_INDEX_MISSES);
+        return indexed;
+    }
+
+    private void cacheRecipe(RecipeResponseCache.Key cacheKey, BotResponse response) {
+        // Conversational replies depend on the dialogue so far, only recipes are worth sharing
+        if (!(response instanceof Recipe recipe)) {
+            return;
+        }
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, recipe);
+        }
+        if (recipeIndex != null) {
+            recipeIndex.add(recipe);
+        }
+    }
+
+    private void recordTurn(String sessionId, String userInput, BotResponse response) {
+        if (chatMemoryProvider == null) {
+            return;
         }
+        ChatMemory memory = chatMemoryProvider.get(sessionId);
+        memory.add(UserMessage.from(userInput));
+        memory.add(AiMessage.from(GSON.toJson(response, BotResponse.class)));
     }
 
-    static class BotResponseDeserializer implements JsonDeserializer<BotResponse> {
+    private BotResponse respond(Supplier<String> assistantCall) {
+        try {
+            String response = assistantCall.get();
+            return metrics.time(MetricNames.PARSE_LATENCY, () -> GSON.fromJson(response, BotResponse.class));
+        } catch (Exception e) {
+            return apologize(e);
+        }
+    }
 
-        @Override
-        public BotResponse deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject jsonObject = json.getAsJsonObject();
-            String type = jsonObject.get("type").getAsString();
+    private static ChatTurnEvent startTurn() {
+        ChatTurnEvent event = new ChatTurnEvent();
+        event.begin();
+        return event;
+    }
 
-            return switch (type) {
-                case "recipe" -> context.deserialize(jsonObject, Recipe.class);
-                case "conversation" -> context.deserialize(jsonObject, Conversation.class);
-                default -> throw new JsonParseException("Unknown BotResponse type: " + type);
+    private void finishTurn(ChatTurnEvent event, long startNanos, String sessionId, boolean streaming, boolean cached,
+                            BotResponse response) {
+        metrics.increment(MetricNames.TURNS);
+        metrics.record(MetricNames.TURN_LATENCY, System.nanoTime() - startNanos);
+        recentRecipes.remember(sessionId, response);
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.streaming = streaming;
+            event.cached = cached;
+            event.responseType = switch (response) {
+                case Recipe recipe -> recipe.getType();
+                case Conversation conversation -> conversation.getType();
             };
+            event.commit();
+        }
+    }
+
+    private Conversation apologize(Throwable error) {
+        log.error("Error processing user input", error);
+        metrics.increment(MetricNames.TURN_ERRORS);
+        if (error instanceof ModelUnavailableException) {
+            return new Conversation("I apologize, but I'm a little overwhelmed right now. Please try again in a moment.");
+        }
+        return new Conversation("I apologize, but I encountered an error. Could you please rephrase your request?");
+    }
+
+    /**
+     * Feeds streamed chunks to a {@link StreamingBotResponseParser} and completes the turn exactly once.
+     */
+    private final class StreamingTurn {
+        private final BotResponseListener listener;
+        private final StreamingBotResponseParser parser;
+        private final CompletableFuture<BotResponse> result = new CompletableFuture<>();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private long parseNanos; // Chunks arrive one at a time, on the model's thread
+
+        private StreamingTurn(BotResponseListener listener) {
+            this.listener = listener;
+            this.parser = new StreamingBotResponseParser(listener);
+        }
+
+        private void feed(String chunk) {
+            if (completed.get()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                parser.feed(chunk);
+            } catch (Exception e) {
+                fail(e);
+            } finally {
+                parseNanos += System.nanoTime() - start;
+            }
+        }
+
+        private void finish() {
+            if (completed.get()) {
+                return;
+            }
+            BotResponse response;
+            long start = System.nanoTime();
+            try {
+                response = parser.finish();
+                metrics.record(MetricNames.PARSE_LATENCY, parseNanos + System.nanoTime() - start);
+            } catch (Exception e) {
+                response = apologize(e);
+            }
+            complete(response);
+        }
+
+        private void fail(Throwable error) {
+            if (!completed.get()) {
+                complete(apologize(error));
+            }
+        }
+
+        private void complete(BotResponse response) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            // Notify the listener before the future so callers waiting on it see every callback
+            try {
+                listener.onComplete(response);
+            } finally {
+                result.complete(response);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private RecipeBotAssistant assistant;
+        private RecipeResponseCache responseCache;
+        private RecipeIndex recipeIndex;
+        private UserProfileTracker profileTracker = new UserProfileTracker(10_000);
+        private LocalIntents localIntents = LocalIntents.defaults();
+        private RecentRecipeTracker recentRecipes = new RecentRecipeTracker(10_000);
+        private ChatMemoryProvider chatMemoryProvider;
+        private ExecutorService backgroundExecutor;
+        private Metrics metrics = Metrics.NOOP;
+
+        public Builder assistant(RecipeBotAssistant assistant) {
+            this.assistant = assistant;
+            return this;
+        }
+
+        /**
+         * Serves repeated recipe requests from {@code responseCache} instead of the model; {@code null} disables caching.
+         */
+        public Builder responseCache(RecipeResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return this;
+        }
+
+        /**
+         * Serves requests for dishes generated before from {@code recipeIndex}, and adds every generated recipe to it;
+         * {@code null} disables the index.
+         */
+        public Builder recipeIndex(RecipeIndex recipeIndex) {
+            this.recipeIndex = recipeIndex;
+            return this;
+        }
+
+        /**
+         * Profiles updated from every user message; the assistant's system prompt should be built from the same tracker.
+         */
+        public Builder profileTracker(UserProfileTracker profileTracker) {
+            this.profileTracker = profileTracker;
+            return this;
+        }
+
+        /**
+         * Intents answered in-process before a message reaches the cache or the model; {@code null} sends every
+         * message on.
+         */
+        public Builder localIntents(LocalIntents localIntents) {
+            this.localIntents = localIntents;
+            return this;
+        }
+
+        /**
+         * The last recipe of each session, which local intents such as scaling act on.
+         */
+        public Builder recentRecipes(RecentRecipeTracker recentRecipes) {
+            this.recentRecipes = recentRecipes;
+            return this;
+        }
+
+        /**
+         * Memories to record turns answered without the model in, so follow-up requests keep their context.
+         */
+        public Builder chatMemoryProvider(ChatMemoryProvider chatMemoryProvider) {
+            this.chatMemoryProvider = chatMemoryProvider;
+            return this;
+        }
+
+        /**
+         * Runs the bot's background work, such as summarizing chat memories; the bot shuts it down when closed.
+         */
+        public Builder backgroundExecutor(ExecutorService backgroundExecutor) {
+            this.backgroundExecutor = backgroundExecutor;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public RecipeBot build() {
+            return new RecipeBot(this);
         }
     }
 
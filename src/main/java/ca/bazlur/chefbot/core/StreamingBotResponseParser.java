@@ -0,0 +1,238 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import com.google.gson.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental, push-based parser for the assistant's JSON output.
+ * <p>
+ * Chunks are fed as the model streams them and may split the document anywhere, including inside
+ * strings and escape sequences. The parser reports the conversation {@code message} text as it is
+ * generated and each recipe field or list element as soon as it is complete, without waiting for the
+ * rest of the document. Anything before the opening brace (such as a stray markdown fence) and after
+ * the closing brace is ignored.
+ */
+public class StreamingBotResponseParser {
+
+    private enum Expect {VALUE, VALUE_OR_END, KEY, KEY_OR_END, COLON, COMMA_OR_END, NOTHING}
+
+    private final BotResponseListener listener;
+    private final BotResponseAssembler assembler;
+
+    // Lexer state
+    private final List<Boolean> containers = new ArrayList<>(); // true for objects, false for arrays
+    private final List<String> keys = new ArrayList<>();
+    private Expect expect = Expect.VALUE;
+    private boolean rootStarted;
+    private StringBuilder string;
+    private boolean stringIsKey;
+    private int emittedLength;
+    private boolean escaping;
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+    private StringBuilder literal;
+
+    public StreamingBotResponseParser(BotResponseListener listener) {
+        this.listener = listener;
+        this.assembler = new BotResponseAssembler(listener);
+    }
+
+    /**
+     * Consumes the next chunk of model output.
+     *
+     * @throws JsonParseException if the chunk cannot continue a valid JSON object
+     */
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+        flushMessageDelta();
+    }
+
+    /**
+     * Completes parsing once the model has finished and returns the assembled response.
+     *
+     * @throws JsonParseException if the output ended before the JSON object was closed or has an unknown type
+     */
+    public BotResponse finish() {
+        if (!rootStarted || expect != Expect.NOTHING) {
+            throw new JsonParseException("Incomplete BotResponse JSON");
+        }
+        return assembler.build();
+    }
+
+    private void accept(char c) {
+        if (string != null) {
+            acceptStringChar(c);
+            return;
+        }
+        if (literal != null) {
+            if (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.') {
+                literal.append(c);
+                return;
+            }
+            String value = literal.toString();
+            literal = null;
+            completeValue(value, false);
+        }
+        if (Character.isWhitespace(c)) {
+            return;
+        }
+        if (!rootStarted) {
+            if (c == '{') {
+                rootStarted = true;
+                push(true);
+            }
+            return; // Skip any preamble before the object
+        }
+        if (expect == Expect.NOTHING) {
+            return; // Ignore trailing output after the object
+        }
+
+        switch (c) {
+            case '{' -> {
+                requireValue(c);
+                push(true);
+            }
+            case '[' -> {
+                requireValue(c);
+                push(false);
+            }
+            case '}' -> closeContainer(true, c);
+            case ']' -> closeContainer(false, c);
+            case '"' -> {
+                if (expect == Expect.KEY || expect == Expect.KEY_OR_END) {
+                    stringIsKey = true;
+                } else {
+                    requireValue(c);
+                    stringIsKey = false;
+                }
+                string = new StringBuilder();
+                emittedLength = 0;
+            }
+            case ':' -> {
+                require(expect == Expect.COLON, c);
+                expect = Expect.VALUE;
+            }
+            case ',' -> {
+                require(expect == Expect.COMMA_OR_END, c);
+                expect = inObject() ? Expect.KEY : Expect.VALUE;
+            }
+            default -> {
+                requireValue(c);
+                literal = new StringBuilder().append(c);
+            }
+        }
+    }
+
+    private void acceptStringChar(char c) {
+        if (unicodeDigits >= 0) {
+            int digit = Character.digit(c, 16);
+            require(digit >= 0, c);
+            unicodeValue = unicodeValue * 16 + digit;
+            if (++unicodeDigits == 4) {
+                string.append((char) unicodeValue);
+                unicodeDigits = -1;
+            }
+        } else if (escaping) {
+            escaping = false;
+            switch (c) {
+                case 'n' -> string.append('\n');
+                case 't' -> string.append('\t');
+                case 'r' -> string.append('\r');
+                case 'b' -> string.append('\b');
+                case 'f' -> string.append('\f');
+                case 'u' -> {
+                    unicodeDigits = 0;
+                    unicodeValue = 0;
+                }
+                default -> string.append(c);
+            }
+        } else if (c == '\\') {
+            escaping = true;
+        } else if (c == '"') {
+            String value = string.toString();
+            flushMessageDelta();
+            string = null;
+            if (stringIsKey) {
+                keys.set(keys.size() - 1, value);
+                expect = Expect.COLON;
+            } else {
+                completeValue(value, true);
+            }
+        } else {
+            string.append(c);
+        }
+    }
+
+    private void flushMessageDelta() {
+        if (string == null || stringIsKey || containers.size() != 1 || !"message".equals(keys.getFirst())) {
+            return;
+        }
+        int end = string.length();
+        // Never split a surrogate pair across two deltas
+        if (end > emittedLength && Character.isHighSurrogate(string.charAt(end - 1))) {
+            end--;
+        }
+        if (end > emittedLength) {
+            listener.onConversationDelta(string.substring(emittedLength, end));
+            emittedLength = end;
+        }
+    }
+
+    private void completeValue(String value, boolean quoted) {
+        int depth = containers.size();
+        boolean isNull = !quoted && value.equals("null");
+        if (depth == 1 && !isNull) {
+            assembler.field(keys.getFirst(), value);
+        } else if (depth == 2 && !isNull) {
+            if (inObject()) {
+                assembler.entry(keys.get(0), keys.get(1), value);
+            } else {
+                assembler.listItem(keys.getFirst(), value);
+            }
+        }
+        expect = Expect.COMMA_OR_END;
+    }
+
+    private void push(boolean object) {
+        if (containers.size() == 1) {
+            if (object) {
+                assembler.startObject(keys.getFirst());
+            } else {
+                assembler.startList(keys.getFirst());
+            }
+        }
+        containers.add(object);
+        keys.add(null);
+        expect = object ? Expect.KEY_OR_END : Expect.VALUE_OR_END;
+    }
+
+    private void closeContainer(boolean object, char c) {
+        boolean canClose = object
+                ? expect == Expect.KEY_OR_END || expect == Expect.COMMA_OR_END
+                : expect == Expect.VALUE_OR_END || expect == Expect.COMMA_OR_END;
+        require(canClose && inObject() == object, c);
+        containers.removeLast();
+        keys.removeLast();
+        expect = containers.isEmpty() ? Expect.NOTHING : Expect.COMMA_OR_END;
+    }
+
+    private boolean inObject() {
+        return containers.getLast();
+    }
+
+    private void requireValue(char c) {
+        require(expect == Expect.VALUE || expect == Expect.VALUE_OR_END, c);
+    }
+
+    private static void require(boolean condition, char c) {
+        if (!condition) {
+            throw new JsonParseException("Unexpected character '" + c + "' in BotResponse JSON");
+        }
+    }
+}
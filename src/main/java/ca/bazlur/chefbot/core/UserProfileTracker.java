@@ -0,0 +1,102 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import ca.bazlur.chefbot.domain.service.UserProfileExtractor;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps each session's {@link UserProfile}, updated from every message the user sends. The number of tracked
+ * sessions is bounded; the least recently active session is forgotten first.
+ * <p>
+ * Given a {@link ChatMemoryStore} of its own, each profile is also saved there under its session id, as a single
+ * message holding the profile's JSON, and read back when the session is first seen again, so preferences survive
+ * restarts and eviction along with the conversation. The store must not be the one holding chat memories: session
+ * ids come from clients, so no prefix on the profile's id could keep the two apart. Store access happens outside
+ * the tracker's lock.
+ */
+@Slf4j
+public class UserProfileTracker {
+
+    private static final Gson GSON = new Gson();
+
+    private final int maxSessions;
+    private final ChatMemoryStore store;
+    private final UserProfileExtractor extractor = new UserProfileExtractor();
+    private final Map<String, UserProfile> profiles;
+
+    public UserProfileTracker(int maxSessions) {
+        this(maxSessions, null);
+    }
+
+    /**
+     * @param store where profiles are saved, separate from the chat memories, or {@code null} to keep them in memory
+     *              only
+     */
+    public UserProfileTracker(int maxSessions, ChatMemoryStore store) {
+        this.maxSessions = maxSessions;
+        this.store = store;
+        this.profiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserProfile> eldest) {
+                return size() > UserProfileTracker.this.maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Updates the session's profile with anything mentioned in {@code input} and returns the result.
+     */
+    public UserProfile observe(String sessionId, String input) {
+        UserProfile stored = profile(sessionId);
+        UserProfile[] previous = new UserProfile[1];
+        UserProfile updated;
+        synchronized (profiles) {
+            updated = profiles.compute(sessionId, (id, profile) -> {
+                previous[0] = profile != null ? profile : stored;
+                return extractor.update(previous[0], input);
+            });
+        }
+        if (store != null && !updated.equals(previous[0])) {
+            store.updateMessages(sessionId, List.of(SystemMessage.from(GSON.toJson(updated))));
+        }
+        return updated;
+    }
+
+    public UserProfile profile(String sessionId) {
+        synchronized (profiles) {
+            UserProfile profile = profiles.get(sessionId);
+            if (profile != null || store == null) {
+                return profile != null ? profile : UserProfile.EMPTY;
+            }
+        }
+        UserProfile loaded = load(sessionId);
+        synchronized (profiles) {
+            // Another turn of the session may have got here first
+            UserProfile current = profiles.putIfAbsent(sessionId, loaded);
+            return current != null ? current : loaded;
+        }
+    }
+
+    private UserProfile load(String sessionId) {
+        List<ChatMessage> saved = store.getMessages(sessionId);
+        if (saved.isEmpty() || !(saved.get(0) instanceof SystemMessage message)) {
+            return UserProfile.EMPTY;
+        }
+        try {
+            UserProfile profile = GSON.fromJson(message.text(), UserProfile.class);
+            return profile != null ? profile : UserProfile.EMPTY;
+        } catch (JsonParseException e) {
+            log.warn("Ignoring unreadable profile of session {}", sessionId, e);
+            return UserProfile.EMPTY;
+        }
+    }
+}
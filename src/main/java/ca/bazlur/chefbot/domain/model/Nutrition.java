@@ -0,0 +1,115 @@
+package ca.bazlur.chefbot.domain.model;
+
+import com.google.gson.annotations.JsonAdapter;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Nutrition facts of a recipe, as the model reports them in the {@code calories} object. Values are per serving
+ * unless noted otherwise; a value the model did not report is {@link Float#NaN}.
+ * <p>
+ * Kept as primitives so that a recipe's nutrition costs a few dozen bytes rather than a map of strings, and
+ * can be compared without parsing. {@link NutritionTypeAdapter} reads and writes the JSON form.
+ */
+@Value
+@Builder(toBuilder = true)
+@JsonAdapter(NutritionTypeAdapter.class)
+public class Nutrition {
+
+    public static final String PER_SERVING = "per serving";
+    public static final String PROTEIN = "protein";
+    public static final String CARBS = "carbs";
+    public static final String FAT = "fat";
+    public static final String FIBER = "fiber";
+    public static final String SUGAR = "sugar";
+    public static final String SODIUM = "sodium";
+    public static final String TOTAL = "total";
+    /** The keys of the JSON form, in the order they are written. */
+    public static final List<String> KEYS = List.of(PER_SERVING, PROTEIN, CARBS, FAT, FIBER, SUGAR, SODIUM, TOTAL);
+
+    // Thousands may be grouped with commas or no-break spaces, as in "1,200 kcal"
+    private static final Pattern LEADING_NUMBER = Pattern.compile(
+            "^\\s*(-?(?:\\d{1,3}(?:[,\\u00A0\\u202F]\\d{3})+|\\d+)(?:\\.\\d+)?)");
+    private static final Pattern GROUPING_SEPARATOR = Pattern.compile("[,\\u00A0\\u202F]");
+
+    /** Calories per serving, in kcal. */
+    @Builder.Default
+    float caloriesPerServing = Float.NaN;
+    /** Grams per serving. */
+    @Builder.Default
+    float protein = Float.NaN;
+    @Builder.Default
+    float carbs = Float.NaN;
+    @Builder.Default
+    float fat = Float.NaN;
+    @Builder.Default
+    float fiber = Float.NaN;
+    @Builder.Default
+    float sugar = Float.NaN;
+    /** Milligrams per serving. */
+    @Builder.Default
+    float sodium = Float.NaN;
+    /** Calories of the whole recipe, in kcal. */
+    @Builder.Default
+    float totalCalories = Float.NaN;
+
+    /**
+     * Returns the value reported under the JSON {@code key}, or {@link Float#NaN} for a key that is not
+     * reported or not known.
+     */
+    public float get(String key) {
+        return switch (key) {
+            case PER_SERVING -> caloriesPerServing;
+            case PROTEIN -> protein;
+            case CARBS -> carbs;
+            case FAT -> fat;
+            case FIBER -> fiber;
+            case SUGAR -> sugar;
+            case SODIUM -> sodium;
+            case TOTAL -> totalCalories;
+            default -> Float.NaN;
+        };
+    }
+
+    /**
+     * Parses a value the model wrote as a string, such as {@code "420"}, {@code "1,200 kcal"} or {@code "15.5 g"},
+     * by its leading number.
+     *
+     * @return the number, or {@link Float#NaN} if the text does not start with one
+     */
+    static float parse(String value) {
+        Matcher matcher = LEADING_NUMBER.matcher(value);
+        return matcher.find() ? Float.parseFloat(GROUPING_SEPARATOR.matcher(matcher.group(1)).replaceAll("")) : Float.NaN;
+    }
+
+    public static class NutritionBuilder {
+
+        /**
+         * Sets the value reported under the JSON {@code key}; unknown keys are ignored.
+         */
+        public NutritionBuilder set(String key, float value) {
+            return switch (key) {
+                case PER_SERVING -> caloriesPerServing(value);
+                case PROTEIN -> protein(value);
+                case CARBS -> carbs(value);
+                case FAT -> fat(value);
+                case FIBER -> fiber(value);
+                case SUGAR -> sugar(value);
+                case SODIUM -> sodium(value);
+                case TOTAL -> totalCalories(value);
+                default -> this;
+            };
+        }
+
+        /**
+         * Sets the value reported under the JSON {@code key} from its text, as decoded by a streaming parser.
+         */
+        public NutritionBuilder set(String key, String value) {
+            return set(key, parse(value));
+        }
+    }
+}
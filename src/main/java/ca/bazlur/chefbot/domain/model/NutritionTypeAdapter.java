@@ -0,0 +1,62 @@
+package ca.bazlur.chefbot.domain.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes {@link Nutrition} as the {@code calories} object of the assistant's JSON, for example
+ * {@code {"per serving": 420, "protein": 15.5}}.
+ * <p>
+ * Numbers go straight from the token stream into the primitive fields. Values the model wrote as strings,
+ * such as {@code "15.5 g"}, are read by their leading number; unknown keys and nested values are skipped.
+ */
+public class NutritionTypeAdapter extends TypeAdapter<Nutrition> {
+
+    @Override
+    public Nutrition read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Nutrition.NutritionBuilder nutrition = Nutrition.builder();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            switch (in.peek()) {
+                case NUMBER -> nutrition.set(key, (float) in.nextDouble());
+                case STRING -> nutrition.set(key, in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return nutrition.build();
+    }
+
+    @Override
+    public void write(JsonWriter out, Nutrition nutrition) throws IOException {
+        if (nutrition == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (String key : Nutrition.KEYS) {
+            float value = nutrition.get(key);
+            if (!Float.isFinite(value)) {
+                continue;
+            }
+            out.name(key);
+            if (value == (long) value) {
+                out.value((long) value);
+            } else {
+                // Float's own decimal form, so 15.3 is not written as 15.300000190734863
+                out.jsonValue(Float.toString(value));
+            }
+        }
+        out.endObject();
+    }
+}
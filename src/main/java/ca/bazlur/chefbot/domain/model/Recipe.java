@@ -1,15 +1,15 @@
 package ca.bazlur.chefbot.domain.model;
 
+import com.google.gson.annotations.SerializedName;
 import jdk.jfr.Description;
 import lombok.Builder;
 import lombok.Data;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Description("A recipe with ingredients, instructions, and other details")
 public final class Recipe implements BotResponse {
     private final String type = "recipe";
@@ -18,7 +18,8 @@ public final class Recipe implements BotResponse {
     private String description;
     private List<String> ingredients;
     private List<String> instructions;
-    private Map<String, String> calories;
+    @SerializedName("calories")
+    private Nutrition nutrition;
     private String cuisineType;
     private Set<String> dietaryRestrictions;
     private boolean isSpicy;
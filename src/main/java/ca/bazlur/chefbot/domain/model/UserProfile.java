@@ -0,0 +1,74 @@
+package ca.bazlur.chefbot.domain.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * What a user has told the bot about their diet, allergies, cuisines and nutrition targets, kept outside the chat
+ * history so it is never summarized or evicted away. Sets are sorted, so equal profiles render identically.
+ */
+@Value
+@Builder(toBuilder = true)
+public class UserProfile {
+
+    public static final UserProfile EMPTY = UserProfile.builder().build();
+
+    @Builder.Default
+    SortedSet<String> diets = new TreeSet<>();
+    @Builder.Default
+    SortedSet<String> avoidedIngredients = new TreeSet<>();
+    @Builder.Default
+    SortedSet<String> cuisines = new TreeSet<>();
+    @Builder.Default
+    SortedSet<String> nutritionGoals = new TreeSet<>();
+    Integer maxCaloriesPerServing;
+
+    public boolean isEmpty() {
+        return diets.isEmpty() && avoidedIngredients.isEmpty() && cuisines.isEmpty() && nutritionGoals.isEmpty()
+                && maxCaloriesPerServing == null;
+    }
+
+    /**
+     * Everything in the profile that changes which recipes suit the user, as {@code kind:value} entries.
+     */
+    public Set<String> constraints() {
+        Set<String> constraints = new TreeSet<>();
+        diets.forEach(diet -> constraints.add("diet:" + diet));
+        avoidedIngredients.forEach(ingredient -> constraints.add("avoid:" + ingredient));
+        cuisines.forEach(cuisine -> constraints.add("cuisine:" + cuisine));
+        nutritionGoals.forEach(goal -> constraints.add("goal:" + goal));
+        if (maxCaloriesPerServing != null) {
+            constraints.add("calories:" + maxCaloriesPerServing);
+        }
+        return constraints;
+    }
+
+    /**
+     * Renders the profile as a short block of {@code - Label: values} lines for the system prompt, or an empty
+     * string if nothing is known yet.
+     */
+    public String toPromptBlock() {
+        if (isEmpty()) {
+            return "";
+        }
+        StringBuilder block = new StringBuilder("Known user preferences (keep applying these unless the user changes them):\n");
+        appendLine(block, "Diet", diets);
+        appendLine(block, "Avoid", avoidedIngredients);
+        appendLine(block, "Cuisines", cuisines);
+        appendLine(block, "Nutrition", nutritionGoals);
+        if (maxCaloriesPerServing != null) {
+            block.append("- Calories: at most ").append(maxCaloriesPerServing).append(" per serving\n");
+        }
+        return block.toString();
+    }
+
+    private static void appendLine(StringBuilder block, String label, Set<String> values) {
+        if (!values.isEmpty()) {
+            block.append("- ").append(label).append(": ").append(String.join(", ", values)).append('\n');
+        }
+    }
+}
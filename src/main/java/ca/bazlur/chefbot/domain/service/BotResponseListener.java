@@ -0,0 +1,33 @@
+package ca.bazlur.chefbot.domain.service;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+
+/**
+ * Receives a bot response progressively while the model is still generating it.
+ * <p>
+ * Callbacks arrive in generation order on the thread delivering the model's tokens. Every stream ends
+ * with exactly one {@link #onComplete(BotResponse)}, carrying either the fully parsed response or an
+ * apology {@code Conversation} if the turn failed.
+ */
+public interface BotResponseListener {
+
+    /**
+     * Called with the next piece of a conversational reply's {@code message} text.
+     */
+    default void onConversationDelta(String delta) {
+    }
+
+    /**
+     * Called once a scalar recipe field such as {@code name} or {@code description} has been generated.
+     */
+    default void onRecipeField(String field, String value) {
+    }
+
+    /**
+     * Called once an element of a recipe list field such as {@code ingredients} or {@code instructions} has been generated.
+     */
+    default void onRecipeListItem(String field, String item) {
+    }
+
+    void onComplete(BotResponse response);
+}
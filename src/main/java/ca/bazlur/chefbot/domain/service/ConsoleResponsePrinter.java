@@ -0,0 +1,110 @@
+package ca.bazlur.chefbot.domain.service;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Prints a streamed bot response to the console as it is generated: conversational replies token by
+ * token, and recipes section by section in the same layout as {@link RecipeFormatter#printRecipe(Recipe)}.
+ * Each section is rendered into a reused buffer and written in one go. A new instance is needed for every turn.
+ */
+public class ConsoleResponsePrinter implements BotResponseListener {
+
+    private final RecipeFormatter formatter = new RecipeFormatter(RecipeFormatter.Style.ANSI);
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    private boolean conversationStarted;
+    private boolean recipeStarted;
+    private String currentList;
+    private int instructionCount;
+
+    @Override
+    public void onConversationDelta(String delta) {
+        if (!conversationStarted) {
+            System.out.print("\nBot: ");
+            conversationStarted = true;
+        }
+        System.out.print(delta);
+        System.out.flush();
+    }
+
+    @Override
+    public void onRecipeField(String field, String value) {
+        switch (field) {
+            case "name" -> {
+                print(out -> formatter.header(value, out));
+                recipeStarted = true;
+            }
+            case "description" -> print(out -> formatter.optionalField("Description", value, out));
+            case "servingSize" -> print(out -> formatter.servingSize(value, out));
+            case "cuisineType" -> print(out -> formatter.cuisine(value, out));
+            default -> {
+                // Remaining fields are rendered once the recipe is complete
+            }
+        }
+    }
+
+    @Override
+    public void onRecipeListItem(String field, String item) {
+        switch (field) {
+            case "ingredients" -> print(out -> {
+                startList(field, "Ingredients", out);
+                formatter.ingredient(item, out);
+            });
+            case "instructions" -> {
+                int step = ++instructionCount;
+                print(out -> {
+                    startList(field, "Instructions", out);
+                    formatter.instruction(step, item, out);
+                });
+            }
+            default -> {
+                // Remaining lists are rendered once the recipe is complete
+            }
+        }
+    }
+
+    @Override
+    public void onComplete(BotResponse response) {
+        if (response instanceof Recipe recipe) {
+            if (recipeStarted) {
+                print(out -> formatter.details(recipe, out));
+            } else {
+                RecipeFormatter.printRecipe(recipe);
+            }
+        } else if (response instanceof Conversation conversation) {
+            if (conversationStarted) {
+                System.out.println();
+            } else {
+                System.out.println("\nBot: " + conversation.getMessage());
+            }
+        }
+    }
+
+    private void startList(String field, String title, Appendable out) throws IOException {
+        if (!field.equals(currentList)) {
+            formatter.sectionTitle(title, out);
+            currentList = field;
+        }
+    }
+
+    private void print(Section section) {
+        buffer.setLength(0);
+        try {
+            section.render(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.append(buffer);
+        System.out.flush();
+    }
+
+    @FunctionalInterface
+    private interface Section {
+        void render(Appendable out) throws IOException;
+    }
+}
@@ -1,70 +1,322 @@
 package ca.bazlur.chefbot.domain.service;
 
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.NutritionTypeAdapter;
 import ca.bazlur.chefbot.domain.model.Recipe;
+import com.google.gson.stream.JsonWriter;
 
-import java.util.Map;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * Renders recipes into any {@link Appendable}, as plain text, ANSI-coloured text for a terminal, Markdown or
+ * JSON, so the console and the HTTP server share one layout.
+ * <p>
+ * Every piece of the output is appended directly to the target; nothing is concatenated first. To render many
+ * recipes, {@link #renderAll(Iterable, Appendable)} fills one reused buffer per recipe and writes and flushes it
+ * once, so a menu costs a single write per recipe however slow the target is.
+ */
 public class RecipeFormatter {
 
-    private static final String RESET = "\u001B[0m";
-    private static final String BOLD = "\u001B[1m";
-    private static final String UNDERLINE = "\u001B[4m";
-    private static final String CYAN = "\u001B[36m";
-    private static final String GREEN = "\u001B[32m";
-    private static final String YELLOW = "\u001B[33m";
-    private static final String RED = "\u001B[31m";
-    private static final String BLUE = "\u001B[34m";
+    public enum Style {
+        PLAIN, ANSI, MARKDOWN, JSON
+    }
+
+    private static final String RULE = "--------------------------------------------------";
+    private static final NutritionTypeAdapter NUTRITION = new NutritionTypeAdapter();
+    private static final RecipeFormatter CONSOLE = new RecipeFormatter(Style.ANSI);
+
+    private final Style style;
+    private final String reset;
+    private final String bold;
+    private final String underline;
+    private final String cyan;
+    private final String green;
+    private final String yellow;
+    private final String red;
+    private final String blue;
+
+    public RecipeFormatter(Style style) {
+        this.style = style;
+        boolean ansi = style == Style.ANSI;
+        this.reset = ansi ? "\u001B[0m" : "";
+        this.bold = ansi ? "\u001B[1m" : "";
+        this.underline = ansi ? "\u001B[4m" : "";
+        this.cyan = ansi ? "\u001B[36m" : "";
+        this.green = ansi ? "\u001B[32m" : "";
+        this.yellow = ansi ? "\u001B[33m" : "";
+        this.red = ansi ? "\u001B[31m" : "";
+        this.blue = ansi ? "\u001B[34m" : "";
+    }
 
+    /**
+     * Prints a recipe to standard output in colour, with a single write.
+     */
     public static void printRecipe(Recipe recipe) {
         if (recipe == null) {
-            System.out.println(RED + BOLD + "No recipe found." + RESET);
+            System.out.println("\u001B[31m\u001B[1mNo recipe found.\u001B[0m");
             return;
         }
+        try {
+            CONSOLE.renderAll(List.of(recipe), System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Style style() {
+        return style;
+    }
+
+    /**
+     * Renders every recipe into {@code out}, writing and flushing each one as a whole. In the JSON style each
+     * recipe is one line.
+     */
+    public void renderAll(Iterable<Recipe> recipes, Appendable out) throws IOException {
+        StringBuilder buffer = new StringBuilder(1_024);
+        for (Recipe recipe : recipes) {
+            buffer.setLength(0);
+            render(recipe, buffer);
+            if (style == Style.JSON) {
+                buffer.append('\n');
+            }
+            out.append(buffer);
+            if (out instanceof Flushable flushable) {
+                flushable.flush();
+            }
+        }
+    }
 
-        System.out.println(CYAN + BOLD + "--------------------------------------------------" + RESET);
-        System.out.println(CYAN + BOLD + "Recipe: " + RESET + BOLD + recipe.getName() + RESET);
-        System.out.println(CYAN + BOLD + "--------------------------------------------------" + RESET);
+    public <A extends Appendable> A render(Recipe recipe, A out) throws IOException {
+        if (style == Style.JSON) {
+            renderJson(recipe, out);
+            return out;
+        }
 
-        printOptionalField("Description", recipe.getDescription());
-        printOptionalField("Serving Size", recipe.getServingSize() != null ? recipe.getServingSize() + " servings" : null, BLUE);
+        header(recipe.getName(), out);
+        optionalField("Description", recipe.getDescription(), out);
+        servingSize(recipe.getServingSize(), out);
 
-        if (recipe.getIngredients() != null && !recipe.getIngredients().isEmpty()) {
-            System.out.println("\n" + UNDERLINE + "Ingredients:" + RESET);
-            recipe.getIngredients().forEach(ingredient -> System.out.println(GREEN + "✔ " + ingredient + RESET));
+        List<String> ingredients = recipe.getIngredients();
+        if (ingredients != null && !ingredients.isEmpty()) {
+            sectionTitle("Ingredients", out);
+            for (String ingredient : ingredients) {
+                ingredient(ingredient, out);
+            }
         }
 
-        if (recipe.getInstructions() != null && !recipe.getInstructions().isEmpty()) {
-            System.out.println("\n" + UNDERLINE + "Instructions:" + RESET);
-            for (int i = 0; i < recipe.getInstructions().size(); i++) {
-                System.out.println(YELLOW + (i + 1) + ". " + recipe.getInstructions().get(i) + RESET);
+        List<String> instructions = recipe.getInstructions();
+        if (instructions != null && !instructions.isEmpty()) {
+            sectionTitle("Instructions", out);
+            for (int i = 0; i < instructions.size(); i++) {
+                instruction(i + 1, instructions.get(i), out);
             }
         }
 
-        printOptionalField("Cuisine", recipe.getCuisineType(), BLUE);
+        cuisine(recipe.getCuisineType(), out);
+        details(recipe, out);
+        return out;
+    }
 
-        if (recipe.getDietaryRestrictions() != null && !recipe.getDietaryRestrictions().isEmpty()) {
-            System.out.print("\n" + UNDERLINE + "Dietary Restrictions:" + RESET + " ");
-            String restrictions = String.join(", ", recipe.getDietaryRestrictions().stream().map(s -> GREEN + s + RESET).toList());
-            System.out.println(restrictions);
+    /**
+     * Renders the sections that are only known once a recipe is complete, followed by the closing rule.
+     * The section methods apply to the text styles and are used to render a recipe while it streams in.
+     */
+    void details(Recipe recipe, Appendable out) throws IOException {
+        Set<String> dietaryRestrictions = recipe.getDietaryRestrictions();
+        if (dietaryRestrictions != null && !dietaryRestrictions.isEmpty()) {
+            label("Dietary Restrictions", out);
+            boolean first = true;
+            for (String restriction : dietaryRestrictions) {
+                if (!first) {
+                    out.append(", ");
+                }
+                out.append(green).append(restriction).append(reset);
+                first = false;
+            }
+            out.append('\n');
         }
 
-        System.out.println("\n" + UNDERLINE + "Spicy:" + RESET + " " + (recipe.isSpicy() ? RED + "Yes 🌶" + RESET : BLUE + "No" + RESET));
+        label("Spicy", out);
+        if (recipe.isSpicy()) {
+            out.append(red).append("Yes 🌶").append(reset).append('\n');
+        } else {
+            out.append(blue).append("No").append(reset).append('\n');
+        }
 
-        if (recipe.getCalories() != null && !recipe.getCalories().isEmpty()) {
-            System.out.println("\n" + UNDERLINE + "Calories:" + RESET);
-            recipe.getCalories().forEach((key, value) -> System.out.println(GREEN + key + ": " + value + " kcal" + RESET));
+        Nutrition nutrition = recipe.getNutrition();
+        if (nutrition != null) {
+            sectionTitle("Nutrition", out);
+            nutrient("Per serving", nutrition.getCaloriesPerServing(), "kcal", out);
+            nutrient("Protein", nutrition.getProtein(), "g", out);
+            nutrient("Carbs", nutrition.getCarbs(), "g", out);
+            nutrient("Fat", nutrition.getFat(), "g", out);
+            nutrient("Fiber", nutrition.getFiber(), "g", out);
+            nutrient("Sugar", nutrition.getSugar(), "g", out);
+            nutrient("Sodium", nutrition.getSodium(), "mg", out);
+            nutrient("Total", nutrition.getTotalCalories(), "kcal", out);
         }
 
-        System.out.println(CYAN + BOLD + "--------------------------------------------------" + RESET);
+        if (style == Style.MARKDOWN) {
+            out.append("\n---\n");
+        } else {
+            out.append(cyan).append(bold).append(RULE).append(reset).append('\n');
+        }
+    }
+
+    void header(String name, Appendable out) throws IOException {
+        if (style == Style.MARKDOWN) {
+            out.append("## ").append(name).append('\n');
+            return;
+        }
+        out.append(cyan).append(bold).append(RULE).append(reset).append('\n');
+        out.append(cyan).append(bold).append("Recipe: ").append(reset).append(bold).append(name).append(reset).append('\n');
+        out.append(cyan).append(bold).append(RULE).append(reset).append('\n');
+    }
+
+    void sectionTitle(String title, Appendable out) throws IOException {
+        if (style == Style.MARKDOWN) {
+            out.append("\n### ").append(title).append("\n\n");
+        } else {
+            out.append('\n').append(underline).append(title).append(':').append(reset).append('\n');
+        }
+    }
+
+    void ingredient(String ingredient, Appendable out) throws IOException {
+        if (style == Style.MARKDOWN) {
+            out.append("- ").append(ingredient).append('\n');
+        } else {
+            out.append(green).append("✔ ").append(ingredient).append(reset).append('\n');
+        }
+    }
+
+    void instruction(int step, String instruction, Appendable out) throws IOException {
+        out.append(yellow);
+        appendNumber(step, out);
+        out.append(". ").append(instruction).append(reset).append('\n');
+    }
+
+    void servingSize(String servingSize, Appendable out) throws IOException {
+        if (servingSize != null) {
+            label("Serving Size", out);
+            out.append(blue).append(servingSize).append(" servings").append(reset).append('\n');
+        }
     }
 
-    private static void printOptionalField(String label, String value) {
-        printOptionalField(label, value, RESET);
+    void cuisine(String cuisineType, Appendable out) throws IOException {
+        if (cuisineType != null) {
+            label("Cuisine", out);
+            out.append(blue).append(cuisineType).append(reset).append('\n');
+        }
     }
 
-    private static void printOptionalField(String label, String value, String color) {
+    void optionalField(String label, String value, Appendable out) throws IOException {
         if (value != null) {
-            System.out.println("\n" + UNDERLINE + label + ":" + RESET + " " + color + value + RESET);
+            label(label, out);
+            out.append(value).append('\n');
+        }
+    }
+
+    private void label(String label, Appendable out) throws IOException {
+        if (style == Style.MARKDOWN) {
+            out.append("\n**").append(label).append(":** ");
+        } else {
+            out.append('\n').append(underline).append(label).append(':').append(reset).append(' ');
+        }
+    }
+
+    private void nutrient(String label, float value, String unit, Appendable out) throws IOException {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        out.append(style == Style.MARKDOWN ? "- " : green).append(label).append(": ");
+        if (value == (long) value) {
+            appendNumber((long) value, out);
+        } else {
+            out.append(Float.toString(value));
+        }
+        out.append(' ').append(unit).append(reset).append('\n');
+    }
+
+    private static void appendNumber(long value, Appendable out) throws IOException {
+        if (out instanceof StringBuilder builder) {
+            builder.append(value);
+        } else {
+            out.append(Long.toString(value));
+        }
+    }
+
+    /**
+     * Writes the recipe in the same JSON form the assistant produces.
+     */
+    private static void renderJson(Recipe recipe, Appendable out) throws IOException {
+        JsonWriter json = new JsonWriter(out instanceof Writer writer ? writer : new AppendableWriter(out));
+        json.beginObject();
+        json.name("type").value(recipe.getType());
+        json.name("name").value(recipe.getName());
+        json.name("description").value(recipe.getDescription());
+        jsonList("ingredients", recipe.getIngredients(), json);
+        jsonList("instructions", recipe.getInstructions(), json);
+        if (recipe.getNutrition() != null) {
+            NUTRITION.write(json.name("calories"), recipe.getNutrition());
+        }
+        json.name("cuisineType").value(recipe.getCuisineType());
+        jsonList("dietaryRestrictions", recipe.getDietaryRestrictions(), json);
+        json.name("isSpicy").value(recipe.isSpicy());
+        json.name("servingSize").value(recipe.getServingSize());
+        json.endObject();
+        json.flush();
+    }
+
+    private static void jsonList(String name, Collection<String> values, JsonWriter json) throws IOException {
+        if (values == null) {
+            return;
+        }
+        json.name(name).beginArray();
+        for (String value : values) {
+            json.value(value);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Lets {@link JsonWriter} write into an {@link Appendable} without copying each string it writes.
+     */
+    private static final class AppendableWriter extends Writer {
+        private final Appendable out;
+
+        private AppendableWriter(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.append((char) c);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.append(text, offset, offset + length);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                out.append(buffer[i]);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
         }
     }
-}
\ No newline at end of file
+}
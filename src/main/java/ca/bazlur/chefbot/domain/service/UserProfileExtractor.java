@@ -0,0 +1,140 @@
+package ca.bazlur.chefbot.domain.service;
+
+import ca.bazlur.chefbot.domain.model.UserProfile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Updates a {@link UserProfile} from a single user message with keyword and pattern rules, so keeping the profile
+ * current costs no model calls. Preferences are added as they are mentioned and removed when negated, as in
+ * "I'm not vegan anymore".
+ */
+public class UserProfileExtractor {
+
+    private static final List<String> DIETS = List.of(
+            "vegan", "vegetarian", "pescatarian", "keto", "paleo", "halal", "kosher",
+            "gluten free", "dairy free", "nut free", "lactose free"
+    );
+
+    private static final List<String> CUISINES = List.of(
+            "italian", "indian", "mexican", "chinese", "japanese", "thai", "korean", "vietnamese",
+            "mediterranean", "french", "greek", "spanish", "american", "middle eastern"
+    );
+
+    private static final List<String> NUTRITION_GOALS = List.of(
+            "low carb", "high protein", "low fat", "low sodium", "low sugar", "high fiber"
+    );
+
+    private static final Set<String> NEGATIONS = Set.of("not", "longer", "stopped", "quit", "dont", "don't", "never");
+
+    private static final Pattern AVOIDED = Pattern.compile(
+            "\\b(?:allergic to|allergy to|allergies to|intolerant to|avoid|avoiding|without|no|hate|dislike"
+                    + "|don't eat|dont eat|do not eat|can't eat|cant eat|cannot eat|can't have|cannot have)"
+                    + "\\s+([a-z][a-z ,]*?)(?=[.!?;:\\d]|\\s*$|\\s+(?:but|please|because|since|in|for|so|i|i'm|im|we|my|also|thanks|with)\\b)");
+
+    private static final Pattern ALLERGY_SUFFIX = Pattern.compile("\\b([a-z]+) (?:allergy|intolerance)\\b");
+
+    private static final Pattern CALORIES = Pattern.compile(
+            "(?:under|below|less than|at most|max|maximum|no more than|up to|around|about|<)?\\s*(\\d{2,4})\\s*(?:kcal|calories|calorie|cals?)\\b");
+
+    private static final Set<String> NOT_INGREDIENTS = Set.of(
+            "none", "allergies", "allergy", "restrictions", "restriction", "preference", "preferences", "problem",
+            "thanks", "idea", "worries", "more", "less", "longer", "much", "one", "i", "it", "that", "this", "way",
+            "matter", "need", "thank", "doubt", "clue", "rush", "hurry", "time", "food", "and", "or", "at", "my",
+            "you", "me", "whatever", "anything", "something"
+    );
+
+    private static final Set<String> LEADING_FILLERS = Set.of("any", "the", "a", "an", "some", "no", "also", "mild", "severe");
+
+    public UserProfile update(UserProfile profile, String input) {
+        String text = " " + input.toLowerCase(Locale.ROOT).replace('-', ' ').replace('’', '\'') + " ";
+        String words = " " + text.replaceAll("[^\\p{L}\\p{N}']+", " ").trim() + " ";
+
+        SortedSet<String> diets = new TreeSet<>(profile.getDiets());
+        SortedSet<String> cuisines = new TreeSet<>(profile.getCuisines());
+        SortedSet<String> goals = new TreeSet<>(profile.getNutritionGoals());
+        SortedSet<String> avoided = new TreeSet<>(profile.getAvoidedIngredients());
+        Integer maxCalories = profile.getMaxCaloriesPerServing();
+
+        applyKeywords(words, DIETS, diets);
+        applyKeywords(words, CUISINES, cuisines);
+        applyKeywords(words, NUTRITION_GOALS, goals);
+
+        Matcher avoidedMatcher = AVOIDED.matcher(text);
+        while (avoidedMatcher.find()) {
+            for (String item : avoidedMatcher.group(1).split(",|\\s+and\\s+|\\s+or\\s+|\\s+nor\\s+")) {
+                String ingredient = ingredient(item);
+                if (ingredient != null && !DIETS.contains(ingredient)) {
+                    avoided.add(ingredient);
+                }
+            }
+        }
+        Matcher allergyMatcher = ALLERGY_SUFFIX.matcher(words);
+        while (allergyMatcher.find()) {
+            String ingredient = ingredient(allergyMatcher.group(1));
+            if (ingredient != null) {
+                avoided.add(ingredient);
+            }
+        }
+
+        Matcher caloriesMatcher = CALORIES.matcher(text);
+        if (caloriesMatcher.find()) {
+            maxCalories = Integer.parseInt(caloriesMatcher.group(1));
+        }
+
+        return profile.toBuilder()
+                .diets(Collections.unmodifiableSortedSet(diets))
+                .cuisines(Collections.unmodifiableSortedSet(cuisines))
+                .nutritionGoals(Collections.unmodifiableSortedSet(goals))
+                .avoidedIngredients(Collections.unmodifiableSortedSet(avoided))
+                .maxCaloriesPerServing(maxCalories)
+                .build();
+    }
+
+    private static void applyKeywords(String words, List<String> keywords, Set<String> values) {
+        for (String keyword : keywords) {
+            int at = words.indexOf(" " + keyword + " ");
+            if (at < 0) {
+                continue;
+            }
+            if (isNegated(words, at, keyword)) {
+                values.remove(keyword);
+            } else {
+                values.add(keyword);
+            }
+        }
+    }
+
+    private static boolean isNegated(String words, int at, String keyword) {
+        String[] before = words.substring(0, at).trim().split(" ");
+        for (int i = Math.max(0, before.length - 2); i < before.length; i++) {
+            if (NEGATIONS.contains(before[i])) {
+                return true;
+            }
+        }
+        return words.startsWith(" anymore ", at + keyword.length() + 1);
+    }
+
+    private static String ingredient(String item) {
+        if (item.isBlank()) {
+            return null;
+        }
+        String[] words = item.trim().split("\\s+");
+        int from = 0;
+        while (from < words.length && LEADING_FILLERS.contains(words[from])) {
+            from++;
+        }
+        List<String> ingredient = List.of(words).subList(from, words.length);
+        if (ingredient.isEmpty() || ingredient.size() > 3 || ingredient.stream().anyMatch(NOT_INGREDIENTS::contains)) {
+            return null;
+        }
+        return String.join(" ", ingredient);
+    }
+}
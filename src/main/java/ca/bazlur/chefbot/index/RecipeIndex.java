@@ -0,0 +1,308 @@
+package ca.bazlur.chefbot.index;
+
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process index of recipes the model has generated, so a request for a dish served before can be answered
+ * without generating it again.
+ * <p>
+ * Recipes are numbered in insertion order. Each name word, ingredient word, diet and cuisine maps to a
+ * {@link BitSet} of the recipes containing it, spiciness is a single bitset and calories per serving are kept
+ * in an {@code int} array. A query is a handful of bitset intersections followed by one pass over the
+ * remaining candidates to check their calories and score their names.
+ * <p>
+ * With a file configured, every added recipe is appended to it as a line of JSON and the index is rebuilt from
+ * the file when opened; a line left incomplete by a crash is skipped.
+ */
+@Slf4j
+public class RecipeIndex {
+
+    private static final Gson GSON = new Gson();
+    private static final int UNKNOWN_CALORIES = -1;
+
+    private final Path file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Recipe> recipes = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final Map<String, BitSet> nameTerms = new HashMap<>();
+    private final Map<String, BitSet> ingredientTerms = new HashMap<>();
+    private final Map<String, BitSet> diets = new HashMap<>();
+    private final Map<String, BitSet> cuisines = new HashMap<>();
+    private final BitSet spicy = new BitSet();
+    private int[] calories = new int[64];
+    // Set when the file ends in a line cut short, so the next recipe starts on a line of its own
+    private boolean tornTail;
+
+    private RecipeIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates an index kept in memory only.
+     */
+    public static RecipeIndex inMemory() {
+        return new RecipeIndex(null);
+    }
+
+    /**
+     * Opens the index persisted in {@code file}, creating the file on the first added recipe.
+     */
+    public static RecipeIndex open(Path file) {
+        RecipeIndex index = new RecipeIndex(file);
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        Recipe recipe = GSON.fromJson(line, Recipe.class);
+                        if (recipe != null) {
+                            index.insert(recipe);
+                        }
+                    } catch (JsonParseException e) {
+                        log.warn("Skipping unreadable recipe in {}", file);
+                    }
+                }
+                index.tornTail = Files.size(file) > 0 && !endsWithNewline(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds {@code recipe} unless one with the same name is already indexed.
+     *
+     * @return whether the recipe was added
+     */
+    public boolean add(Recipe recipe) {
+        if (recipe.getName() == null || recipe.getName().isBlank()) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!insert(recipe)) {
+                return false;
+            }
+            if (file != null) {
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (tornTail) {
+                        writer.newLine();
+                        tornTail = false;
+                    }
+                    writer.write(GSON.toJson(recipe));
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds up to {@code limit} recipes matching {@code query}, those matching the most terms by name first.
+     */
+    public List<Recipe> search(RecipeQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet candidates = new BitSet(recipes.size());
+            candidates.set(0, recipes.size());
+
+            for (String term : query.getTerms()) {
+                BitSet matching = copy(nameTerms.get(term));
+                matching.or(copy(ingredientTerms.get(term)));
+                candidates.and(matching);
+            }
+            for (String diet : query.getDiets()) {
+                candidates.and(copy(diets.get(normalize(diet))));
+            }
+            if (query.getCuisine() != null) {
+                candidates.and(copy(cuisines.get(normalize(query.getCuisine()))));
+            }
+            if (query.getSpicy() != null) {
+                if (query.getSpicy()) {
+                    candidates.and(spicy);
+                } else {
+                    candidates.andNot(spicy);
+                }
+            }
+            for (String excluded : query.getExcludedIngredients()) {
+                candidates.andNot(containingAll(ingredientTerms, terms(excluded)));
+            }
+            if (query.getMaxCalories() != null) {
+                int max = query.getMaxCalories();
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    if (calories[id] == UNKNOWN_CALORIES || calories[id] > max) {
+                        candidates.clear(id);
+                    }
+                }
+            }
+
+            List<BitSet> inName = new ArrayList<>(query.getTerms().size());
+            for (String term : query.getTerms()) {
+                BitSet postings = nameTerms.get(term);
+                if (postings != null) {
+                    inName.add(postings);
+                }
+            }
+            // Only the candidates are scored, each packed with its id so one primitive sort ranks them: best name
+            // match first, then the most recently added
+            long[] ranked = new long[candidates.cardinality()];
+            int count = 0;
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                int score = 0;
+                for (BitSet postings : inName) {
+                    if (postings.get(id)) {
+                        score++;
+                    }
+                }
+                ranked[count++] = (long) score << 32 | id;
+            }
+            Arrays.sort(ranked);
+            List<Recipe> found = new ArrayList<>(Math.min(limit, count));
+            for (int i = count - 1; i >= 0 && found.size() < limit; i--) {
+                found.add(recipes.get((int) ranked[i]));
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return recipes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean insert(Recipe recipe) {
+        if (!names.add(normalize(recipe.getName()))) {
+            return false;
+        }
+        int id = recipes.size();
+        recipes.add(recipe);
+
+        terms(recipe.getName()).forEach(term -> post(nameTerms, term, id));
+        if (recipe.getIngredients() != null) {
+            recipe.getIngredients().forEach(ingredient -> terms(ingredient).forEach(term -> post(ingredientTerms, term, id)));
+        }
+        if (recipe.getDietaryRestrictions() != null) {
+            recipe.getDietaryRestrictions().forEach(diet -> post(diets, normalize(diet), id));
+        }
+        if (recipe.getCuisineType() != null) {
+            post(cuisines, normalize(recipe.getCuisineType()), id);
+        }
+        spicy.set(id, recipe.isSpicy());
+        if (id == calories.length) {
+            calories = Arrays.copyOf(calories, id * 2);
+        }
+        calories[id] = caloriesPerServing(recipe);
+        return true;
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private static void post(Map<String, BitSet> postings, String key, int id) {
+        postings.computeIfAbsent(key, k -> new BitSet()).set(id);
+    }
+
+    private static BitSet copy(BitSet postings) {
+        return postings != null ? (BitSet) postings.clone() : new BitSet();
+    }
+
+    private static BitSet containingAll(Map<String, BitSet> postings, Collection<String> terms) {
+        BitSet matching = null;
+        for (String term : terms) {
+            BitSet withTerm = postings.get(term);
+            if (withTerm == null) {
+                return new BitSet();
+            }
+            if (matching == null) {
+                matching = (BitSet) withTerm.clone();
+            } else {
+                matching.and(withTerm);
+            }
+        }
+        return matching != null ? matching : new BitSet();
+    }
+
+    private static int caloriesPerServing(Recipe recipe) {
+        Nutrition nutrition = recipe.getNutrition();
+        if (nutrition == null || !Float.isFinite(nutrition.getCaloriesPerServing()) || nutrition.getCaloriesPerServing() < 0) {
+            return UNKNOWN_CALORIES;
+        }
+        return Math.round(nutrition.getCaloriesPerServing());
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT).replace('-', ' ').replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Splits text into the singular, lower-case words recipes are indexed by, so "Tomatoes" matches "tomato".
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+            if (word.length() > 1) {
+                terms.add(singular(word));
+            }
+        }
+        return terms;
+    }
+
+    private static String singular(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.length() > 4 && word.endsWith("oes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
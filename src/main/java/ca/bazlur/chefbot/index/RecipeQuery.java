@@ -0,0 +1,70 @@
+package ca.bazlur.chefbot.index;
+
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filter over the {@link RecipeIndex}. Every term must appear in a recipe's name or ingredients, every diet must be
+ * among its dietary restrictions and none of the excluded ingredients may appear in it; unset filters match all.
+ */
+@Value
+@Builder
+public class RecipeQuery {
+
+    // Words that say what kind of answer is wanted, not which dish
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "recipe", "recipes", "dish", "dishes", "meal", "meals", "food", "breakfast", "brunch", "lunch", "dinner",
+            "supper", "tonight", "today", "idea", "ideas", "something", "anything", "make", "cook", "cooking", "want",
+            "would", "like", "love", "please", "can", "could", "you", "me", "my", "i", "i'm", "im", "a", "an", "the",
+            "for", "with", "some", "give", "suggest", "recommend", "how", "about", "what", "is", "to", "of", "and",
+            "or", "quick", "easy", "good", "nice", "tasty", "delicious", "healthy", "spicy", "mild", "hi", "hello",
+            "thanks", "thank", "no", "not", "without", "avoid", "under", "below", "less", "than", "at", "most",
+            "calorie", "calories", "kcal", "per", "serving", "servings", "allergic", "allergy", "hate", "don't", "dont",
+            "eat", "also", "in", "on", "it", "that", "this", "just", "any", "free", "high", "low", "get", "have", "need", "show", "try", "let's", "lets"
+    );
+
+    @Builder.Default
+    Set<String> terms = Set.of();
+    @Builder.Default
+    Set<String> diets = Set.of();
+    @Builder.Default
+    Set<String> excludedIngredients = Set.of();
+    String cuisine;
+    Boolean spicy;
+    Integer maxCalories;
+
+    /**
+     * Turns a user request into a query, constrained by everything the session's profile says the user can't or
+     * won't eat. Returns a query without terms if the request names no dish or ingredient.
+     */
+    public static RecipeQuery forRequest(String input, UserProfile profile) {
+        Set<String> ignored = new HashSet<>(FILLER_WORDS);
+        profile.constraints().forEach(constraint ->
+                ignored.addAll(RecipeIndex.terms(constraint.substring(constraint.indexOf(':') + 1))));
+
+        Set<String> words = new HashSet<>();
+        for (String word : input.toLowerCase(Locale.ROOT).replace('-', ' ').split("[^\\p{L}\\p{N}']+")) {
+            words.add(word);
+        }
+        Set<String> terms = new HashSet<>();
+        for (String word : words) {
+            if (!word.isEmpty() && !ignored.contains(word) && !word.chars().allMatch(Character::isDigit)) {
+                terms.addAll(RecipeIndex.terms(word));
+            }
+        }
+        terms.removeAll(ignored);
+
+        return RecipeQuery.builder()
+                .terms(terms)
+                .diets(profile.getDiets())
+                .excludedIngredients(profile.getAvoidedIngredients())
+                .spicy(words.contains("spicy") ? Boolean.TRUE : words.contains("mild") ? Boolean.FALSE : null)
+                .maxCalories(profile.getMaxCaloriesPerServing())
+                .build();
+    }
+}
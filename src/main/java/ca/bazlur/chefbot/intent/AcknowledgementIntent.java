@@ -0,0 +1,29 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Answers a plain "thanks" or "great" for a recipe just delivered without asking the model to be polite back.
+ * After any other reply, the thanks may close a question or a suggestion the model should follow up on.
+ */
+public class AcknowledgementIntent implements LocalIntent {
+
+    private static final Pattern ACKNOWLEDGEMENT = Pattern.compile(
+            "(?:ok(?:ay)?[, ]+)?(?:thanks|thank you|thx|ty|cheers|great|perfect|awesome|lovely)"
+                    + "(?: (?:so|very) much| a lot)?(?:[, ]+(?:chef|bot|recipebot))?[.! ]*");
+
+    private static final Conversation YOU_ARE_WELCOME = new Conversation(
+            "You're welcome! Let me know if you'd like another recipe, or changes to this one.");
+
+    @Override
+    public Optional<BotResponse> answer(String input, IntentContext context) {
+        if (!context.recipeDelivered() || !ACKNOWLEDGEMENT.matcher(input).matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YOU_ARE_WELCOME);
+    }
+}
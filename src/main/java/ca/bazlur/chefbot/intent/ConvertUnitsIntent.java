@@ -0,0 +1,157 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts the session's last recipe to metric or US units, as in "convert it to metric" or "in cups please".
+ * Ingredient quantities with a known unit and oven temperatures in the instructions are converted.
+ */
+public class ConvertUnitsIntent implements LocalIntent {
+
+    private static final Pattern CONVERT = Pattern.compile(
+            "(?:(?:can|could) you |please )?(?:(?:convert|show|give|change|switch)(?: me)?(?: it| this| that| the recipe| this recipe| that recipe)? )?"
+                    + "(?:(?:in|to|into|using) )?(?:the )?(metric|grams|ml|imperial|us|american|cups|ounces)(?: units| measurements)?(?: please)?[.!? ]*");
+
+    private static final Pattern INGREDIENT_UNIT = Pattern.compile(
+            "^ ?(fl\\.? oz|fluid ounces?|cups?|tablespoons?|tbsps?|tbs|teaspoons?|tsps?|ounces?|oz|pounds?|lbs?|quarts?|qt|pints?|pt"
+                    + "|grams?|g|kilograms?|kg|milliliters?|millilitres?|ml|liters?|litres?|l)\\b\\.?(.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Pattern FAHRENHEIT = Pattern.compile("(\\d{3})\\s*(?:°\\s*|degrees\\s*)F(?:ahrenheit)?\\b");
+    private static final Pattern CELSIUS = Pattern.compile("(\\d{2,3})\\s*(?:°\\s*|degrees\\s*)C(?:elsius)?\\b");
+
+    @Override
+    public Optional<BotResponse> answer(String input, IntentContext context) {
+        Matcher convert = CONVERT.matcher(input);
+        if (!convert.matches() || context.lastRecipe() == null) {
+            return Optional.empty();
+        }
+        boolean metric = switch (convert.group(1)) {
+            case "metric", "grams", "ml" -> true;
+            default -> false;
+        };
+        Recipe recipe = context.lastRecipe();
+
+        List<String> ingredients = null;
+        if (recipe.getIngredients() != null) {
+            ingredients = new ArrayList<>(recipe.getIngredients().size());
+            for (String ingredient : recipe.getIngredients()) {
+                String converted = convert(ingredient, metric);
+                ingredients.add(converted != null ? converted : ingredient);
+            }
+        }
+        List<String> instructions = null;
+        if (recipe.getInstructions() != null) {
+            instructions = new ArrayList<>(recipe.getInstructions().size());
+            for (String instruction : recipe.getInstructions()) {
+                instructions.add(metric ? toCelsius(instruction) : toFahrenheit(instruction));
+            }
+        }
+        return Optional.of(recipe.toBuilder().ingredients(ingredients).instructions(instructions).build());
+    }
+
+    /**
+     * Returns the ingredient line with its quantity in the other system, or {@code null} if it has no quantity,
+     * no known unit, or is already in the requested system.
+     */
+    static String convert(String ingredient, boolean toMetric) {
+        Matcher quantity = Quantities.LEADING.matcher(ingredient);
+        if (!quantity.matches() || quantity.group(2) != null) {
+            return null;
+        }
+        Matcher unit = INGREDIENT_UNIT.matcher(quantity.group(3));
+        if (!unit.matches()) {
+            return null;
+        }
+        double amount = Quantities.parse(quantity.group(1));
+        if (Double.isNaN(amount)) {
+            return null;
+        }
+        String rest = unit.group(2);
+        String name = unit.group(1).toLowerCase().replace(".", "");
+        return toMetric ? toMetric(amount, name, rest) : toUs(amount, name, rest);
+    }
+
+    private static String toMetric(double amount, String unit, String rest) {
+        return switch (unit) {
+            case "cup", "cups" -> volume(amount * 240, rest);
+            case "tablespoon", "tablespoons", "tbsp", "tbsps", "tbs" -> volume(amount * 15, rest);
+            case "teaspoon", "teaspoons", "tsp", "tsps" -> volume(amount * 5, rest);
+            case "fl oz", "fluid ounce", "fluid ounces" -> volume(amount * 29.57, rest);
+            case "quart", "quarts", "qt" -> volume(amount * 946, rest);
+            case "pint", "pints", "pt" -> volume(amount * 473, rest);
+            case "ounce", "ounces", "oz" -> weight(amount * 28.35, rest);
+            case "pound", "pounds", "lb", "lbs" -> weight(amount * 453.6, rest);
+            default -> null;
+        };
+    }
+
+    private static String toUs(double amount, String unit, String rest) {
+        double grams = switch (unit) {
+            case "gram", "grams", "g" -> amount;
+            case "kilogram", "kilograms", "kg" -> amount * 1_000;
+            default -> -1;
+        };
+        if (grams >= 0) {
+            double ounces = grams / 28.35;
+            return ounces >= 16
+                    ? Quantities.format(ounces / 16) + " lb" + rest
+                    : Quantities.format(ounces) + " oz" + rest;
+        }
+        double milliliters = switch (unit) {
+            case "milliliter", "milliliters", "millilitre", "millilitres", "ml" -> amount;
+            case "liter", "liters", "litre", "litres", "l" -> amount * 1_000;
+            default -> -1;
+        };
+        if (milliliters < 0) {
+            return null;
+        }
+        if (milliliters < 15) {
+            return Quantities.format(milliliters / 5) + " tsp" + rest;
+        }
+        if (milliliters < 60) {
+            return Quantities.format(milliliters / 15) + " tbsp" + rest;
+        }
+        return Quantities.format(milliliters / 240) + (milliliters <= 240 * 1.04 ? " cup" : " cups") + rest;
+    }
+
+    private static String volume(double milliliters, String rest) {
+        return milliliters >= 1_000
+                ? Quantities.formatMetric(milliliters / 1_000) + " l" + rest
+                : Quantities.formatMetric(milliliters) + " ml" + rest;
+    }
+
+    private static String weight(double grams, String rest) {
+        return grams >= 1_000
+                ? Quantities.formatMetric(grams / 1_000) + " kg" + rest
+                : Quantities.formatMetric(grams) + " g" + rest;
+    }
+
+    private static String toCelsius(String instruction) {
+        Matcher fahrenheit = FAHRENHEIT.matcher(instruction);
+        StringBuilder converted = new StringBuilder(instruction.length());
+        while (fahrenheit.find()) {
+            // Ovens are set in steps of five degrees
+            long celsius = Math.round((Integer.parseInt(fahrenheit.group(1)) - 32) * 5 / 9.0 / 5) * 5;
+            fahrenheit.appendReplacement(converted, celsius + "°C");
+        }
+        return fahrenheit.appendTail(converted).toString();
+    }
+
+    private static String toFahrenheit(String instruction) {
+        Matcher celsius = CELSIUS.matcher(instruction);
+        StringBuilder converted = new StringBuilder(instruction.length());
+        while (celsius.find()) {
+            long fahrenheit = Math.round((Integer.parseInt(celsius.group(1)) * 9 / 5.0 + 32) / 5) * 5;
+            celsius.appendReplacement(converted, fahrenheit + "°F");
+        }
+        return celsius.appendTail(converted).toString();
+    }
+}
@@ -0,0 +1,19 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+
+import java.util.Optional;
+
+/**
+ * What a {@link LocalIntent} knows about the session it answers in.
+ *
+ * @param lastRecipe      the recipe the session was shown most recently, or {@code null} if none
+ * @param recipeDelivered whether {@code lastRecipe} was the assistant's latest reply
+ */
+public record IntentContext(String sessionId, UserProfile profile, Recipe lastRecipe, boolean recipeDelivered) {
+
+    public Optional<Recipe> recipe() {
+        return Optional.ofNullable(lastRecipe);
+    }
+}
@@ -0,0 +1,31 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+
+import java.util.Optional;
+
+/**
+ * A request that can be answered in-process, without calling the model, such as showing the last recipe again
+ * or scaling it to another number of servings. Register implementations with {@link LocalIntents}.
+ * <p>
+ * Implementations are called on every turn from many threads, before the model, and must be thread-safe and
+ * cheap. They should only claim input they fully understand; anything that needs generation, such as
+ * "make it spicier", is left to the model.
+ */
+@FunctionalInterface
+public interface LocalIntent {
+
+    /**
+     * Answers {@code input}, or returns empty to let the next intent or the model answer it.
+     *
+     * @param input the user's message, trimmed, lower-cased and with runs of whitespace collapsed to one space
+     */
+    Optional<BotResponse> answer(String input, IntentContext context);
+
+    /**
+     * The name the intent is reported under in metrics and JFR events.
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,59 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The {@link LocalIntent}s tried, in order, before a message goes to the model. The first one that answers wins.
+ * <p>
+ * Local intents are short commands, so longer messages are passed on to the model without trying any of them.
+ */
+public final class LocalIntents {
+
+    private static final int MAX_INPUT_LENGTH = 80;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final List<LocalIntent> intents;
+
+    private LocalIntents(List<LocalIntent> intents) {
+        this.intents = List.copyOf(intents);
+    }
+
+    /**
+     * Acknowledgements, showing the last recipe again, scaling it and converting its units.
+     */
+    public static LocalIntents defaults() {
+        return of(new AcknowledgementIntent(), new RepeatRecipeIntent(), new ScaleRecipeIntent(), new ConvertUnitsIntent());
+    }
+
+    public static LocalIntents of(LocalIntent... intents) {
+        return new LocalIntents(List.of(intents));
+    }
+
+    /**
+     * Returns the answer of the first intent that claims {@code input}, or empty if the model has to answer it.
+     */
+    public Optional<Answer> resolve(String input, IntentContext context) {
+        if (input == null || input.length() > MAX_INPUT_LENGTH) {
+            return Optional.empty();
+        }
+        String normalized = WHITESPACE.matcher(input.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        for (LocalIntent intent : intents) {
+            Optional<BotResponse> response = intent.answer(normalized, context);
+            if (response.isPresent()) {
+                return Optional.of(new Answer(intent.name(), response.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A response produced locally, with the name of the intent that produced it.
+     */
+    public record Answer(String intent, BotResponse response) {
+    }
+}
@@ -0,0 +1,113 @@
+package ca.bazlur.chefbot.intent;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and writes the quantities at the start of an ingredient line, such as {@code 2}, {@code 1.5},
+ * {@code 1 1/2}, {@code ½} or a range such as {@code 2-3}.
+ */
+final class Quantities {
+
+    private static final String NUMBER = "(?:\\d+ \\d+/\\d+|\\d+/\\d+|\\d+(?:\\.\\d+)?[½¼¾⅓⅔⅛]?|[½¼¾⅓⅔⅛])";
+
+    /** A leading quantity or range, in groups 1 and 2, followed by the rest of the line in group 3. */
+    static final Pattern LEADING = Pattern.compile(
+            "^\\s*(" + NUMBER + ")(?:\\s*(?:-|–|to)\\s*(" + NUMBER + "))?(.*)$", Pattern.DOTALL);
+
+    private static final Map<Character, Double> VULGAR_FRACTIONS = Map.of(
+            '½', 0.5, '¼', 0.25, '¾', 0.75, '⅓', 1.0 / 3, '⅔', 2.0 / 3, '⅛', 0.125);
+
+    // Fractions a cook would write, tried in this order
+    private static final double[] FRACTIONS = {1.0 / 4, 1.0 / 3, 1.0 / 2, 2.0 / 3, 3.0 / 4};
+    private static final String[] FRACTION_TEXT = {"1/4", "1/3", "1/2", "2/3", "3/4"};
+    private static final double FRACTION_TOLERANCE = 0.04;
+
+    private Quantities() {
+    }
+
+    static double parse(String number) {
+        double value = 0;
+        String text = number;
+        char last = text.charAt(text.length() - 1);
+        Double vulgar = VULGAR_FRACTIONS.get(last);
+        if (vulgar != null) {
+            value += vulgar;
+            text = text.substring(0, text.length() - 1);
+        }
+        if (text.isEmpty()) {
+            return value;
+        }
+        int space = text.indexOf(' ');
+        if (space > 0) {
+            value += Double.parseDouble(text.substring(0, space));
+            text = text.substring(space + 1);
+        }
+        int slash = text.indexOf('/');
+        if (slash > 0) {
+            double denominator = Double.parseDouble(text.substring(slash + 1));
+            return denominator == 0 ? Double.NaN : value + Double.parseDouble(text.substring(0, slash)) / denominator;
+        }
+        return value + Double.parseDouble(text);
+    }
+
+    /**
+     * Writes {@code value} as a whole number, a whole number with a common fraction, or with one decimal.
+     */
+    static String format(double value) {
+        if (value >= 10) {
+            return Long.toString(Math.round(value));
+        }
+        long whole = (long) Math.floor(value);
+        double fraction = value - whole;
+        if (whole > 0 && fraction < FRACTION_TOLERANCE) {
+            return Long.toString(whole);
+        }
+        if (fraction > 1 - FRACTION_TOLERANCE) {
+            return Long.toString(whole + 1);
+        }
+        for (int i = 0; i < FRACTIONS.length; i++) {
+            if (Math.abs(fraction - FRACTIONS[i]) < FRACTION_TOLERANCE) {
+                return whole == 0 ? FRACTION_TEXT[i] : whole + " " + FRACTION_TEXT[i];
+            }
+        }
+        return formatMetric(value);
+    }
+
+    /**
+     * Writes a metric amount: to one decimal below ten, otherwise as a whole number.
+     */
+    static String formatMetric(double value) {
+        if (value < 10) {
+            String text = String.format(Locale.ROOT, "%.1f", value);
+            return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+        }
+        return Long.toString(Math.round(value));
+    }
+
+    /**
+     * Returns the line with its leading quantity, or both ends of its range, multiplied by {@code factor}, or
+     * {@code null} if the line does not start with a quantity.
+     */
+    static String scale(String line, double factor) {
+        Matcher matcher = LEADING.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        double from = parse(matcher.group(1));
+        if (Double.isNaN(from)) {
+            return null;
+        }
+        StringBuilder scaled = new StringBuilder(line.length() + 8).append(format(from * factor));
+        if (matcher.group(2) != null) {
+            double to = parse(matcher.group(2));
+            if (Double.isNaN(to)) {
+                return null;
+            }
+            scaled.append('-').append(format(to * factor));
+        }
+        return scaled.append(matcher.group(3)).toString();
+    }
+}
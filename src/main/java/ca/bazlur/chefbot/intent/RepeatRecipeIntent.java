@@ -0,0 +1,27 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Shows the session's last recipe again, as in "show that again" or "repeat the recipe".
+ */
+public class RepeatRecipeIntent implements LocalIntent {
+
+    private static final Pattern REPEAT = Pattern.compile(
+            "(?:(?:can|could) you |please )?"
+                    + "(?:(?:show|give|tell|send|display|print)(?: me)? (?:that|it|the recipe|that recipe|this recipe|the last recipe)(?: again)?"
+                    + "|repeat(?: that| it| the recipe| that recipe)?"
+                    + "|what was (?:that|the) recipe(?: again)?)"
+                    + "(?: please)?[.!? ]*");
+
+    @Override
+    public Optional<BotResponse> answer(String input, IntentContext context) {
+        if (!REPEAT.matcher(input).matches()) {
+            return Optional.empty();
+        }
+        return context.recipe().map(BotResponse.class::cast);
+    }
+}
@@ -0,0 +1,94 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scales the session's last recipe to another number of servings, as in "make it for 6 people", "for 2
+ * servings" or "double it". Ingredient quantities and the recipe's total calories are scaled; per-serving
+ * nutrition stays the same. A recipe whose serving size has no number is left to the model.
+ */
+public class ScaleRecipeIntent implements LocalIntent {
+
+    private static final String SERVINGS = "(\\d{1,3})(?: (?:people|persons|servings|portions|guests|of us))?";
+
+    private static final Pattern TO_SERVINGS = Pattern.compile(
+            "(?:(?:can|could) you |please )?(?:(?:scale|make|adjust|resize|change|convert) (?:it|this|that|the recipe|this recipe|that recipe) )?"
+                    + "(?:to|for|to serve|serves?|serving) " + SERVINGS + "(?: instead)?(?: please)?[.!? ]*");
+
+    private static final Pattern BY_FACTOR = Pattern.compile(
+            "(?:(?:can|could) you |please )?(double|triple|halve|half) (?:it|this|that|the recipe|this recipe|that recipe)(?: please)?[.!? ]*");
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    @Override
+    public Optional<BotResponse> answer(String input, IntentContext context) {
+        Recipe recipe = context.lastRecipe();
+        if (recipe == null || recipe.getServingSize() == null) {
+            return Optional.empty();
+        }
+        Matcher servingSize = NUMBER.matcher(recipe.getServingSize());
+        if (!servingSize.find()) {
+            return Optional.empty();
+        }
+        int servings = Integer.parseInt(servingSize.group());
+        if (servings == 0) {
+            return Optional.empty();
+        }
+
+        double factor;
+        Matcher toServings = TO_SERVINGS.matcher(input);
+        Matcher byFactor = BY_FACTOR.matcher(input);
+        if (toServings.matches()) {
+            factor = Double.parseDouble(toServings.group(1)) / servings;
+        } else if (byFactor.matches()) {
+            factor = switch (byFactor.group(1)) {
+                case "double" -> 2;
+                case "triple" -> 3;
+                default -> 0.5;
+            };
+        } else {
+            return Optional.empty();
+        }
+        if (factor == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(scale(recipe, servings, factor, servingSize));
+    }
+
+    private static Recipe scale(Recipe recipe, int servings, double factor, Matcher servingSize) {
+        List<String> ingredients = null;
+        if (recipe.getIngredients() != null) {
+            ingredients = new ArrayList<>(recipe.getIngredients().size());
+            for (String ingredient : recipe.getIngredients()) {
+                String scaled = Quantities.scale(ingredient, factor);
+                // Lines without a quantity, such as "salt to taste", stay as they are
+                ingredients.add(scaled != null ? scaled : ingredient);
+            }
+        }
+
+        Nutrition nutrition = recipe.getNutrition();
+        if (nutrition != null) {
+            float total = Float.isNaN(nutrition.getCaloriesPerServing())
+                    ? nutrition.getTotalCalories() * (float) factor
+                    : nutrition.getCaloriesPerServing() * (float) (servings * factor);
+            nutrition = nutrition.toBuilder().totalCalories(total).build();
+        }
+
+        // Only the count shown is rounded; halving 3 servings makes 1.5 servings' worth of everything
+        long shownServings = Math.max(1, Math.round(servings * factor));
+        String size = recipe.getServingSize();
+        return recipe.toBuilder()
+                .ingredients(ingredients)
+                .nutrition(nutrition)
+                .servingSize(size.substring(0, servingSize.start()) + shownServings + size.substring(servingSize.end()))
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package ca.bazlur.chefbot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ca.bazlur.chefbot.ChatTurn")
+@Label("Chat Turn")
+@Category("ChefBot")
+@Description("A user turn, from receiving the input to producing the response")
+@StackTrace(false)
+public class ChatTurnEvent extends Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Cached")
+    @Description("Whether the response was served from the response cache")
+    public boolean cached;
+
+    @Label("Response Type")
+    public String responseType;
+
+    @Label("Local Intent")
+    @Description("The local intent that answered the turn without the model, if any")
+    public String localIntent;
+}
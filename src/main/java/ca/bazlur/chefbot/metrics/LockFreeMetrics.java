@@ -0,0 +1,52 @@
+package ca.bazlur.chefbot.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link Metrics} keeping everything in process: counters are {@link LongAdder}s and histograms are
+ * {@link LogLinearHistogram}s, so recording never blocks once a metric has been seen.
+ */
+public class LockFreeMetrics implements Metrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LogLinearHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name, long delta) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, k -> new LongAdder());
+        }
+        counter.add(delta);
+    }
+
+    @Override
+    public void record(String name, long value) {
+        LogLinearHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, k -> new LogLinearHistogram());
+        }
+        histogram.record(value);
+    }
+
+    public long count(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public LogLinearHistogram.Snapshot histogram(String name) {
+        LogLinearHistogram histogram = histograms.get(name);
+        return histogram == null ? new LogLinearHistogram().snapshot() : histogram.snapshot();
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        histograms.forEach((name, histogram) -> snapshot.put(name, histogram.snapshot().toMap()));
+        return snapshot;
+    }
+}
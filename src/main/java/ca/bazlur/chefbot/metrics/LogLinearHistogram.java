@@ -0,0 +1,115 @@
+package ca.bazlur.chefbot.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative longs in the style of HdrHistogram: values are counted in buckets
+ * whose width doubles with every power of two, each power split into 32 linear sub-buckets. That covers
+ * the whole {@code long} range in a fixed 15 KB with a relative error below 3.2%, and recording is a
+ * handful of atomic increments.
+ */
+public final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records {@code value}; negative values are recorded as zero.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        // Only contended while the extremes are still moving
+        if (v < min.get()) {
+            min.accumulateAndGet(v, Math::min);
+        }
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Returns a consistent-enough view for reporting; recordings racing with the snapshot may be partially included.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+        }
+        long minValue = min.get();
+        long maxValue = max.get();
+        return new Snapshot(total, minValue, maxValue, (double) sum.sum() / count.sum(),
+                percentile(counts, total, 50, minValue, maxValue),
+                percentile(counts, total, 90, minValue, maxValue),
+                percentile(counts, total, 99, minValue, maxValue));
+    }
+
+    private static long percentile(long[] counts, long total, double percentile, long minValue, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long midpoint = lowerBound(i) + (width(i) - 1) / 2;
+                return Math.clamp(midpoint, minValue, maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    private static long width(int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << ((index - SUB_BUCKETS) / SUB_BUCKETS);
+    }
+
+    public record Snapshot(long count, long min, long max, double mean, long p50, long p90, long p99) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("min", min);
+            map.put("max", max);
+            map.put("mean", mean);
+            map.put("p50", p50);
+            map.put("p90", p90);
+            map.put("p99", p99);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ca.bazlur.chefbot.metrics;
+
+/**
+ * Names of the metrics ChefBot records. Latencies are histograms in nanoseconds.
+ */
+public final class MetricNames {
+
+    /** Whole turn, from receiving the input to producing the response. */
+    public static final String TURN_LATENCY = "chefbot.turn.latency";
+    /** Loading a session's messages from the chat memory store. */
+    public static final String MEMORY_LOAD_LATENCY = "chefbot.memory.load.latency";
+    /** Estimating the tokens of a single message. */
+    public static final String TOKENIZATION_LATENCY = "chefbot.memory.tokenization.latency";
+    /** Producing a summary, in the foreground or background. */
+    public static final String SUMMARIZATION_LATENCY = "chefbot.summarization.latency";
+    /** A call to the chat model, up to the complete response. */
+    public static final String LLM_LATENCY = "chefbot.llm.latency";
+    /** Waiting for one of the dispatcher's connections to the chat model. */
+    public static final String LLM_QUEUE_LATENCY = "chefbot.llm.queue.latency";
+    /** Waiting for the request and token rate limits to admit a model call. */
+    public static final String LLM_THROTTLE_LATENCY = "chefbot.llm.throttle.latency";
+    /** Embedding a query and searching the recipe corpus for passages to ground the answer in. */
+    public static final String RETRIEVAL_LATENCY = "chefbot.retrieval.latency";
+    /** Decoding the model's JSON into a response; for streamed turns, the time spent parsing all chunks. */
+    public static final String PARSE_LATENCY = "chefbot.parse.latency";
+    /** Rendering a response for the user; for streamed turns, the time spent in all rendering callbacks. */
+    public static final String FORMAT_LATENCY = "chefbot.format.latency";
+
+    /** Input tokens per model call, as reported by the provider. */
+    public static final String LLM_TOKENS_IN = "chefbot.llm.tokens.in";
+    /** Output tokens per model call, as reported by the provider. */
+    public static final String LLM_TOKENS_OUT = "chefbot.llm.tokens.out";
+    /** Input tokens per model call served from the provider's prompt-prefix cache, where it reports them. */
+    public static final String LLM_TOKENS_CACHED = "chefbot.llm.tokens.cached";
+
+    public static final String TURNS = "chefbot.turns";
+    public static final String TURN_ERRORS = "chefbot.turn.errors";
+    public static final String LLM_ERRORS = "chefbot.llm.errors";
+    /** Requests answered by sharing an identical call already in flight. */
+    public static final String LLM_COALESCED = "chefbot.llm.coalesced";
+    public static final String LLM_BATCHES = "chefbot.llm.batches";
+    public static final String LLM_RETRIES = "chefbot.llm.retries";
+    /** Model calls failed fast, by the open circuit breaker or because the rate limit would miss their deadline. */
+    public static final String LLM_SHED = "chefbot.llm.shed";
+    /** Assistant turns routed to the conversation and recipe model tiers. */
+    public static final String CONVERSATION_TIER_CALLS = "chefbot.llm.tier.conversation";
+    public static final String RECIPE_TIER_CALLS = "chefbot.llm.tier.recipe";
+    public static final String SUMMARIZATIONS = "chefbot.summarizations";
+    public static final String SUMMARIZATION_ERRORS = "chefbot.summarization.errors";
+    /** Chunk summaries merged into a memory's epoch summary. */
+    public static final String SUMMARY_MERGES = "chefbot.summary.merges";
+    /** Messages dropped from a memory without being summarized. */
+    public static final String TRUNCATED_MESSAGES = "chefbot.memory.truncated";
+    /** A memory's system prompt replaced or a summary block dropped, so its cached prompt prefix no longer applies. */
+    public static final String MEMORY_PREFIX_REWRITES = "chefbot.memory.prefix_rewrites";
+    /** Memory updates redone because another memory of the same session stored its messages first. */
+    public static final String MEMORY_UPDATE_CONFLICTS = "chefbot.memory.update_conflicts";
+    /** Model calls whose prompt started with a prefix the provider had cached, and those that did not. */
+    public static final String PROMPT_CACHE_HITS = "chefbot.prompt_cache.hits";
+    public static final String PROMPT_CACHE_MISSES = "chefbot.prompt_cache.misses";
+    public static final String RESPONSE_CACHE_HITS = "chefbot.response_cache.hits";
+    public static final String RESPONSE_CACHE_MISSES = "chefbot.response_cache.misses";
+    public static final String RECIPE_INDEX_HITS = "chefbot.recipe_index.hits";
+    public static final String RECIPE_INDEX_MISSES = "chefbot.recipe_index.misses";
+    /** Turns answered in-process by a local intent, without the model. */
+    public static final String LOCAL_INTENTS = "chefbot.intent.local";
+    /** Passages from the recipe corpus added to a prompt. */
+    public static final String RETRIEVED_PASSAGES = "chefbot.retrieval.passages";
+    /** Summaries answered from the summarizer's cache, or extended from a cached prefix. */
+    public static final String SUMMARY_CACHE_HITS = "chefbot.summary_cache.hits";
+    public static final String SUMMARY_CACHE_MISSES = "chefbot.summary_cache.misses";
+
+    private MetricNames() {
+    }
+}
@@ -0,0 +1,62 @@
+package ca.bazlur.chefbot.metrics;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * Service provider interface for ChefBot's instrumentation: named counters and histograms of non-negative
+ * values, such as latencies in nanoseconds or token counts. The names ChefBot records are listed in
+ * {@link MetricNames}.
+ * <p>
+ * Implementations are called on every turn from many threads and must be thread-safe and cheap. To route
+ * metrics elsewhere, register an implementation in {@code META-INF/services/ca.bazlur.chefbot.metrics.Metrics};
+ * {@link #load()} falls back to {@link LockFreeMetrics}.
+ */
+public interface Metrics {
+
+    Metrics NOOP = new Metrics() {
+        @Override
+        public void increment(String name, long delta) {
+        }
+
+        @Override
+        public void record(String name, long value) {
+        }
+    };
+
+    void increment(String name, long delta);
+
+    void record(String name, long value);
+
+    default void increment(String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * Runs {@code action} and records how long it took, in nanoseconds, whether or not it completed normally.
+     */
+    default <T> T time(String name, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the current values in a form suitable for logging or serving as JSON; empty when the
+     * implementation exports its metrics elsewhere.
+     */
+    default Map<String, Object> snapshot() {
+        return Map.of();
+    }
+
+    /**
+     * Returns the first implementation registered through {@link ServiceLoader}, or a new {@link LockFreeMetrics}.
+     */
+    static Metrics load() {
+        return ServiceLoader.load(Metrics.class).findFirst().orElseGet(LockFreeMetrics::new);
+    }
+}
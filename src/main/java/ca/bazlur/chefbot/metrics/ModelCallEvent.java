@@ -0,0 +1,31 @@
+package ca.bazlur.chefbot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ca.bazlur.chefbot.ModelCall")
+@Label("Model Call")
+@Category("ChefBot")
+@Description("A request to the chat model, up to the complete response")
+@StackTrace(false)
+public class ModelCallEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Input Tokens")
+    public int inputTokens;
+
+    @Label("Cached Input Tokens")
+    public int cachedInputTokens;
+
+    @Label("Output Tokens")
+    public int outputTokens;
+
+    @Label("Failed")
+    public boolean failed;
+}
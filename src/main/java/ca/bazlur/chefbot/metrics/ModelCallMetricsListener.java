@@ -0,0 +1,89 @@
+package ca.bazlur.chefbot.metrics;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * Records the latency and token usage of every call to a chat model, for both the blocking and the
+ * streaming models, and emits a {@link ModelCallEvent} for each.
+ * <p>
+ * Where the provider reports how many input tokens it served from its prompt-prefix cache, the call also
+ * counts as a {@link MetricNames#PROMPT_CACHE_HITS hit} or {@link MetricNames#PROMPT_CACHE_MISSES miss}.
+ */
+public class ModelCallMetricsListener implements ChatModelListener {
+
+    private static final String EVENT = ModelCallMetricsListener.class.getName() + ".event";
+    private static final String START = ModelCallMetricsListener.class.getName() + ".start";
+
+    private final Metrics metrics;
+
+    public ModelCallMetricsListener(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        ModelCallEvent event = new ModelCallEvent();
+        event.begin();
+        requestContext.attributes().put(EVENT, event);
+        requestContext.attributes().put(START, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        long elapsed = elapsedSince(responseContext.attributes().get(START));
+        metrics.record(MetricNames.LLM_LATENCY, elapsed);
+
+        TokenUsage tokenUsage = responseContext.chatResponse().metadata().tokenUsage();
+        int cachedTokens = cachedInputTokens(tokenUsage);
+        if (tokenUsage != null) {
+            if (tokenUsage.inputTokenCount() != null) {
+                metrics.record(MetricNames.LLM_TOKENS_IN, tokenUsage.inputTokenCount());
+            }
+            if (tokenUsage.outputTokenCount() != null) {
+                metrics.record(MetricNames.LLM_TOKENS_OUT, tokenUsage.outputTokenCount());
+            }
+        }
+        if (cachedTokens >= 0) {
+            metrics.record(MetricNames.LLM_TOKENS_CACHED, cachedTokens);
+            metrics.increment(cachedTokens > 0 ? MetricNames.PROMPT_CACHE_HITS : MetricNames.PROMPT_CACHE_MISSES);
+        }
+
+        if (responseContext.attributes().get(EVENT) instanceof ModelCallEvent event && event.shouldCommit()) {
+            event.model = responseContext.chatResponse().metadata().modelName();
+            if (tokenUsage != null) {
+                event.inputTokens = tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+                event.outputTokens = tokenUsage.outputTokenCount() == null ? 0 : tokenUsage.outputTokenCount();
+                event.cachedInputTokens = Math.max(cachedTokens, 0);
+            }
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        metrics.increment(MetricNames.LLM_ERRORS);
+        metrics.record(MetricNames.LLM_LATENCY, elapsedSince(errorContext.attributes().get(START)));
+        if (errorContext.attributes().get(EVENT) instanceof ModelCallEvent event && event.shouldCommit()) {
+            event.failed = true;
+            event.commit();
+        }
+    }
+
+    // OpenAI reports cached tokens on its own TokenUsage subtype; -1 when the provider does not report them
+    static int cachedInputTokens(TokenUsage tokenUsage) {
+        if (tokenUsage instanceof OpenAiTokenUsage usage && usage.inputTokensDetails() != null
+                && usage.inputTokensDetails().cachedTokens() != null) {
+            return usage.inputTokensDetails().cachedTokens();
+        }
+        return -1;
+    }
+
+    private static long elapsedSince(Object start) {
+        return start instanceof Long startNanos ? System.nanoTime() - startNanos : 0;
+    }
+}
@@ -0,0 +1,26 @@
+package ca.bazlur.chefbot.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("ca.bazlur.chefbot.Summarization")
+@Label("Summarization")
+@Category("ChefBot")
+@Description("Older messages of a chat memory being condensed into a summary")
+@StackTrace(false)
+public class SummarizationEvent extends Event {
+
+    @Label("Memory Id")
+    public String memoryId;
+
+    @Label("Messages")
+    @Description("Number of messages summarized")
+    public int messages;
+
+    @Label("Background")
+    public boolean background;
+}
@@ -0,0 +1,52 @@
+package ca.bazlur.chefbot.metrics;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+
+/**
+ * Measures how long a rendering {@link BotResponseListener} spends on a turn and records the total as
+ * {@link MetricNames#FORMAT_LATENCY} once the turn completes. Like the listeners it wraps, one instance
+ * serves a single turn.
+ */
+public class TimedResponseListener implements BotResponseListener {
+
+    private final BotResponseListener delegate;
+    private final Metrics metrics;
+    private long elapsed;
+
+    public TimedResponseListener(BotResponseListener delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onConversationDelta(String delta) {
+        long start = System.nanoTime();
+        delegate.onConversationDelta(delta);
+        elapsed += System.nanoTime() - start;
+    }
+
+    @Override
+    public void onRecipeField(String field, String value) {
+        long start = System.nanoTime();
+        delegate.onRecipeField(field, value);
+        elapsed += System.nanoTime() - start;
+    }
+
+    @Override
+    public void onRecipeListItem(String field, String item) {
+        long start = System.nanoTime();
+        delegate.onRecipeListItem(field, item);
+        elapsed += System.nanoTime() - start;
+    }
+
+    @Override
+    public void onComplete(BotResponse response) {
+        long start = System.nanoTime();
+        try {
+            delegate.onComplete(response);
+        } finally {
+            metrics.record(MetricNames.FORMAT_LATENCY, elapsed + System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package ca.bazlur.chefbot.rag;
+
+import dev.langchain4j.internal.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Approximate nearest neighbour index over unit vectors, using a hierarchical navigable small world graph:
+ * every item is linked to its closest neighbours on layer 0, and a thinning subset of items is also linked on
+ * each layer above, so a search walks greedily from the sparse top layer down to a short beam search on layer 0.
+ * <p>
+ * Vectors are normalized on the way in and compared by cosine similarity. Items can be added from many threads
+ * at once and searched while they are being added: each node guards its own neighbour lists and replaces them
+ * rather than changing them in place, so a search never blocks on more than one node at a time. Each node also
+ * counts the links pointing at it, so that trimming a full neighbour list never takes away a node's last one.
+ *
+ * @param <T> the item stored with each vector and returned by {@link #search}
+ */
+public class HnswIndex<T> {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 12;
+    private static final int[] NO_NEIGHBOURS = new int[0];
+    private static final double SAME_VECTOR = 1e-6;
+    private static final Comparator<Candidate> CLOSEST_FIRST = Comparator.comparingDouble(Candidate::distance);
+
+    private final int dimension;
+    private final int maxConnections;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicReferenceArray<Node<T>[]> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private volatile Node<T> entryPoint;
+
+    private HnswIndex(Builder builder) {
+        this.dimension = ValidationUtils.ensureGreaterThanZero(builder.dimension, "dimension");
+        this.maxConnections = ValidationUtils.ensureGreaterThanZero(builder.maxConnections, "maxConnections");
+        this.efConstruction = ValidationUtils.ensureGreaterThanZero(builder.efConstruction, "efConstruction");
+        this.levelMultiplier = 1 / Math.log(Math.max(2, maxConnections));
+    }
+
+    /**
+     * Adds {@code item} under {@code vector}. Safe to call from several threads at once.
+     *
+     * @return the id of the new node
+     */
+    public int add(float[] vector, T item) {
+        float[] normalized = normalize(vector);
+        int id = size.getAndIncrement();
+        Node<T> node = new Node<>(id, normalized, item, randomLevel());
+        store(node);
+
+        Node<T> entry = entryPoint;
+        if (entry == null) {
+            synchronized (this) {
+                if (entryPoint == null) {
+                    entryPoint = node;
+                    return id;
+                }
+                entry = entryPoint;
+            }
+        }
+
+        Candidate current = new Candidate(entry.id, distance(normalized, entry.vector));
+        for (int level = entry.level; level > node.level; level--) {
+            current = closestGreedy(normalized, current, level);
+        }
+        // Choose the node's links on every layer before any node links back to it; until then no other thread can
+        // reach it to add a link that would be overwritten here
+        int top = Math.min(node.level, entry.level);
+        for (int level = top; level >= 0; level--) {
+            List<Candidate> found = searchLayer(normalized, current, efConstruction, level);
+            int[] selected = diverse(found, connectionsAt(level), id);
+            synchronized (node) {
+                node.neighbours[level] = selected;
+            }
+            for (int neighbour : selected) {
+                node(neighbour).incoming.incrementAndGet(level);
+            }
+            current = found.getFirst();
+        }
+        for (int level = top; level >= 0; level--) {
+            for (int neighbour : neighbours(node, level)) {
+                link(node(neighbour), node, level);
+            }
+        }
+
+        if (node.level > entry.level) {
+            synchronized (this) {
+                if (node.level > entryPoint.level) {
+                    entryPoint = node;
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns up to {@code maxResults} items closest to {@code vector}, most similar first. A larger {@code ef}
+     * explores more of the graph, trading latency for recall; it is raised to {@code maxResults} when smaller.
+     */
+    public List<Match<T>> search(float[] vector, int maxResults, int ef) {
+        Node<T> entry = entryPoint;
+        if (entry == null || maxResults <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(vector);
+        Candidate current = new Candidate(entry.id, distance(query, entry.vector));
+        for (int level = entry.level; level > 0; level--) {
+            current = closestGreedy(query, current, level);
+        }
+        List<Candidate> found = searchLayer(query, current, Math.max(ef, maxResults), 0);
+        List<Match<T>> matches = new ArrayList<>(Math.min(maxResults, found.size()));
+        for (int i = 0; i < found.size() && matches.size() < maxResults; i++) {
+            Candidate candidate = found.get(i);
+            matches.add(new Match<>(node(candidate.id).item, 1 - candidate.distance));
+        }
+        return matches;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    private Candidate closestGreedy(float[] query, Candidate start, int level) {
+        Candidate best = start;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : neighbours(node(best.id), level)) {
+                double distance = distance(query, node(neighbour).vector);
+                if (distance < best.distance) {
+                    best = new Candidate(neighbour, distance);
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Beam search on one layer.
+     *
+     * @return up to {@code ef} nodes, closest first
+     */
+    private List<Candidate> searchLayer(float[] query, Candidate start, int ef, int level) {
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(CLOSEST_FIRST.reversed());
+        IntSet visited = new IntSet();
+        visited.add(start.id);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.distance > results.peek().distance) {
+                break;
+            }
+            for (int neighbour : neighbours(node(candidate.id), level)) {
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                double distance = distance(query, node(neighbour).vector);
+                if (results.size() < ef || distance < results.peek().distance) {
+                    Candidate next = new Candidate(neighbour, distance);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> found = new ArrayList<>(results);
+        found.sort(CLOSEST_FIRST);
+        return found;
+    }
+
+    private void link(Node<T> node, Node<T> neighbour, int level) {
+        synchronized (node) {
+            int[] current = node.neighbours[level];
+            if (current.length < connectionsAt(level)) {
+                int[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = neighbour.id;
+                node.neighbours[level] = grown;
+                neighbour.incoming.incrementAndGet(level);
+                return;
+            }
+            // Full: rank the existing links and the new one by how diverse they keep the list, then drop the lowest
+            // ranked that some other node still links to
+            List<Candidate> options = new ArrayList<>(current.length + 1);
+            for (int id : current) {
+                options.add(new Candidate(id, distance(node.vector, node(id).vector)));
+            }
+            options.add(new Candidate(neighbour.id, distance(node.vector, neighbour.vector)));
+            options.sort(CLOSEST_FIRST);
+            int[] ranked = diverse(options, options.size(), node.id);
+            int dropped = ranked.length - 1;
+            while (dropped > 0 && !unlink(node(ranked[dropped]), neighbour, level)) {
+                dropped--;
+            }
+            if (dropped == 0) {
+                // Each link is the last one to its node; one of them has to go
+                dropped = ranked.length - 1;
+                if (ranked[dropped] != neighbour.id) {
+                    node(ranked[dropped]).incoming.decrementAndGet(level);
+                }
+            }
+            if (ranked[dropped] != neighbour.id) {
+                neighbour.incoming.incrementAndGet(level);
+            }
+            int[] kept = new int[ranked.length - 1];
+            System.arraycopy(ranked, 0, kept, 0, dropped);
+            System.arraycopy(ranked, dropped + 1, kept, dropped, kept.length - dropped);
+            node.neighbours[level] = kept;
+        }
+    }
+
+    /**
+     * Takes a link to {@code target} off its count, unless it is the last link pointing at {@code target} on
+     * {@code level}. The link to {@code newcomer} being added has not been counted yet.
+     *
+     * @return whether the link may be dropped
+     */
+    private boolean unlink(Node<T> target, Node<T> newcomer, int level) {
+        if (target == newcomer) {
+            return target.incoming.get(level) > 0;
+        }
+        for (int count = target.incoming.get(level); count > 1; count = target.incoming.get(level)) {
+            if (target.incoming.compareAndSet(level, count, count - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] neighbours(Node<T> node, int level) {
+        synchronized (node) {
+            return node.neighbours[level];
+        }
+    }
+
+    private int connectionsAt(int level) {
+        return level == 0 ? 2 * maxConnections : maxConnections;
+    }
+
+    private int randomLevel() {
+        double uniform = 1 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    private void store(Node<T> node) {
+        int chunk = node.id >>> CHUNK_BITS;
+        if (chunk >= MAX_CHUNKS) {
+            throw new IllegalStateException("HNSW index is full at " + ((long) MAX_CHUNKS * CHUNK_SIZE) + " items");
+        }
+        Node<T>[] nodes = chunks.get(chunk);
+        if (nodes == null) {
+            @SuppressWarnings("unchecked")
+            Node<T>[] created = (Node<T>[]) new Node[CHUNK_SIZE];
+            nodes = chunks.compareAndSet(chunk, null, created) ? created : chunks.get(chunk);
+        }
+        // Published to other threads by the synchronized link that first makes this node reachable
+        nodes[node.id & (CHUNK_SIZE - 1)] = node;
+    }
+
+    private Node<T> node(int id) {
+        return chunks.get(id >>> CHUNK_BITS)[id & (CHUNK_SIZE - 1)];
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension + " but got " + vector.length);
+        }
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] normalized = new float[vector.length];
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = (float) (vector[i] / norm);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Picks up to {@code max} neighbours from {@code sorted}, closest first, skipping a candidate that is closer
+     * to an already picked neighbour than to the node itself: such a candidate is reachable through that
+     * neighbour, and linking it instead of a node in another direction would leave clusters poorly connected.
+     * Copies of a picked neighbour's vector are skipped too, or a group of identical passages would only link
+     * among itself. Skipped candidates fill any places left over.
+     */
+    private int[] diverse(List<Candidate> sorted, int max, int exclude) {
+        int[] ids = new int[Math.min(max, sorted.size())];
+        List<Candidate> skipped = new ArrayList<>();
+        int count = 0;
+        for (int i = 0; i < sorted.size() && count < ids.length; i++) {
+            Candidate candidate = sorted.get(i);
+            if (candidate.id == exclude) {
+                continue;
+            }
+            float[] vector = node(candidate.id).vector;
+            boolean covered = false;
+            for (int j = 0; j < count && !covered; j++) {
+                double distance = distance(vector, node(ids[j]).vector);
+                covered = distance < candidate.distance || distance < SAME_VECTOR;
+            }
+            if (covered) {
+                skipped.add(candidate);
+            } else {
+                ids[count++] = candidate.id;
+            }
+        }
+        for (int i = 0; i < skipped.size() && count < ids.length; i++) {
+            ids[count++] = skipped.get(i).id;
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private static double distance(float[] a, float[] b) {
+        return 1 - dot(a, b);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * An item returned by {@link #search}, with its cosine similarity to the query.
+     */
+    public record Match<T>(T item, double score) {
+    }
+
+    private record Candidate(int id, double distance) {
+    }
+
+    private static final class Node<T> {
+        final int id;
+        final float[] vector;
+        final T item;
+        final int level;
+        final int[][] neighbours;
+        final AtomicIntegerArray incoming;
+
+        Node(int id, float[] vector, T item, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.item = item;
+            this.level = level;
+            this.neighbours = new int[level + 1][];
+            Arrays.fill(neighbours, NO_NEIGHBOURS);
+            this.incoming = new AtomicIntegerArray(level + 1);
+        }
+    }
+
+    /**
+     * Open-addressing set of node ids, to avoid boxing every id a search visits.
+     */
+    private static final class IntSet {
+        private int[] slots = new int[256];
+        private int size;
+
+        IntSet() {
+            Arrays.fill(slots, -1);
+        }
+
+        boolean add(int value) {
+            if (2 * (size + 1) > slots.length) {
+                grow();
+            }
+            int mask = slots.length - 1;
+            int slot = mix(value) & mask;
+            while (slots[slot] != -1) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            Arrays.fill(slots, -1);
+            size = 0;
+            for (int value : old) {
+                if (value != -1) {
+                    add(value);
+                }
+            }
+        }
+
+        private static int mix(int value) {
+            int h = value * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    public static class Builder {
+        private Integer dimension;
+        private Integer maxConnections = 16;
+        private Integer efConstruction = 100;
+
+        public Builder dimension(Integer dimension) {
+            this.dimension = dimension;
+            return this;
+        }
+
+        /**
+         * Links kept per node on the upper layers; layer 0 keeps twice as many. More links raise recall and
+         * memory use.
+         */
+        public Builder maxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Beam width used while linking a new node. Wider beams build a better graph, more slowly.
+         */
+        public Builder efConstruction(Integer efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public <T> HnswIndex<T> build() {
+            return new HnswIndex<>(this);
+        }
+    }
+}
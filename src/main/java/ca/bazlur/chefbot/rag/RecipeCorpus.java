@@ -0,0 +1,278 @@
+package ca.bazlur.chefbot.rag;
+
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.metrics.Metrics;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Vetted recipes the assistant grounds its answers in. Documents are split into passages, embedded with a
+ * local {@link EmbeddingModel} and kept in an in-process {@link HnswIndex}; as a {@link ContentRetriever},
+ * the corpus hands the passages closest to each user message to the prompt.
+ * <p>
+ * {@link #ingest(Stream)} pulls documents from the stream as it goes and embeds batches of passages on
+ * {@code ingestionThreads} threads, with a bounded number of batches in flight, so a corpus of any size is
+ * indexed in constant memory beyond the index itself. The corpus answers queries while it is still being
+ * ingested.
+ */
+@Slf4j
+public class RecipeCorpus implements ContentRetriever {
+
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(".txt", ".md", ".json");
+
+    private final EmbeddingModel embeddingModel;
+    private final DocumentSplitter splitter;
+    private final HnswIndex<TextSegment> index;
+    private final int maxResults;
+    private final double minScore;
+    private final int ef;
+    private final int ingestionThreads;
+    private final int batchSize;
+    private final Metrics metrics;
+
+    private RecipeCorpus(Builder builder) {
+        this.embeddingModel = ValidationUtils.ensureNotNull(builder.embeddingModel, "embeddingModel");
+        this.splitter = ValidationUtils.ensureNotNull(builder.splitter, "splitter");
+        this.maxResults = ValidationUtils.ensureGreaterThanZero(builder.maxResults, "maxResults");
+        this.minScore = ValidationUtils.ensureBetween(builder.minScore, -1.0, 1.0, "minScore");
+        this.ef = ValidationUtils.ensureGreaterThanZero(builder.ef, "ef");
+        this.ingestionThreads = ValidationUtils.ensureGreaterThanZero(builder.ingestionThreads, "ingestionThreads");
+        this.batchSize = ValidationUtils.ensureGreaterThanZero(builder.batchSize, "batchSize");
+        this.metrics = ValidationUtils.ensureNotNull(builder.metrics, "metrics");
+        this.index = HnswIndex.builder()
+                .dimension(embeddingModel.dimension())
+                .maxConnections(builder.maxConnections)
+                .efConstruction(builder.efConstruction)
+                .build();
+    }
+
+    /**
+     * Splits, embeds and indexes every document of {@code documents}, returning once all of them are searchable.
+     * The caller keeps ownership of the stream and closes it.
+     *
+     * @return the number of passages indexed
+     */
+    public int ingest(Stream<Document> documents) {
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(ingestionThreads, Thread.ofPlatform()
+                .name("recipe-corpus-ingestion-", 0)
+                .daemon(true)
+                .factory());
+        // Bounds the passages held in memory while the embedding model catches up with the reader
+        int maxInFlight = 2 * ingestionThreads;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int passages = 0;
+        try {
+            List<TextSegment> batch = new ArrayList<>(batchSize);
+            Iterator<Document> iterator = documents.iterator();
+            while (iterator.hasNext() && failure.get() == null) {
+                for (TextSegment segment : splitter.split(iterator.next())) {
+                    batch.add(segment);
+                    if (batch.size() == batchSize) {
+                        submit(batch, workers, inFlight, failure);
+                        passages += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, workers, inFlight, failure);
+                passages += batch.size();
+            }
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while ingesting the recipe corpus", e);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Recipe corpus ingestion failed", failure.get());
+        }
+        log.info("Indexed {} recipe passages in {} ms", passages, (System.nanoTime() - start) / 1_000_000);
+        return passages;
+    }
+
+    private void submit(List<TextSegment> batch, ExecutorService workers, Semaphore inFlight,
+                        AtomicReference<Throwable> failure) throws InterruptedException {
+        inFlight.acquire();
+        workers.execute(() -> {
+            try {
+                List<Embedding> embeddings = embeddingModel.embedAll(batch).content();
+                for (int i = 0; i < batch.size(); i++) {
+                    index.add(embeddings.get(i).vector(), batch.get(i));
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Returns up to {@code maxResults} passages similar to the query, most similar first, leaving out those
+     * scoring below {@code minScore} so small talk is not padded with unrelated recipes.
+     */
+    @Override
+    public List<Content> retrieve(Query query) {
+        return metrics.time(MetricNames.RETRIEVAL_LATENCY, () -> {
+            float[] vector = embeddingModel.embed(query.text()).content().vector();
+            List<Content> contents = index.search(vector, maxResults, ef).stream()
+                    .filter(match -> match.score() >= minScore)
+                    .map(match -> Content.from(match.item()))
+                    .toList();
+            metrics.increment(MetricNames.RETRIEVED_PASSAGES, contents.size());
+            return contents;
+        });
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Lazily reads the recipe documents under {@code directory}: every {@code .txt}, {@code .md} and
+     * {@code .json} file is one document, and every non-blank line of a {@code .jsonl} file is one document.
+     * The stream holds open files and must be closed.
+     */
+    public static Stream<Document> documents(Path directory) {
+        try {
+            return Files.walk(directory)
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .flatMap(RecipeCorpus::documentsIn);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read recipe corpus " + directory, e);
+        }
+    }
+
+    private static Stream<Document> documentsIn(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot);
+        try {
+            if (extension.equals(".jsonl")) {
+                return Files.lines(file)
+                        .filter(line -> !line.isBlank())
+                        .map(line -> Document.from(line, Metadata.from(Document.FILE_NAME, name)));
+            }
+            if (TEXT_EXTENSIONS.contains(extension)) {
+                return Stream.of(Document.from(Files.readString(file), Metadata.from(Document.FILE_NAME, name)));
+            }
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read recipe document " + file, e);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private EmbeddingModel embeddingModel;
+        private DocumentSplitter splitter = DocumentSplitters.recursive(1_000, 100);
+        private Integer maxResults = 3;
+        private Double minScore = 0.5;
+        private Integer ef = 64;
+        private Integer maxConnections = 16;
+        private Integer efConstruction = 100;
+        private Integer ingestionThreads = Runtime.getRuntime().availableProcessors();
+        private Integer batchSize = 64;
+        private Metrics metrics = Metrics.NOOP;
+
+        /**
+         * Embeds passages and queries alike; a local model keeps both ingestion and retrieval off the network.
+         */
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Splits documents into passages before they are embedded. By default a recipe becomes a single passage
+         * unless it runs past 1000 characters.
+         */
+        public Builder splitter(DocumentSplitter splitter) {
+            this.splitter = splitter;
+            return this;
+        }
+
+        public Builder maxResults(Integer maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        public Builder minScore(Double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        /**
+         * Beam width of a query's search through the index; see {@link HnswIndex#search}.
+         */
+        public Builder ef(Integer ef) {
+            this.ef = ef;
+            return this;
+        }
+
+        public Builder maxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder efConstruction(Integer efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder ingestionThreads(Integer ingestionThreads) {
+            this.ingestionThreads = ingestionThreads;
+            return this;
+        }
+
+        /**
+         * Passages sent to the embedding model in one call during ingestion.
+         */
+        public Builder batchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public RecipeCorpus build() {
+            return new RecipeCorpus(this);
+        }
+    }
+}
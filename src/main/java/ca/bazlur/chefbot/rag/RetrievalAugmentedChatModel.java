@@ -0,0 +1,96 @@
+package ca.bazlur.chefbot.rag;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the passages a {@link ContentRetriever} finds for the latest user message to that message, in the request
+ * sent to the model only.
+ * <p>
+ * Unlike a retriever configured on the AI service, which augments the message before it is stored, this leaves
+ * the chat memory holding what the user wrote. Passages are therefore neither kept in the token window nor sent
+ * again and summarized on later turns, and whatever reads the memory, such as the {@code TierClassifier} when
+ * it sits in front of this model, sees the user's own words.
+ */
+public class RetrievalAugmentedChatModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final ContentRetriever retriever;
+
+    private RetrievalAugmentedChatModel(ChatLanguageModel delegate, ContentRetriever retriever) {
+        this.delegate = ValidationUtils.ensureNotNull(delegate, "delegate");
+        this.retriever = ValidationUtils.ensureNotNull(retriever, "retriever");
+    }
+
+    public static ChatLanguageModel augmenting(ChatLanguageModel delegate, ContentRetriever retriever) {
+        return new RetrievalAugmentedChatModel(delegate, retriever);
+    }
+
+    public static StreamingChatLanguageModel augmenting(StreamingChatLanguageModel delegate, ContentRetriever retriever) {
+        ValidationUtils.ensureNotNull(delegate, "delegate");
+        ValidationUtils.ensureNotNull(retriever, "retriever");
+        return new StreamingChatLanguageModel() {
+            @Override
+            public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                delegate.chat(augment(chatRequest, retriever), handler);
+            }
+
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                delegate.generate(augment(ChatRequest.builder().messages(messages).build(), retriever).messages(), handler);
+            }
+        };
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return delegate.chat(augment(chatRequest, retriever));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ChatResponse response = chat(ChatRequest.builder().messages(messages).build());
+        return Response.from(response.aiMessage(), response.tokenUsage(), response.finishReason());
+    }
+
+    /**
+     * Returns the request with the retrieved passages appended to its last message, if that is a user message with
+     * text and any passages were found.
+     */
+    static ChatRequest augment(ChatRequest chatRequest, ContentRetriever retriever) {
+        List<ChatMessage> messages = chatRequest.messages();
+        if (messages.isEmpty() || !(messages.getLast() instanceof UserMessage user) || !user.hasSingleText()) {
+            return chatRequest;
+        }
+        List<Content> contents = retriever.retrieve(Query.from(user.singleText()));
+        if (contents.isEmpty()) {
+            return chatRequest;
+        }
+
+        StringBuilder text = new StringBuilder(user.singleText()).append("\n\nAnswer using the following information:");
+        for (Content content : contents) {
+            text.append("\n\n").append(content.textSegment().text());
+        }
+        List<ChatMessage> augmented = new ArrayList<>(messages);
+        augmented.set(augmented.size() - 1, UserMessage.from(text.toString()));
+        return ChatRequest.builder()
+                .messages(augmented)
+                .parameters(chatRequest.parameters())
+                .build();
+    }
+}
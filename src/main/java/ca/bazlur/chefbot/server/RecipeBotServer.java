@@ -0,0 +1,463 @@
+package ca.bazlur.chefbot.server;
+
+import ca.bazlur.chefbot.core.RecipeBot;
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import ca.bazlur.chefbot.domain.service.RecipeFormatter;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.internal.ValidationUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * HTTP/JSON front end for {@link RecipeBot} built on the JDK's {@link HttpServer}.
+ * <p>
+ * Every exchange runs on its own virtual thread, so a turn blocked on the LLM does not hold a platform
+ * thread. The number of turns in flight is capped; requests beyond the cap are rejected with
+ * {@code 429 Too Many Requests}, and turns exceeding the request timeout are answered with
+ * {@code 504 Gateway Timeout}. A turn holds its place under the cap until its model call has ended, even when
+ * the client was already answered with a timeout.
+ *
+ * <pre>
+ * POST /chat {"sessionId": "abc", "message": "Something vegan please"}
+ * POST /chat/stream {"sessionId": "abc", "message": "Something vegan please"}
+ * GET  /metrics
+ * </pre>
+ * The streaming endpoint answers with server-sent events: {@code delta} for each piece of a conversational
+ * reply, {@code field} and {@code item} as recipe fields and list elements are generated, and a final
+ * {@code done} event carrying the complete response. The metrics endpoint serves the bot's current
+ * counters and latency histograms; it is not subject to the in-flight limit.
+ * <p>
+ * {@code /chat} answers with JSON unless the request's {@code Accept} header asks for {@code text/markdown}
+ * or {@code text/plain} without also accepting {@code application/json}, in which case a recipe is rendered
+ * by {@link RecipeFormatter} in that style and a conversational reply is sent as its text.
+ */
+@Slf4j
+public class RecipeBotServer {
+
+    private static final Gson GSON = new Gson();
+    private static final RecipeFormatter MARKDOWN = new RecipeFormatter(RecipeFormatter.Style.MARKDOWN);
+    private static final RecipeFormatter PLAIN = new RecipeFormatter(RecipeFormatter.Style.PLAIN);
+
+    private final RecipeBot recipeBot;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final Duration requestTimeout;
+    private final Duration drainTimeout;
+
+    private RecipeBotServer(Builder builder) throws IOException {
+        this.recipeBot = ValidationUtils.ensureNotNull(builder.recipeBot, "recipeBot");
+        this.inFlight = new Semaphore(ValidationUtils.ensureGreaterThanZero(builder.maxInFlight, "maxInFlight"));
+        this.requestTimeout = ValidationUtils.ensureNotNull(builder.requestTimeout, "requestTimeout");
+        this.drainTimeout = ValidationUtils.ensureNotNull(builder.drainTimeout, "drainTimeout");
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        this.server = HttpServer.create(new InetSocketAddress(builder.port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/chat", exchange -> admit(exchange, this::handleTurn));
+        this.server.createContext("/chat/stream", exchange -> admit(exchange, this::handleStreamingTurn));
+        this.server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        server.start();
+        log.info("RecipeBot HTTP server listening on port {}", port());
+    }
+
+    /**
+     * Stops accepting connections, waits up to the drain timeout for in-flight turns to complete and then closes
+     * the bot, so the summaries those turns started are saved too.
+     */
+    public void stop() {
+        log.info("Draining RecipeBot HTTP server");
+        server.stop((int) Math.max(1, drainTimeout.toSeconds()));
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            recipeBot.close();
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void admit(HttpExchange exchange, TurnHandler handler) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+            if (!inFlight.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 429, "Too many requests in flight, please retry shortly");
+                return;
+            }
+            AtomicReference<CompletableFuture<?>> work = new AtomicReference<>();
+            try {
+                ChatRequest request = readRequest(exchange);
+                if (request != null) {
+                    handler.handle(exchange, request, work::set);
+                }
+            } finally {
+                // A timed-out turn may still be calling the model, so its permit goes back only when that call ends
+                CompletableFuture<?> started = work.get();
+                if (started == null) {
+                    inFlight.release();
+                } else {
+                    started.whenComplete((ignored, failure) -> inFlight.release());
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            sendJson(exchange, 200, recipeBot.metrics().snapshot());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ChatRequest readRequest(HttpExchange exchange) throws IOException {
+        ChatRequest request;
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = GSON.fromJson(reader, ChatRequest.class);
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "Malformed JSON body");
+            return null;
+        }
+        if (request == null || isBlank(request.sessionId) || isBlank(request.message)) {
+            sendError(exchange, 400, "Both 'sessionId' and 'message' are required");
+            return null;
+        }
+        return request;
+    }
+
+    private void handleTurn(HttpExchange exchange, ChatRequest request, Consumer<CompletableFuture<?>> started) throws IOException {
+        SubmittedTurn turn = new SubmittedTurn(executor, () -> recipeBot.processUserInput(request.sessionId, request.message.trim()));
+        started.accept(turn.finished);
+        try {
+            BotResponse response = turn.future.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            RecipeFormatter formatter = textFormatter(exchange);
+            if (formatter != null) {
+                sendText(exchange, formatter, response);
+            } else {
+                sendJson(exchange, 200, response);
+            }
+        } catch (TimeoutException e) {
+            turn.cancel();
+            log.warn("Turn for session {} timed out after {}", request.sessionId, requestTimeout);
+            sendError(exchange, 504, "The recipe assistant took too long to respond");
+        } catch (ExecutionException e) {
+            log.error("Error processing turn for session {}", request.sessionId, e.getCause());
+            sendError(exchange, 500, "Internal error");
+        } catch (InterruptedException e) {
+            turn.cancel();
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is shutting down");
+        }
+    }
+
+    private void handleStreamingTurn(HttpExchange exchange, ChatRequest request, Consumer<CompletableFuture<?>> started) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0); // Chunked transfer, events are flushed as they happen
+
+        try (EventStream events = new EventStream(exchange.getResponseBody())) {
+            CompletableFuture<BotResponse> turn = recipeBot.streamUserInput(request.sessionId, request.message.trim(),
+                    new BotResponseListener() {
+                        @Override
+                        public void onConversationDelta(String delta) {
+                            events.send("delta", Map.of("text", delta));
+                        }
+
+                        @Override
+                        public void onRecipeField(String field, String value) {
+                            events.send("field", Map.of("field", field, "value", value));
+                        }
+
+                        @Override
+                        public void onRecipeListItem(String field, String item) {
+                            events.send("item", Map.of("field", field, "value", item));
+                        }
+
+                        @Override
+                        public void onComplete(BotResponse response) {
+                            events.send("done", response);
+                        }
+                    });
+            started.accept(turn);
+            try {
+                turn.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Streaming turn for session {} timed out after {}", request.sessionId, requestTimeout);
+                events.send("error", Map.of("error", "The recipe assistant took too long to respond"));
+            } catch (ExecutionException e) {
+                log.error("Error streaming turn for session {}", request.sessionId, e.getCause());
+                events.send("error", Map.of("error", "Internal error"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                events.send("error", Map.of("error", "Server is shutting down"));
+            }
+        }
+    }
+
+    /**
+     * Returns the formatter for the text format the client accepts, or {@code null} when it should get JSON.
+     * JSON is kept whenever the client accepts it, by naming {@code application/json} or {@code application/*}
+     * or by sending nothing but the full wildcard; otherwise the text format with the higher quality wins,
+     * markdown on a tie.
+     */
+    private static RecipeFormatter textFormatter(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept");
+        if (headers == null) {
+            return null;
+        }
+        double json = 0;
+        double markdown = 0;
+        double plain = 0;
+        boolean onlyWildcards = true;
+        for (String header : headers) {
+            for (String range : header.split(",")) {
+                String[] parts = range.split(";");
+                String mediaType = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (mediaType.isEmpty()) {
+                    continue;
+                }
+                double quality = quality(parts);
+                onlyWildcards &= mediaType.equals("*/*");
+                switch (mediaType) {
+                    case "application/json", "application/*" -> json = Math.max(json, quality);
+                    case "text/markdown" -> markdown = Math.max(markdown, quality);
+                    case "text/plain", "text/*" -> plain = Math.max(plain, quality);
+                    default -> {
+                        // Neither JSON nor a text format we render
+                    }
+                }
+            }
+        }
+        if (json > 0 || onlyWildcards) {
+            return null;
+        }
+        if (markdown > 0 && markdown >= plain) {
+            return MARKDOWN;
+        }
+        return plain > 0 ? PLAIN : null;
+    }
+
+    /**
+     * Reads the {@code q} parameter of a media range; a missing or malformed one counts as 1.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q') && parameter.charAt(1) == '=') {
+                try {
+                    return Math.min(1, Math.max(0, Double.parseDouble(parameter.substring(2).trim())));
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static void sendText(HttpExchange exchange, RecipeFormatter formatter, BotResponse response) throws IOException {
+        StringBuilder text = new StringBuilder(1_024);
+        switch (response) {
+            case Recipe recipe -> formatter.render(recipe, text);
+            case Conversation conversation -> text.append(conversation.getMessage()).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        String contentType = formatter.style() == RecipeFormatter.Style.MARKDOWN ? "text/markdown" : "text/plain";
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Map.of("error", message));
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Answers a turn, handing the future of the work it started to {@code started} so the in-flight permit is
+     * held until that work ends rather than until the handler returns.
+     */
+    @FunctionalInterface
+    private interface TurnHandler {
+        void handle(HttpExchange exchange, ChatRequest request, Consumer<CompletableFuture<?>> started) throws IOException;
+    }
+
+    /**
+     * A turn running on the executor. {@link #finished} completes once the turn is over: when its work returns or
+     * throws, or when it was cancelled before it ever started.
+     */
+    private static final class SubmittedTurn {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private final Future<BotResponse> future;
+
+        private SubmittedTurn(ExecutorService executor, Callable<BotResponse> work) {
+            this.future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return work.call();
+                } finally {
+                    finished.complete(null);
+                }
+            });
+        }
+
+        /**
+         * Interrupts the work; a model call that ignores the interrupt keeps running, and {@link #finished}
+         * waits for it.
+         */
+        void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                finished.complete(null); // Not started yet, and now it never will
+            }
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Writes server-sent events; callbacks may arrive on the model's thread, so writes are serialized and
+     * anything sent after the stream was closed or the client went away is dropped.
+     */
+    private static final class EventStream implements AutoCloseable {
+        private final OutputStream out;
+        private boolean closed;
+
+        private EventStream(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void send(String event, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                out.write(("event: " + event + "\ndata: " + GSON.toJson(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                log.debug("Client disconnected from event stream", e);
+                closed = true;
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    static class ChatRequest {
+        String sessionId;
+        String message;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private RecipeBot recipeBot;
+        private int port = 8080;
+        private Integer maxInFlight = 1_000;
+        private Duration requestTimeout = Duration.ofSeconds(60);
+        private Duration drainTimeout = Duration.ofSeconds(30);
+
+        public Builder recipeBot(RecipeBot recipeBot) {
+            this.recipeBot = recipeBot;
+            return this;
+        }
+
+        /**
+         * Port to listen on; {@code 0} picks a free port.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder maxInFlight(Integer maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        public Builder drainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        public RecipeBotServer build() throws IOException {
+            return new RecipeBotServer(this);
+        }
+    }
+}
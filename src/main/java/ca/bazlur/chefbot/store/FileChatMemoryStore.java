@@ -0,0 +1,515 @@
+package ca.bazlur.chefbot.store;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.internal.ValidationUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * {@link VersionedChatMemoryStore} that keeps every session in its own append-only log file.
+ * <p>
+ * A log starts with an 8 byte header followed by records of the form
+ * {@code [payload length:int][crc32:int][kind:byte][body]}. Message records carry the UTF-8 text of
+ * system, user and AI messages; anything richer falls back to langchain4j's JSON form. An update that
+ * drops or replaces messages (for example after a summary), or adds several, is written as a single batch
+ * record holding the number of messages kept and the new tail, and the log is compacted into a fresh file
+ * once its dead records outweigh the live ones. Logs written before batches existed may also hold truncate
+ * records, which are replayed as before.
+ * <p>
+ * Logs are read through a memory-mapped buffer and replayed up to the last record with a valid checksum,
+ * so a write torn by a crash loses at most the update in progress. Compaction writes a temporary file,
+ * atomically moves it into place and, with fsync, forces the directory as well. Only the most recently used
+ * sessions are kept on heap; the cached lists hold the same message instances the chat memories do.
+ * <p>
+ * Sessions are guarded by striped locks. A session read back from disk gets a fresh version, so a memory that
+ * outlived the session's place on heap re-reads it once rather than overwriting it.
+ */
+@Slf4j
+public class FileChatMemoryStore implements VersionedChatMemoryStore {
+
+    private static final int MAGIC = 0x43424D4C; // "CBML"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_FILE_NAME_LENGTH = 200;
+
+    private static final byte TRUNCATE = 0;
+    private static final byte SYSTEM = 1;
+    private static final byte USER = 2;
+    private static final byte AI = 3;
+    private static final byte JSON = 4;
+    private static final byte BATCH = 5;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final Object[] locks;
+    private final Map<String, SessionLog> openLogs;
+    private final AtomicLong versions = new AtomicLong();
+
+    private FileChatMemoryStore(Builder builder) {
+        this.directory = ValidationUtils.ensureNotNull(builder.directory, "directory");
+        this.fsync = builder.fsync;
+        int maxOpenSessions = ValidationUtils.ensureGreaterThanZero(builder.maxOpenSessions, "maxOpenSessions");
+        this.locks = new Object[ValidationUtils.ensureGreaterThanZero(builder.lockStripes, "lockStripes")];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.openLogs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessionLog> eldest) {
+                return size() > maxOpenSessions;
+            }
+        };
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create chat memory directory " + directory, e);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            return List.copyOf(session(name).messages);
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot(Object memoryId) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            SessionLog session = session(name);
+            return new Snapshot(List.copyOf(session.messages), session.version);
+        }
+    }
+
+    @Override
+    public long version(Object memoryId) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            return session(name).version;
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            update(name, session(name), messages);
+        }
+    }
+
+    @Override
+    public long compareAndUpdateMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            SessionLog session = session(name);
+            if (session.version != expectedVersion) {
+                return CONFLICT;
+            }
+            update(name, session, messages);
+            return session.version;
+        }
+    }
+
+    private void update(String name, SessionLog session, List<ChatMessage> messages) {
+        int common = commonPrefix(session.messages, messages);
+        if (common == session.messages.size() && common == messages.size()) {
+            return;
+        }
+
+        try {
+            // A new log is written whole and moved into place, like a compacted one
+            if (session.fileBytes == 0
+                    || common < session.messages.size() && session.deadBytesAfterTruncatingTo(common) > session.liveBytesAfterTruncatingTo(common)) {
+                compact(session, messages);
+            } else {
+                append(session, common, messages);
+            }
+            session.version = versions.incrementAndGet();
+        } catch (IOException e) {
+            // The file may now be ahead of or behind what we believe, so reload it on next access
+            forget(name);
+            throw new UncheckedIOException("Cannot write chat memory log " + session.path, e);
+        }
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String name = fileName(memoryId);
+        synchronized (lockFor(name)) {
+            forget(name);
+            try {
+                Files.deleteIfExists(path(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete chat memory log " + path(name), e);
+            }
+        }
+    }
+
+    private void append(SessionLog session, int common, List<ChatMessage> messages) throws IOException {
+        List<ByteBuffer> payloads = new ArrayList<>(messages.size() - common);
+        for (int i = common; i < messages.size(); i++) {
+            payloads.add(encode(messages.get(i)));
+        }
+        // An update is one record, so a crash either keeps all of it or none of it
+        boolean single = common == session.messages.size() && payloads.size() == 1;
+        ByteBuffer record = record(single ? payloads.getFirst() : batch(common, payloads));
+
+        try (FileChannel channel = FileChannel.open(session.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > session.fileBytes) {
+                channel.truncate(session.fileBytes); // Drop a tail torn by an earlier crash
+            }
+            channel.position(session.fileBytes);
+            session.fileBytes += writeFully(channel, record);
+            if (fsync) {
+                channel.force(false);
+            }
+        }
+
+        session.truncate(common);
+        for (int i = common; i < messages.size(); i++) {
+            ByteBuffer payload = payloads.get(i - common);
+            session.add(messages.get(i), single ? RECORD_HEADER_BYTES + payload.limit() : Integer.BYTES + payload.limit());
+        }
+    }
+
+    /**
+     * The payload of a batch record: the number of messages to keep, then the new messages' payloads, each
+     * preceded by its length.
+     */
+    private static ByteBuffer batch(int keep, List<ByteBuffer> payloads) {
+        int size = 1 + 2 * Integer.BYTES;
+        for (ByteBuffer payload : payloads) {
+            size += Integer.BYTES + payload.remaining();
+        }
+        ByteBuffer batch = ByteBuffer.allocate(size).put(BATCH).putInt(keep).putInt(payloads.size());
+        for (ByteBuffer payload : payloads) {
+            batch.putInt(payload.remaining()).put(payload.duplicate());
+        }
+        return batch.flip();
+    }
+
+    private void compact(SessionLog session, List<ChatMessage> messages) throws IOException {
+        Path temp = session.path.resolveSibling(session.path.getFileName() + ".tmp");
+        SessionLog compacted = new SessionLog(session.path);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            compacted.fileBytes = writeFully(channel, header());
+            for (ChatMessage message : messages) {
+                int size = writeFully(channel, record(encode(message)));
+                compacted.fileBytes += size;
+                compacted.add(message, size);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        }
+        Files.move(temp, session.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (fsync) {
+            syncDirectory();
+        }
+        session.replaceWith(compacted);
+    }
+
+    /**
+     * Forces the directory entry of a moved file to disk, so the move itself survives the machine going down.
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened on Windows, where the move is durable once it returns
+        }
+    }
+
+    private SessionLog session(String name) {
+        synchronized (openLogs) {
+            SessionLog session = openLogs.get(name);
+            if (session != null) {
+                return session;
+            }
+        }
+        SessionLog session;
+        try {
+            session = load(path(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read chat memory log " + path(name), e);
+        }
+        session.version = versions.incrementAndGet();
+        synchronized (openLogs) {
+            openLogs.put(name, session);
+        }
+        return session;
+    }
+
+    private void forget(String name) {
+        synchronized (openLogs) {
+            openLogs.remove(name);
+        }
+    }
+
+    private static SessionLog load(Path path) throws IOException {
+        SessionLog session = new SessionLog(path);
+        if (!Files.exists(path)) {
+            return session;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return session; // Crashed while writing the header; the next write starts over
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a chat memory log: " + path);
+            }
+
+            int validEnd = buffer.position();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                if (crc(payload) != checksum) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                session.replay(payload, RECORD_HEADER_BYTES + length);
+                validEnd = buffer.position();
+            }
+            if (validEnd < size) {
+                log.warn("Ignoring {} trailing bytes of incomplete records in {}", size - validEnd, path);
+            }
+            session.fileBytes = validEnd;
+        }
+        return session;
+    }
+
+    private static ByteBuffer encode(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage systemMessage -> payload(SYSTEM, systemMessage.text());
+            case UserMessage userMessage when userMessage.name() == null && userMessage.hasSingleText() ->
+                    payload(USER, userMessage.singleText());
+            case AiMessage aiMessage when aiMessage.text() != null && !aiMessage.hasToolExecutionRequests() ->
+                    payload(AI, aiMessage.text());
+            default -> payload(JSON, ChatMessageSerializer.messageToJson(message));
+        };
+    }
+
+    private static ChatMessage decode(byte kind, ByteBuffer body) throws IOException {
+        String text = StandardCharsets.UTF_8.decode(body).toString();
+        return switch (kind) {
+            case SYSTEM -> SystemMessage.from(text);
+            case USER -> UserMessage.from(text);
+            case AI -> AiMessage.from(text);
+            case JSON -> ChatMessageDeserializer.messageFromJson(text);
+            default -> throw new IOException("Unknown chat memory record kind " + kind);
+        };
+    }
+
+    private static ByteBuffer payload(byte kind, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + bytes.length).put(kind).put(bytes).flip();
+    }
+
+    private static ByteBuffer record(ByteBuffer payload) {
+        return ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.remaining())
+                .putInt(payload.remaining())
+                .putInt(crc(payload))
+                .put(payload)
+                .flip();
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return size;
+    }
+
+    private static int commonPrefix(List<ChatMessage> persisted, List<ChatMessage> messages) {
+        int limit = Math.min(persisted.size(), messages.size());
+        int i = 0;
+        while (i < limit && (persisted.get(i) == messages.get(i) || persisted.get(i).equals(messages.get(i)))) {
+            i++;
+        }
+        return i;
+    }
+
+    private Object lockFor(String name) {
+        return locks[Math.floorMod(name.hashCode(), locks.length)];
+    }
+
+    private Path path(String name) {
+        return directory.resolve(name + ".log");
+    }
+
+    /**
+     * Session ids are encoded so any id is a safe file name; unusually long ids are hashed instead.
+     */
+    private static String fileName(Object memoryId) {
+        byte[] id = memoryId.toString().getBytes(StandardCharsets.UTF_8);
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        if (encoded.length() <= MAX_FILE_NAME_LENGTH) {
+            return encoded;
+        }
+        try {
+            return "sha256-" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(id));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * What is known about a session's log: its live messages, the size of each message's record and how
+     * much of the file is valid.
+     */
+    private static final class SessionLog {
+        private final Path path;
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private final List<Integer> recordBytes = new ArrayList<>();
+        private long liveBytes;
+        private long fileBytes;
+        private long version;
+
+        private SessionLog(Path path) {
+            this.path = path;
+        }
+
+        void add(ChatMessage message, int bytes) {
+            messages.add(message);
+            recordBytes.add(bytes);
+            liveBytes += bytes;
+        }
+
+        void truncate(int size) {
+            while (messages.size() > size) {
+                messages.removeLast();
+                liveBytes -= recordBytes.removeLast();
+            }
+        }
+
+        long liveBytesAfterTruncatingTo(int size) {
+            long bytes = liveBytes;
+            for (int i = size; i < recordBytes.size(); i++) {
+                bytes -= recordBytes.get(i);
+            }
+            return bytes;
+        }
+
+        long deadBytesAfterTruncatingTo(int size) {
+            return fileBytes - HEADER_BYTES - liveBytesAfterTruncatingTo(size);
+        }
+
+        void replay(ByteBuffer payload, int bytes) throws IOException {
+            byte kind = payload.get();
+            switch (kind) {
+                case TRUNCATE -> truncate(payload.getInt());
+                case BATCH -> {
+                    truncate(payload.getInt());
+                    int count = payload.getInt();
+                    for (int i = 0; i < count; i++) {
+                        int length = payload.getInt();
+                        ByteBuffer message = payload.slice(payload.position(), length);
+                        payload.position(payload.position() + length);
+                        add(decode(message.get(), message), Integer.BYTES + length);
+                    }
+                }
+                default -> add(decode(kind, payload), bytes);
+            }
+        }
+
+        void replaceWith(SessionLog other) {
+            messages.clear();
+            messages.addAll(other.messages);
+            recordBytes.clear();
+            recordBytes.addAll(other.recordBytes);
+            liveBytes = other.liveBytes;
+            fileBytes = other.fileBytes;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Path directory;
+        private boolean fsync = true;
+        private Integer maxOpenSessions = 1_000;
+        private Integer lockStripes = 64;
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Whether every update is forced to disk before returning. Without it, updates still survive a
+         * process crash but may be lost if the machine goes down.
+         */
+        public Builder fsync(boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+
+        /**
+         * How many sessions' messages are kept on heap between updates.
+         */
+        public Builder maxOpenSessions(Integer maxOpenSessions) {
+            this.maxOpenSessions = maxOpenSessions;
+            return this;
+        }
+
+        public Builder lockStripes(Integer lockStripes) {
+            this.lockStripes = lockStripes;
+            return this;
+        }
+
+        public FileChatMemoryStore build() {
+            return new FileChatMemoryStore(this);
+        }
+    }
+}
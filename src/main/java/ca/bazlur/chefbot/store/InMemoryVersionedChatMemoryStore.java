@@ -0,0 +1,57 @@
+package ca.bazlur.chefbot.store;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link VersionedChatMemoryStore} that keeps every session on heap. Updates to one session are serialized
+ * by the map's per-bin locking, so different sessions never wait on each other.
+ * <p>
+ * Like langchain4j's {@code InMemoryChatMemoryStore}, the store keeps the lists it is given rather than copying
+ * them; callers must not modify a list once it is stored.
+ */
+public class InMemoryVersionedChatMemoryStore implements VersionedChatMemoryStore {
+
+    // A session without messages; versions handed out to updates start at 1
+    private static final Snapshot EMPTY = new Snapshot(List.of(), 0);
+
+    private final ConcurrentHashMap<Object, Snapshot> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return getSnapshot(memoryId).messages();
+    }
+
+    @Override
+    public Snapshot getSnapshot(Object memoryId) {
+        return sessions.getOrDefault(memoryId, EMPTY);
+    }
+
+    @Override
+    public long version(Object memoryId) {
+        return getSnapshot(memoryId).version();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        sessions.put(memoryId, new Snapshot(messages, versions.incrementAndGet()));
+    }
+
+    @Override
+    public long compareAndUpdateMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion) {
+        Snapshot stored = sessions.compute(memoryId, (key, current) -> {
+            long currentVersion = current == null ? EMPTY.version() : current.version();
+            return currentVersion == expectedVersion ? new Snapshot(messages, versions.incrementAndGet()) : current;
+        });
+        return stored != null && stored.messages() == messages ? stored.version() : CONFLICT;
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        sessions.remove(memoryId);
+    }
+}
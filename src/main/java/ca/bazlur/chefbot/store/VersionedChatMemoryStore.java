@@ -0,0 +1,41 @@
+package ca.bazlur.chefbot.store;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.List;
+
+/**
+ * {@link ChatMemoryStore} that versions the messages of every session, so that chat memories of the same
+ * session can update it with a compare-and-set instead of overwriting each other's messages.
+ * <p>
+ * Versions are only ever compared for equality. Every update moves a session to a version it has not had
+ * before, so a memory holding an old version can always tell that its messages are out of date.
+ */
+public interface VersionedChatMemoryStore extends ChatMemoryStore {
+
+    /**
+     * Returned by {@link #compareAndUpdateMessages} when the session has moved past the expected version.
+     */
+    long CONFLICT = -1;
+
+    /**
+     * Returns the messages of a session together with their version.
+     */
+    Snapshot getSnapshot(Object memoryId);
+
+    /**
+     * Returns the current version of a session, which is cheaper than reading its messages.
+     */
+    long version(Object memoryId);
+
+    /**
+     * Replaces the messages of a session, provided it is still at {@code expectedVersion}.
+     *
+     * @return the new version of the session, or {@link #CONFLICT} if it was updated since that version was read
+     */
+    long compareAndUpdateMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion);
+
+    record Snapshot(List<ChatMessage> messages, long version) {
+    }
+}
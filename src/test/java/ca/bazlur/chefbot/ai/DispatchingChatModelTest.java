@@ -0,0 +1,146 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DispatchingChatModelTest {
+
+    private StubOpenAiServer server;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubOpenAiServer(Duration.ofMillis(200));
+        callers = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        server.close();
+    }
+
+    private ChatLanguageModel stubModel() {
+        return OpenAiChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("test-key")
+                .modelName("gpt-4o-mini")
+                .build();
+    }
+
+    private static ChatRequest request(String text) {
+        return ChatRequest.builder().messages(UserMessage.from(text)).build();
+    }
+
+    @Test
+    void shouldCoalesceIdenticalRequestsInFlight() {
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        DispatchingChatModel model = DispatchingChatModel.builder().delegate(stubModel()).metrics(metrics).build();
+
+        List<CompletableFuture<ChatResponse>> responses = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> model.chat(request("Pasta carbonara")), callers))
+                .toList();
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.join().aiMessage().text()).isEqualTo("Stub reply"));
+        assertThat(server.requests()).isEqualTo(1);
+        assertThat(metrics.count(MetricNames.LLM_COALESCED)).isEqualTo(9);
+    }
+
+    @Test
+    void shouldCapConcurrentConnections() {
+        DispatchingChatModel model = DispatchingChatModel.builder().delegate(stubModel()).maxConcurrentRequests(2).build();
+
+        List<CompletableFuture<ChatResponse>> responses = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> model.chat(request("Recipe " + i)), callers))
+                .toList();
+
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        assertThat(server.requests()).isEqualTo(8);
+        assertThat(server.maxConcurrentRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSendBulkJobsInBatches() {
+        DispatchingChatModel model = DispatchingChatModel.builder().delegate(stubModel()).batchSize(4).build();
+        List<ChatRequest> menu = List.of(
+                request("Soup"), request("Soup"), request("Salad"), request("Stew"),
+                request("Curry"), request("Pie"), request("Tacos"), request("Risotto"),
+                request("Cake"), request("Cake"));
+
+        List<CompletableFuture<ChatResponse>> responses = model.submitBatch(menu);
+
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        assertThat(responses).hasSize(10);
+        // Duplicates within a batch share a call: 3 + 4 + 1
+        assertThat(server.requests()).isEqualTo(8);
+        assertThat(server.maxConcurrentRequests()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void shouldReportFailuresPerRequestAndKeepDispatching() {
+        ChatLanguageModel failing = mock(ChatLanguageModel.class);
+        when(failing.chat(any(ChatRequest.class))).thenThrow(new RuntimeException("Rate limited"));
+        DispatchingChatModel model = DispatchingChatModel.builder().delegate(failing).batchSize(1).build();
+
+        List<CompletableFuture<ChatResponse>> responses = model.submitBatch(List.of(request("Soup"), request("Salad")));
+
+        assertThat(responses).allSatisfy(response ->
+                assertThat(response).failsWithin(Duration.ofSeconds(5)).withThrowableOfType(ExecutionException.class).withMessageContaining("Rate limited"));
+    }
+
+    @Test
+    void shouldHoldConnectionForStreamedCallsUntilTheyEnd() throws Exception {
+        StreamingChatLanguageModel streaming = mock(StreamingChatLanguageModel.class);
+        LinkedBlockingQueue<StreamingChatResponseHandler> open = new LinkedBlockingQueue<>();
+        doAnswer(invocation -> open.add(invocation.getArgument(1)))
+                .when(streaming).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+        DispatchingChatModel model = DispatchingChatModel.builder().delegate(stubModel()).maxConcurrentRequests(1).build();
+        StreamingChatLanguageModel dispatched = model.streaming(streaming);
+
+        dispatched.chat(request("Soup"), mock(StreamingChatResponseHandler.class));
+        StreamingChatResponseHandler firstStream = open.poll();
+        CompletableFuture<ChatResponse> blocking = CompletableFuture.supplyAsync(() -> model.chat(request("Salad")), callers);
+        Thread.sleep(300);
+        assertThat(blocking).isNotDone();
+
+        firstStream.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("Soup")).build());
+        // A late error after completion does not give the connection back a second time
+        firstStream.onError(new RuntimeException("Late failure"));
+        assertThat(blocking.join().aiMessage().text()).isEqualTo("Stub reply");
+
+        dispatched.chat(request("Stew"), mock(StreamingChatResponseHandler.class));
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> dispatched.chat(request("Pie"), mock(StreamingChatResponseHandler.class)), callers);
+        Thread.sleep(300);
+        assertThat(queued).isNotDone();
+        open.poll().onError(new RuntimeException("Stream failed"));
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(open).hasSize(1);
+    }
+}
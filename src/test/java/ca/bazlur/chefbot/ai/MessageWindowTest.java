@@ -0,0 +1,104 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.ai.MessageWindow.TokenizedMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageWindowTest {
+
+    private final MessageWindow window = new MessageWindow();
+
+    private static TokenizedMessage user(int index) {
+        return new TokenizedMessage(UserMessage.from("User message " + index), 10);
+    }
+
+    @Test
+    void shouldKeepPrefixAheadOfTurns() {
+        window.appendTurn(user(0));
+        window.insertPrefix(0, new TokenizedMessage(SystemMessage.from("System message"), 5));
+        window.appendTurn(user(1));
+
+        assertThat(window.messages()).containsExactly(
+                SystemMessage.from("System message"), UserMessage.from("User message 0"), UserMessage.from("User message 1"));
+        assertThat(window.prefixSize()).isEqualTo(1);
+        assertThat(window.turnCount()).isEqualTo(2);
+        assertThat(window.totalTokens()).isEqualTo(25);
+    }
+
+    @Test
+    void shouldNotShowLaterChangesThroughEarlierViews() {
+        window.insertPrefix(0, new TokenizedMessage(SystemMessage.from("System message"), 5));
+        List<List<ChatMessage>> views = new ArrayList<>();
+        List<List<ChatMessage>> copies = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            window.appendTurn(user(i));
+            if (window.turnCount() > 10) {
+                window.dropOldestTurns(3);
+            }
+            if (i % 25 == 0) {
+                window.insertPrefix(window.prefixSize(), new TokenizedMessage(SystemMessage.from("Summary " + i), 5));
+            }
+            List<ChatMessage> view = window.messages();
+            views.add(view);
+            copies.add(List.copyOf(view));
+        }
+        window.removePrefix(0, window.prefixSize());
+        window.clear();
+
+        assertThat(views).isEqualTo(copies);
+    }
+
+    @Test
+    void shouldTrackTokensAcrossDropsAndPrefixChanges() {
+        for (int i = 0; i < 20; i++) {
+            window.appendTurn(user(i));
+        }
+        window.insertPrefix(0, new TokenizedMessage(SystemMessage.from("Summary"), 7));
+        window.dropOldestTurns(15);
+        window.removePrefix(0, 1);
+
+        assertThat(window.totalTokens()).isEqualTo(50);
+        assertThat(window.get(0).message()).isEqualTo(UserMessage.from("User message 15"));
+    }
+
+    @Test
+    void shouldReleaseDroppedTurnsOnceNoViewShowsThem() throws InterruptedException {
+        for (int i = 0; i < 8; i++) {
+            window.appendTurn(user(i));
+        }
+        List<ChatMessage> before = window.messages();
+        WeakReference<ChatMessage> dropped = new WeakReference<>(window.get(0).message());
+
+        window.dropOldestTurns(5);
+
+        assertThat(before).hasSize(8).first().isSameAs(dropped.get());
+        before = null;
+        for (int i = 0; i < 100 && dropped.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(dropped.get()).isNull();
+        assertThat(window.messages()).containsExactly(
+                UserMessage.from("User message 5"), UserMessage.from("User message 6"), UserMessage.from("User message 7"));
+    }
+
+    @Test
+    void shouldReturnReadOnlyViews() {
+        window.appendTurn(user(0));
+
+        assertThatThrownBy(() -> window.messages().add(UserMessage.from("Sneaky")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> window.oldestTurns(1).clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
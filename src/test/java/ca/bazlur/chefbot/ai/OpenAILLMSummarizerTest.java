@@ -11,13 +11,20 @@ import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.model.output.TokenUsage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class OpenAILLMSummarizerTest {
@@ -52,4 +59,107 @@ class OpenAILLMSummarizerTest {
 
         assertThat(summary).isEqualTo("Summary: User greeted and assistant responded.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldAnswerRepeatedRequestsFromCache() {
+        when(mockResponse.aiMessage()).thenReturn(AiMessage.from("User likes spicy food."));
+        List<ChatMessage> messages = List.of(UserMessage.from("I love spicy food"), AiMessage.from("Noted!"));
+
+        String first = summarizer.summarize(messages);
+        String second = summarizer.summarize(List.of(UserMessage.from("I love spicy food"), AiMessage.from("Noted!")));
+
+        assertThat(second).isEqualTo(first);
+        verify(openAiChatModel, times(1)).chat(any(ChatRequest.class));
+    }
+
+    @Test
+    void shouldExtendCachedPrefixWithOnlyNewMessages() {
+        when(openAiChatModel.chat(any(ChatRequest.class)))
+                .thenReturn(response("User likes spicy food."))
+                .thenReturn(response("User likes spicy food and is vegan."));
+        List<ChatMessage> messages = new ArrayList<>(List.of(UserMessage.from("I love spicy food"), AiMessage.from("Noted!")));
+        summarizer.summarize(messages);
+
+        messages.add(UserMessage.from("I am vegan now"));
+        String summary = summarizer.summarize(messages);
+
+        assertThat(summary).isEqualTo("User likes spicy food and is vegan.");
+        ArgumentCaptor<ChatRequest> requests = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(openAiChatModel, times(2)).chat(requests.capture());
+        String prompt = ((UserMessage) requests.getValue().messages().getLast()).singleText();
+        assertThat(prompt)
+                .contains("User likes spicy food.")
+                .contains("User: I am vegan now")
+                .doesNotContain("I love spicy food")
+                .doesNotContain("Assistant: Noted!");
+    }
+
+    @Test
+    void shouldCoalesceConcurrentIdenticalRequests() throws Exception {
+        CountDownLatch modelCalled = new CountDownLatch(1);
+        CountDownLatch releaseModel = new CountDownLatch(1);
+        when(mockResponse.aiMessage()).thenReturn(AiMessage.from("Shared summary"));
+        when(openAiChatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            modelCalled.countDown();
+            releaseModel.await(5, TimeUnit.SECONDS);
+            return mockResponse;
+        });
+        List<ChatMessage> messages = List.of(UserMessage.from("Hello"), AiMessage.from("Hi!"));
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> summarizer.summarize(messages));
+        assertThat(modelCalled.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> summarizer.summarize(messages));
+        Thread.sleep(50); // Give the second caller time to join the in-flight request
+        releaseModel.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Shared summary");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Shared summary");
+        verify(openAiChatModel, times(1)).chat(any(ChatRequest.class));
+    }
+
+    @Test
+    void shouldAnswerRepeatedExtensionsFromCache() {
+        when(mockResponse.aiMessage()).thenReturn(AiMessage.from("User likes spicy food and is vegan."));
+        List<ChatMessage> newMessages = List.of(UserMessage.from("I am vegan now"), AiMessage.from("Noted!"));
+
+        String first = summarizer.extend("User likes spicy food.", newMessages);
+        String second = summarizer.extend("User likes spicy food.", List.of(UserMessage.from("I am vegan now"), AiMessage.from("Noted!")));
+        String summarized = summarizer.summarize(List.of(
+                SystemMessage.from(SummarizingTokenWindowChatMemory.SUMMARY_PREFIX + "User likes spicy food."),
+                UserMessage.from("I am vegan now"), AiMessage.from("Noted!")));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(summarized).isEqualTo(first);
+        verify(openAiChatModel, times(1)).chat(any(ChatRequest.class));
+    }
+
+    @Test
+    void shouldCoalesceConcurrentIdenticalExtensions() throws Exception {
+        CountDownLatch modelCalled = new CountDownLatch(1);
+        CountDownLatch releaseModel = new CountDownLatch(1);
+        when(mockResponse.aiMessage()).thenReturn(AiMessage.from("Shared summary"));
+        when(openAiChatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            modelCalled.countDown();
+            releaseModel.await(5, TimeUnit.SECONDS);
+            return mockResponse;
+        });
+        List<ChatMessage> newMessages = List.of(UserMessage.from("Hello"), AiMessage.from("Hi!"));
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> summarizer.extend("Earlier summary", newMessages));
+        assertThat(modelCalled.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> summarizer.extend("Earlier summary", newMessages));
+        Thread.sleep(50); // Give the second caller time to join the in-flight request
+        releaseModel.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Shared summary");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Shared summary");
+        verify(openAiChatModel, times(1)).chat(any(ChatRequest.class));
+    }
+
+    private static ChatResponse response(String text) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(text))
+                .metadata(ChatResponseMetadata.builder().tokenUsage(new TokenUsage(100, 10)).build())
+                .build();
+    }
+}
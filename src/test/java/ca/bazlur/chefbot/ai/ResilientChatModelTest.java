@@ -0,0 +1,322 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ResilientChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder().messages(UserMessage.from("Pasta please")).build();
+    private static final ChatResponse RESPONSE = ChatResponse.builder().aiMessage(AiMessage.from("Carbonara")).build();
+
+    private ChatLanguageModel delegate;
+    private Tokenizer tokenizer;
+    private LockFreeMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ChatLanguageModel.class);
+        tokenizer = mock(Tokenizer.class);
+        when(tokenizer.estimateTokenCountInMessages(anyIterable())).thenReturn(10);
+        metrics = new LockFreeMetrics();
+    }
+
+    private ResilientChatModel.Builder resilientModel() {
+        return ResilientChatModel.builder()
+                .delegate(delegate)
+                .tokenizer(tokenizer)
+                .initialBackoff(Duration.ofMillis(1))
+                .maxBackoff(Duration.ofMillis(5))
+                .metrics(metrics);
+    }
+
+    private static RuntimeException timeout() {
+        return new UncheckedIOException(new SocketTimeoutException("Read timed out"));
+    }
+
+    @Test
+    void shouldRetryTransientFailures() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout()).thenThrow(timeout()).thenReturn(RESPONSE);
+
+        ChatResponse response = resilientModel().build().chat(REQUEST);
+
+        assertThat(response).isSameAs(RESPONSE);
+        verify(delegate, times(3)).chat(REQUEST);
+        assertThat(metrics.count(MetricNames.LLM_RETRIES)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotRetryOtherFailures() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(new IllegalArgumentException("Invalid request"));
+
+        assertThatThrownBy(() -> resilientModel().build().chat(REQUEST)).hasMessage("Invalid request");
+        verify(delegate, times(1)).chat(REQUEST);
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        RuntimeException failure = timeout();
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(failure);
+
+        assertThatThrownBy(() -> resilientModel().maxAttempts(3).build().chat(REQUEST)).isSameAs(failure);
+        verify(delegate, times(3)).chat(REQUEST);
+    }
+
+    @Test
+    void shouldNotBackOffPastDeadline() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout());
+        ResilientChatModel model = resilientModel()
+                .initialBackoff(Duration.ofSeconds(10))
+                .maxBackoff(Duration.ofSeconds(10))
+                .deadline(Duration.ofMillis(100))
+                .retryable(failure -> true)
+                .build();
+
+        // Full jitter may pick a short backoff, so only the deadline bounds the number of attempts
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldShedCallsWhileCircuitIsOpen() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout());
+        ResilientChatModel model = resilientModel().maxAttempts(1).failureThreshold(2).openDuration(Duration.ofMinutes(1)).build();
+
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(ModelUnavailableException.class);
+
+        verify(delegate, times(2)).chat(REQUEST);
+        assertThat(metrics.count(MetricNames.LLM_SHED)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShedWithoutWaitingForRateLimitWhileCircuitIsOpen() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout());
+        ResilientChatModel model = resilientModel()
+                .maxAttempts(1)
+                .failureThreshold(1)
+                .openDuration(Duration.ofMinutes(1))
+                .requestsPerMinute(1)
+                .deadline(Duration.ofMinutes(2))
+                .build();
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+
+        // The request bucket is empty for a minute, but the open breaker refuses the call first
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> model.chat(REQUEST))
+                .isInstanceOf(ModelUnavailableException.class)
+                .hasMessageContaining("failing");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(metrics.histogram(MetricNames.LLM_THROTTLE_LATENCY).count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLetProbeThroughAfterOpenDuration() throws InterruptedException {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout()).thenReturn(RESPONSE);
+        ResilientChatModel model = resilientModel().maxAttempts(1).failureThreshold(1).openDuration(Duration.ofMillis(50)).build();
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+
+        Thread.sleep(60);
+
+        assertThat(model.chat(REQUEST)).isSameAs(RESPONSE);
+        assertThat(model.chat(REQUEST)).isSameAs(RESPONSE);
+    }
+
+    @Test
+    void shouldReleaseProbeThatFailsWithError() throws InterruptedException {
+        when(delegate.chat(any(ChatRequest.class)))
+                .thenThrow(timeout())
+                .thenThrow(new AssertionError("Unexpected request"))
+                .thenReturn(RESPONSE);
+        ResilientChatModel model = resilientModel().maxAttempts(1).failureThreshold(1).openDuration(Duration.ofMillis(50)).build();
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+
+        Thread.sleep(60);
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(AssertionError.class);
+        // The failed probe reopened the breaker instead of leaving it claimed for good
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(ModelUnavailableException.class);
+
+        Thread.sleep(60);
+        assertThat(model.chat(REQUEST)).isSameAs(RESPONSE);
+    }
+
+    @Test
+    void shouldFailFastWhenRateLimitWouldMissDeadline() {
+        when(delegate.chat(any(ChatRequest.class))).thenReturn(RESPONSE);
+        ResilientChatModel model = resilientModel().requestsPerMinute(1).deadline(Duration.ofMillis(100)).build();
+
+        model.chat(REQUEST);
+
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(ModelUnavailableException.class);
+        verify(delegate, times(1)).chat(REQUEST);
+    }
+
+    @Test
+    void shouldChargeEstimatedTokensAgainstTokenLimit() {
+        when(tokenizer.estimateTokenCountInMessages(anyIterable())).thenReturn(600);
+        ResilientChatModel model = resilientModel()
+                .tokensPerMinute(1_000)
+                .expectedOutputTokens(100)
+                .deadline(Duration.ofMillis(100))
+                .build();
+        when(delegate.chat(any(ChatRequest.class))).thenReturn(RESPONSE);
+
+        model.chat(REQUEST);
+
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(ModelUnavailableException.class);
+        verify(delegate, times(1)).chat(REQUEST);
+    }
+
+    @Test
+    void shouldTreatOverloadStatusesAsTransient() {
+        assertThat(ResilientChatModel.isTransient(new HttpException(429, "Rate limit reached"))).isTrue();
+        assertThat(ResilientChatModel.isTransient(new RuntimeException(new HttpException(503, "Overloaded")))).isTrue();
+        assertThat(ResilientChatModel.isTransient(new OpenAiHttpException(502, "Bad gateway"))).isTrue();
+        assertThat(ResilientChatModel.isTransient(new HttpException(400, "Bad request"))).isFalse();
+        assertThat(ResilientChatModel.isTransient(new OpenAiHttpException(401, "Invalid API key"))).isFalse();
+        assertThat(ResilientChatModel.isTransient(new IllegalStateException("No choices"))).isFalse();
+    }
+
+    @Test
+    void shouldRetryRateLimitedResponsesFromServer() throws Exception {
+        try (StubOpenAiServer server = new StubOpenAiServer(Duration.ZERO)) {
+            server.failNext(2, 429);
+            ResilientChatModel model = ResilientChatModel.builder()
+                    .delegate(OpenAiChatModel.builder()
+                            .baseUrl(server.baseUrl())
+                            .apiKey("test-key")
+                            .modelName("gpt-4o-mini")
+                            .maxRetries(1)
+                            .build())
+                    .tokenizer(new OpenAiTokenizer("gpt-4o-mini"))
+                    .initialBackoff(Duration.ofMillis(1))
+                    .build();
+
+            assertThat(model.chat(REQUEST).aiMessage().text()).isEqualTo("Stub reply");
+            assertThat(server.requests()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void shouldRetryStreamedCallThatFailsBeforeReplying() throws Exception {
+        StreamingChatLanguageModel streamingDelegate = mock(StreamingChatLanguageModel.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, StreamingChatResponseHandler.class).onError(timeout());
+            return null;
+        }).doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1, StreamingChatResponseHandler.class);
+            handler.onPartialResponse("Carbo");
+            handler.onPartialResponse("nara");
+            handler.onCompleteResponse(RESPONSE);
+            return null;
+        }).when(streamingDelegate).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+        RecordingHandler handler = new RecordingHandler();
+
+        resilientModel().build().streaming(streamingDelegate).chat(REQUEST, handler);
+
+        assertThat(handler.response.get(5, TimeUnit.SECONDS)).isSameAs(RESPONSE);
+        assertThat(handler.partials).hasToString("Carbonara");
+        verify(streamingDelegate, times(2)).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+        assertThat(metrics.count(MetricNames.LLM_RETRIES)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetryStreamedCallOnceReplyWasSentOn() {
+        StreamingChatLanguageModel streamingDelegate = mock(StreamingChatLanguageModel.class);
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1, StreamingChatResponseHandler.class);
+            handler.onPartialResponse("Carbo");
+            handler.onError(timeout());
+            return null;
+        }).when(streamingDelegate).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+        RecordingHandler handler = new RecordingHandler();
+
+        resilientModel().build().streaming(streamingDelegate).chat(REQUEST, handler);
+
+        assertThat(handler.response).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(UncheckedIOException.class);
+        verify(streamingDelegate, times(1)).chat(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+    }
+
+    @Test
+    void shouldShedStreamedCallsWhileBlockingCallsKeepCircuitOpen() {
+        when(delegate.chat(any(ChatRequest.class))).thenThrow(timeout());
+        StreamingChatLanguageModel streamingDelegate = mock(StreamingChatLanguageModel.class);
+        ResilientChatModel model = resilientModel().maxAttempts(1).failureThreshold(1).openDuration(Duration.ofMinutes(1)).build();
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(UncheckedIOException.class);
+        RecordingHandler handler = new RecordingHandler();
+
+        model.streaming(streamingDelegate).chat(REQUEST, handler);
+
+        assertThat(handler.response).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ModelUnavailableException.class);
+        verifyNoInteractions(streamingDelegate);
+    }
+
+    @Test
+    void shouldChargeStreamedCallsAgainstSharedRequestLimit() {
+        when(delegate.chat(any(ChatRequest.class))).thenReturn(RESPONSE);
+        StreamingChatLanguageModel streamingDelegate = mock(StreamingChatLanguageModel.class);
+        ResilientChatModel model = resilientModel().requestsPerMinute(1).deadline(Duration.ofMillis(100)).build();
+        RecordingHandler handler = new RecordingHandler();
+        model.streaming(streamingDelegate).chat(REQUEST, handler);
+
+        assertThatThrownBy(() -> model.chat(REQUEST)).isInstanceOf(ModelUnavailableException.class);
+        verifyNoInteractions(delegate);
+    }
+
+    private static final class RecordingHandler implements StreamingChatResponseHandler {
+        private final StringBuilder partials = new StringBuilder();
+        private final CompletableFuture<ChatResponse> response = new CompletableFuture<>();
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            partials.append(partialResponse);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            response.complete(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            response.completeExceptionally(error);
+        }
+    }
+}
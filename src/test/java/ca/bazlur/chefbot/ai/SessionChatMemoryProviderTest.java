@@ -0,0 +1,117 @@
+package ca.bazlur.chefbot.ai;
+
+import dev.langchain4j.memory.ChatMemory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionChatMemoryProviderTest {
+
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+    }
+
+    private SessionChatMemoryProvider createProvider(int maxSessions) {
+        return SessionChatMemoryProvider.builder()
+                .memoryFactory(sessionId -> mock(ChatMemory.class))
+                .maxSessions(maxSessions)
+                .idleTimeout(Duration.ofMinutes(10))
+                .clock(clock)
+                .build();
+    }
+
+    @Test
+    void shouldCreateMemoryLazilyAndReuseItPerSession() {
+        SessionChatMemoryProvider provider = createProvider(10);
+
+        ChatMemory alice = provider.get("alice");
+        ChatMemory bob = provider.get("bob");
+
+        assertThat(provider.get("alice")).isSameAs(alice);
+        assertThat(bob).isNotSameAs(alice);
+        assertThat(provider.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedSessionWhenFull() {
+        SessionChatMemoryProvider provider = createProvider(2);
+
+        ChatMemory alice = provider.get("alice");
+        ChatMemory bob = provider.get("bob");
+        provider.get("alice");
+        provider.get("carol");
+
+        assertThat(provider.size()).isEqualTo(2);
+        verify(bob).clear();
+        verify(alice, never()).clear();
+        assertThat(provider.get("bob")).isNotSameAs(bob);
+    }
+
+    @Test
+    void shouldEvictIdleSessionsAfterTimeout() {
+        SessionChatMemoryProvider provider = createProvider(10);
+
+        ChatMemory alice = provider.get("alice");
+        when(clock.millis()).thenReturn(Duration.ofMinutes(5).toMillis());
+        ChatMemory bob = provider.get("bob");
+
+        when(clock.millis()).thenReturn(Duration.ofMinutes(12).toMillis());
+        provider.get("carol");
+
+        verify(alice).clear();
+        verify(bob, never()).clear();
+        assertThat(provider.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldClearEvictedSessionsOutsideTheLock() throws Exception {
+        ChatMemory alice = mock(ChatMemory.class);
+        SessionChatMemoryProvider provider = SessionChatMemoryProvider.builder()
+                .memoryFactory(sessionId -> "alice".equals(sessionId) ? alice : mock(ChatMemory.class))
+                .maxSessions(1)
+                .clock(clock)
+                .build();
+        provider.get("alice");
+
+        // A slow clear must not hold up lookups of other sessions
+        AtomicBoolean othersServed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Thread lookup = Thread.ofVirtual().start(() -> provider.get("carol"));
+            othersServed.set(lookup.join(Duration.ofSeconds(5)));
+            return null;
+        }).when(alice).clear();
+        provider.get("bob");
+
+        assertThat(othersServed).isTrue();
+    }
+
+    @Test
+    void shouldKeepStoredMessagesWhenClearOnEvictionIsDisabled() {
+        SessionChatMemoryProvider provider = SessionChatMemoryProvider.builder()
+                .memoryFactory(sessionId -> mock(ChatMemory.class))
+                .maxSessions(1)
+                .clearOnEviction(false)
+                .clock(clock)
+                .build();
+
+        ChatMemory alice = provider.get("alice");
+        provider.get("bob");
+
+        verify(alice, never()).clear();
+        assertThat(provider.size()).isEqualTo(1);
+    }
+}
@@ -1,5 +1,8 @@
 package ca.bazlur.chefbot.ai;
 
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.store.InMemoryVersionedChatMemoryStore;
 import dev.langchain4j.data.message.*;
 import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
@@ -8,12 +11,26 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 class SummarizingTokenWindowChatMemoryTest {
 
@@ -29,13 +46,11 @@ class SummarizingTokenWindowChatMemoryTest {
         tokenizer = mock(Tokenizer.class);
         store = new InMemoryChatMemoryStore();
 
-        // Default mock behavior: each message => 1 token.
-        // Summaries => 1 token, etc. Adjust this as needed.
+        // Default mock behavior: each message => 10 tokens, summaries included.
+        // The memory tokenizes every message once, so per-message estimates drive the window.
+        when(tokenizer.estimateTokenCountInMessage(any(ChatMessage.class))).thenReturn(10);
         when(tokenizer.estimateTokenCountInMessages(Mockito.anyList())).thenAnswer(invocation -> {
             List<ChatMessage> messages = invocation.getArgument(0);
-            // Let's assume each message is 10 tokens for test simplicity,
-            // or each message is 1 token to simplify even further.
-            // We'll use 10 tokens here to show some variety:
             return messages.size() * 10;
         });
 
@@ -83,6 +98,47 @@ class SummarizingTokenWindowChatMemoryTest {
             assertThat(messages.getFirst()).isEqualTo(newSystemMessage);
         }
 
+        @Test
+        void shouldKeepReplacedSystemMessageAheadOfConversation() {
+            SummarizingTokenWindowChatMemory memory = createMemory();
+            memory.add(SystemMessage.from("Old System Message"));
+            memory.add(UserMessage.from("I'm vegan"));
+            memory.add(AiMessage.from("Noted!"));
+
+            SystemMessage newSystemMessage = SystemMessage.from("New System Message");
+            memory.add(newSystemMessage);
+
+            assertThat(memory.messages()).containsExactly(newSystemMessage, UserMessage.from("I'm vegan"), AiMessage.from("Noted!"));
+        }
+
+        @Test
+        void shouldInsertSystemMessageAheadOfExistingHistory() {
+            SummarizingTokenWindowChatMemory memory = createMemory();
+            memory.add(UserMessage.from("I'm vegan"));
+            memory.add(AiMessage.from("Noted!"));
+
+            SystemMessage systemMessage = SystemMessage.from("System Message");
+            memory.add(systemMessage);
+
+            assertThat(memory.messages()).containsExactly(systemMessage, UserMessage.from("I'm vegan"), AiMessage.from("Noted!"));
+        }
+
+        @Test
+        void shouldNotMistakeSummaryForSystemMessage() {
+            SummarizingTokenWindowChatMemory memory = createMemory();
+            for (int i = 0; i < 11; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            SystemMessage systemMessage = SystemMessage.from("System Message");
+            memory.add(systemMessage);
+
+            assertThat(memory.messages()).containsExactly(
+                    systemMessage,
+                    SystemMessage.from("Previous conversation summary: This is a mock summary."),
+                    UserMessage.from("User message 10"));
+        }
+
         @Test
         void shouldIgnoreAddingSameSystemMessage() {
             SummarizingTokenWindowChatMemory memory = createMemory();
@@ -159,6 +215,210 @@ class SummarizingTokenWindowChatMemoryTest {
             assertThat(getMessageContent(second)).isEqualTo("User message 10");
         }
 
+        @Test
+        void shouldRecordSummarizationAndTokenizationMetrics() {
+            LockFreeMetrics metrics = new LockFreeMetrics();
+            SummarizingTokenWindowChatMemory memory = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .metrics(metrics)
+                    .build();
+
+            for (int i = 0; i < 11; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            assertThat(metrics.count(MetricNames.SUMMARIZATIONS)).isEqualTo(1);
+            assertThat(metrics.histogram(MetricNames.SUMMARIZATION_LATENCY).count()).isEqualTo(1);
+            // 11 messages plus the summary that replaced ten of them
+            assertThat(metrics.histogram(MetricNames.TOKENIZATION_LATENCY).count()).isEqualTo(12);
+            assertThat(metrics.histogram(MetricNames.MEMORY_LOAD_LATENCY).count()).isEqualTo(1);
+        }
+
+        @Test
+        void shouldAppendSummaryBlocksAfterPreviousOnesSummarizingOnlyNewerMessages() {
+            when(summarizer.summarize(anyList())).thenReturn("First summary.", "Second summary.");
+            SummarizingTokenWindowChatMemory memory = createMemory();
+            memory.add(SystemMessage.from("System message"));
+
+            // 1 system + 10 user messages => 110 tokens, summarizing users 0..8
+            for (int i = 0; i < 10; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+            List<ChatMessage> prefix = memory.messages().subList(0, 2);
+
+            // system + summary + "User message 9" => 30 tokens; 8 more messages overflow again
+            for (int i = 10; i < 18; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            List<ChatMessage> expectedNewMessages = new ArrayList<>();
+            for (int i = 9; i < 17; i++) {
+                expectedNewMessages.add(UserMessage.from("User message " + i));
+            }
+            verify(summarizer, times(2)).summarize(anyList());
+            verify(summarizer).summarize(expectedNewMessages);
+            verify(summarizer, never()).extend(anyString(), anyList());
+
+            // The system prompt and the first summary are left untouched, so the prompt prefix stays cached
+            List<ChatMessage> messages = memory.messages();
+            assertThat(messages.subList(0, 2)).isEqualTo(prefix);
+            assertThat(messages).containsExactly(
+                    SystemMessage.from("System message"),
+                    SystemMessage.from("Previous conversation summary: First summary."),
+                    SystemMessage.from("Previous conversation summary: Second summary."),
+                    UserMessage.from("User message 17"));
+        }
+
+        @Test
+        void shouldTruncateTurnsBeforeSummaryBlocks() {
+            LockFreeMetrics metrics = new LockFreeMetrics();
+            SummarizingTokenWindowChatMemory memory = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .metrics(metrics)
+                    .build();
+            memory.add(SystemMessage.from("System message"));
+            for (int i = 0; i < 10; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            // The next turn alone takes most of the window: the older turn goes, the summary stays
+            when(tokenizer.estimateTokenCountInMessage(any(ChatMessage.class))).thenReturn(75);
+            memory.add(UserMessage.from("A very long message"));
+
+            assertThat(memory.messages()).containsExactly(
+                    SystemMessage.from("System message"),
+                    SystemMessage.from("Previous conversation summary: This is a mock summary."),
+                    UserMessage.from("A very long message"));
+            assertThat(metrics.count(MetricNames.MEMORY_PREFIX_REWRITES)).isZero();
+
+            // Replacing the system prompt is the only way the cached prefix changes here
+            memory.add(SystemMessage.from("New system message"));
+            assertThat(metrics.count(MetricNames.MEMORY_PREFIX_REWRITES)).isEqualTo(1);
+        }
+
+        @Test
+        void shouldKeepRecentTurnsVerbatimWithinTheirBudget() {
+            SummarizingTokenWindowChatMemory memory = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .recentTokens(30)
+                    .build();
+
+            for (int i = 0; i < 11; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            // The three newest messages fit in 30 tokens and stay as they are; the rest are summarized
+            List<ChatMessage> summarized = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                summarized.add(UserMessage.from("User message " + i));
+            }
+            verify(summarizer).summarize(summarized);
+            assertThat(memory.messages()).containsExactly(
+                    SystemMessage.from("Previous conversation summary: This is a mock summary."),
+                    UserMessage.from("User message 8"),
+                    UserMessage.from("User message 9"),
+                    UserMessage.from("User message 10"));
+        }
+
+        @Test
+        void shouldMergeChunkSummariesIntoEpochSummaryOnceOverBudget() {
+            when(summarizer.summarize(anyList()))
+                    .thenReturn("First summary.", "Second summary.", "Epoch one.", "Third summary.", "Fourth summary.");
+            when(summarizer.extend(anyString(), anyList())).thenReturn("Epoch two.");
+            LockFreeMetrics metrics = new LockFreeMetrics();
+            SummarizingTokenWindowChatMemory memory = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .chunkSummaryTokens(15)
+                    .metrics(metrics)
+                    .build();
+            memory.add(SystemMessage.from("System message"));
+
+            // Two chunk summaries take 20 tokens, over their budget of 15, so they are merged into the epoch summary
+            for (int i = 0; i < 18; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+            verify(summarizer).summarize(List.of(
+                    SystemMessage.from("Previous conversation summary: First summary."),
+                    SystemMessage.from("Previous conversation summary: Second summary.")));
+            assertThat(memory.messages()).containsExactly(
+                    SystemMessage.from("System message"),
+                    SystemMessage.from("Summary of the earliest part of the conversation: Epoch one."),
+                    UserMessage.from("User message 17"));
+
+            // The next two chunk summaries extend the epoch summary rather than adding a second one
+            for (int i = 18; i < 33; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+            verify(summarizer).extend("Epoch one.", List.of(
+                    SystemMessage.from("Previous conversation summary: Third summary."),
+                    SystemMessage.from("Previous conversation summary: Fourth summary.")));
+            assertThat(memory.messages()).containsExactly(
+                    SystemMessage.from("System message"),
+                    SystemMessage.from("Summary of the earliest part of the conversation: Epoch two."),
+                    UserMessage.from("User message 32"));
+            assertThat(metrics.count(MetricNames.SUMMARY_MERGES)).isEqualTo(4);
+            assertThat(metrics.count(MetricNames.MEMORY_PREFIX_REWRITES)).isEqualTo(2);
+        }
+
+        @Test
+        void shouldCondenseEpochSummaryOverItsBudget() {
+            when(summarizer.summarize(anyList())).thenReturn("First summary.", "Second summary.", "Long epoch.", "Epoch.");
+            when(tokenizer.estimateTokenCountInText(anyString())).thenReturn(40);
+            SummarizingTokenWindowChatMemory memory = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .chunkSummaryTokens(15)
+                    .epochSummaryTokens(25)
+                    .build();
+            memory.add(SystemMessage.from("System message"));
+
+            for (int i = 0; i < 18; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            verify(summarizer).summarize(
+                    List.of(SystemMessage.from("Summary of the earliest part of the conversation: Long epoch.")));
+            assertThat(memory.messages()).containsExactly(
+                    SystemMessage.from("System message"),
+                    SystemMessage.from("Summary of the earliest part of the conversation: Epoch."),
+                    UserMessage.from("User message 17"));
+        }
+
+        @Test
+        void shouldRejectBudgetsLeavingNoRoomForTurnsBesideSystemPrompt() {
+            SummarizingTokenWindowChatMemory.Builder builder = SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .recentTokens(30);
+            assertThat(builder.build()).isNotNull();
+
+            // A 40-token system prompt leaves 60 tokens; 30 recent plus two default budgets of 15 fill more than 48 of them
+            builder.systemPromptTokens(40);
+            assertThatThrownBy(builder::build)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("for new turns");
+
+            assertThat(builder.recentTokens(15).build()).isNotNull();
+            assertThatThrownBy(() -> builder.systemPromptTokens(MAX_TOKENS).build())
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
         @Test
         void shouldRemoveOldestMessagesIfTooFewToSummarize() {
             SummarizingTokenWindowChatMemory memory = createMemory();
@@ -166,7 +426,7 @@ class SummarizingTokenWindowChatMemoryTest {
             // We'll add just 2 messages, then each is 10 tokens => 20 tokens total
             // Now add a new message that pushes us over 100 tokens artificially:
             // Let's tweak the tokenizer mock to force an overflow scenario even with minimal messages.
-            when(tokenizer.estimateTokenCountInMessages(Mockito.anyList())).thenReturn(120);
+            when(tokenizer.estimateTokenCountInMessage(any(ChatMessage.class))).thenReturn(120);
 
             memory.add(UserMessage.from("First message"));
             memory.add(AiMessage.from("Second message"));
@@ -188,13 +448,13 @@ class SummarizingTokenWindowChatMemoryTest {
 
         @Test
         void shouldAlsoPreserveSystemMessageDuringRemovalIfAny() {
+            // Force the capacity check to fail
+            when(tokenizer.estimateTokenCountInMessage(any(ChatMessage.class))).thenReturn(120);
+
             SummarizingTokenWindowChatMemory memory = createMemory();
             memory.add(SystemMessage.from("System message"));
             memory.add(UserMessage.from("User message"));
 
-            // Force the capacity check to fail
-            when(tokenizer.estimateTokenCountInMessages(Mockito.anyList())).thenReturn(120);
-
             // Trigger summarization logic
             List<ChatMessage> messages = memory.messages();
 
@@ -205,6 +465,278 @@ class SummarizingTokenWindowChatMemoryTest {
         }
     }
 
+    @Nested
+    class TokenAccountingTests {
+
+        @Test
+        void shouldTokenizeEachMessageOnlyOnce() {
+            SummarizingTokenWindowChatMemory memory = createMemory();
+
+            for (int i = 0; i < 5; i++) {
+                memory.add(UserMessage.from("User message " + i));
+                memory.messages();
+            }
+
+            verify(tokenizer, times(5)).estimateTokenCountInMessage(any(ChatMessage.class));
+            assertThat(memory.tokenCount()).isEqualTo(50);
+        }
+
+        @Test
+        void shouldTokenizeOnlyTheSummaryWhenCompacting() {
+            SummarizingTokenWindowChatMemory memory = createMemory();
+
+            for (int i = 0; i < 11; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            // 11 user messages plus the inserted summary
+            verify(tokenizer, times(12)).estimateTokenCountInMessage(any(ChatMessage.class));
+            assertThat(memory.tokenCount()).isEqualTo(20);
+        }
+
+        @Test
+        void shouldLoadExistingMessagesFromStoreOnce() {
+            store.updateMessages("test-session", List.of(
+                    UserMessage.from("Hello"),
+                    AiMessage.from("Hi there")
+            ));
+            SummarizingTokenWindowChatMemory memory = createMemory();
+
+            memory.messages();
+            memory.messages();
+
+            verify(tokenizer, times(2)).estimateTokenCountInMessage(any(ChatMessage.class));
+            assertThat(memory.tokenCount()).isEqualTo(20);
+        }
+    }
+
+    @Nested
+    class AsyncSummarizationTests {
+
+        private final List<Runnable> pendingTasks = new ArrayList<>();
+
+        private SummarizingTokenWindowChatMemory createAsyncMemory() {
+            return SummarizingTokenWindowChatMemory.builder()
+                    .id("test-session")
+                    .maxTokens(MAX_TOKENS, tokenizer)
+                    .chatMemoryStore(store)
+                    .summarizer(summarizer)
+                    .asyncSummarization(pendingTasks::add, 0.7)
+                    .build();
+        }
+
+        private void runPendingTasks() {
+            List<Runnable> tasks = new ArrayList<>(pendingTasks);
+            pendingTasks.clear();
+            tasks.forEach(Runnable::run);
+        }
+
+        @Test
+        void shouldStartSummarizationInBackgroundAfterSoftLimit() {
+            SummarizingTokenWindowChatMemory memory = createAsyncMemory();
+
+            // 7 messages => 70 tokens, still at the soft limit
+            for (int i = 0; i < 7; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+            assertThat(pendingTasks).isEmpty();
+
+            memory.add(UserMessage.from("User message 7"));
+
+            assertThat(pendingTasks).hasSize(1);
+            verify(summarizer, times(0)).summarize(anyList());
+            assertThat(memory.messages()).hasSize(8);
+        }
+
+        @Test
+        void shouldNotStartSecondSummarizationForSessionFromAnotherMemory() {
+            SummarizingTokenWindowChatMemory evicted = createAsyncMemory();
+            for (int i = 0; i < 8; i++) {
+                evicted.add(UserMessage.from("User message " + i));
+            }
+            assertThat(pendingTasks).hasSize(1);
+
+            // A memory created for the same session while the evicted one is still summarizing
+            SummarizingTokenWindowChatMemory replacement = createAsyncMemory();
+            replacement.add(UserMessage.from("User message 8"));
+            assertThat(pendingTasks).hasSize(1);
+
+            runPendingTasks();
+            verify(summarizer, times(1)).summarize(anyList());
+
+            replacement.add(UserMessage.from("User message 9"));
+            assertThat(pendingTasks).hasSize(1);
+        }
+
+        @Test
+        void shouldTruncateWhileSummaryIsInFlightAndSwapItInWhenDone() {
+            SummarizingTokenWindowChatMemory memory = createAsyncMemory();
+
+            for (int i = 0; i < 11; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            // Only one summarization in flight, the hard limit is enforced by dropping the oldest message
+            assertThat(pendingTasks).hasSize(1);
+            List<ChatMessage> truncated = memory.messages();
+            assertThat(truncated).hasSize(10);
+            assertThat(getContentOfFirstMessage(truncated)).isEqualTo("User message 1");
+
+            runPendingTasks();
+
+            // Messages 0..6 were summarized, 7..10 are kept verbatim
+            List<ChatMessage> messages = memory.messages();
+            assertThat(messages).hasSize(5);
+            assertThat(getContentOfFirstMessage(messages)).isEqualTo("Previous conversation summary: This is a mock summary.");
+            assertThat(getMessageContent(messages.get(1))).isEqualTo("User message 7");
+            assertThat(store.getMessages("test-session")).isEqualTo(messages);
+        }
+
+        @Test
+        void shouldDiscardSummaryWhenMemoryWasCleared() {
+            SummarizingTokenWindowChatMemory memory = createAsyncMemory();
+            for (int i = 0; i < 8; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            memory.clear();
+            runPendingTasks();
+
+            assertThat(memory.messages()).isEmpty();
+        }
+
+        @Test
+        void shouldKeepTruncatedWindowWhenSummarizationFails() {
+            when(summarizer.summarize(anyList())).thenThrow(new RuntimeException("API Error"));
+            SummarizingTokenWindowChatMemory memory = createAsyncMemory();
+            for (int i = 0; i < 8; i++) {
+                memory.add(UserMessage.from("User message " + i));
+            }
+
+            runPendingTasks();
+
+            assertThat(memory.messages()).hasSize(8);
+        }
+    }
+
+    @Nested
+    class ConcurrencyTests {
+
+        private static final int THREADS = 8;
+        private static final int ADDS_PER_THREAD = 200;
+
+        private final InMemoryVersionedChatMemoryStore versionedStore = new InMemoryVersionedChatMemoryStore();
+        // Memories re-read the session after every conflict, far too many calls for a mock to record
+        private final Tokenizer stubTokenizer = mock(Tokenizer.class, withSettings().stubOnly());
+
+        @BeforeEach
+        void setUpTokenizer() {
+            when(stubTokenizer.estimateTokenCountInMessage(any(ChatMessage.class))).thenReturn(10);
+        }
+
+        private SummarizingTokenWindowChatMemory createVersionedMemory(Object id) {
+            return SummarizingTokenWindowChatMemory.builder()
+                    .id(id)
+                    .maxTokens(Integer.MAX_VALUE / 2, stubTokenizer)
+                    .chatMemoryStore(versionedStore)
+                    .summarizer(summarizer)
+                    .build();
+        }
+
+        private void runConcurrently(IntConsumer task) throws Exception {
+            CountDownLatch start = new CountDownLatch(1);
+            try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        task.accept(thread);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            }
+        }
+
+        @Test
+        void shouldSeeMessagesStoredByAnotherMemoryOfSameSession() {
+            SummarizingTokenWindowChatMemory first = createVersionedMemory("test-session");
+            SummarizingTokenWindowChatMemory second = createVersionedMemory("test-session");
+
+            first.add(UserMessage.from("I'm vegan"));
+            second.add(AiMessage.from("Noted!"));
+            first.add(UserMessage.from("Something with lentils"));
+
+            assertThat(second.messages()).containsExactly(
+                    UserMessage.from("I'm vegan"), AiMessage.from("Noted!"), UserMessage.from("Something with lentils"));
+        }
+
+        @Test
+        void shouldNotLoseUpdatesFromConcurrentMemoriesOfSameSession() throws Exception {
+            // Every thread has its own memory of the session, as when a session is evicted mid-turn
+            runConcurrently(thread -> {
+                SummarizingTokenWindowChatMemory memory = createVersionedMemory("test-session");
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    memory.add(UserMessage.from("thread " + thread + " message " + i));
+                }
+            });
+
+            assertAllMessagesInOrder(createVersionedMemory("test-session").messages());
+        }
+
+        @Test
+        void shouldNotLoseUpdatesFromConcurrentTurnsOnSharedMemory() throws Exception {
+            SummarizingTokenWindowChatMemory memory = createVersionedMemory("test-session");
+
+            runConcurrently(thread -> {
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    memory.add(UserMessage.from("thread " + thread + " message " + i));
+                    memory.messages();
+                }
+            });
+
+            assertAllMessagesInOrder(memory.messages());
+            assertThat(versionedStore.getMessages("test-session")).isEqualTo(memory.messages());
+        }
+
+        @Test
+        void shouldKeepConcurrentSessionsApart() throws Exception {
+            runConcurrently(thread -> {
+                SummarizingTokenWindowChatMemory memory = createVersionedMemory("session-" + thread);
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    memory.add(UserMessage.from("thread " + thread + " message " + i));
+                }
+            });
+
+            for (int t = 0; t < THREADS; t++) {
+                List<String> expected = new ArrayList<>();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    expected.add("thread " + t + " message " + i);
+                }
+                List<String> stored = createVersionedMemory("session-" + t).messages().stream()
+                        .map(SummarizingTokenWindowChatMemoryTest.this::getMessageContent)
+                        .toList();
+                assertThat(stored).containsExactlyElementsOf(expected);
+            }
+        }
+
+        // Each thread's messages are all present, in the order that thread added them
+        private void assertAllMessagesInOrder(List<ChatMessage> messages) {
+            assertThat(messages).hasSize(THREADS * ADDS_PER_THREAD);
+            int[] next = new int[THREADS];
+            for (ChatMessage message : messages) {
+                String[] words = getMessageContent(message).split(" ");
+                int thread = Integer.parseInt(words[1]);
+                assertThat(Integer.parseInt(words[3])).isEqualTo(next[thread]);
+                next[thread]++;
+            }
+        }
+    }
+
     private String getContentOfFirstMessage(List<ChatMessage> messages) {
         ChatMessage first = messages.getFirst();
         return getMessageContent(first);
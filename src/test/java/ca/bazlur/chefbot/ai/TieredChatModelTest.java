@@ -0,0 +1,135 @@
+package ca.bazlur.chefbot.ai;
+
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TieredChatModelTest {
+
+    private static final SystemMessage SYSTEM = SystemMessage.from("You are RecipeBot");
+
+    @Test
+    void shouldRouteEachCallToItsTier() {
+        ChatLanguageModel conversationModel = mock(ChatLanguageModel.class);
+        ChatLanguageModel recipeModel = mock(ChatLanguageModel.class);
+        ChatResponse smallTalk = ChatResponse.builder().aiMessage(AiMessage.from("You're welcome!")).build();
+        ChatResponse recipe = ChatResponse.builder().aiMessage(AiMessage.from("{\"type\": \"recipe\"}")).build();
+        when(conversationModel.chat(any(ChatRequest.class))).thenReturn(smallTalk);
+        when(recipeModel.chat(any(ChatRequest.class))).thenReturn(recipe);
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        TieredChatModel model = TieredChatModel.builder()
+                .conversationModel(conversationModel)
+                .recipeModel(recipeModel)
+                .metrics(metrics)
+                .build();
+
+        ChatRequest thanks = ChatRequest.builder().messages(SYSTEM, UserMessage.from("Thanks a lot!")).build();
+        ChatRequest dinner = ChatRequest.builder().messages(SYSTEM, UserMessage.from("What should I cook for dinner?")).build();
+
+        assertThat(model.chat(thanks)).isSameAs(smallTalk);
+        assertThat(model.chat(dinner)).isSameAs(recipe);
+        verify(recipeModel, never()).chat(thanks);
+        verify(conversationModel, never()).chat(dinner);
+        assertThat(metrics.count(MetricNames.CONVERSATION_TIER_CALLS)).isEqualTo(1);
+        assertThat(metrics.count(MetricNames.RECIPE_TIER_CALLS)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRouteEachStreamedCallToItsTier() {
+        StreamingChatLanguageModel conversationModel = mock(StreamingChatLanguageModel.class);
+        StreamingChatLanguageModel recipeModel = mock(StreamingChatLanguageModel.class);
+        StreamingChatResponseHandler handler = mock(StreamingChatResponseHandler.class);
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        StreamingChatLanguageModel model = TieredChatModel.builder()
+                .conversationModel(mock(ChatLanguageModel.class))
+                .recipeModel(mock(ChatLanguageModel.class))
+                .metrics(metrics)
+                .build()
+                .streaming(conversationModel, recipeModel);
+
+        ChatRequest thanks = ChatRequest.builder().messages(SYSTEM, UserMessage.from("Thanks a lot!")).build();
+        ChatRequest dinner = ChatRequest.builder().messages(SYSTEM, UserMessage.from("What should I cook for dinner?")).build();
+        model.chat(thanks, handler);
+        model.chat(dinner, handler);
+
+        verify(conversationModel).chat(thanks, handler);
+        verify(recipeModel).chat(dinner, handler);
+        verify(conversationModel, never()).chat(dinner, handler);
+        verify(recipeModel, never()).chat(thanks, handler);
+        assertThat(metrics.count(MetricNames.CONVERSATION_TIER_CALLS)).isEqualTo(1);
+        assertThat(metrics.count(MetricNames.RECIPE_TIER_CALLS)).isEqualTo(1);
+    }
+
+    @Nested
+    class Classifier {
+
+        private final TierClassifier classifier = new TierClassifier();
+
+        private ModelTier classify(ChatMessage... messages) {
+            return classifier.classify(List.of(messages));
+        }
+
+        @Test
+        void shouldSendSmallTalkToConversationTier() {
+            AiMessage reply = AiMessage.from("Here is a recipe");
+            assertThat(classify(SYSTEM, UserMessage.from("Hello!"))).isEqualTo(ModelTier.CONVERSATION);
+            assertThat(classify(SYSTEM, UserMessage.from("hi"), reply, UserMessage.from("Thank you, bye"))).isEqualTo(ModelTier.CONVERSATION);
+            assertThat(classify(SYSTEM, UserMessage.from("Who are you?"))).isEqualTo(ModelTier.CONVERSATION);
+        }
+
+        @Test
+        void shouldSendOpeningSmallTalkToConversationTier() {
+            assertThat(classify(SYSTEM, UserMessage.from("Hi there!"))).isEqualTo(ModelTier.CONVERSATION);
+            assertThat(classify(SYSTEM, UserMessage.from("Hey chef, how are you?"))).isEqualTo(ModelTier.CONVERSATION);
+        }
+
+        @Test
+        void shouldSendOpeningRequestsToRecipeTier() {
+            assertThat(classify(SYSTEM, UserMessage.from("Vegan lasagna please"))).isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, UserMessage.from("chicken tikka masala"))).isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, UserMessage.from("I'm vegan and love Thai"))).isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, UserMessage.from("Hello, I need some dinner ideas."))).isEqualTo(ModelTier.RECIPE);
+        }
+
+        @Test
+        void shouldLetFoodOutweighGreetings() {
+            AiMessage reply = AiMessage.from("Here is a recipe");
+            assertThat(classify(SYSTEM, UserMessage.from("I'm vegan"), reply, UserMessage.from("hey, something with chicken?")))
+                    .isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, UserMessage.from("Thanks! Now a curry"))).isEqualTo(ModelTier.RECIPE);
+        }
+
+        @Test
+        void shouldSendFoodRequestsToRecipeTier() {
+            assertThat(classify(SYSTEM, UserMessage.from("Hi! Can you suggest a quick pasta dish?"))).isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, UserMessage.from("Give me a recipe"))).isEqualTo(ModelTier.RECIPE);
+        }
+
+        @Test
+        void shouldSendUnclearFollowUpsToRecipeTier() {
+            AiMessage question = AiMessage.from("Any allergies?");
+            assertThat(classify(SYSTEM, UserMessage.from("I'm vegan"), question, UserMessage.from("No, none"))).isEqualTo(ModelTier.RECIPE);
+            assertThat(classify(SYSTEM, SystemMessage.from("Previous conversation summary: wants vegan food"), UserMessage.from("Yes please")))
+                    .isEqualTo(ModelTier.RECIPE);
+        }
+    }
+}
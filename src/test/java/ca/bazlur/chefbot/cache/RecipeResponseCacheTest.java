@@ -0,0 +1,89 @@
+package ca.bazlur.chefbot.cache;
+
+import ca.bazlur.chefbot.domain.model.Recipe;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipeResponseCacheTest {
+
+    private static final Recipe DAL = Recipe.builder().name("Dal Tadka").build();
+    private static final Recipe CURRY = Recipe.builder().name("Chana Masala").build();
+
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+    }
+
+    private RecipeResponseCache.Builder cacheBuilder() {
+        return RecipeResponseCache.builder()
+                .maxEntries(2)
+                .ttl(Duration.ofMinutes(10))
+                .clock(clock);
+    }
+
+    @Test
+    void shouldMatchNormalizedInputUnderSamePreferences() {
+        RecipeResponseCache cache = cacheBuilder().build();
+        cache.put(cache.key("Vegan Indian dinner, under 500 calories!", Set.of("vegan", "indian")), DAL);
+
+        assertThat(cache.get(cache.key("vegan indian dinner under 500 calories", Set.of("indian", "vegan")))).contains(DAL);
+        assertThat(cache.get(cache.key("vegan indian dinner under 500 calories", Set.of("vegan")))).isEmpty();
+        assertThat(cache.stats()).isEqualTo(new RecipeResponseCache.Stats(1, 0, 1, 0, 1));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntries() {
+        RecipeResponseCache cache = cacheBuilder().build();
+        cache.put(cache.key("dal", Set.of()), DAL);
+        cache.put(cache.key("curry", Set.of()), CURRY);
+        cache.get(cache.key("dal", Set.of()));
+        cache.put(cache.key("soup", Set.of()), Recipe.builder().name("Soup").build());
+
+        assertThat(cache.get(cache.key("dal", Set.of()))).contains(DAL);
+        assertThat(cache.get(cache.key("curry", Set.of()))).isEmpty();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        RecipeResponseCache cache = cacheBuilder().build();
+        cache.put(cache.key("dal", Set.of()), DAL);
+
+        when(clock.millis()).thenReturn(Duration.ofMinutes(10).toMillis());
+
+        assertThat(cache.get(cache.key("dal", Set.of()))).isEmpty();
+    }
+
+    @Test
+    void shouldMatchSimilarRequestsByEmbedding() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> {
+            String text = invocation.getArgument(0);
+            float[] vector = text.contains("dal") ? new float[]{1f, 0.1f} : new float[]{0f, 1f};
+            return Response.from(Embedding.from(vector));
+        });
+        RecipeResponseCache cache = cacheBuilder().semanticMatching(embeddingModel, 0.9).build();
+        cache.put(cache.key("easy dal for dinner", Set.of()), DAL);
+
+        assertThat(cache.get(cache.key("a simple dal recipe", Set.of()))).contains(DAL);
+        assertThat(cache.get(cache.key("a simple dal recipe", Set.of("vegan")))).isEmpty();
+        assertThat(cache.get(cache.key("chocolate cake", Set.of()))).isEmpty();
+        assertThat(cache.stats().semanticHits()).isEqualTo(1);
+        assertThat(cache.stats().hitRate()).isEqualTo(1.0 / 3);
+    }
+}
@@ -0,0 +1,135 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+class BotResponseTypeAdapterTest {
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(BotResponse.class, new BotResponseTypeAdapter())
+            .create();
+
+    @Test
+    void shouldDecodeRecipeRegardlessOfFieldOrder() {
+        String json = """
+                {
+                    "name": "Chana Masala",
+                    "ingredients": ["chickpeas", "onion"],
+                    "calories": {"per serving": 420, "protein": 15.5, "notes": {"ignored": true}},
+                    "extra": {"nested": [1, 2, 3]},
+                    "dietaryRestrictions": [],
+                    "isSpicy": true,
+                    "servingSize": 4,
+                    "type": "recipe"
+                }
+                """;
+
+        BotResponse response = gson.fromJson(json, BotResponse.class);
+
+        assertThat(response).isInstanceOf(Recipe.class);
+        Recipe recipe = (Recipe) response;
+        assertThat(recipe.getName()).isEqualTo("Chana Masala");
+        assertThat(recipe.getIngredients()).containsExactly("chickpeas", "onion");
+        assertThat(recipe.getNutrition()).isEqualTo(Nutrition.builder().caloriesPerServing(420).protein(15.5f).build());
+        assertThat(recipe.getDietaryRestrictions()).isEmpty();
+        assertThat(recipe.getInstructions()).isNull();
+        assertThat(recipe.isSpicy()).isTrue();
+        assertThat(recipe.getServingSize()).isEqualTo("4");
+    }
+
+    @Test
+    void shouldDecodeConversation() {
+        BotResponse response = gson.fromJson("{\"type\": \"conversation\", \"message\": \"Any allergies?\"}", BotResponse.class);
+
+        assertThat(response).isEqualTo(new Conversation("Any allergies?"));
+    }
+
+    @Test
+    void shouldRejectMissingOrUnknownType() {
+        assertThatThrownBy(() -> gson.fromJson("{\"message\": \"Hi\"}", BotResponse.class))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("missing its type");
+        assertThatThrownBy(() -> gson.fromJson("{\"type\": \"poem\"}", BotResponse.class))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("Unknown BotResponse type");
+    }
+
+    @Test
+    void shouldReportFieldsInDecodingOrder() throws IOException {
+        BotResponseListener listener = mock(BotResponseListener.class);
+        String json = "{\"type\": \"recipe\", \"name\": \"Dal\", \"ingredients\": [\"lentils\"], \"instructions\": [\"Boil\"]}";
+
+        new BotResponseTypeAdapter().read(new JsonReader(new StringReader(json)), listener);
+
+        var inOrder = inOrder(listener);
+        inOrder.verify(listener).onRecipeField("name", "Dal");
+        inOrder.verify(listener).onRecipeListItem("ingredients", "lentils");
+        inOrder.verify(listener).onRecipeListItem("instructions", "Boil");
+    }
+
+    @Test
+    void shouldReadNutritionWrittenAsStrings() {
+        String json = """
+                {"type": "recipe", "calories": {"per serving": "420 kcal", "protein": "15.5g", "sodium": "unknown"}}
+                """;
+
+        Recipe recipe = (Recipe) gson.fromJson(json, BotResponse.class);
+
+        assertThat(recipe.getNutrition().getCaloriesPerServing()).isEqualTo(420);
+        assertThat(recipe.getNutrition().getProtein()).isEqualTo(15.5f);
+        assertThat(recipe.getNutrition().getSodium()).isNaN();
+    }
+
+    @Test
+    void shouldReadGroupedThousandsInNutritionStrings() {
+        String json = """
+                {"type": "recipe", "calories": {"total": "1,200 kcal", "sodium": "2,345.5 mg", "fat": "1,5 g"}}
+                """;
+
+        Recipe recipe = (Recipe) gson.fromJson(json, BotResponse.class);
+
+        assertThat(recipe.getNutrition().getTotalCalories()).isEqualTo(1_200);
+        assertThat(recipe.getNutrition().getSodium()).isEqualTo(2_345.5f);
+        // A comma not followed by three digits is no grouping separator
+        assertThat(recipe.getNutrition().getFat()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRoundTripRecipe() {
+        Recipe recipe = Recipe.builder()
+                .name("Chana Masala")
+                .description("Hearty curry")
+                .ingredients(List.of("chickpeas"))
+                .instructions(List.of("Simmer"))
+                .nutrition(Nutrition.builder().caloriesPerServing(420).protein(15.3f).build())
+                .cuisineType("Indian")
+                .dietaryRestrictions(Set.of("vegan"))
+                .isSpicy(true)
+                .servingSize("4")
+                .build();
+
+        String json = gson.toJson(recipe, BotResponse.class);
+
+        assertThat(json).startsWith("{\"type\":\"recipe\"")
+                .contains("\"calories\":{\"per serving\":420,\"protein\":15.3}");
+        assertThat(gson.fromJson(json, BotResponse.class)).isEqualTo(recipe);
+    }
+}
@@ -0,0 +1,48 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentRecipeTrackerTest {
+
+    @Test
+    void shouldKeepLastRecipePerSession() {
+        RecentRecipeTracker tracker = new RecentRecipeTracker(10);
+        Recipe dal = Recipe.builder().name("Dal Tadka").build();
+        Recipe curry = Recipe.builder().name("Thai Green Curry").build();
+
+        tracker.remember("alice", dal);
+        tracker.remember("alice", curry);
+
+        assertThat(tracker.last("alice")).isSameAs(curry);
+        assertThat(tracker.last("bob")).isNull();
+    }
+
+    @Test
+    void shouldForgetLeastRecentSessionWhenFull() {
+        RecentRecipeTracker tracker = new RecentRecipeTracker(1);
+
+        tracker.remember("alice", Recipe.builder().name("Dal Tadka").build());
+        tracker.remember("bob", Recipe.builder().name("Thai Green Curry").build());
+
+        assertThat(tracker.last("alice")).isNull();
+        assertThat(tracker.last("bob").getName()).isEqualTo("Thai Green Curry");
+    }
+
+    @Test
+    void shouldKeepRecipeButNotAsLastReplyAfterConversation() {
+        RecentRecipeTracker tracker = new RecentRecipeTracker(10);
+        Recipe dal = Recipe.builder().name("Dal Tadka").build();
+
+        tracker.remember("alice", dal);
+        assertThat(tracker.lastReplyWasRecipe("alice")).isTrue();
+
+        tracker.remember("alice", new Conversation("Would you like it spicier?"));
+        assertThat(tracker.last("alice")).isSameAs(dal);
+        assertThat(tracker.lastReplyWasRecipe("alice")).isFalse();
+        assertThat(tracker.lastReplyWasRecipe("bob")).isFalse();
+    }
+}
@@ -1,17 +1,54 @@
 package ca.bazlur.chefbot.core;
 
 import ca.bazlur.chefbot.api.RecipeBotAssistant;
+import ca.bazlur.chefbot.cache.RecipeResponseCache;
 import ca.bazlur.chefbot.domain.model.BotResponse;
 import ca.bazlur.chefbot.domain.model.Conversation;
 import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import ca.bazlur.chefbot.index.RecipeIndex;
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import ca.bazlur.chefbot.store.FileChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.TokenStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,6 +57,15 @@ class RecipeBotTest {
     @Mock
     private RecipeBotAssistant recipeBotAssistant;
 
+    @Captor
+    private ArgumentCaptor<Consumer<String>> partial;
+
+    @Captor
+    private ArgumentCaptor<Consumer<ChatResponse>> complete;
+
+    @Captor
+    private ArgumentCaptor<Consumer<Throwable>> error;
+
     private RecipeBot recipeBot;
 
     @BeforeEach
@@ -79,6 +125,340 @@ class RecipeBotTest {
                 .contains("I can help you find a recipe");
     }
 
+    @Test
+    void processUserInput_withSessionId_shouldUseSessionConversation() {
+        String conversationJson = """
+                {
+                    "type": "conversation",
+                    "message": "Welcome back! Still vegetarian?"
+                }
+                """;
+
+        when(recipeBotAssistant.getRecipe(eq("session-42"), anyString())).thenReturn(conversationJson);
+
+        BotResponse response = recipeBot.processUserInput("session-42", "Hi again");
+
+        assertThat(response)
+                .isInstanceOf(Conversation.class);
+        assertThat(((Conversation) response).getMessage())
+                .contains("Welcome back");
+    }
+
+    @Test
+    void processUserInput_withSessionId_whenException_shouldReturnErrorMessage() {
+        when(recipeBotAssistant.getRecipe(eq("session-42"), anyString())).thenThrow(new RuntimeException("API Error"));
+
+        BotResponse response = recipeBot.processUserInput("session-42", "How to make pizza?");
+
+        assertThat(response)
+                .isInstanceOf(Conversation.class);
+        assertThat(((Conversation) response).getMessage())
+                .contains("I apologize");
+    }
+
+    @Test
+    void streamUserInput_shouldForwardDeltasAndCompleteWithParsedResponse() {
+        TokenStream tokenStream = mock(TokenStream.class, RETURNS_SELF);
+        when(recipeBotAssistant.streamRecipe(eq("session-42"), anyString())).thenReturn(tokenStream);
+        BotResponseListener listener = mock(BotResponseListener.class);
+
+        CompletableFuture<BotResponse> result = recipeBot.streamUserInput("session-42", "Hi", listener);
+
+        verify(tokenStream).onPartialResponse(partial.capture());
+        verify(tokenStream).onCompleteResponse(complete.capture());
+        verify(tokenStream).start();
+
+        partial.getValue().accept("{\"type\": \"conversation\", \"message\": \"Hel");
+        partial.getValue().accept("lo!\"}");
+        complete.getValue().accept(mock(ChatResponse.class));
+
+        verify(listener).onConversationDelta("Hel");
+        verify(listener).onConversationDelta("lo!");
+        verify(listener).onComplete(new Conversation("Hello!"));
+        assertThat(result).isCompletedWithValue(new Conversation("Hello!"));
+    }
+
+    @Test
+    void streamUserInput_whenStreamFails_shouldCompleteWithErrorMessage() {
+        TokenStream tokenStream = mock(TokenStream.class, RETURNS_SELF);
+        when(recipeBotAssistant.streamRecipe(eq("session-42"), anyString())).thenReturn(tokenStream);
+        BotResponseListener listener = mock(BotResponseListener.class);
+
+        CompletableFuture<BotResponse> result = recipeBot.streamUserInput("session-42", "Hi", listener);
+
+        verify(tokenStream).onError(error.capture());
+        error.getValue().accept(new RuntimeException("API Error"));
+
+        assertThat(result.join()).isInstanceOf(Conversation.class);
+        assertThat(((Conversation) result.join()).getMessage()).contains("I apologize");
+        verify(listener).onComplete(result.join());
+    }
+
+    @Test
+    void processUserInput_withResponseCache_shouldServeRepeatedRecipeWithoutModel() {
+        ChatMemory memory = mock(ChatMemory.class);
+        RecipeBot cachingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .chatMemoryProvider(sessionId -> memory)
+                .build();
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString())).thenReturn("""
+                {"type": "recipe", "name": "Dal Tadka", "ingredients": ["lentils"]}
+                """);
+
+        BotResponse first = cachingBot.processUserInput("alice", "Vegan dal, please");
+        BotResponse second = cachingBot.processUserInput("bob", "vegan dal please!");
+
+        assertThat(second).isEqualTo(first);
+        verify(recipeBotAssistant, times(1)).getRecipe(anyString(), anyString());
+        verify(memory).add(UserMessage.from("vegan dal please!"));
+    }
+
+    @Test
+    void processUserInput_withResponseCache_shouldNotShareFollowUpsAcrossSessions() {
+        RecipeBot cachingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .build();
+        when(recipeBotAssistant.getRecipe(anyString(), eq("Make it spicier")))
+                .thenReturn("""
+                        {"type": "recipe", "name": "Spicy Dal Tadka", "ingredients": ["lentils", "chillies"]}
+                        """)
+                .thenReturn("""
+                        {"type": "recipe", "name": "Spicy Shakshuka", "ingredients": ["eggs", "harissa"]}
+                        """);
+
+        BotResponse alice = cachingBot.processUserInput("alice", "Make it spicier");
+        BotResponse bob = cachingBot.processUserInput("bob", "Make it spicier");
+
+        assertThat(((Recipe) alice).getName()).isEqualTo("Spicy Dal Tadka");
+        assertThat(((Recipe) bob).getName()).isEqualTo("Spicy Shakshuka");
+        verify(recipeBotAssistant).getRecipe("alice", "Make it spicier");
+        verify(recipeBotAssistant).getRecipe("bob", "Make it spicier");
+    }
+
+    @Test
+    void processUserInput_withResponseCache_shouldServeConstrainedRequestsAcrossSessions() {
+        Map<Object, ChatMemory> memories = new HashMap<>();
+        RecipeBot cachingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .chatMemoryProvider(sessionId -> memories.computeIfAbsent(sessionId, id -> MessageWindowChatMemory.withMaxMessages(10)))
+                .build();
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString())).thenReturn("""
+                {"type": "recipe", "name": "Chickpea Curry", "ingredients": ["chickpeas"]}
+                """);
+
+        List<String> requests = List.of("Vegan curry with no nuts", "Dinner under 500 calories, less salt", "One-pot pasta");
+        requests.forEach(request -> cachingBot.processUserInput("alice", request));
+        requests.forEach(request -> cachingBot.processUserInput("bob", request));
+
+        verify(recipeBotAssistant, times(3)).getRecipe(anyString(), anyString());
+        verify(recipeBotAssistant, never()).getRecipe(eq("bob"), anyString());
+    }
+
+    @Test
+    void processUserInput_withResponseCache_shouldNotServeFollowUpsOnceSessionWasAnswered() {
+        Map<Object, ChatMemory> memories = new HashMap<>();
+        RecipeBot cachingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .chatMemoryProvider(sessionId -> memories.computeIfAbsent(sessionId, id -> MessageWindowChatMemory.withMaxMessages(10)))
+                .build();
+        when(recipeBotAssistant.getRecipe(anyString(), anyString())).thenReturn("""
+                {"type": "recipe", "name": "Tofu Scramble", "ingredients": ["tofu"]}
+                """);
+
+        cachingBot.processUserInput("alice", "Vegan breakfast with tofu");
+        cachingBot.processUserInput("alice", "Can I have that with tofu");
+        cachingBot.processUserInput("bob", "Vegan breakfast with tofu");
+        cachingBot.processUserInput("bob", "Can I have that with tofu");
+        cachingBot.processUserInput("carol", "Yes please");
+        cachingBot.processUserInput("dave", "Yes please");
+
+        verify(recipeBotAssistant).getRecipe("bob", "Can I have that with tofu");
+        verify(recipeBotAssistant).getRecipe("carol", "Yes please");
+        verify(recipeBotAssistant).getRecipe("dave", "Yes please");
+        verify(recipeBotAssistant, never()).getRecipe("bob", "Vegan breakfast with tofu");
+    }
+
+    @Test
+    void processUserInput_withRecipeIndex_shouldServeKnownDishesWithoutModel() {
+        RecipeBot indexedBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .recipeIndex(RecipeIndex.inMemory())
+                .build();
+        when(recipeBotAssistant.getRecipe(anyString(), anyString())).thenReturn("""
+                {"type": "recipe", "name": "Dal Tadka", "ingredients": ["red lentils", "cumin"]}
+                """);
+
+        BotResponse generated = indexedBot.processUserInput("alice", "Vegan dal, please");
+        BotResponse indexed = indexedBot.processUserInput("bob", "Could I get a lentil dal?");
+        indexedBot.processUserInput("bob", "Another dal please");
+
+        assertThat(indexed).isEqualTo(generated);
+        verify(recipeBotAssistant, times(2)).getRecipe(anyString(), anyString());
+        verify(recipeBotAssistant).getRecipe("bob", "Another dal please");
+    }
+
+    @Test
+    void processUserInput_withRecipeIndex_shouldLeaveQuestionsNegationsAndFollowUpsToModel() {
+        RecipeBot indexedBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .recipeIndex(RecipeIndex.inMemory())
+                .build();
+        when(recipeBotAssistant.getRecipe("alice", "Chicken parmesan, please")).thenReturn("""
+                {"type": "recipe", "name": "Chicken Parmesan", "ingredients": ["chicken breast", "parmesan"]}
+                """);
+        when(recipeBotAssistant.getRecipe("alice", "Mushroom curry, please")).thenReturn("""
+                {"type": "recipe", "name": "Mushroom Curry", "ingredients": ["mushrooms", "coconut milk"]}
+                """);
+        when(recipeBotAssistant.getRecipe(eq("bob"), anyString())).thenReturn("""
+                {"type": "conversation", "message": "Noted!"}
+                """);
+
+        indexedBot.processUserInput("alice", "Chicken parmesan, please");
+        indexedBot.processUserInput("alice", "Mushroom curry, please");
+        BotResponse indexed = indexedBot.processUserInput("carol", "Chicken parmesan for dinner");
+        indexedBot.processUserInput("bob", "Is chicken parmesan healthy?");
+        indexedBot.processUserInput("bob", "I don't like mushrooms");
+        indexedBot.processUserInput("bob", "Make the curry spicier");
+
+        assertThat(((Recipe) indexed).getName()).isEqualTo("Chicken Parmesan");
+        verify(recipeBotAssistant, never()).getRecipe(eq("carol"), anyString());
+        verify(recipeBotAssistant).getRecipe("bob", "Is chicken parmesan healthy?");
+        verify(recipeBotAssistant).getRecipe("bob", "I don't like mushrooms");
+        verify(recipeBotAssistant).getRecipe("bob", "Make the curry spicier");
+    }
+
+    @Test
+    void processUserInput_withResponseCache_shouldNotCacheConversations() {
+        RecipeBot cachingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .build();
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString())).thenReturn("""
+                {"type": "conversation", "message": "Any allergies?"}
+                """);
+
+        cachingBot.processUserInput("alice", "Dinner idea");
+        cachingBot.processUserInput("alice", "Dinner idea");
+
+        verify(recipeBotAssistant, times(2)).getRecipe(anyString(), anyString());
+    }
+
+    @Test
+    void processUserInput_shouldRecordTurnAndCacheMetrics() {
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        RecipeBot instrumentedBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .responseCache(RecipeResponseCache.builder().build())
+                .metrics(metrics)
+                .build();
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString()))
+                .thenReturn("""
+                        {"type": "recipe", "name": "Dal Tadka", "ingredients": ["lentils"]}
+                        """)
+                .thenThrow(new RuntimeException("API Error"));
+
+        instrumentedBot.processUserInput("alice", "Vegan dal, please");
+        instrumentedBot.processUserInput("alice", "Vegan dal, please");
+        instrumentedBot.processUserInput("alice", "Chickpea curry, please");
+
+        assertThat(metrics.count(MetricNames.TURNS)).isEqualTo(3);
+        assertThat(metrics.count(MetricNames.RESPONSE_CACHE_HITS)).isEqualTo(1);
+        assertThat(metrics.count(MetricNames.RESPONSE_CACHE_MISSES)).isEqualTo(2);
+        assertThat(metrics.count(MetricNames.TURN_ERRORS)).isEqualTo(1);
+        assertThat(metrics.histogram(MetricNames.TURN_LATENCY).count()).isEqualTo(3);
+        assertThat(metrics.histogram(MetricNames.PARSE_LATENCY).count()).isEqualTo(1);
+    }
+
+    @Test
+    void processUserInput_withLocalIntent_shouldAnswerWithoutModel() {
+        ChatMemory memory = mock(ChatMemory.class);
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        RecentRecipeTracker recentRecipes = new RecentRecipeTracker(10);
+        recentRecipes.remember("alice", Recipe.builder().name("Dal Tadka").build());
+        RecipeBot localBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .chatMemoryProvider(sessionId -> memory)
+                .recentRecipes(recentRecipes)
+                .metrics(metrics)
+                .build();
+
+        BotResponse response = localBot.processUserInput("alice", "Thanks!");
+
+        assertThat(response).isInstanceOf(Conversation.class);
+        verifyNoInteractions(recipeBotAssistant);
+        verify(memory).add(UserMessage.from("Thanks!"));
+        assertThat(metrics.count(MetricNames.LOCAL_INTENTS)).isEqualTo(1);
+        assertThat(metrics.count(MetricNames.TURNS)).isEqualTo(1);
+    }
+
+    @Test
+    void processUserInput_shouldScaleLastRecipeLocally() {
+        when(recipeBotAssistant.getRecipe(anyString(), anyString())).thenReturn("""
+                {"type": "recipe", "name": "Dal Tadka", "ingredients": ["200 g red lentils"], "servingSize": "2 servings"}
+                """);
+
+        recipeBot.processUserInput("alice", "Vegan dal, please");
+        BotResponse again = recipeBot.processUserInput("alice", "Show that again");
+        BotResponse scaled = recipeBot.processUserInput("alice", "Make it for 4 people");
+        BotResponse elsewhere = recipeBot.processUserInput("bob", "Make it for 4 people");
+
+        assertThat(again).isInstanceOf(Recipe.class);
+        assertThat(((Recipe) again).getName()).isEqualTo("Dal Tadka");
+        assertThat(((Recipe) scaled).getIngredients()).containsExactly("400 g red lentils");
+        assertThat(((Recipe) scaled).getServingSize()).isEqualTo("4 servings");
+        // Bob has no recipe to scale, so the model answers
+        assertThat(elsewhere).isInstanceOf(Recipe.class);
+        verify(recipeBotAssistant, times(1)).getRecipe("alice", "Vegan dal, please");
+        verify(recipeBotAssistant).getRecipe("bob", "Make it for 4 people");
+    }
+
+    @Test
+    void processUserInput_withoutLocalIntents_shouldSendEveryMessageToModel() {
+        RecipeBot modelOnlyBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .localIntents(null)
+                .build();
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString())).thenReturn("""
+                {"type": "conversation", "message": "Enjoy!"}
+                """);
+
+        modelOnlyBot.processUserInput("alice", "Thanks!");
+
+        verify(recipeBotAssistant).getRecipe("alice", "Thanks!");
+    }
+
+    @Test
+    void processUserInput_shouldSendThanksToModelWhenLastReplyWasNoRecipe() {
+        when(recipeBotAssistant.getRecipe(eq("alice"), anyString())).thenReturn("""
+                {"type": "conversation", "message": "Shall I make it spicier?"}
+                """);
+
+        recipeBot.processUserInput("alice", "Thanks!");
+
+        verify(recipeBotAssistant).getRecipe("alice", "Thanks!");
+    }
+
+    @Test
+    void streamUserInput_withLocalIntent_shouldCompleteWithoutModel() {
+        BotResponseListener listener = mock(BotResponseListener.class);
+        RecentRecipeTracker recentRecipes = new RecentRecipeTracker(10);
+        recentRecipes.remember("alice", Recipe.builder().name("Dal Tadka").build());
+        RecipeBot localBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .recentRecipes(recentRecipes)
+                .build();
+
+        CompletableFuture<BotResponse> result = localBot.streamUserInput("alice", "thank you", listener);
+
+        assertThat(result).isCompleted();
+        verify(listener).onComplete(result.join());
+        verifyNoInteractions(recipeBotAssistant);
+    }
+
     @Test
     void processUserInput_whenException_shouldReturnErrorMessage() {
         when(recipeBotAssistant.getRecipe(anyString())).thenThrow(new RuntimeException("API Error"));
@@ -92,4 +472,64 @@ class RecipeBotTest {
                 .contains("I apologize")
                 .contains("error");
     }
+
+    @Test
+    void close_shouldLetBackgroundWorkFinish() {
+        ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+        AtomicBoolean finished = new AtomicBoolean();
+        backgroundExecutor.execute(() -> {
+            try {
+                Thread.sleep(200);
+                finished.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        RecipeBot closingBot = RecipeBot.builder()
+                .assistant(recipeBotAssistant)
+                .backgroundExecutor(backgroundExecutor)
+                .build();
+
+        closingBot.close();
+
+        assertThat(finished).isTrue();
+        assertThat(backgroundExecutor.isTerminated()).isTrue();
+    }
+
+    @Test
+    void create_withGivenModels_shouldRunWholePipelineThroughThem() {
+        ChatLanguageModel chatModel = mock(ChatLanguageModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenReturn(ChatResponse.builder()
+                .aiMessage(AiMessage.from("""
+                        {"type": "conversation", "message": "Any dietary restrictions?"}
+                        """))
+                .build());
+        RecipeBot offlineBot = RecipeBot.create(chatModel, mock(StreamingChatLanguageModel.class));
+
+        BotResponse response = offlineBot.processUserInput("alice", "Hi there");
+
+        assertThat(response).isInstanceOf(Conversation.class);
+        assertThat(((Conversation) response).getMessage()).isEqualTo("Any dietary restrictions?");
+        ArgumentCaptor<ChatRequest> request = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(chatModel).chat(request.capture());
+        assertThat(request.getValue().messages()).first().isInstanceOf(SystemMessage.class);
+        assertThat(request.getValue().messages()).last().isInstanceOf(UserMessage.class);
+    }
+
+    @Test
+    void profileTracker_shouldKeepProfilesApartFromSessionsNamedLikeThem(@TempDir Path memoryDirectory) {
+        FileChatMemoryStore memories = FileChatMemoryStore.builder().directory(memoryDirectory).build();
+        RecipeBot.profileTracker(memoryDirectory, 10).observe("alice", "I'm vegan and allergic to peanuts");
+
+        // A client choosing the session id the profile used to be saved under only reaches its own conversation
+        memories.updateMessages("profile:alice", List.of(UserMessage.from("{\"diets\": [\"keto\"]}")));
+        RecipeBot.profileTracker(memoryDirectory, 10).observe("profile:alice", "I'm on keto");
+
+        UserProfileTracker restarted = RecipeBot.profileTracker(memoryDirectory, 10);
+        assertThat(restarted.profile("alice").getDiets()).containsExactly("vegan");
+        assertThat(restarted.profile("alice").getAvoidedIngredients()).containsExactly("peanuts");
+        assertThat(restarted.profile("profile:alice").getDiets()).containsExactly("keto");
+        assertThat(memories.getMessages("alice")).isEmpty();
+        assertThat(memories.getMessages("profile:alice")).containsExactly(UserMessage.from("{\"diets\": [\"keto\"]}"));
+    }
 }
@@ -0,0 +1,142 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingBotResponseParserTest {
+
+    private static final String RECIPE_JSON = """
+            {
+                "type": "recipe",
+                "name": "Chana Masala",
+                "description": "A hearty \\"chickpea\\" curry",
+                "ingredients": ["chickpeas", "onion", "tomato"],
+                "instructions": ["Saut\\u00e9 onion", "Add tomato", "Simmer chickpeas"],
+                "calories": {"per serving": 420, "protein": 15.5},
+                "cuisineType": "Indian",
+                "dietaryRestrictions": ["vegan", "gluten-free"],
+                "isSpicy": true,
+                "servingSize": "4"
+            }
+            """;
+
+    private final RecordingListener listener = new RecordingListener();
+    private final StreamingBotResponseParser parser = new StreamingBotResponseParser(listener);
+
+    private void feedInChunksOf(String json, int chunkSize) {
+        for (int i = 0; i < json.length(); i += chunkSize) {
+            parser.feed(json.substring(i, Math.min(json.length(), i + chunkSize)));
+        }
+    }
+
+    @Test
+    void shouldParseRecipeSplitAtEveryCharacter() {
+        feedInChunksOf(RECIPE_JSON, 1);
+
+        BotResponse response = parser.finish();
+
+        assertThat(response).isInstanceOf(Recipe.class);
+        Recipe recipe = (Recipe) response;
+        assertThat(recipe.getName()).isEqualTo("Chana Masala");
+        assertThat(recipe.getDescription()).isEqualTo("A hearty \"chickpea\" curry");
+        assertThat(recipe.getIngredients()).containsExactly("chickpeas", "onion", "tomato");
+        assertThat(recipe.getInstructions()).containsExactly("Sauté onion", "Add tomato", "Simmer chickpeas");
+        assertThat(recipe.getNutrition()).isEqualTo(Nutrition.builder().caloriesPerServing(420).protein(15.5f).build());
+        assertThat(recipe.getCuisineType()).isEqualTo("Indian");
+        assertThat(recipe.getDietaryRestrictions()).containsExactly("vegan", "gluten-free");
+        assertThat(recipe.isSpicy()).isTrue();
+        assertThat(recipe.getServingSize()).isEqualTo("4");
+    }
+
+    @Test
+    void shouldReportNameAndIngredientsBeforeInstructionsFinish() {
+        int cutOff = RECIPE_JSON.indexOf("Simmer");
+        feedInChunksOf(RECIPE_JSON.substring(0, cutOff), 7);
+
+        assertThat(listener.events).containsExactly(
+                "field:name=Chana Masala",
+                "field:description=A hearty \"chickpea\" curry",
+                "item:ingredients=chickpeas",
+                "item:ingredients=onion",
+                "item:ingredients=tomato",
+                "item:instructions=Sauté onion",
+                "item:instructions=Add tomato");
+    }
+
+    @Test
+    void shouldStreamConversationMessageAsItArrives() {
+        parser.feed("{\"type\": \"conversation\", \"mess");
+        parser.feed("age\": \"Do you eat");
+        parser.feed(" dairy?\\n Let me");
+        parser.feed(" know.\"}");
+
+        assertThat(listener.events).containsExactly(
+                "delta:Do you eat",
+                "delta: dairy?\n Let me",
+                "delta: know.");
+        assertThat(parser.finish()).isEqualTo(new Conversation("Do you eat dairy?\n Let me know."));
+    }
+
+    @Test
+    void shouldIgnoreMarkdownFenceAroundJson() {
+        parser.feed("```json\n{\"type\": \"conversation\", \"message\": \"Hi\"}\n```");
+
+        assertThat(parser.finish()).isEqualTo(new Conversation("Hi"));
+    }
+
+    @Test
+    void shouldFailOnIncompleteJson() {
+        parser.feed("{\"type\": \"conversation\", \"message\": \"Hi");
+
+        assertThatThrownBy(parser::finish).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void shouldFailOnUnknownType() {
+        parser.feed("{\"type\": \"poem\"}");
+
+        assertThatThrownBy(parser::finish)
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("Unknown BotResponse type");
+    }
+
+    @Test
+    void shouldFailOnMalformedJson() {
+        assertThatThrownBy(() -> parser.feed("{\"type\" \"recipe\"}")).isInstanceOf(JsonParseException.class);
+    }
+
+    private static class RecordingListener implements BotResponseListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onConversationDelta(String delta) {
+            events.add("delta:" + delta);
+        }
+
+        @Override
+        public void onRecipeField(String field, String value) {
+            events.add("field:" + field + "=" + value);
+        }
+
+        @Override
+        public void onRecipeListItem(String field, String item) {
+            events.add("item:" + field + "=" + item);
+        }
+
+        @Override
+        public void onComplete(BotResponse response) {
+            events.add("complete");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ca.bazlur.chefbot.core;
+
+import ca.bazlur.chefbot.api.RecipeBotAssistant;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserProfileTrackerTest {
+
+    @Test
+    void shouldAccumulateProfilePerSession() {
+        UserProfileTracker tracker = new UserProfileTracker(10);
+
+        tracker.observe("alice", "I'm vegan and gluten-free");
+        UserProfile alice = tracker.observe("alice", "Something Indian tonight?");
+
+        assertThat(alice.getDiets()).containsExactly("gluten free", "vegan");
+        assertThat(alice.getCuisines()).containsExactly("indian");
+        assertThat(tracker.observe("bob", "Any dinner idea").isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldForgetLeastRecentSessionWhenFull() {
+        UserProfileTracker tracker = new UserProfileTracker(1);
+
+        tracker.observe("alice", "vegan please");
+        tracker.observe("bob", "keto please");
+
+        assertThat(tracker.profile("alice")).isEqualTo(UserProfile.EMPTY);
+        assertThat(tracker.profile("bob").getDiets()).containsExactly("keto");
+    }
+
+    @Test
+    void shouldRestoreProfileFromStoreAfterRestart() {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        new UserProfileTracker(10, store).observe("alice", "I'm vegan, no peanuts, at most 500 calories");
+
+        UserProfileTracker restarted = new UserProfileTracker(10, store);
+
+        UserProfile alice = restarted.profile("alice");
+        assertThat(alice.getDiets()).containsExactly("vegan");
+        assertThat(alice.getAvoidedIngredients()).containsExactly("peanuts");
+        assertThat(alice.getMaxCaloriesPerServing()).isEqualTo(500);
+        assertThat(restarted.observe("alice", "Something Thai?").getDiets()).containsExactly("vegan");
+        assertThat(restarted.profile("bob")).isEqualTo(UserProfile.EMPTY);
+        assertThat(store.getMessages("bob")).isEmpty();
+    }
+
+    @Nested
+    class Extraction {
+
+        private final UserProfileTracker tracker = new UserProfileTracker(10);
+
+        @Test
+        void shouldExtractAvoidedIngredients() {
+            UserProfile profile = tracker.observe("alice", "I'm allergic to peanuts and shellfish, and I hate cilantro.");
+            profile = tracker.observe("alice", "Something without the onions for dinner?");
+            profile = tracker.observe("alice", "Also a mild sesame allergy");
+
+            assertThat(profile.getAvoidedIngredients()).containsExactly("cilantro", "onions", "peanuts", "sesame", "shellfish");
+        }
+
+        @Test
+        void shouldIgnorePhrasesThatAreNotIngredients() {
+            UserProfile profile = tracker.observe("alice", "No allergies, no problem. No, none at all.");
+
+            assertThat(profile.getAvoidedIngredients()).isEmpty();
+        }
+
+        @Test
+        void shouldExtractNutritionTargets() {
+            UserProfile profile = tracker.observe("alice", "High-protein meals under 600 kcal please");
+
+            assertThat(profile.getNutritionGoals()).containsExactly("high protein");
+            assertThat(profile.getMaxCaloriesPerServing()).isEqualTo(600);
+        }
+
+        @Test
+        void shouldDropNegatedPreferences() {
+            tracker.observe("alice", "I'm vegetarian and love Thai food");
+            UserProfile profile = tracker.observe("alice", "I'm not vegetarian anymore");
+
+            assertThat(profile.getDiets()).isEmpty();
+            assertThat(profile.getCuisines()).containsExactly("thai");
+        }
+    }
+
+    @Test
+    void shouldRenderProfileIntoSystemPrompt() {
+        UserProfileTracker tracker = new UserProfileTracker(10);
+        UserProfile profile = tracker.observe("alice", "Vegan Thai, no peanuts, at most 500 calories");
+
+        assertThat(RecipeBotAssistant.systemPrompt(UserProfile.EMPTY)).isEqualTo(RecipeBotAssistant.SYSTEM_PROMPT);
+        assertThat(RecipeBotAssistant.systemPrompt(profile))
+                .startsWith(RecipeBotAssistant.SYSTEM_PROMPT)
+                .endsWith("""
+                        - Diet: vegan
+                        - Avoid: peanuts
+                        - Cuisines: thai
+                        - Calories: at most 500 per serving
+                        """);
+        assertThat(profile.constraints()).containsExactly("avoid:peanuts", "calories:500", "cuisine:thai", "diet:vegan");
+    }
+}
@@ -0,0 +1,120 @@
+package ca.bazlur.chefbot.domain.service;
+
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeFormatterTest {
+
+    private static final Recipe DAL = Recipe.builder()
+            .name("Dal Tadka")
+            .description("Comforting \"yellow\" lentils")
+            .ingredients(List.of("red lentils", "cumin"))
+            .instructions(List.of("Boil the lentils", "Temper the cumin"))
+            .nutrition(Nutrition.builder().caloriesPerServing(380).protein(18.5f).build())
+            .cuisineType("Indian")
+            .dietaryRestrictions(new LinkedHashSet<>(List.of("vegan", "gluten-free")))
+            .isSpicy(false)
+            .servingSize("4")
+            .build();
+
+    @Test
+    void shouldRenderPlainTextWithoutEscapeCodes() throws IOException {
+        String text = new RecipeFormatter(RecipeFormatter.Style.PLAIN).render(DAL, new StringBuilder()).toString();
+
+        assertThat(text)
+                .doesNotContain("\u001B")
+                .contains("Recipe: Dal Tadka\n")
+                .contains("\nServing Size: 4 servings\n")
+                .contains("\nIngredients:\n✔ red lentils\n✔ cumin\n")
+                .contains("\nInstructions:\n1. Boil the lentils\n2. Temper the cumin\n")
+                .contains("\nDietary Restrictions: vegan, gluten-free\n")
+                .contains("\nSpicy: No\n")
+                .contains("\nNutrition:\nPer serving: 380 kcal\nProtein: 18.5 g\n");
+    }
+
+    @Test
+    void shouldColourAnsiText() throws IOException {
+        String text = new RecipeFormatter(RecipeFormatter.Style.ANSI).render(DAL, new StringBuilder()).toString();
+
+        assertThat(text)
+                .contains("\u001B[32m✔ red lentils\u001B[0m\n")
+                .contains("\u001B[33m1. Boil the lentils\u001B[0m\n");
+    }
+
+    @Test
+    void shouldRenderMarkdown() throws IOException {
+        String markdown = new RecipeFormatter(RecipeFormatter.Style.MARKDOWN).render(DAL, new StringBuilder()).toString();
+
+        assertThat(markdown)
+                .startsWith("## Dal Tadka\n")
+                .contains("\n**Serving Size:** 4 servings\n")
+                .contains("\n### Ingredients\n\n- red lentils\n- cumin\n")
+                .contains("\n### Instructions\n\n1. Boil the lentils\n2. Temper the cumin\n")
+                .contains("\n- Per serving: 380 kcal\n")
+                .endsWith("\n---\n");
+    }
+
+    @Test
+    void shouldRenderJsonInTheAssistantsFormat() throws IOException {
+        String json = new RecipeFormatter(RecipeFormatter.Style.JSON).render(DAL, new StringBuilder()).toString();
+
+        var object = JsonParser.parseString(json).getAsJsonObject();
+        assertThat(object.get("type").getAsString()).isEqualTo("recipe");
+        assertThat(object.get("description").getAsString()).isEqualTo("Comforting \"yellow\" lentils");
+        assertThat(object.getAsJsonObject("calories").get("per serving").getAsInt()).isEqualTo(380);
+        assertThat(object.getAsJsonArray("dietaryRestrictions")).hasSize(2);
+    }
+
+    @Test
+    void shouldWriteAndFlushOncePerRecipe() throws IOException {
+        CountingWriter out = new CountingWriter();
+
+        new RecipeFormatter(RecipeFormatter.Style.JSON).renderAll(List.of(DAL, DAL, DAL), out);
+
+        assertThat(out.writes).isEqualTo(3);
+        assertThat(out.flushes).isEqualTo(3);
+        assertThat(out.toString().lines()).hasSize(3).allSatisfy(line -> assertThat(JsonParser.parseString(line).isJsonObject()).isTrue());
+    }
+
+    private static class CountingWriter extends Writer {
+        private final StringWriter text = new StringWriter();
+        int writes;
+        int flushes;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            text.write(buffer, offset, length);
+        }
+
+        @Override
+        public Writer append(CharSequence sequence) {
+            writes++;
+            text.append(sequence);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
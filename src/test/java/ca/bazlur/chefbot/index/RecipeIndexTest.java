@@ -0,0 +1,119 @@
+package ca.bazlur.chefbot.index;
+
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeIndexTest {
+
+    private static final Recipe PAD_THAI = recipe("Tofu Pad Thai", "Thai", List.of("rice noodles", "tofu", "peanuts"),
+            Set.of("Vegan", "gluten-free"), true, 550);
+    private static final Recipe GREEN_CURRY = recipe("Green Curry", "Thai", List.of("coconut milk", "tofu", "green curry paste"),
+            Set.of("vegan", "Gluten-Free"), true, 480);
+    private static final Recipe DAL = recipe("Dal Tadka", "Indian", List.of("red lentils", "tomatoes", "cumin"),
+            Set.of("vegan", "gluten-free"), false, 380);
+    private static final Recipe CARBONARA = recipe("Spaghetti Carbonara", "Italian", List.of("spaghetti", "eggs", "pecorino"),
+            Set.of(), false, 720);
+
+    @TempDir
+    Path directory;
+
+    private RecipeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = RecipeIndex.inMemory();
+        List.of(PAD_THAI, GREEN_CURRY, DAL, CARBONARA).forEach(index::add);
+    }
+
+    private static Recipe recipe(String name, String cuisine, List<String> ingredients, Set<String> diets, boolean spicy, int calories) {
+        return Recipe.builder()
+                .name(name)
+                .cuisineType(cuisine)
+                .ingredients(ingredients)
+                .dietaryRestrictions(diets)
+                .isSpicy(spicy)
+                .nutrition(Nutrition.builder().caloriesPerServing(calories).build())
+                .build();
+    }
+
+    @Test
+    void shouldFilterByDietsExclusionsAndCalories() {
+        RecipeQuery query = RecipeQuery.builder()
+                .diets(Set.of("vegan", "gluten free"))
+                .excludedIngredients(Set.of("peanuts"))
+                .maxCalories(500)
+                .build();
+
+        assertThat(index.search(query, 10)).containsExactly(DAL, GREEN_CURRY);
+    }
+
+    @Test
+    void shouldMatchTermsInNamesAndIngredientsRankingNamesFirst() {
+        RecipeQuery tofu = RecipeQuery.builder().terms(Set.of("tofu")).build();
+        RecipeQuery curry = RecipeQuery.builder().terms(Set.of("curry")).build();
+
+        assertThat(index.search(tofu, 10)).containsExactly(PAD_THAI, GREEN_CURRY);
+        assertThat(index.search(curry, 10)).containsExactly(GREEN_CURRY);
+    }
+
+    @Test
+    void shouldFilterByCuisineAndSpiciness() {
+        assertThat(index.search(RecipeQuery.builder().cuisine("thai").spicy(false).build(), 10)).isEmpty();
+        assertThat(index.search(RecipeQuery.builder().spicy(false).build(), 10)).containsExactly(CARBONARA, DAL);
+    }
+
+    @Test
+    void shouldBuildQueryFromRequestAndProfile() {
+        UserProfile profile = UserProfile.builder()
+                .diets(new TreeSet<>(Set.of("vegan")))
+                .avoidedIngredients(new TreeSet<>(Set.of("peanuts")))
+                .build();
+
+        RecipeQuery query = RecipeQuery.forRequest("Could you give me a vegan dal recipe with tomatoes, no peanuts?", profile);
+
+        assertThat(query.getTerms()).containsExactlyInAnyOrder("dal", "tomato");
+        assertThat(index.search(query, 1)).containsExactly(DAL);
+        assertThat(RecipeQuery.forRequest("Any dinner idea for tonight?", profile).getTerms()).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreRecipesAlreadyIndexedByName() {
+        assertThat(index.add(recipe("tofu pad thai", "Thai", List.of(), Set.of(), false, 0))).isFalse();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldReloadPersistedRecipes() throws IOException {
+        Path file = directory.resolve("recipes.jsonl");
+        RecipeIndex persistent = RecipeIndex.open(file);
+        persistent.add(DAL);
+        persistent.add(CARBONARA);
+        // A crash may leave the last line incomplete
+        Files.writeString(file, "{\"name\": \"Half", StandardOpenOption.APPEND);
+
+        RecipeIndex reopened = RecipeIndex.open(file);
+        reopened.add(GREEN_CURRY);
+
+        assertThat(RecipeIndex.open(file).size()).isEqualTo(3);
+        assertThat(reopened.search(RecipeQuery.builder().terms(Set.of("lentil")).build(), 10))
+                .singleElement()
+                .satisfies(recipe -> {
+                    assertThat(recipe.getName()).isEqualTo("Dal Tadka");
+                    assertThat(recipe.getDietaryRestrictions()).containsExactlyInAnyOrder("vegan", "gluten-free");
+                });
+    }
+}
@@ -0,0 +1,64 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConvertUnitsIntentTest {
+
+    private final ConvertUnitsIntent intent = new ConvertUnitsIntent();
+
+    @Test
+    void shouldConvertRecipeToMetric() {
+        Recipe recipe = Recipe.builder()
+                .ingredients(List.of("2 cups flour", "1 lb chicken thighs", "8 fl oz stock", "400 g tomatoes", "Salt to taste"))
+                .instructions(List.of("Preheat the oven to 350°F.", "Bake for 30 minutes."))
+                .servingSize("4 servings")
+                .build();
+
+        Recipe metric = (Recipe) intent.answer("convert it to metric please", context(recipe)).orElseThrow();
+
+        assertThat(metric.getIngredients()).containsExactly(
+                "480 ml flour", "454 g chicken thighs", "237 ml stock", "400 g tomatoes", "Salt to taste");
+        assertThat(metric.getInstructions()).containsExactly("Preheat the oven to 175°C.", "Bake for 30 minutes.");
+        assertThat(metric.getServingSize()).isEqualTo("4 servings");
+    }
+
+    @Test
+    void shouldConvertRecipeToUsUnits() {
+        Recipe recipe = Recipe.builder()
+                .ingredients(List.of("200 g rice", "1 kg potatoes", "480 ml milk", "15 ml soy sauce", "1 tsp salt"))
+                .instructions(List.of("Bake at 180 °C until golden."))
+                .build();
+
+        Recipe us = (Recipe) intent.answer("in cups", context(recipe)).orElseThrow();
+
+        assertThat(us.getIngredients()).containsExactly(
+                "7.1 oz rice", "2.2 lb potatoes", "2 cups milk", "1 tbsp soy sauce", "1 tsp salt");
+        assertThat(us.getInstructions()).containsExactly("Bake at 355°F until golden.");
+    }
+
+    @Test
+    void shouldConvertSingleIngredientLines() {
+        assertThat(ConvertUnitsIntent.convert("1 1/2 tbsp olive oil", true)).isEqualTo("23 ml olive oil");
+        assertThat(ConvertUnitsIntent.convert("3 cloves garlic", true)).isNull();
+        assertThat(ConvertUnitsIntent.convert("2-3 cups water", true)).isNull();
+        assertThat(ConvertUnitsIntent.convert("2 cups water", false)).isNull();
+    }
+
+    @Test
+    void shouldIgnoreOtherRequestsOrMissingRecipe() {
+        Recipe recipe = Recipe.builder().ingredients(List.of("2 cups flour")).build();
+
+        assertThat(intent.answer("what is the metric system?", context(recipe))).isEmpty();
+        assertThat(intent.answer("convert to metric", context(null))).isEmpty();
+    }
+
+    private static IntentContext context(Recipe recipe) {
+        return new IntentContext("alice", UserProfile.EMPTY, recipe, true);
+    }
+}
@@ -0,0 +1,94 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalIntentsTest {
+
+    private static final Recipe DAL = Recipe.builder()
+            .name("Dal Tadka")
+            .ingredients(List.of("1 cup red lentils"))
+            .servingSize("4 servings")
+            .build();
+
+    private final LocalIntents intents = LocalIntents.defaults();
+    private final IntentContext context = new IntentContext("alice", UserProfile.EMPTY, DAL, true);
+
+    @Test
+    void shouldAcknowledgeThanks() {
+        for (String input : List.of("Thanks!", "thank you so much", "OK, great", "Perfect, chef.")) {
+            Optional<LocalIntents.Answer> answer = intents.resolve(input, context);
+
+            assertThat(answer).as(input).get().extracting(LocalIntents.Answer::intent).isEqualTo("AcknowledgementIntent");
+            assertThat(answer.get().response()).isInstanceOf(Conversation.class);
+        }
+    }
+
+    @Test
+    void shouldLeaveThanksToModelUnlessRecipeWasJustDelivered() {
+        IntentContext afterQuestion = new IntentContext("alice", UserProfile.EMPTY, DAL, false);
+        IntentContext noRecipe = new IntentContext("bob", UserProfile.EMPTY, null, false);
+
+        assertThat(intents.resolve("Thanks!", afterQuestion)).isEmpty();
+        assertThat(intents.resolve("Thanks!", noRecipe)).isEmpty();
+    }
+
+    @Test
+    void shouldRepeatLastRecipe() {
+        for (String input : List.of("Show that again", "can you repeat the recipe?", "What was that recipe again")) {
+            assertThat(intents.resolve(input, context)).as(input).get()
+                    .extracting(LocalIntents.Answer::response)
+                    .isSameAs(DAL);
+        }
+    }
+
+    @Test
+    void shouldLeaveRepeatToModelWithoutRecipe() {
+        IntentContext noRecipe = new IntentContext("bob", UserProfile.EMPTY, null, false);
+
+        assertThat(intents.resolve("Show that again", noRecipe)).isEmpty();
+    }
+
+    @Test
+    void shouldLeaveRequestsNeedingGenerationToModel() {
+        for (String input : List.of("Hi", "Vegan dal, please", "Make it spicier", "Another dal please", "Something else",
+                "Thanks, suggest another meal for the weekend.", "What can I cook for 4 people with chickpeas?")) {
+            assertThat(intents.resolve(input, context)).as(input).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldSkipLongMessages() {
+        String input = "Thanks" + " ".repeat(100) + "!";
+
+        assertThat(intents.resolve(input, context)).isEmpty();
+    }
+
+    @Test
+    void shouldTryIntentsInOrder() {
+        LocalIntent first = (input, ctx) -> Optional.of(new Conversation("first"));
+        LocalIntent second = (input, ctx) -> Optional.of(new Conversation("second"));
+
+        Optional<LocalIntents.Answer> answer = LocalIntents.of(first, second).resolve("anything", context);
+
+        assertThat(answer).get().extracting(LocalIntents.Answer::response)
+                .isEqualTo(new Conversation("first"));
+    }
+
+    @Test
+    void shouldPassNormalizedInput() {
+        LocalIntent echo = (input, ctx) -> Optional.of(new Conversation(input));
+
+        Optional<LocalIntents.Answer> answer = LocalIntents.of(echo).resolve("  Show   THAT\tagain ", context);
+
+        assertThat(answer).get().extracting(LocalIntents.Answer::response)
+                .isEqualTo(new Conversation("show that again"));
+    }
+}
@@ -0,0 +1,89 @@
+package ca.bazlur.chefbot.intent;
+
+import ca.bazlur.chefbot.domain.model.BotResponse;
+import ca.bazlur.chefbot.domain.model.Nutrition;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.model.UserProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScaleRecipeIntentTest {
+
+    private static final Recipe CHANA_MASALA = Recipe.builder()
+            .name("Chana Masala")
+            .ingredients(List.of("2 cups cooked chickpeas", "1 1/2 tbsp olive oil", "2-3 cloves garlic",
+                    "½ tsp cumin", "Salt to taste"))
+            .instructions(List.of("Simmer for 10 minutes."))
+            .nutrition(Nutrition.builder().caloriesPerServing(300).totalCalories(1200).build())
+            .servingSize("4 servings")
+            .build();
+
+    private final ScaleRecipeIntent intent = new ScaleRecipeIntent();
+
+    @Test
+    void shouldScaleToRequestedServings() {
+        Recipe scaled = scale("make it for 6 people");
+
+        assertThat(scaled.getServingSize()).isEqualTo("6 servings");
+        assertThat(scaled.getIngredients()).containsExactly(
+                "3 cups cooked chickpeas", "2 1/4 tbsp olive oil", "3-4 1/2 cloves garlic", "3/4 tsp cumin", "Salt to taste");
+        assertThat(scaled.getNutrition().getCaloriesPerServing()).isEqualTo(300);
+        assertThat(scaled.getNutrition().getTotalCalories()).isEqualTo(1800);
+        assertThat(scaled.getInstructions()).isEqualTo(CHANA_MASALA.getInstructions());
+        assertThat(scaled.getName()).isEqualTo("Chana Masala");
+    }
+
+    @Test
+    void shouldScaleByFactor() {
+        assertThat(scale("double it").getServingSize()).isEqualTo("8 servings");
+        assertThat(scale("halve the recipe").getIngredients()).startsWith("1 cups cooked chickpeas");
+        assertThat(scale("for 2").getServingSize()).isEqualTo("2 servings");
+    }
+
+    @Test
+    void shouldHalveOddServingsExactly() {
+        Recipe forThree = CHANA_MASALA.toBuilder().servingSize("3 servings").build();
+
+        Recipe halved = (Recipe) intent.answer("halve it", context(forThree)).orElseThrow();
+
+        assertThat(halved.getIngredients()).startsWith("1 cups cooked chickpeas", "3/4 tbsp olive oil");
+        assertThat(halved.getNutrition().getTotalCalories()).isEqualTo(450);
+        assertThat(halved.getServingSize()).isEqualTo("2 servings");
+    }
+
+    @Test
+    void shouldNotChangeOriginalRecipe() {
+        scale("triple it");
+
+        assertThat(CHANA_MASALA.getServingSize()).isEqualTo("4 servings");
+        assertThat(CHANA_MASALA.getIngredients()).startsWith("2 cups cooked chickpeas");
+    }
+
+    @Test
+    void shouldLeaveRecipeWithoutServingCountToModel() {
+        Recipe unknownServings = CHANA_MASALA.toBuilder().servingSize("a family").build();
+
+        assertThat(intent.answer("for 6 people", context(unknownServings))).isEmpty();
+        assertThat(intent.answer("for 6 people", context(null))).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreOtherRequests() {
+        assertThat(intent.answer("make it spicier", context(CHANA_MASALA))).isEmpty();
+        assertThat(intent.answer("what can i cook for 4 people with chickpeas?", context(CHANA_MASALA))).isEmpty();
+    }
+
+    private Recipe scale(String input) {
+        Optional<BotResponse> response = intent.answer(input, context(CHANA_MASALA));
+        assertThat(response).get().isInstanceOf(Recipe.class);
+        return (Recipe) response.get();
+    }
+
+    private static IntentContext context(Recipe recipe) {
+        return new IntentContext("alice", UserProfile.EMPTY, recipe, true);
+    }
+}
@@ -0,0 +1,56 @@
+package ca.bazlur.chefbot.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LogLinearHistogramTest {
+
+    @Test
+    void shouldReportPercentilesWithinRelativeError() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count()).isEqualTo(10_000);
+        assertThat(snapshot.min()).isEqualTo(1_000);
+        assertThat(snapshot.max()).isEqualTo(10_000_000);
+        assertThat(snapshot.mean()).isCloseTo(5_000_500, within(1.0));
+        assertThat((double) snapshot.p50()).isCloseTo(5_000_000, within(5_000_000 * 0.032));
+        assertThat((double) snapshot.p90()).isCloseTo(9_000_000, within(9_000_000 * 0.032));
+        assertThat((double) snapshot.p99()).isCloseTo(9_900_000, within(9_900_000 * 0.032));
+    }
+
+    @Test
+    void shouldMapEveryValueToBucketContainingIt() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LogLinearHistogram.indexOf(value);
+            assertThat(LogLinearHistogram.lowerBound(index)).isLessThanOrEqualTo(value);
+            if (index + 1 < 1888) {
+                assertThat(LogLinearHistogram.lowerBound(index + 1)).isGreaterThan(value);
+            }
+        }
+    }
+
+    @Test
+    void shouldCountConcurrentRecordings() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+
+        IntStream.range(0, 100_000).parallel().forEach(histogram::record);
+
+        assertThat(histogram.snapshot().count()).isEqualTo(100_000);
+        assertThat(histogram.snapshot().max()).isEqualTo(99_999);
+    }
+
+    @Test
+    void shouldReportEmptySnapshot() {
+        assertThat(new LogLinearHistogram().snapshot().count()).isZero();
+    }
+}
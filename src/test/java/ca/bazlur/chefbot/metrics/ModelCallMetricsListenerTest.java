@@ -0,0 +1,35 @@
+package ca.bazlur.chefbot.metrics;
+
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelCallMetricsListenerTest {
+
+    @Test
+    void shouldReadCachedInputTokensFromProviderTokenUsage() {
+        assertThat(ModelCallMetricsListener.cachedInputTokens(openAiUsage(1_500, 1_280))).isEqualTo(1_280);
+        assertThat(ModelCallMetricsListener.cachedInputTokens(openAiUsage(1_500, 0))).isZero();
+    }
+
+    @Test
+    void shouldReportUnknownWhenProviderDoesNotReportCachedTokens() {
+        assertThat(ModelCallMetricsListener.cachedInputTokens(new TokenUsage(1_500, 200))).isEqualTo(-1);
+        assertThat(ModelCallMetricsListener.cachedInputTokens(openAiUsage(1_500, null))).isEqualTo(-1);
+        assertThat(ModelCallMetricsListener.cachedInputTokens(OpenAiTokenUsage.builder()
+                .inputTokenCount(1_500)
+                .outputTokenCount(200)
+                .build())).isEqualTo(-1);
+        assertThat(ModelCallMetricsListener.cachedInputTokens(null)).isEqualTo(-1);
+    }
+
+    private static OpenAiTokenUsage openAiUsage(int inputTokens, Integer cachedTokens) {
+        return OpenAiTokenUsage.builder()
+                .inputTokenCount(inputTokens)
+                .inputTokensDetails(new OpenAiTokenUsage.InputTokensDetails(cachedTokens))
+                .outputTokenCount(200)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package ca.bazlur.chefbot.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @Test
+    void shouldFindNearestNeighboursLikeExactSearch() {
+        Random random = new Random(42);
+        float[][] vectors = randomVectors(random, 2_000);
+        HnswIndex<Integer> index = HnswIndex.builder().dimension(DIMENSION).build();
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(vectors[i], i);
+        }
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVectors(random, 1)[0];
+            Set<Integer> exact = exactNearest(vectors, query, 10);
+            found += (int) index.search(query, 10, 64).stream().filter(match -> exact.contains(match.item())).count();
+        }
+
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void shouldRankBySimilarity() {
+        HnswIndex<String> index = HnswIndex.builder().dimension(2).build();
+        index.add(new float[]{1, 0}, "east");
+        index.add(new float[]{0, 1}, "north");
+        index.add(new float[]{-1, 0}, "west");
+
+        List<HnswIndex.Match<String>> matches = index.search(new float[]{2, 1}, 2, 10);
+
+        assertThat(matches).extracting(HnswIndex.Match::item).containsExactly("east", "north");
+        assertThat(matches.getFirst().score()).isCloseTo(2 / Math.sqrt(5), offset(1e-6));
+    }
+
+    @Test
+    void shouldIndexFromManyThreadsAtOnce() throws InterruptedException {
+        float[][] vectors = randomVectors(new Random(7), 4_000);
+        HnswIndex<Integer> index = HnswIndex.builder().dimension(DIMENSION).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < vectors.length; i++) {
+            int item = i;
+            executor.execute(() -> index.add(vectors[item], item));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(index.size()).isEqualTo(vectors.length);
+        long foundItself = IntStream.range(0, vectors.length)
+                .filter(i -> index.search(vectors[i], 1, 32).getFirst().item() == i)
+                .count();
+        assertThat(foundItself).isGreaterThan(vectors.length * 98L / 100);
+    }
+
+    @Test
+    void shouldFindEveryVectorAmongManyCopiesOfEach() {
+        float[][] vectors = randomVectors(new Random(11), 50);
+        HnswIndex<Integer> index = HnswIndex.builder().dimension(DIMENSION).build();
+        for (int copy = 0; copy < 40; copy++) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.add(vectors[i], i);
+            }
+        }
+
+        assertThat(IntStream.range(0, vectors.length).map(i -> index.search(vectors[i], 1, 32).getFirst().item()))
+                .containsExactlyElementsOf(IntStream.range(0, vectors.length).boxed().toList());
+    }
+
+    @Test
+    void shouldReturnNothingWhenEmpty() {
+        HnswIndex<String> index = HnswIndex.builder().dimension(DIMENSION).build();
+
+        assertThat(index.search(new float[DIMENSION], 3, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectVectorsOfWrongDimension() {
+        HnswIndex<String> index = HnswIndex.builder().dimension(DIMENSION).build();
+
+        assertThatThrownBy(() -> index.add(new float[DIMENSION + 1], "too long"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private static Set<Integer> exactNearest(float[][] vectors, float[] query, int k) {
+        double[] similarity = new double[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            similarity[i] = cosine(vectors[i], query);
+        }
+        return new HashSet<>(IntStream.range(0, vectors.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> similarity[i]).reversed())
+                .limit(k)
+                .toList());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot / Math.sqrt(norm(a) * norm(b));
+    }
+
+    private static double norm(float[] vector) {
+        return IntStream.range(0, vector.length).mapToDouble(i -> vector[i] * vector[i]).sum();
+    }
+}
@@ -0,0 +1,143 @@
+package ca.bazlur.chefbot.rag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecipeCorpusTest {
+
+    @TempDir
+    Path directory;
+
+    private final BagOfWordsEmbeddingModel embeddingModel = new BagOfWordsEmbeddingModel();
+
+    private RecipeCorpus.Builder corpusBuilder() {
+        return RecipeCorpus.builder()
+                .embeddingModel(embeddingModel)
+                .minScore(0.3)
+                .ingestionThreads(4)
+                .batchSize(2);
+    }
+
+    @Test
+    void shouldRetrieveMostSimilarRecipes() {
+        RecipeCorpus corpus = corpusBuilder().maxResults(2).build();
+        corpus.ingest(Stream.of(
+                Document.from("Dal Tadka: red lentils tempered with cumin, garlic and chili"),
+                Document.from("Chana Masala: chickpeas simmered in a spiced tomato and onion gravy"),
+                Document.from("Pancakes: flour, milk, eggs and butter, fried until golden"),
+                Document.from("Masoor Dal: red lentils cooked with turmeric and tomato")));
+
+        List<Content> contents = corpus.retrieve(Query.from("red lentils dal with garlic"));
+
+        assertThat(contents).extracting(content -> content.textSegment().text())
+                .containsExactly(
+                        "Dal Tadka: red lentils tempered with cumin, garlic and chili",
+                        "Masoor Dal: red lentils cooked with turmeric and tomato");
+    }
+
+    @Test
+    void shouldLeaveOutUnrelatedRecipes() {
+        RecipeCorpus corpus = corpusBuilder().build();
+        corpus.ingest(Stream.of(Document.from("Pancakes: flour, milk, eggs and butter")));
+
+        assertThat(corpus.retrieve(Query.from("thanks, that was lovely"))).isEmpty();
+    }
+
+    @Test
+    void shouldIndexEveryPassageOfALargeStreamInParallel() {
+        RecipeCorpus corpus = corpusBuilder().batchSize(16).build();
+
+        Stream<Document> generated = IntStream.range(0, 999)
+                .mapToObj(i -> Document.from("Recipe number" + i + " with ingredient" + i));
+        int passages = corpus.ingest(Stream.concat(generated, Stream.of(Document.from("Pancakes: flour, milk, eggs"))));
+
+        assertThat(passages).isEqualTo(1_000);
+        assertThat(corpus.size()).isEqualTo(1_000);
+        assertThat(embeddingModel.batches.get()).isEqualTo(1_000 / 16 + 1);
+        assertThat(corpus.retrieve(Query.from("pancakes, flour, milk, eggs")))
+                .first()
+                .extracting(content -> content.textSegment().text())
+                .isEqualTo("Pancakes: flour, milk, eggs");
+    }
+
+    @Test
+    void shouldFailIngestionWhenEmbeddingFails() {
+        RecipeCorpus corpus = corpusBuilder().embeddingModel(new BagOfWordsEmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+                throw new IllegalStateException("model not loaded");
+            }
+        }).build();
+
+        assertThatThrownBy(() -> corpus.ingest(Stream.of(Document.from("Dal Tadka"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("model not loaded");
+    }
+
+    @Test
+    void shouldReadDocumentsAndJsonLinesFromDirectory() throws IOException {
+        Files.writeString(directory.resolve("dal.md"), "# Dal Tadka\nRed lentils with cumin");
+        Files.writeString(directory.resolve("more.jsonl"), """
+                {"name": "Chana Masala"}
+
+                {"name": "Aloo Gobi"}
+                """);
+        Files.writeString(directory.resolve("notes.bin"), "ignored");
+
+        try (Stream<Document> documents = RecipeCorpus.documents(directory)) {
+            assertThat(documents.map(Document::text)).containsExactly(
+                    "# Dal Tadka\nRed lentils with cumin",
+                    "{\"name\": \"Chana Masala\"}",
+                    "{\"name\": \"Aloo Gobi\"}");
+        }
+    }
+
+    /**
+     * Deterministic stand-in for a local embedding model: each word adds weight to one of 64 dimensions.
+     */
+    private static class BagOfWordsEmbeddingModel implements EmbeddingModel {
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            batches.incrementAndGet();
+            return Response.from(segments.stream().map(segment -> embed(segment.text()).content()).toList());
+        }
+
+        @Override
+        public Response<Embedding> embed(String text) {
+            float[] vector = new float[dimension()];
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), vector.length)] += 1;
+                }
+            }
+            return Response.from(Embedding.from(vector));
+        }
+
+        @Override
+        public int dimension() {
+            return 64;
+        }
+    }
+}
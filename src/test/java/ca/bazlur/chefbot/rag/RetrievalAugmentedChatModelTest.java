@@ -0,0 +1,76 @@
+package ca.bazlur.chefbot.rag;
+
+import ca.bazlur.chefbot.api.RecipeBotAssistant;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetrievalAugmentedChatModelTest {
+
+    private static final String PASSAGE = "Dal Tadka: red lentils tempered with cumin, garlic and chili";
+
+    private final ContentRetriever retriever = query -> query.text().contains("dal")
+            ? List.of(Content.from(PASSAGE))
+            : List.of();
+
+    @Test
+    void shouldSendPassagesToModelButKeepRawUserTextInMemory() {
+        ChatLanguageModel model = mock(ChatLanguageModel.class);
+        when(model.chat(any(ChatRequest.class))).thenReturn(ChatResponse.builder()
+                .aiMessage(AiMessage.from("{\"type\": \"recipe\", \"name\": \"Dal Tadka\"}"))
+                .build());
+        MessageWindowChatMemory memory = MessageWindowChatMemory.withMaxMessages(10);
+        RecipeBotAssistant assistant = AiServices.builder(RecipeBotAssistant.class)
+                .chatLanguageModel(RetrievalAugmentedChatModel.augmenting(model, retriever))
+                .chatMemoryProvider(memoryId -> memory)
+                .build();
+
+        assistant.getRecipe("alice", "A dal for tonight, please");
+
+        ArgumentCaptor<ChatRequest> request = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(model).chat(request.capture());
+        assertThat(((UserMessage) request.getValue().messages().getLast()).singleText())
+                .startsWith("A dal for tonight, please")
+                .contains(PASSAGE);
+        assertThat(memory.messages()).hasSize(2);
+        assertThat(memory.messages().getFirst()).isEqualTo(UserMessage.from("A dal for tonight, please"));
+    }
+
+    @Test
+    void shouldLeaveRequestAloneWithoutPassages() {
+        ChatRequest request = ChatRequest.builder()
+                .messages(SystemMessage.from("You are RecipeBot"), UserMessage.from("Hello!"))
+                .build();
+
+        assertThat(RetrievalAugmentedChatModel.augment(request, retriever)).isSameAs(request);
+    }
+
+    @Test
+    void shouldOnlyAugmentLatestUserMessage() {
+        List<ChatMessage> messages = List.of(
+                UserMessage.from("Any dal ideas?"), AiMessage.from("Dal Tadka"), UserMessage.from("And a dal soup?"));
+
+        ChatRequest augmented = RetrievalAugmentedChatModel.augment(ChatRequest.builder().messages(messages).build(), retriever);
+
+        assertThat(augmented.messages().subList(0, 2)).isEqualTo(messages.subList(0, 2));
+        assertThat(((UserMessage) augmented.messages().get(2)).singleText()).contains(PASSAGE);
+    }
+}
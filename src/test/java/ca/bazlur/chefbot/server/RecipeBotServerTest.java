@@ -0,0 +1,285 @@
+package ca.bazlur.chefbot.server;
+
+import ca.bazlur.chefbot.core.RecipeBot;
+import ca.bazlur.chefbot.domain.model.Conversation;
+import ca.bazlur.chefbot.domain.model.Recipe;
+import ca.bazlur.chefbot.domain.service.BotResponseListener;
+import ca.bazlur.chefbot.metrics.LockFreeMetrics;
+import ca.bazlur.chefbot.metrics.MetricNames;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipeBotServerTest {
+
+    private final RecipeBot recipeBot = mock(RecipeBot.class);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private RecipeBotServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private RecipeBotServer startServer(int maxInFlight, Duration requestTimeout) throws IOException {
+        server = RecipeBotServer.builder()
+                .recipeBot(recipeBot)
+                .port(0)
+                .maxInFlight(maxInFlight)
+                .requestTimeout(requestTimeout)
+                .drainTimeout(Duration.ofSeconds(1))
+                .build();
+        server.start();
+        return server;
+    }
+
+    private HttpRequest chatRequest(String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    @Test
+    void shouldAnswerChatRequestWithBotResponse() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        when(recipeBot.processUserInput(eq("alice"), eq("Hi"))).thenReturn(new Conversation("Hello Alice!"));
+
+        HttpResponse<String> response = client.send(chatRequest("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body())
+                .contains("\"type\":\"conversation\"")
+                .contains("Hello Alice!");
+    }
+
+    @Test
+    void shouldRenderRecipeAsMarkdownWhenAccepted() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        when(recipeBot.processUserInput(eq("alice"), eq("Dal please"))).thenReturn(Recipe.builder()
+                .name("Dal Tadka")
+                .ingredients(List.of("red lentils"))
+                .build());
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat"))
+                        .header("Accept", "text/markdown")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"sessionId\": \"alice\", \"message\": \"Dal please\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("text/markdown; charset=utf-8");
+        assertThat(response.body()).startsWith("## Dal Tadka\n").contains("- red lentils\n");
+    }
+
+    @Test
+    void shouldKeepJsonWhenAcceptedAlongsideText() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        when(recipeBot.processUserInput(eq("alice"), eq("Hi"))).thenReturn(new Conversation("Hello Alice!"));
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat"))
+                        .header("Accept", "application/json, text/plain, */*")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json; charset=utf-8");
+    }
+
+    @Test
+    void shouldPickTextFormatWithHigherQuality() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        when(recipeBot.processUserInput(eq("alice"), eq("Hi"))).thenReturn(new Conversation("Hello Alice!"));
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat"))
+                        .header("Accept", "text/markdown;q=0.4, text/plain;q=0.8")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("text/plain; charset=utf-8");
+        assertThat(response.body()).isEqualTo("Hello Alice!\n");
+    }
+
+    @Test
+    void shouldServeMetricsSnapshot() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        LockFreeMetrics metrics = new LockFreeMetrics();
+        metrics.increment(MetricNames.TURNS, 3);
+        metrics.record(MetricNames.TURN_LATENCY, 1_000_000);
+        when(recipeBot.metrics()).thenReturn(metrics);
+
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body())
+                .contains("\"chefbot.turns\":3")
+                .contains("\"chefbot.turn.latency\":{\"count\":1");
+    }
+
+    @Test
+    void shouldRejectRequestsWithoutSessionId() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+
+        HttpResponse<String> response = client.send(chatRequest("{\"message\": \"Hi\"}"), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void shouldRejectMalformedJson() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+
+        HttpResponse<String> response = client.send(chatRequest("{not json"), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void shouldApplyBackPressureWhenInFlightLimitIsReached() throws Exception {
+        startServer(1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(recipeBot.processUserInput(anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new Conversation("Done");
+        });
+
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(
+                chatRequest("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"), HttpResponse.BodyHandlers.ofString());
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        HttpResponse<String> second = client.send(chatRequest("{\"sessionId\": \"bob\", \"message\": \"Hi\"}"),
+                HttpResponse.BodyHandlers.ofString());
+        release.countDown();
+
+        assertThat(second.statusCode()).isEqualTo(429);
+        assertThat(second.headers().firstValue("Retry-After")).isPresent();
+        assertThat(first.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldCloseBotOnceInFlightTurnsHaveDrained() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        when(recipeBot.processUserInput(anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(200);
+            return new Conversation("Done");
+        });
+
+        CompletableFuture<HttpResponse<String>> turn = client.sendAsync(
+                chatRequest("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"), HttpResponse.BodyHandlers.ofString());
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        server.stop();
+
+        InOrder order = inOrder(recipeBot);
+        order.verify(recipeBot).processUserInput("alice", "Hi");
+        order.verify(recipeBot).close();
+        assertThat(turn.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        server = null;
+    }
+
+    @Test
+    void shouldTimeOutSlowTurns() throws Exception {
+        startServer(10, Duration.ofMillis(100));
+        when(recipeBot.processUserInput(anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return new Conversation("Too late");
+        });
+
+        HttpResponse<String> response = client.send(chatRequest("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(504);
+    }
+
+    @Test
+    void shouldHoldInFlightPermitUntilTimedOutTurnEnds() throws Exception {
+        startServer(1, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        when(recipeBot.processUserInput(anyString(), anyString())).thenAnswer(invocation -> {
+            // Like a blocking HTTP call, the model call carries on when the turn is interrupted
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (release.getCount() > 0 && System.nanoTime() < deadline) {
+                try {
+                    release.await(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ignored) {
+                    // Keep going
+                }
+            }
+            return new Conversation("Too late");
+        });
+
+        HttpResponse<String> first = client.send(chatRequest("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> second = client.send(chatRequest("{\"sessionId\": \"bob\", \"message\": \"Hi\"}"),
+                HttpResponse.BodyHandlers.ofString());
+        release.countDown();
+
+        assertThat(first.statusCode()).isEqualTo(504);
+        assertThat(second.statusCode()).isEqualTo(429);
+    }
+
+    @Test
+    void shouldStreamResponseAsServerSentEvents() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+        when(recipeBot.streamUserInput(eq("alice"), eq("Hi"), any())).thenAnswer(invocation -> {
+            BotResponseListener listener = invocation.getArgument(2);
+            listener.onConversationDelta("Hello ");
+            listener.onConversationDelta("Alice!");
+            Conversation response = new Conversation("Hello Alice!");
+            listener.onComplete(response);
+            return CompletableFuture.completedFuture(response);
+        });
+
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat/stream"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"sessionId\": \"alice\", \"message\": \"Hi\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("text/event-stream"));
+        assertThat(response.body())
+                .contains("event: delta\ndata: {\"text\":\"Hello \"}\n\n")
+                .contains("event: delta\ndata: {\"text\":\"Alice!\"}\n\n")
+                .contains("event: done\ndata: {\"type\":\"conversation\",\"message\":\"Hello Alice!\"}\n\n");
+    }
+
+    @Test
+    void shouldRejectNonPostRequests() throws Exception {
+        startServer(10, Duration.ofSeconds(5));
+
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/chat")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(405);
+    }
+}
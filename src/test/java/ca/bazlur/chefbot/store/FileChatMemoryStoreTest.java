@@ -0,0 +1,200 @@
+package ca.bazlur.chefbot.store;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileChatMemoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private FileChatMemoryStore createStore() {
+        return FileChatMemoryStore.builder().directory(directory).build();
+    }
+
+    @Test
+    void shouldResumeSessionsAfterRestart() {
+        List<ChatMessage> messages = List.of(
+                SystemMessage.from("You are a chef"),
+                UserMessage.from("Crème brûlée please 🍮"),
+                AiMessage.from("{\"type\": \"conversation\", \"message\": \"Sure!\"}"),
+                UserMessage.from("alice", "Named messages use the JSON fallback"));
+        createStore().updateMessages("alice", messages);
+        createStore().updateMessages("bob", List.of(UserMessage.from("Hi")));
+
+        FileChatMemoryStore restarted = createStore();
+
+        assertThat(restarted.getMessages("alice")).containsExactlyElementsOf(messages);
+        assertThat(restarted.getMessages("bob")).containsExactly(UserMessage.from("Hi"));
+        assertThat(restarted.getMessages("carol")).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyAppendNewMessages() throws IOException {
+        FileChatMemoryStore store = createStore();
+        List<ChatMessage> messages = new ArrayList<>(List.of(UserMessage.from("Hello"), AiMessage.from("Hi!")));
+        store.updateMessages("alice", messages);
+        Path log = singleLog();
+        byte[] before = Files.readAllBytes(log);
+
+        messages.add(UserMessage.from("Something vegan"));
+        store.updateMessages("alice", messages);
+
+        byte[] after = Files.readAllBytes(log);
+        assertThat(after).startsWith(before);
+        // Record header (8 bytes) + kind (1 byte) + text
+        assertThat(after.length - before.length).isEqualTo(9 + "Something vegan".length());
+    }
+
+    @Test
+    void shouldCompactWhenSummaryReplacesOlderMessages() throws IOException {
+        FileChatMemoryStore store = createStore();
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(SystemMessage.from("You are a chef"));
+        for (int i = 0; i < 10; i++) {
+            messages.add(UserMessage.from("A fairly long user message number " + i));
+        }
+        store.updateMessages("alice", messages);
+        long fullSize = Files.size(singleLog());
+
+        List<ChatMessage> summarized = List.of(
+                SystemMessage.from("You are a chef"),
+                SystemMessage.from("Previous conversation summary: ten questions"),
+                messages.getLast());
+        store.updateMessages("alice", summarized);
+
+        FileChatMemoryStore fresh = FileChatMemoryStore.builder().directory(directory.resolve("fresh")).build();
+        fresh.updateMessages("alice", summarized);
+        assertThat(Files.size(singleLog())).isLessThan(fullSize)
+                .isEqualTo(Files.size(directory.resolve("fresh").resolve(singleLog().getFileName())));
+        assertThat(createStore().getMessages("alice")).containsExactlyElementsOf(summarized);
+    }
+
+    @Test
+    void shouldReplayTruncationsWithoutCompacting() throws IOException {
+        FileChatMemoryStore store = createStore();
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(UserMessage.from("Message " + i));
+        }
+        store.updateMessages("alice", messages);
+        byte[] before = Files.readAllBytes(singleLog());
+
+        // Replacing only the newest message leaves most of the log live, so it is truncated in place
+        messages.set(messages.size() - 1, AiMessage.from("Replaced"));
+        store.updateMessages("alice", messages);
+
+        assertThat(Files.readAllBytes(singleLog())).startsWith(before);
+        assertThat(createStore().getMessages("alice")).containsExactlyElementsOf(messages);
+    }
+
+    @Test
+    void shouldIgnoreRecordTornByCrash() throws IOException {
+        FileChatMemoryStore store = createStore();
+        store.updateMessages("alice", List.of(UserMessage.from("Hello"), AiMessage.from("Hi!")));
+        Path log = singleLog();
+        byte[] bytes = Files.readAllBytes(log);
+        // Simulate a crash halfway through writing the last record
+        Files.write(log, Arrays.copyOf(bytes, bytes.length - 2), StandardOpenOption.TRUNCATE_EXISTING);
+
+        FileChatMemoryStore restarted = createStore();
+        assertThat(restarted.getMessages("alice")).containsExactly(UserMessage.from("Hello"));
+
+        restarted.updateMessages("alice", List.of(UserMessage.from("Hello"), AiMessage.from("Welcome back")));
+        assertThat(createStore().getMessages("alice")).containsExactly(UserMessage.from("Hello"), AiMessage.from("Welcome back"));
+    }
+
+    @Test
+    void shouldLoseWholeTruncatingUpdateTornByCrash() throws IOException {
+        FileChatMemoryStore store = createStore();
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(UserMessage.from("Message " + i));
+        }
+        store.updateMessages("alice", messages);
+        List<ChatMessage> before = List.copyOf(messages);
+        Path log = singleLog();
+        long sizeBefore = Files.size(log);
+
+        messages.set(messages.size() - 1, SystemMessage.from("Summary of message 9"));
+        messages.add(AiMessage.from("Anything else?"));
+        store.updateMessages("alice", messages);
+        byte[] bytes = Files.readAllBytes(log);
+        assertThat(createStore().getMessages("alice")).containsExactlyElementsOf(messages);
+
+        // Cut the update anywhere and the log replays to the state before it, never to a shorter history
+        for (long cut = sizeBefore + 1; cut < bytes.length; cut += 7) {
+            Files.write(log, Arrays.copyOf(bytes, (int) cut), StandardOpenOption.TRUNCATE_EXISTING);
+            assertThat(createStore().getMessages("alice")).as("cut at %d", cut).containsExactlyElementsOf(before);
+        }
+    }
+
+    @Test
+    void shouldDeleteSessionLog() throws IOException {
+        FileChatMemoryStore store = createStore();
+        store.updateMessages("alice", List.of(UserMessage.from("Hello")));
+
+        store.deleteMessages("alice");
+
+        assertThat(store.getMessages("alice")).isEmpty();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldReloadSessionsEvictedFromHeap() {
+        FileChatMemoryStore store = FileChatMemoryStore.builder().directory(directory).maxOpenSessions(1).build();
+        store.updateMessages("alice", List.of(UserMessage.from("Hello")));
+        store.updateMessages("bob", List.of(UserMessage.from("Bonjour")));
+
+        store.updateMessages("alice", List.of(UserMessage.from("Hello"), AiMessage.from("Hi!")));
+
+        assertThat(createStore().getMessages("alice")).containsExactly(UserMessage.from("Hello"), AiMessage.from("Hi!"));
+    }
+
+    @Test
+    void shouldOnlyUpdateSessionStillAtExpectedVersion() {
+        FileChatMemoryStore store = createStore();
+        long version = store.getSnapshot("alice").version();
+
+        long updated = store.compareAndUpdateMessages("alice", List.of(UserMessage.from("Hello")), version);
+        long conflict = store.compareAndUpdateMessages("alice", List.of(UserMessage.from("Bonjour")), version);
+
+        assertThat(updated).isNotEqualTo(version);
+        assertThat(conflict).isEqualTo(VersionedChatMemoryStore.CONFLICT);
+        assertThat(store.getSnapshot("alice"))
+                .isEqualTo(new VersionedChatMemoryStore.Snapshot(List.of(UserMessage.from("Hello")), updated));
+    }
+
+    @Test
+    void shouldGiveSessionsReloadedFromDiskNewVersion() {
+        FileChatMemoryStore store = FileChatMemoryStore.builder().directory(directory).maxOpenSessions(1).build();
+        long version = store.compareAndUpdateMessages("alice", List.of(UserMessage.from("Hello")), store.version("alice"));
+        store.updateMessages("bob", List.of(UserMessage.from("Bonjour")));
+
+        // Alice's log was evicted from heap; a memory still holding her old version has to re-read it
+        assertThat(store.version("alice")).isNotEqualTo(version);
+        assertThat(store.getMessages("alice")).containsExactly(UserMessage.from("Hello"));
+    }
+
+    private Path singleLog() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ca.bazlur.chefbot.store;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryVersionedChatMemoryStoreTest {
+
+    private final InMemoryVersionedChatMemoryStore store = new InMemoryVersionedChatMemoryStore();
+
+    @Test
+    void shouldOnlyUpdateSessionStillAtExpectedVersion() {
+        long version = store.version("alice");
+        List<ChatMessage> first = List.of(UserMessage.from("Hello"));
+        List<ChatMessage> second = List.of(UserMessage.from("Bonjour"));
+
+        long updated = store.compareAndUpdateMessages("alice", first, version);
+        long conflict = store.compareAndUpdateMessages("alice", second, version);
+
+        assertThat(updated).isNotEqualTo(version);
+        assertThat(conflict).isEqualTo(VersionedChatMemoryStore.CONFLICT);
+        assertThat(store.getSnapshot("alice")).isEqualTo(new VersionedChatMemoryStore.Snapshot(first, updated));
+    }
+
+    @Test
+    void shouldMoveToNewVersionOnEveryUpdate() {
+        long before = store.version("alice");
+        store.updateMessages("alice", List.of(UserMessage.from("Hello")));
+        long afterFirst = store.version("alice");
+        store.updateMessages("alice", List.of(UserMessage.from("Hello"), AiMessage.from("Hi!")));
+
+        assertThat(store.version("alice")).isNotIn(before, afterFirst);
+    }
+
+    @Test
+    void shouldKeepSessionsIndependent() {
+        long bobVersion = store.version("bob");
+        store.updateMessages("alice", List.of(UserMessage.from("Hello")));
+
+        assertThat(store.compareAndUpdateMessages("bob", List.of(UserMessage.from("Bonjour")), bobVersion))
+                .isNotEqualTo(VersionedChatMemoryStore.CONFLICT);
+        assertThat(store.getMessages("alice")).containsExactly(UserMessage.from("Hello"));
+    }
+
+    @Test
+    void shouldForgetDeletedSession() {
+        store.updateMessages("alice", List.of(UserMessage.from("Hello")));
+        long version = store.version("alice");
+
+        store.deleteMessages("alice");
+
+        assertThat(store.getMessages("alice")).isEmpty();
+        assertThat(store.version("alice")).isNotEqualTo(version);
+    }
+}